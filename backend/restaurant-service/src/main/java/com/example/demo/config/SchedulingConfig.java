@@ -0,0 +1,12 @@
+package com.example.demo.config;
+
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+
+/**
+ * Enables background jobs declared with @Scheduled
+ */
+@Configuration
+@EnableScheduling
+public class SchedulingConfig {
+}
@@ -1,8 +1,12 @@
 package com.example.demo.config;
 
+import com.example.demo.security.BCryptWorkFactorCalibrator;
 import com.example.demo.security.CustomUserDetailsService;
 import com.example.demo.security.JwtAuthenticationFilter;
+import com.example.demo.security.RateLimitFilter;
 import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.http.HttpMethod;
@@ -16,23 +20,33 @@ import org.springframework.security.config.annotation.web.configuration.EnableWe
 import org.springframework.security.config.annotation.web.configurers.AbstractHttpConfigurer;
 import org.springframework.security.config.http.SessionCreationPolicy;
 import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.DelegatingPasswordEncoder;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.security.web.SecurityFilterChain;
 import org.springframework.security.web.authentication.UsernamePasswordAuthenticationFilter;
 import org.springframework.security.web.util.matcher.RegexRequestMatcher;
 
+import java.time.Duration;
+import java.util.Map;
+
 @Configuration
 @EnableWebSecurity
 @EnableMethodSecurity
 @RequiredArgsConstructor
 public class SecurityConfig {
 
+    // Never calibrate below the previous fixed default, nor to a cost that makes logins take seconds
+    private static final int MIN_BCRYPT_STRENGTH = 10;
+    private static final int MAX_BCRYPT_STRENGTH = 14;
+
     private final CustomUserDetailsService userDetailsService;
     private final JwtAuthenticationFilter jwtAuthFilter;
+    private final RateLimitFilter rateLimitFilter;
 
 
     @Bean
-    public SecurityFilterChain securityFilterChain(HttpSecurity http) throws Exception {
+    public SecurityFilterChain securityFilterChain(HttpSecurity http,
+                                                   AuthenticationProvider authenticationProvider) throws Exception {
         http
                 .csrf(AbstractHttpConfigurer::disable)
                 .cors(cors -> cors.configure(http))
@@ -55,8 +69,12 @@ public class SecurityConfig {
                         .requestMatchers(HttpMethod.GET, "/api/restaurants/*/menu").permitAll()
                         .requestMatchers(HttpMethod.GET, "/api/restaurants/*/reviews").permitAll()
                         .requestMatchers(HttpMethod.GET, "/api/restaurants/*/reviews/stats").permitAll()
+                        .requestMatchers(HttpMethod.GET, "/api/dishes/search").permitAll()
                         .requestMatchers(HttpMethod.GET, "/api/dishes/*").permitAll()
                         .requestMatchers(HttpMethod.GET, "/api/allergens").permitAll()
+                        // Uploaded images are shown on public pages
+                        .requestMatchers(HttpMethod.GET, "/uploads/**").permitAll()
+                        .requestMatchers(HttpMethod.HEAD, "/uploads/**").permitAll()
 
                         // Authenticated "me" endpoints — before wildcard numeric ID rules
                         .requestMatchers(HttpMethod.GET, "/api/restaurants/my").authenticated()
@@ -94,8 +112,10 @@ public class SecurityConfig {
                 .sessionManagement(session ->
                         session.sessionCreationPolicy(SessionCreationPolicy.STATELESS)
                 )
-                .authenticationProvider(authenticationProvider())
+                .authenticationProvider(authenticationProvider)
                 .addFilterBefore(jwtAuthFilter, UsernamePasswordAuthenticationFilter.class)
+                // Limits are keyed by user id, so they run once the token has been read
+                .addFilterAfter(rateLimitFilter, JwtAuthenticationFilter.class)
                 // Add exception handling to properly convert AccessDeniedException to 403
                 .exceptionHandling(exceptions -> exceptions
                         .accessDeniedHandler((request, response, accessDeniedException) -> {
@@ -109,11 +129,24 @@ public class SecurityConfig {
         return http.build();
     }
 
+    /**
+     * The rate limiter only runs inside the security chain; keep Boot from also registering it
+     * as a plain servlet filter, where it would run before the token is read
+     */
+    @Bean
+    public FilterRegistrationBean<RateLimitFilter> rateLimitFilterRegistration() {
+        FilterRegistrationBean<RateLimitFilter> registration = new FilterRegistrationBean<>(rateLimitFilter);
+        registration.setEnabled(false);
+        return registration;
+    }
+
     @Bean
-    public AuthenticationProvider authenticationProvider() {
+    public AuthenticationProvider authenticationProvider(PasswordEncoder passwordEncoder) {
         DaoAuthenticationProvider authProvider = new DaoAuthenticationProvider(userDetailsService);
 
-        authProvider.setPasswordEncoder(passwordEncoder());
+        authProvider.setPasswordEncoder(passwordEncoder);
+        // Rehash stored passwords on successful login when the encoder asks for an upgrade
+        authProvider.setUserDetailsPasswordService(userDetailsService);
         return authProvider;
     }
 
@@ -122,8 +155,23 @@ public class SecurityConfig {
         return config.getAuthenticationManager();
     }
 
+    /**
+     * Delegating encoder: new hashes are written as {bcrypt} with a work factor either configured
+     * or calibrated at startup to the target verification time. Legacy unprefixed BCrypt hashes still
+     * match and, like hashes of a lower strength, are upgraded on the next successful login.
+     */
     @Bean
-    public PasswordEncoder passwordEncoder() {
-        return new BCryptPasswordEncoder();
+    public PasswordEncoder passwordEncoder(
+            @Value("${security.password.bcrypt-strength:0}") int configuredStrength,
+            @Value("${security.password.target-hash-time:PT0.25S}") Duration targetHashTime) {
+        int strength = configuredStrength > 0
+                ? configuredStrength
+                : BCryptWorkFactorCalibrator.calibrate(targetHashTime, MIN_BCRYPT_STRENGTH, MAX_BCRYPT_STRENGTH)
+                        .getStrength();
+
+        BCryptPasswordEncoder bcrypt = new BCryptPasswordEncoder(strength);
+        DelegatingPasswordEncoder encoder = new DelegatingPasswordEncoder("bcrypt", Map.of("bcrypt", bcrypt));
+        encoder.setDefaultPasswordEncoderForMatches(bcrypt);
+        return encoder;
     }
 }
\ No newline at end of file
@@ -7,8 +7,11 @@ import com.example.demo.service.AllergenService;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.CacheControl;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 
 import java.util.List;
 
@@ -24,12 +27,22 @@ public class AllergenController {
 
     /**
      * PUBLIC: Get all available allergens
+     * Served from the cached catalogue; answers 304 when If-None-Match carries the current ETag
      */
     @GetMapping("/allergens")
-    public ResponseEntity<List<AllergenResponseDTO>> getAllAllergens() {
+    public ResponseEntity<byte[]> getAllAllergens(WebRequest webRequest) {
         log.info("GET /api/allergens - fetching all allergens");
-        List<AllergenResponseDTO> allergens = allergenService.getAllAllergens();
-        return ResponseEntity.ok(allergens);
+        AllergenService.AllergenCatalogue catalogue = allergenService.getAllergenCatalogue();
+
+        if (webRequest.checkNotModified(catalogue.getEtag())) {
+            return null;
+        }
+
+        return ResponseEntity.ok()
+                .eTag(catalogue.getEtag())
+                .cacheControl(CacheControl.noCache())
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(catalogue.getJson());
     }
 
     /**
@@ -2,12 +2,19 @@ package com.example.demo.controller;
 
 import com.example.demo.dto.user.AuthResponseDTO;
 import com.example.demo.dto.user.LoginRequestDTO;
+import com.example.demo.dto.user.RefreshTokenRequestDTO;
 import com.example.demo.dto.user.UserRegistrationRequestDTO;
 import com.example.demo.dto.user.UserResponseDTO;
+import com.example.demo.entity.Role;
 import com.example.demo.entity.User;
 import com.example.demo.repository.UserRepository;
+import com.example.demo.security.AccountUserDetails;
 import com.example.demo.security.JwtUtil;
+import com.example.demo.security.PasswordHashingExecutor;
+import com.example.demo.security.TokenRevocationList;
+import com.example.demo.service.RefreshTokenService;
 import com.example.demo.service.UserService;
+import io.jsonwebtoken.Claims;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
@@ -20,6 +27,7 @@ import org.springframework.security.core.AuthenticationException;
 import org.springframework.web.bind.annotation.*;
 
 import java.util.Map;
+import java.util.Optional;
 
 @RestController
 @RequestMapping("/api/auth")
@@ -32,6 +40,9 @@ public class AuthController {
     private final UserRepository userRepository;
     private final AuthenticationManager authenticationManager;
     private final JwtUtil jwtUtil;
+    private final PasswordHashingExecutor passwordHashingExecutor;
+    private final TokenRevocationList tokenRevocationList;
+    private final RefreshTokenService refreshTokenService;
 
     /**
      * PUBLIC: Register new user
@@ -52,47 +63,112 @@ public class AuthController {
         log.info("POST /api/auth/login - login attempt for: {}", request.getEmail());
 
         try {
-            // Authenticate user
-            Authentication authentication = authenticationManager.authenticate(
-                    new UsernamePasswordAuthenticationToken(
-                            request.getEmail(),
-                            request.getPassword()
+            // Authenticate user; BCrypt runs on the bounded hashing pool, not on the request thread
+            Authentication authentication = passwordHashingExecutor.execute(() ->
+                    authenticationManager.authenticate(
+                            new UsernamePasswordAuthenticationToken(
+                                    request.getEmail(),
+                                    request.getPassword()
+                            )
                     )
             );
 
-            // Get user details
-            User user = userRepository.findByEmail(request.getEmail())
-                    .orElseThrow(() -> new RuntimeException("User not found"));
+            // The provider already loaded the account, reuse it instead of querying again
+            LoggedInUser user = authentication.getPrincipal() instanceof AccountUserDetails account
+                    ? new LoggedInUser(account.getId(), account.getUsername(), account.getFirstName(),
+                            account.getLastName(), account.getRole())
+                    : loadLoggedInUser(request.getEmail());
 
-            // Generate JWT token
-            String token = jwtUtil.generateToken(
-                    user.getEmail(),
-                    user.getId(),
-                    user.getRole().name()
-            );
-
-            // Build response
-            AuthResponseDTO response = AuthResponseDTO.builder()
-                    .token(token)
-                    .type("Bearer")
-                    .id(user.getId())
-                    .email(user.getEmail())
-                    .firstName(user.getFirstName())
-                    .lastName(user.getLastName())
-                    .role(user.getRole())
-                    .build();
+            AuthResponseDTO response = buildAuthResponse(user, refreshTokenService.issue(user.id()));
 
             log.info("User logged in successfully: {}", request.getEmail());
             return ResponseEntity.ok(response);
 
         } catch (AuthenticationException e) {
             log.error("Login failed for user: {}", request.getEmail());
-            return ResponseEntity.status(HttpStatus.UNAUTHORIZED)
-                    .body(Map.of(
-                            "status", 401,
-                            "error", "Unauthorized",
-                            "message", "Invalid email or password"
-                    ));
+            return unauthorized("Invalid email or password");
+        }
+    }
+
+    /**
+     * PUBLIC: Exchange a refresh token for a new access token and the next refresh token
+     */
+    @PostMapping("/refresh")
+    public ResponseEntity<?> refresh(@Valid @RequestBody RefreshTokenRequestDTO request) {
+        Optional<RefreshTokenService.Rotation> rotation = refreshTokenService.rotate(request.getRefreshToken());
+        if (rotation.isEmpty()) {
+            return unauthorized("Invalid or expired refresh token");
+        }
+
+        User user = rotation.get().user();
+        LoggedInUser loggedInUser = new LoggedInUser(
+                user.getId(), user.getEmail(), user.getFirstName(), user.getLastName(), user.getRole());
+        return ResponseEntity.ok(buildAuthResponse(loggedInUser, rotation.get().refreshToken()));
+    }
+
+    /**
+     * PUBLIC: Logout by revoking the presented access token until it expires,
+     * together with the refresh token family it was issued with
+     */
+    @PostMapping("/logout")
+    public ResponseEntity<?> logout(
+            @RequestHeader(value = "Authorization", required = false) String authorization,
+            @RequestBody(required = false) RefreshTokenRequestDTO request) {
+        String token = authorization != null && authorization.startsWith("Bearer ")
+                ? authorization.substring(7)
+                : null;
+        Claims claims = token != null ? jwtUtil.validateAndExtractClaims(token) : null;
+        String refreshToken = request != null ? request.getRefreshToken() : null;
+
+        if ((claims == null || claims.getId() == null) && refreshToken == null) {
+            return unauthorized("Missing or invalid token");
+        }
+
+        if (claims != null && claims.getId() != null) {
+            log.info("POST /api/auth/logout - logging out: {}", claims.getSubject());
+            tokenRevocationList.revoke(claims.getId(), claims.get("userId", Long.class), claims.getExpiration());
+        }
+        if (refreshToken != null) {
+            refreshTokenService.revoke(refreshToken);
         }
+        return ResponseEntity.noContent().build();
+    }
+
+    private AuthResponseDTO buildAuthResponse(LoggedInUser user, RefreshTokenService.IssuedToken refreshToken) {
+        String token = jwtUtil.generateToken(
+                user.email(),
+                user.id(),
+                user.role().name()
+        );
+
+        return AuthResponseDTO.builder()
+                .token(token)
+                .type("Bearer")
+                .expiresIn(jwtUtil.getExpirationMillis() / 1000)
+                .refreshToken(refreshToken.value())
+                .id(user.id())
+                .email(user.email())
+                .firstName(user.firstName())
+                .lastName(user.lastName())
+                .role(user.role())
+                .build();
+    }
+
+    private ResponseEntity<Map<String, Object>> unauthorized(String message) {
+        return ResponseEntity.status(HttpStatus.UNAUTHORIZED)
+                .body(Map.of(
+                        "status", 401,
+                        "error", "Unauthorized",
+                        "message", message
+                ));
+    }
+
+    private LoggedInUser loadLoggedInUser(String email) {
+        User user = userRepository.findByEmail(email)
+                .orElseThrow(() -> new RuntimeException("User not found"));
+        return new LoggedInUser(user.getId(), user.getEmail(), user.getFirstName(), user.getLastName(), user.getRole());
+    }
+
+    private record LoggedInUser(Long id, String email, String firstName, String lastName, Role role) {
     }
-}
\ No newline at end of file
+}
@@ -2,6 +2,8 @@ package com.example.demo.controller;
 
 import com.example.demo.dto.dish.DishCreateRequestDTO;
 import com.example.demo.dto.dish.DishResponseDTO;
+import com.example.demo.dto.dish.DishSearchRequestDTO;
+import com.example.demo.dto.dish.DishSearchResultDTO;
 import com.example.demo.security.SecurityUtil;
 import com.example.demo.service.DishService;
 import jakarta.validation.Valid;
@@ -34,6 +36,17 @@ public class DishController {
         return ResponseEntity.ok(dishes);
     }
 
+    /**
+     * PUBLIC: Search dishes by macro ranges, location and excluded allergens
+     */
+    @GetMapping("/dishes/search")
+    public ResponseEntity<List<DishSearchResultDTO>> searchDishes(
+            @Valid @ModelAttribute DishSearchRequestDTO request) {
+        log.info("GET /api/dishes/search - searching dishes");
+        List<DishSearchResultDTO> dishes = dishService.searchDishes(request);
+        return ResponseEntity.ok(dishes);
+    }
+
     /**
      * PUBLIC: Get dish details
      */
@@ -1,18 +1,31 @@
 package com.example.demo.controller;
 
+import com.example.demo.entity.StoredImage;
+import com.example.demo.exception.InvalidFileException;
 import com.example.demo.security.SecurityUtil;
 import com.example.demo.service.FileStorageService;
+import com.example.demo.service.ImageUploadExecutor;
+import com.example.demo.service.ImageVariant;
+import com.example.demo.service.StoredImageService;
+import jakarta.servlet.http.HttpServletRequest;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
 
 @RestController
 @RequestMapping("/api/upload")
@@ -21,10 +34,16 @@ import java.io.IOException;
 @CrossOrigin(origins = "*")
 public class FileUploadController {
 
+    static final String CONTENT_SHA256_HEADER = "X-Content-SHA256";
+
     private final FileStorageService fileStorageService;
 
+    private final StoredImageService storedImageService;
+
     private final SecurityUtil securityUtil;
 
+    private final ImageUploadExecutor imageUploadExecutor;
+
     /**
      * Upload an image file
      *
@@ -42,35 +61,110 @@ public class FileUploadController {
 
         try {
             // Validate file
-            if (file.isEmpty()) {
-                return ResponseEntity.badRequest()
-                        .body(new ErrorResponse("File is empty"));
+            String error = validate(file);
+            if (error != null) {
+                return ResponseEntity.badRequest().body(new ErrorResponse(error));
             }
 
-            if (!fileStorageService.isValidImageType(file.getContentType())) {
-                return ResponseEntity.badRequest()
-                        .body(new ErrorResponse("Invalid file type. Only images (JPEG, PNG, GIF, WebP) are allowed."));
-            }
+            FileUploadResponse response = store(file, folder);
 
-            if (!fileStorageService.isValidFileSize(file.getSize())) {
-                return ResponseEntity.badRequest()
-                        .body(new ErrorResponse("File size exceeds maximum allowed size (10MB)"));
-            }
+            log.info("File uploaded successfully: {}", response.getUrl());
+            return ResponseEntity.ok(response);
+
+        } catch (InvalidFileException e) {
+            return ResponseEntity.badRequest().body(new ErrorResponse(e.getMessage()));
+        } catch (IOException e) {
+            log.error("Error uploading file: {}", e.getMessage(), e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body(new ErrorResponse("Failed to upload file: " + e.getMessage()));
+        }
+    }
+
+    /**
+     * Upload several images in one request, e.g. all dish photos of a menu. The parts are validated and
+     * stored in parallel on a bounded pool; one invalid or failing file does not fail the others.
+     *
+     * @param files  The image files to upload, at most {@code upload.batch.max-files}
+     * @param folder Optional folder for organization (e.g., "restaurants", "dishes")
+     * @return Response with one result per file, in the order the files were sent
+     */
+    @PostMapping(value = "/images", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
+    public ResponseEntity<?> uploadImages(
+            @RequestParam("files") List<MultipartFile> files,
+            @RequestParam(value = "folder", required = false) String folder) {
 
-            // Store file
-            String fileUrl = fileStorageService.storeFile(file, folder);
+        log.info("Batch upload request received - Files: {}, Folder: {}", files.size(), folder);
+
+        if (files.isEmpty()) {
+            return ResponseEntity.badRequest().body(new ErrorResponse("No files uploaded"));
+        }
+        if (files.size() > imageUploadExecutor.getMaxBatchSize()) {
+            return ResponseEntity.badRequest().body(new ErrorResponse(
+                    "Too many files, at most " + imageUploadExecutor.getMaxBatchSize() + " per request"));
+        }
+
+        List<Callable<BatchUploadResult>> tasks = new ArrayList<>(files.size());
+        for (int i = 0; i < files.size(); i++) {
+            int index = i;
+            tasks.add(() -> uploadOne(index, files.get(index), folder));
+        }
+        List<BatchUploadResult> results = imageUploadExecutor.invokeAll(tasks, (index, e) -> {
+            log.error("Error uploading file {} of batch: {}", files.get(index).getOriginalFilename(), e.getMessage(), e);
+            return rejected(index, files.get(index), "Failed to upload file: " + e.getMessage());
+        });
+
+        int uploaded = (int) results.stream().filter(BatchUploadResult::isSuccess).count();
+        log.info("Batch upload finished - {} uploaded, {} failed", uploaded, results.size() - uploaded);
+        return ResponseEntity.ok(new BatchUploadResponse(results, uploaded, results.size() - uploaded));
+    }
+
+    /**
+     * Upload an image sent as the raw request body. Unlike the multipart endpoint, the body is not
+     * spooled to a temp file by the servlet container first but written once, straight to storage,
+     * and its type is checked from the content rather than the Content-Type header.
+     *
+     * @param folder       Optional folder for organization (e.g., "restaurants", "dishes")
+     * @param fileName     Optional original file name, echoed back in the response
+     * @param expectedHash Optional hex SHA-256 of the body; if that content is already stored its URL is
+     *                     returned without reading the body (with Expect: 100-continue it is never sent)
+     * @return Response containing the file URL, content hash and metadata
+     */
+    @PostMapping(value = "/image/stream", consumes = {"image/*", MediaType.APPLICATION_OCTET_STREAM_VALUE})
+    public ResponseEntity<?> uploadImageStream(
+            HttpServletRequest request,
+            @RequestParam(value = "folder", required = false) String folder,
+            @RequestParam(value = "fileName", required = false) String fileName,
+            @RequestHeader(value = CONTENT_SHA256_HEADER, required = false) String expectedHash) {
+
+        long contentLength = request.getContentLengthLong();
+        log.info("Streaming upload request received - File: {}, Size: {}, Folder: {}", fileName, contentLength, folder);
+
+        // A chunked body has no declared length; its size is enforced while it is stored
+        if (contentLength == 0) {
+            return ResponseEntity.badRequest().body(new ErrorResponse("File is empty"));
+        }
+        if (contentLength > 0 && !fileStorageService.isValidFileSize(contentLength)) {
+            return ResponseEntity.badRequest()
+                    .body(new ErrorResponse("File size exceeds maximum allowed size (10MB)"));
+        }
+
+        try (InputStream in = request.getInputStream()) {
+            StoredImage stored = storedImageService.store(in, folder, expectedHash);
 
-            // Build response
             FileUploadResponse response = FileUploadResponse.builder()
-                    .url(fileUrl)
-                    .fileName(file.getOriginalFilename())
-                    .fileSize(file.getSize())
-                    .contentType(file.getContentType())
+                    .url(stored.getUrl())
+                    .fileName(fileName)
+                    .fileSize(stored.getSize())
+                    .contentType(stored.getContentType())
+                    .contentHash(stored.getContentHash())
+                    .variants(variantUrls(stored.getUrl()))
                     .build();
 
-            log.info("File uploaded successfully: {}", fileUrl);
+            log.info("File uploaded successfully: {}", stored.getUrl());
             return ResponseEntity.ok(response);
 
+        } catch (InvalidFileException e) {
+            return ResponseEntity.badRequest().body(new ErrorResponse(e.getMessage()));
         } catch (IOException e) {
             log.error("Error uploading file: {}", e.getMessage(), e);
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
@@ -78,6 +172,19 @@ public class FileUploadController {
         }
     }
 
+    /**
+     * Upload status of an image. Cloud storage uploads in the background and returns the final URL
+     * immediately; clients poll this until it is READY before relying on the URL being served.
+     *
+     * @param url The URL returned by an upload
+     * @return Response containing the URL and its status (PENDING, READY or FAILED)
+     */
+    @GetMapping("/image/status")
+    public ResponseEntity<?> getImageStatus(@RequestParam("url") String url) {
+        FileStorageService.UploadStatus status = fileStorageService.getUploadStatus(url);
+        return ResponseEntity.ok(new UploadStatusResponse(url, status));
+    }
+
     /**
      * Delete an uploaded image
      *
@@ -103,7 +210,9 @@ public class FileUploadController {
                         .body(new ErrorResponse("Cannot delete external URLs"));
             }
 
-            fileStorageService.deleteFile(url);
+            // Images are shared by content, so one still used by a restaurant or dish, or recently
+            // uploaded by anyone, is kept and left to the garbage collector
+            storedImageService.delete(url);
             return ResponseEntity.noContent().build();
 
         } catch (IOException e) {
@@ -113,6 +222,69 @@ public class FileUploadController {
         }
     }
 
+    private BatchUploadResult uploadOne(int index, MultipartFile file, String folder) {
+        String error = validate(file);
+        if (error == null) {
+            try {
+                return new BatchUploadResult(index, true, store(file, folder), null);
+            } catch (InvalidFileException e) {
+                error = e.getMessage();
+            } catch (IOException e) {
+                log.error("Error uploading file {} of batch: {}", file.getOriginalFilename(), e.getMessage(), e);
+                error = "Failed to upload file: " + e.getMessage();
+            }
+        }
+        return rejected(index, file, error);
+    }
+
+    private BatchUploadResult rejected(int index, MultipartFile file, String error) {
+        FileUploadResponse rejected = FileUploadResponse.builder()
+                .fileName(file.getOriginalFilename())
+                .fileSize(file.getSize())
+                .contentType(file.getContentType())
+                .build();
+        return new BatchUploadResult(index, false, rejected, error);
+    }
+
+    /**
+     * Checks made before a multipart file is stored. The size limit is applied here, per part: the container's
+     * own limit is set just above it, so a file slightly over the limit fails only that file of a batch. The
+     * client's Content-Type is not trusted either way; the type is detected from the content when it is stored.
+     *
+     * @return the error message, or null if the file may be stored
+     */
+    private String validate(MultipartFile file) {
+        if (file.isEmpty()) {
+            return "File is empty";
+        }
+        if (!fileStorageService.isValidFileSize(file.getSize())) {
+            return "File size exceeds maximum allowed size (10MB)";
+        }
+        return null;
+    }
+
+    private FileUploadResponse store(MultipartFile file, String folder) throws IOException {
+        // Store file, or reuse the stored copy of identical content
+        StoredImage stored = storedImageService.store(file, folder);
+
+        return FileUploadResponse.builder()
+                .url(stored.getUrl())
+                .fileName(file.getOriginalFilename())
+                .fileSize(file.getSize())
+                .contentType(file.getContentType())
+                .contentHash(stored.getContentHash())
+                .variants(variantUrls(stored.getUrl()))
+                .build();
+    }
+
+    private Map<String, String> variantUrls(String fileUrl) {
+        Map<String, String> variants = new LinkedHashMap<>();
+        for (ImageVariant variant : ImageVariant.values()) {
+            variants.put(variant.getName(), fileStorageService.getVariantUrl(fileUrl, variant));
+        }
+        return variants;
+    }
+
     /**
      * Response DTO for successful uploads
      */
@@ -124,6 +296,45 @@ public class FileUploadController {
         private String fileName;
         private Long fileSize;
         private String contentType;
+        // Hex SHA-256 of the stored content
+        private String contentHash;
+        // Resized image URLs by variant name (thumbnail, card, full); generated in the background
+        private Map<String, String> variants;
+    }
+
+    /**
+     * Result for one file of a batch upload. {@code file} carries the stored image on success and the
+     * submitted file's name, size and type on failure.
+     */
+    @Data
+    @AllArgsConstructor
+    public static class BatchUploadResult {
+        // Position of the file in the request
+        private int index;
+        private boolean success;
+        private FileUploadResponse file;
+        private String error;
+    }
+
+    /**
+     * Response DTO for batch uploads
+     */
+    @Data
+    @AllArgsConstructor
+    public static class BatchUploadResponse {
+        private List<BatchUploadResult> results;
+        private int uploaded;
+        private int failed;
+    }
+
+    /**
+     * Response DTO for upload status checks
+     */
+    @Data
+    @AllArgsConstructor
+    public static class UploadStatusResponse {
+        private String url;
+        private FileStorageService.UploadStatus status;
     }
 
     /**
@@ -0,0 +1,276 @@
+package com.example.demo.controller;
+
+import com.example.demo.service.ImageVariantService;
+import com.example.demo.service.UploadLayout;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.MediaType;
+import org.springframework.http.MediaTypeFactory;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.util.UriUtils;
+
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.regex.Pattern;
+
+/**
+ * Serves files under {@code /uploads/**} from the upload directory.
+ * Uploaded files are never modified once written (new content gets a new name), so responses are
+ * cacheable forever: {@code Cache-Control: immutable} with a one-year max-age and a strong ETag taken
+ * from the content hash in the file name. Revalidations are answered with 304 from If-None-Match or
+ * If-Modified-Since, and single byte ranges are supported. On Tomcat, larger bodies are handed to the
+ * connector's sendfile so they go from the page cache to the socket without passing through the heap.
+ * {@code ?w=<width>} serves a resized variant (see {@link ImageVariantService}). Old flat URLs keep
+ * working after files move to the sharded layout (see {@link UploadLayout}).
+ */
+@RestController
+public class UploadedFileController {
+
+    static final String IMMUTABLE_CACHE_CONTROL = "public, max-age=31536000, immutable";
+    // The original stands in for a variant that is not generated yet, so it is only cached briefly
+    static final String PENDING_VARIANT_CACHE_CONTROL = "public, max-age=60";
+
+    private static final String PATH_PREFIX = "/uploads/";
+    private static final Pattern CONTENT_HASH = Pattern.compile("[0-9a-f]{64}");
+
+    // Tomcat's sendfile request attributes; below the threshold a buffered write is cheaper
+    private static final String SENDFILE_SUPPORTED = "org.apache.tomcat.sendfile.support";
+    private static final String SENDFILE_FILENAME = "org.apache.tomcat.sendfile.filename";
+    private static final String SENDFILE_START = "org.apache.tomcat.sendfile.start";
+    private static final String SENDFILE_END = "org.apache.tomcat.sendfile.end";
+    private static final long SENDFILE_MIN_SIZE = 48 * 1024;
+
+    private record ByteRange(long start, long end) {
+    }
+
+    private static final ByteRange UNSATISFIABLE = new ByteRange(-1, -1);
+
+    private final Path uploadPath;
+    private final ObjectProvider<ImageVariantService> imageVariantService;
+
+    public UploadedFileController(@Value("${upload.path:uploads/}") String uploadPath,
+                                  ObjectProvider<ImageVariantService> imageVariantService) {
+        this.uploadPath = Paths.get(uploadPath).toAbsolutePath().normalize();
+        this.imageVariantService = imageVariantService;
+    }
+
+    @RequestMapping(value = "/uploads/**", method = {RequestMethod.GET, RequestMethod.HEAD})
+    public void serveFile(HttpServletRequest request, HttpServletResponse response) throws IOException {
+        Path requested = resolvePath(request);
+        // Links from before the sharded layout name the flat path; serve the file wherever it is now
+        Path original = requested == null ? null : UploadLayout.locate(requested);
+        if (original == null || !Files.isRegularFile(original)) {
+            response.setStatus(HttpServletResponse.SC_NOT_FOUND);
+            return;
+        }
+
+        Path file = original;
+        boolean pendingVariant = false;
+        ImageVariantService variants = imageVariantService.getIfAvailable();
+        String width = request.getParameter("w");
+        if (width != null && variants != null) {
+            try {
+                boolean generated = variants.isGenerated(original);
+                file = variants.resolve(original, Integer.parseInt(width));
+                pendingVariant = !generated && file.equals(original);
+            } catch (NumberFormatException e) {
+                // Unknown width: serve the original
+            }
+        }
+
+        BasicFileAttributes attributes = Files.readAttributes(file, BasicFileAttributes.class);
+        long length = attributes.size();
+        long lastModified = attributes.lastModifiedTime().toMillis();
+        String etag = etag(original, file, attributes);
+
+        response.setHeader(HttpHeaders.ETAG, etag);
+        response.setDateHeader(HttpHeaders.LAST_MODIFIED, lastModified);
+        response.setHeader(HttpHeaders.CACHE_CONTROL, pendingVariant ? PENDING_VARIANT_CACHE_CONTROL : IMMUTABLE_CACHE_CONTROL);
+        response.setHeader(HttpHeaders.ACCEPT_RANGES, "bytes");
+
+        if (isNotModified(request, etag, lastModified)) {
+            response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+            return;
+        }
+
+        long start = 0;
+        long end = length;
+        String rangeHeader = request.getHeader(HttpHeaders.RANGE);
+        if (rangeHeader != null && ifRangeMatches(request, etag, lastModified)) {
+            ByteRange range = parseRange(rangeHeader, length);
+            if (range == UNSATISFIABLE) {
+                response.setStatus(HttpServletResponse.SC_REQUESTED_RANGE_NOT_SATISFIABLE);
+                response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes */" + length);
+                return;
+            }
+            if (range != null) {
+                start = range.start();
+                end = range.end() + 1;
+                response.setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+                response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes " + range.start() + "-" + range.end() + "/" + length);
+            }
+        }
+
+        response.setContentType(MediaTypeFactory.getMediaType(file.getFileName().toString())
+                .orElse(MediaType.APPLICATION_OCTET_STREAM).toString());
+        response.setContentLengthLong(end - start);
+        if (HttpMethod.HEAD.matches(request.getMethod())) {
+            return;
+        }
+
+        if (Boolean.TRUE.equals(request.getAttribute(SENDFILE_SUPPORTED)) && end - start >= SENDFILE_MIN_SIZE) {
+            // Tomcat writes the file after this method returns
+            request.setAttribute(SENDFILE_FILENAME, file.toRealPath().toString());
+            request.setAttribute(SENDFILE_START, start);
+            request.setAttribute(SENDFILE_END, end);
+            return;
+        }
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            WritableByteChannel out = Channels.newChannel(response.getOutputStream());
+            long position = start;
+            while (position < end) {
+                position += channel.transferTo(position, end - position, out);
+            }
+        }
+    }
+
+    /**
+     * The file under the upload directory named by the request path, or null if the path escapes it
+     * or names a hidden entry (partial uploads, the variant cache)
+     */
+    private Path resolvePath(HttpServletRequest request) {
+        String path = request.getRequestURI().substring(request.getContextPath().length());
+        if (!path.startsWith(PATH_PREFIX)) {
+            return null;
+        }
+        String relative = UriUtils.decode(path.substring(PATH_PREFIX.length()), StandardCharsets.UTF_8);
+        Path resolved = uploadPath.resolve(relative).normalize();
+        if (!resolved.startsWith(uploadPath) || resolved.equals(uploadPath)) {
+            return null;
+        }
+        for (Path segment : uploadPath.relativize(resolved)) {
+            if (segment.toString().startsWith(".")) {
+                return null;
+            }
+        }
+        return resolved;
+    }
+
+    /**
+     * Content-addressed files use their hash; older uploads (random names) their size and modification
+     * time. A variant adds its width to the ETag of the original.
+     */
+    private static String etag(Path original, Path file, BasicFileAttributes attributes) throws IOException {
+        String name = stem(original);
+        String tag;
+        if (CONTENT_HASH.matcher(name).matches()) {
+            tag = name;
+        } else {
+            BasicFileAttributes originalAttributes = original.equals(file)
+                    ? attributes
+                    : Files.readAttributes(original, BasicFileAttributes.class);
+            tag = Long.toHexString(originalAttributes.size()) + "-"
+                    + Long.toHexString(originalAttributes.lastModifiedTime().toMillis());
+        }
+        if (!original.equals(file)) {
+            tag += "-w" + stem(file);
+        }
+        return "\"" + tag + "\"";
+    }
+
+    private static String stem(Path path) {
+        String name = path.getFileName().toString();
+        int dot = name.lastIndexOf('.');
+        return dot > 0 ? name.substring(0, dot) : name;
+    }
+
+    private static boolean isNotModified(HttpServletRequest request, String etag, long lastModified) {
+        String ifNoneMatch = request.getHeader(HttpHeaders.IF_NONE_MATCH);
+        if (ifNoneMatch != null) {
+            // Weak comparison, as required for If-None-Match
+            for (String candidate : ifNoneMatch.split(",")) {
+                String tag = candidate.trim();
+                if (tag.startsWith("W/")) {
+                    tag = tag.substring(2);
+                }
+                if (tag.equals("*") || tag.equals(etag)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+        long ifModifiedSince = dateHeader(request, HttpHeaders.IF_MODIFIED_SINCE);
+        // HTTP dates have second precision
+        return ifModifiedSince >= 0 && lastModified / 1000 <= ifModifiedSince / 1000;
+    }
+
+    private static boolean ifRangeMatches(HttpServletRequest request, String etag, long lastModified) {
+        String ifRange = request.getHeader(HttpHeaders.IF_RANGE);
+        if (ifRange == null) {
+            return true;
+        }
+        if (ifRange.startsWith("\"") || ifRange.startsWith("W/")) {
+            // Strong comparison: a weak validator never matches
+            return ifRange.equals(etag);
+        }
+        long date = dateHeader(request, HttpHeaders.IF_RANGE);
+        return date >= 0 && lastModified / 1000 == date / 1000;
+    }
+
+    private static long dateHeader(HttpServletRequest request, String name) {
+        try {
+            return request.getDateHeader(name);
+        } catch (IllegalArgumentException e) {
+            return -1;
+        }
+    }
+
+    /**
+     * Parse a single {@code bytes=} range. Returns null when the header should be ignored (malformed or
+     * several ranges, which are answered with the whole file) and {@link #UNSATISFIABLE} when it is
+     * outside the file.
+     */
+    private static ByteRange parseRange(String header, long length) {
+        if (!header.startsWith("bytes=")) {
+            return null;
+        }
+        String spec = header.substring("bytes=".length()).trim();
+        int dash = spec.indexOf('-');
+        if (spec.indexOf(',') >= 0 || dash < 0) {
+            return null;
+        }
+        try {
+            String first = spec.substring(0, dash).trim();
+            String last = spec.substring(dash + 1).trim();
+            if (first.isEmpty()) {
+                long suffix = Long.parseLong(last);
+                if (suffix <= 0) {
+                    return UNSATISFIABLE;
+                }
+                return new ByteRange(Math.max(0, length - suffix), length - 1);
+            }
+            long start = Long.parseLong(first);
+            if (start >= length) {
+                return UNSATISFIABLE;
+            }
+            long end = last.isEmpty() ? length - 1 : Math.min(Long.parseLong(last), length - 1);
+            return end < start ? null : new ByteRange(start, end);
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,57 @@
+package com.example.demo.dto.dish;
+
+import jakarta.validation.constraints.DecimalMax;
+import jakarta.validation.constraints.DecimalMin;
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.Positive;
+import jakarta.validation.constraints.PositiveOrZero;
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+public class DishSearchRequestDTO {
+
+    @PositiveOrZero(message = "Minimum kcal must not be negative")
+    private Double minKcal;
+
+    @PositiveOrZero(message = "Maximum kcal must not be negative")
+    private Double maxKcal;
+
+    @PositiveOrZero(message = "Minimum protein must not be negative")
+    private Double minProteinG;
+
+    @PositiveOrZero(message = "Maximum protein must not be negative")
+    private Double maxProteinG;
+
+    @PositiveOrZero(message = "Minimum fat must not be negative")
+    private Double minFatG;
+
+    @PositiveOrZero(message = "Maximum fat must not be negative")
+    private Double maxFatG;
+
+    @PositiveOrZero(message = "Minimum carbs must not be negative")
+    private Double minCarbsG;
+
+    @PositiveOrZero(message = "Maximum carbs must not be negative")
+    private Double maxCarbsG;
+
+    @DecimalMin(value = "-90.0", message = "Latitude must be between -90 and 90")
+    @DecimalMax(value = "90.0", message = "Latitude must be between -90 and 90")
+    private Double latitude;
+
+    @DecimalMin(value = "-180.0", message = "Longitude must be between -180 and 180")
+    @DecimalMax(value = "180.0", message = "Longitude must be between -180 and 180")
+    private Double longitude;
+
+    @Positive(message = "Radius must be positive")
+    @DecimalMax(value = "100.0", message = "Radius must be at most 100 km")
+    private Double radiusKm = 10.0;
+
+    private List<String> excludeAllergens;
+
+    @Min(value = 1, message = "Limit must be at least 1")
+    @Max(value = 100, message = "Limit must be at most 100")
+    private Integer limit = 50;
+}
@@ -0,0 +1,20 @@
+package com.example.demo.dto.dish;
+
+import lombok.Builder;
+import lombok.Data;
+
+@Data
+@Builder
+public class DishSearchResultDTO {
+    private Long id;
+    private String name;
+    private Double price;
+    private String imageUrl;
+    private Double baseKcal;
+    private Double baseProteinG;
+    private Double baseFatG;
+    private Double baseCarbsG;
+    private Long restaurantId;
+    private String restaurantName;
+    private Double distanceKm;
+}
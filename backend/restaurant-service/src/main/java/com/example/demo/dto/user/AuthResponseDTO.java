@@ -14,6 +14,9 @@ public class AuthResponseDTO {
     private String token;
     @Builder.Default
     private String type = "Bearer";
+    // Access token lifetime in seconds
+    private Long expiresIn;
+    private String refreshToken;
     private Long id;
     private String email;
     private String firstName;
@@ -1,5 +1,6 @@
 package com.example.demo.entity;
 
+import com.example.demo.service.AllergenChangeListener;
 import jakarta.persistence.*;
 import lombok.*;
 
@@ -8,6 +9,7 @@ import java.util.Set;
 
 @Entity
 @Table(name = "allergens")
+@EntityListeners(AllergenChangeListener.class)
 @NoArgsConstructor
 @AllArgsConstructor
 @Data
@@ -10,7 +10,15 @@ import java.util.ArrayList;
 import java.util.List;
 
 @Entity
-@Table(name = "dishes")
+@Table(
+        name = "dishes",
+        indexes = {
+                @Index(name = "idx_dishes_restaurant", columnList = "restaurant_id"),
+                @Index(name = "idx_dishes_kcal_protein", columnList = "base_kcal, base_protein_g"),
+                @Index(name = "idx_dishes_protein_kcal", columnList = "base_protein_g, base_kcal"),
+                @Index(name = "idx_dishes_img_url", columnList = "img_url")
+        }
+)
 @NoArgsConstructor
 @AllArgsConstructor
 @Data
@@ -0,0 +1,7 @@
+package com.example.demo.entity;
+
+public enum EmailType {
+    VERIFICATION,
+    WELCOME,
+    PASSWORD_RESET
+}
@@ -13,7 +13,13 @@ import java.util.List;
 import java.util.Set;
 
 @Entity
-@Table(name = "restaurants")
+@Table(
+        name = "restaurants",
+        indexes = {
+                @Index(name = "idx_restaurants_status_location", columnList = "status, latitude, longitude"),
+                @Index(name = "idx_restaurants_image_url", columnList = "image_url")
+        }
+)
 @NoArgsConstructor
 @AllArgsConstructor
 @Data
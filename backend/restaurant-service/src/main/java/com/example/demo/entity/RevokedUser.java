@@ -0,0 +1,32 @@
+package com.example.demo.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * Authoritative record that every access token issued to a user up to {@code revokedAt} is revoked,
+ * after the account was deleted, deactivated or changed role. Kept for one access token lifetime.
+ */
+@Entity
+@Table(
+        name = "revoked_users",
+        indexes = @Index(name = "idx_revoked_users_revoked_at", columnList = "revoked_at")
+)
+@NoArgsConstructor
+@AllArgsConstructor
+@Data
+@Builder
+public class RevokedUser {
+
+    @Id
+    @Column(name = "user_id")
+    private Long userId;
+
+    @Column(name = "revoked_at", nullable = false)
+    private LocalDateTime revokedAt;
+}
@@ -0,0 +1,75 @@
+package com.example.demo.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.domain.Persistable;
+
+import java.time.LocalDateTime;
+
+/**
+ * An uploaded image, keyed by the SHA-256 of its content so identical uploads share one stored copy.
+ * {@code referenceCount} is the number of restaurant and dish rows whose image URL points at it,
+ * recomputed from those columns whenever a restaurant or dish changes its image.
+ */
+@Entity
+@Table(
+        name = "stored_images",
+        indexes = {
+                @Index(name = "idx_stored_images_url", columnList = "url", unique = true),
+                @Index(name = "idx_stored_images_reference_count", columnList = "reference_count")
+        }
+)
+@NoArgsConstructor
+@AllArgsConstructor
+@Data
+@Builder
+public class StoredImage implements Persistable<String> {
+
+    @Id
+    @Column(name = "content_hash", length = 64)
+    private String contentHash;
+
+    @Column(nullable = false)
+    private String url;
+
+    // Detected from the magic bytes; null if storage did not report it
+    @Column(name = "content_type", length = 50)
+    private String contentType;
+
+    @Column(name = "size_bytes")
+    private Long size;
+
+    @Column(name = "reference_count", nullable = false)
+    @Builder.Default
+    private Long referenceCount = 0L;
+
+    @Column(name = "created_at", nullable = false, updatable = false)
+    private LocalDateTime createdAt;
+
+    // Last time the reference count changed or an upload handed the image out; with a zero count, how long it has been unused
+    @Column(name = "references_updated_at", nullable = false)
+    private LocalDateTime referencesUpdatedAt;
+
+    // The id is the content hash, assigned before saving, so saving a new image must insert, never merge
+    @Transient
+    private boolean persisted;
+
+    @Override
+    public String getId() {
+        return contentHash;
+    }
+
+    @Override
+    public boolean isNew() {
+        return !persisted;
+    }
+
+    @PostLoad
+    @PostPersist
+    void markPersisted() {
+        persisted = true;
+    }
+}
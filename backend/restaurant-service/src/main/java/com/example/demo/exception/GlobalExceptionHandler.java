@@ -2,6 +2,7 @@ package com.example.demo.exception;
 
 import com.example.demo.dto.error.ApiErrorResponseDTO;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.validation.FieldError;
@@ -99,6 +100,29 @@ public class GlobalExceptionHandler {
         return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(error);
     }
 
+    /**
+     * Handle ServiceUnavailableException (503)
+     * Raised when a bounded resource rejects work; clients are asked to retry shortly.
+     */
+    @ExceptionHandler(ServiceUnavailableException.class)
+    public ResponseEntity<ApiErrorResponseDTO> handleServiceUnavailable(
+            ServiceUnavailableException ex,
+            WebRequest request) {
+        log.warn("Service unavailable: {}", ex.getMessage());
+
+        ApiErrorResponseDTO error = ApiErrorResponseDTO.builder()
+                .status(HttpStatus.SERVICE_UNAVAILABLE.value())
+                .error("Service Unavailable")
+                .message(ex.getMessage())
+                .path(request.getDescription(false).replace("uri=", ""))
+                .timestamp(LocalDateTime.now())
+                .build();
+
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, "1")
+                .body(error);
+    }
+
     /**
      * Handle @Valid validation errors (400)
      * Catches errors from @NotBlank, @Email, @Size, etc.
@@ -0,0 +1,13 @@
+package com.example.demo.exception;
+
+import java.io.IOException;
+
+/**
+ * Thrown when an uploaded file is rejected for its content (type, size or emptiness)
+ * rather than because storing it failed
+ */
+public class InvalidFileException extends IOException {
+    public InvalidFileException(String message) {
+        super(message);
+    }
+}
@@ -1,13 +1,109 @@
 package com.example.demo.repository;
 
 import com.example.demo.entity.Dish;
+import com.example.demo.entity.RestaurantStatus;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
 
 @Repository
 public interface DishRepository extends JpaRepository<Dish, Long> {
     List<Dish> findByRestaurantId(Long restaurantId);
 
+    /**
+     * Range search over the precomputed macros, restricted to available dishes of restaurants
+     * with the given status. Null bounds are ignored; the location bounds are a bounding box,
+     * the exact radius is applied by the caller. Dishes containing any excluded allergen in
+     * any of their components are filtered out.
+     */
+    @Query("SELECT d FROM Dish d JOIN FETCH d.restaurant r " +
+            "WHERE r.status = :status AND d.isAvailable = true " +
+            "AND (:minKcal IS NULL OR d.baseKcal >= :minKcal) " +
+            "AND (:maxKcal IS NULL OR d.baseKcal <= :maxKcal) " +
+            "AND (:minProtein IS NULL OR d.baseProteinG >= :minProtein) " +
+            "AND (:maxProtein IS NULL OR d.baseProteinG <= :maxProtein) " +
+            "AND (:minFat IS NULL OR d.baseFatG >= :minFat) " +
+            "AND (:maxFat IS NULL OR d.baseFatG <= :maxFat) " +
+            "AND (:minCarbs IS NULL OR d.baseCarbsG >= :minCarbs) " +
+            "AND (:maxCarbs IS NULL OR d.baseCarbsG <= :maxCarbs) " +
+            "AND (:minLat IS NULL OR r.latitude BETWEEN :minLat AND :maxLat) " +
+            "AND (:minLng IS NULL OR r.longitude BETWEEN :minLng AND :maxLng) " +
+            "AND NOT EXISTS (SELECT 1 FROM DishComponent dc JOIN dc.component c JOIN c.allergens a " +
+            "WHERE dc.dish = d AND a.name IN :excludedAllergens) " +
+            "ORDER BY d.baseKcal ASC, d.id ASC")
+    List<Dish> searchByNutrition(@Param("status") RestaurantStatus status,
+                                 @Param("minKcal") Double minKcal,
+                                 @Param("maxKcal") Double maxKcal,
+                                 @Param("minProtein") Double minProtein,
+                                 @Param("maxProtein") Double maxProtein,
+                                 @Param("minFat") Double minFat,
+                                 @Param("maxFat") Double maxFat,
+                                 @Param("minCarbs") Double minCarbs,
+                                 @Param("maxCarbs") Double maxCarbs,
+                                 @Param("minLat") Double minLat,
+                                 @Param("maxLat") Double maxLat,
+                                 @Param("minLng") Double minLng,
+                                 @Param("maxLng") Double maxLng,
+                                 @Param("excludedAllergens") List<String> excludedAllergens,
+                                 Pageable pageable);
+
+    /**
+     * Load a dish with its restaurant only if the user owns the restaurant or is an admin,
+     * so the ownership check costs no statement of its own
+     */
+    @Query("SELECT d FROM Dish d JOIN FETCH d.restaurant r " +
+            "WHERE d.id = :id AND (:admin = true OR r.owner.id = :userId)")
+    Optional<Dish> findByIdIfOwnedOrAdmin(@Param("id") Long id,
+                                          @Param("userId") Long userId,
+                                          @Param("admin") boolean admin);
+
+    @Modifying(flushAutomatically = true)
+    @Query("DELETE FROM DishComponent dc WHERE dc.dish.id IN (" +
+            "SELECT d.id FROM Dish d WHERE d.id = :id AND (:admin = true OR d.restaurant.owner.id = :userId))")
+    int deleteComponentsByDishIdIfOwnedOrAdmin(@Param("id") Long id,
+                                               @Param("userId") Long userId,
+                                               @Param("admin") boolean admin);
+
+    /**
+     * Delete the dish row if the user owns its restaurant or is an admin
+     *
+     * @return number of deleted rows, 0 if the dish does not exist or the user may not delete it
+     */
+    @Modifying(clearAutomatically = true)
+    @Query("DELETE FROM Dish d WHERE d.id = :id AND (:admin = true OR d.restaurant.id IN (" +
+            "SELECT r.id FROM Restaurant r WHERE r.owner.id = :userId))")
+    int deleteByIdIfOwnedOrAdmin(@Param("id") Long id,
+                                 @Param("userId") Long userId,
+                                 @Param("admin") boolean admin);
+
+
+    long countByImgUrl(String imgUrl);
+
+    /**
+     * Number of dishes using each of the given image URLs; URLs no dish uses are left out
+     */
+    @Query("SELECT new com.example.demo.repository.ImageUrlCount(d.imgUrl, COUNT(d)) FROM Dish d " +
+            "WHERE d.imgUrl IN :urls GROUP BY d.imgUrl")
+    List<ImageUrlCount> countByImgUrlIn(@Param("urls") Collection<String> urls);
+
+    @Query("SELECT d.imgUrl FROM Dish d WHERE d.id = :id AND d.imgUrl IS NOT NULL")
+    List<String> findImgUrlById(@Param("id") Long id);
+
+    /**
+     * Every dish image URL, read in chunks; must be consumed and closed inside a transaction
+     */
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"))
+    @Query("SELECT d.imgUrl FROM Dish d WHERE d.imgUrl IS NOT NULL")
+    Stream<String> streamImgUrls();
 }
@@ -0,0 +1,53 @@
+package com.example.demo.repository;
+
+import com.example.demo.entity.EmailOutboxMessage;
+import com.example.demo.entity.EmailOutboxStatus;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface EmailOutboxRepository extends JpaRepository<EmailOutboxMessage, Long> {
+
+    @Query("SELECT m.id FROM EmailOutboxMessage m " +
+            "WHERE m.status = :status AND m.nextAttemptAt <= :now " +
+            "ORDER BY m.nextAttemptAt")
+    List<Long> findDueIds(@Param("status") EmailOutboxStatus status,
+                          @Param("now") LocalDateTime now,
+                          Pageable pageable);
+
+    /**
+     * Claim due messages for one dispatcher run. The due condition is re-checked, so of two instances
+     * racing for the same rows only one claims each; the lease makes rows due again if it dies mid-send.
+     */
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("UPDATE EmailOutboxMessage m SET m.claimToken = :claimToken, m.nextAttemptAt = :leaseUntil " +
+            "WHERE m.id IN :ids AND m.status = :status AND m.nextAttemptAt <= :now")
+    int claim(@Param("ids") Collection<Long> ids,
+              @Param("status") EmailOutboxStatus status,
+              @Param("claimToken") String claimToken,
+              @Param("leaseUntil") LocalDateTime leaseUntil,
+              @Param("now") LocalDateTime now);
+
+    List<EmailOutboxMessage> findByClaimToken(String claimToken);
+
+    @Modifying
+    @Query("UPDATE EmailOutboxMessage m SET m.status = :status, m.sentAt = :now, " +
+            "m.attempts = m.attempts + 1, m.claimToken = null WHERE m.id IN :ids")
+    int markSent(@Param("ids") Collection<Long> ids,
+                 @Param("status") EmailOutboxStatus status,
+                 @Param("now") LocalDateTime now);
+
+    long countByStatus(EmailOutboxStatus status);
+
+    @Modifying
+    @Query("DELETE FROM EmailOutboxMessage m WHERE m.status = :status AND m.sentAt < :before")
+    int deleteSentBefore(@Param("status") EmailOutboxStatus status, @Param("before") LocalDateTime before);
+}
@@ -0,0 +1,7 @@
+package com.example.demo.repository;
+
+/**
+ * Number of rows using an image URL, from a grouped count
+ */
+public record ImageUrlCount(String url, long count) {
+}
@@ -2,10 +2,19 @@ package com.example.demo.repository;
 
 import com.example.demo.entity.Restaurant;
 import com.example.demo.entity.RestaurantStatus;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
 
 @Repository
 public interface RestaurantRepository extends JpaRepository<Restaurant, Long> {
@@ -20,4 +29,85 @@ public interface RestaurantRepository extends JpaRepository<Restaurant, Long> {
     Long countByStatus(RestaurantStatus status);
 
     Long countByIsVerified(Boolean isVerified);
-}
\ No newline at end of file
+
+    /**
+     * Load a restaurant with its owner only if the user owns it or is an admin,
+     * so the ownership check costs no statement of its own
+     */
+    @Query("SELECT r FROM Restaurant r JOIN FETCH r.owner o " +
+            "WHERE r.id = :id AND (:admin = true OR o.id = :userId)")
+    Optional<Restaurant> findByIdIfOwnedOrAdmin(@Param("id") Long id,
+                                                @Param("userId") Long userId,
+                                                @Param("admin") boolean admin);
+
+    // Conditional deletes of a restaurant and its dependent rows. Each statement repeats the
+    // ownership predicate, so none of them touches rows of a restaurant the user may not delete.
+
+    @Modifying(flushAutomatically = true)
+    @Query("DELETE FROM DishComponent dc WHERE dc.dish.id IN (" +
+            "SELECT d.id FROM Dish d WHERE d.restaurant.id = :id " +
+            "AND (:admin = true OR d.restaurant.owner.id = :userId))")
+    int deleteDishComponentsByRestaurantIdIfOwnedOrAdmin(@Param("id") Long id,
+                                                         @Param("userId") Long userId,
+                                                         @Param("admin") boolean admin);
+
+    @Modifying
+    @Query("DELETE FROM Dish d WHERE d.restaurant.id IN (" +
+            "SELECT r.id FROM Restaurant r WHERE r.id = :id AND (:admin = true OR r.owner.id = :userId))")
+    int deleteDishesByRestaurantIdIfOwnedOrAdmin(@Param("id") Long id,
+                                                 @Param("userId") Long userId,
+                                                 @Param("admin") boolean admin);
+
+    @Modifying
+    @Query(value = "DELETE FROM restaurant_dietary_options WHERE restaurant_id IN (" +
+            "SELECT r.id FROM restaurants r WHERE r.id = :id AND (:admin = true OR r.owner_id = :userId))",
+            nativeQuery = true)
+    int deleteDietaryOptionsByIdIfOwnedOrAdmin(@Param("id") Long id,
+                                               @Param("userId") Long userId,
+                                               @Param("admin") boolean admin);
+
+    /**
+     * Delete the restaurant row if the user owns it or is an admin
+     *
+     * @return number of deleted rows, 0 if the restaurant does not exist or the user may not delete it
+     */
+    @Modifying(clearAutomatically = true)
+    @Query("DELETE FROM Restaurant r WHERE r.id = :id AND (:admin = true OR r.owner.id = :userId)")
+    int deleteByIdIfOwnedOrAdmin(@Param("id") Long id,
+                                 @Param("userId") Long userId,
+                                 @Param("admin") boolean admin);
+
+    long countByImageUrl(String imageUrl);
+
+    /**
+     * Number of restaurants using each of the given image URLs; URLs no restaurant uses are left out
+     */
+    @Query("SELECT new com.example.demo.repository.ImageUrlCount(r.imageUrl, COUNT(r)) FROM Restaurant r " +
+            "WHERE r.imageUrl IN :urls GROUP BY r.imageUrl")
+    List<ImageUrlCount> countByImageUrlIn(@Param("urls") Collection<String> urls);
+
+    /**
+     * The restaurant's image URL, if it has one; with the dish image URLs, what a delete releases
+     */
+    @Query("SELECT r.imageUrl FROM Restaurant r WHERE r.id = :id AND r.imageUrl IS NOT NULL")
+    List<String> findImageUrlById(@Param("id") Long id);
+
+    @Query("SELECT d.imgUrl FROM Dish d WHERE d.restaurant.id = :restaurantId AND d.imgUrl IS NOT NULL")
+    List<String> findDishImageUrlsByRestaurantId(@Param("restaurantId") Long restaurantId);
+
+    /**
+     * Image URLs of the owner's restaurants and their dishes, released when the owner is deleted
+     */
+    @Query("SELECT r.imageUrl FROM Restaurant r WHERE r.owner.id = :ownerId AND r.imageUrl IS NOT NULL")
+    List<String> findImageUrlsByOwnerId(@Param("ownerId") Long ownerId);
+
+    @Query("SELECT d.imgUrl FROM Dish d WHERE d.restaurant.owner.id = :ownerId AND d.imgUrl IS NOT NULL")
+    List<String> findDishImageUrlsByOwnerId(@Param("ownerId") Long ownerId);
+
+    /**
+     * Every restaurant image URL, read in chunks; must be consumed and closed inside a transaction
+     */
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"))
+    @Query("SELECT r.imageUrl FROM Restaurant r WHERE r.imageUrl IS NOT NULL")
+    Stream<String> streamImageUrls();
+}
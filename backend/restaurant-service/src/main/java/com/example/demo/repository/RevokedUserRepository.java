@@ -0,0 +1,38 @@
+package com.example.demo.repository;
+
+import com.example.demo.entity.RevokedUser;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface RevokedUserRepository extends JpaRepository<RevokedUser, Long> {
+
+    List<RevokedUser> findByRevokedAtGreaterThanEqual(LocalDateTime since);
+
+    /**
+     * Store the revocation unless the user already has one, e.g. from a concurrent revoke on another instance
+     */
+    @Modifying
+    @Query(value = "INSERT INTO revoked_users (user_id, revoked_at) VALUES (:userId, :revokedAt) ON CONFLICT DO NOTHING",
+            nativeQuery = true)
+    int insertIfAbsent(@Param("userId") Long userId, @Param("revokedAt") LocalDateTime revokedAt);
+
+    /**
+     * Move the user's revocation time forward; an earlier time leaves the row unchanged
+     *
+     * @return 0 if the stored revocation already covers {@code revokedAt}
+     */
+    @Modifying
+    @Query("UPDATE RevokedUser u SET u.revokedAt = :revokedAt WHERE u.userId = :userId AND u.revokedAt < :revokedAt")
+    int raiseRevokedAt(@Param("userId") Long userId, @Param("revokedAt") LocalDateTime revokedAt);
+
+    @Modifying
+    @Query("DELETE FROM RevokedUser u WHERE u.revokedAt < :before")
+    int deleteRevokedBefore(@Param("before") LocalDateTime before);
+}
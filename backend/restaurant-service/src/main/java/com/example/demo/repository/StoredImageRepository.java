@@ -0,0 +1,78 @@
+package com.example.demo.repository;
+
+import com.example.demo.entity.StoredImage;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+@Repository
+public interface StoredImageRepository extends JpaRepository<StoredImage, String> {
+
+    Optional<StoredImage> findByUrl(String url);
+
+    /**
+     * The registered images with these URLs, locked until the end of the transaction in URL order,
+     * so concurrent recounts of overlapping images wait for each other instead of deadlocking.
+     * Native: a plain FOR UPDATE works on PostgreSQL and H2, while Hibernate's pessimistic lock
+     * renders FOR NO KEY UPDATE, which H2 rejects.
+     */
+    @Query(value = "SELECT * FROM stored_images WHERE url IN (:urls) ORDER BY url FOR UPDATE", nativeQuery = true)
+    List<StoredImage> findByUrlInForUpdate(@Param("urls") Collection<String> urls);
+
+    /**
+     * The registered image with this URL, locked until the end of the transaction
+     */
+    @Query(value = "SELECT * FROM stored_images WHERE url = :url FOR UPDATE", nativeQuery = true)
+    Optional<StoredImage> findByUrlForUpdate(@Param("url") String url);
+
+    /**
+     * Restart the unused period of an image handed out again by a duplicate upload
+     *
+     * @return 0 if the image was deleted in the meantime
+     */
+    @Transactional
+    @Modifying
+    @Query("UPDATE StoredImage s SET s.referencesUpdatedAt = :now WHERE s.contentHash = :contentHash")
+    int touch(@Param("contentHash") String contentHash, @Param("now") LocalDateTime now);
+
+    @Modifying(flushAutomatically = true)
+    @Query("UPDATE StoredImage s SET s.referenceCount = :count, s.referencesUpdatedAt = :now " +
+            "WHERE s.url = :url AND s.referenceCount <> :count")
+    int updateReferenceCount(@Param("url") String url, @Param("count") long count, @Param("now") LocalDateTime now);
+
+    /**
+     * Keyset page of registered images, in content hash order
+     */
+    List<StoredImage> findByContentHashGreaterThanOrderByContentHash(String contentHash, Limit limit);
+
+    /**
+     * Images no restaurant or dish has referenced since the cutoff
+     */
+    @Query("SELECT s FROM StoredImage s WHERE s.referenceCount = 0 AND s.referencesUpdatedAt < :cutoff " +
+            "ORDER BY s.referencesUpdatedAt")
+    List<StoredImage> findUnreferencedSince(@Param("cutoff") LocalDateTime cutoff, Limit limit);
+
+    /**
+     * Every registered image URL, read in chunks; must be consumed and closed inside a transaction
+     */
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"))
+    @Query("SELECT s.url FROM StoredImage s")
+    Stream<String> streamUrls();
+
+    @Modifying
+    @Query("DELETE FROM StoredImage s WHERE s.url = :url")
+    int deleteByUrl(@Param("url") String url);
+}
@@ -0,0 +1,36 @@
+package com.example.demo.security;
+
+import com.example.demo.entity.Role;
+import com.example.demo.security.UserDetailsCache.CachedUser;
+import lombok.Getter;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.userdetails.User;
+
+import java.util.Collections;
+
+/**
+ * UserDetails that also carries the account fields needed after login (id, names, role),
+ * so the authenticated principal can be used directly instead of loading the user again
+ */
+@Getter
+public class AccountUserDetails extends User {
+
+    private final Long id;
+    private final String firstName;
+    private final String lastName;
+    private final Role role;
+
+    public AccountUserDetails(CachedUser user) {
+        super(user.email(),
+                user.password(),
+                user.enabled(),
+                true,
+                true,
+                true,
+                Collections.singletonList(new SimpleGrantedAuthority("ROLE_" + user.role().name())));
+        this.id = user.id();
+        this.firstName = user.firstName();
+        this.lastName = user.lastName();
+        this.role = user.role();
+    }
+}
@@ -0,0 +1,16 @@
+package com.example.demo.security;
+
+import com.example.demo.entity.Role;
+import org.springframework.security.core.AuthenticatedPrincipal;
+
+/**
+ * Principal built from verified JWT claims, so the current user's id, email
+ * and role are known without loading the user from the database
+ */
+public record AuthenticatedUser(Long id, String email, Role role) implements AuthenticatedPrincipal {
+
+    @Override
+    public String getName() {
+        return email;
+    }
+}
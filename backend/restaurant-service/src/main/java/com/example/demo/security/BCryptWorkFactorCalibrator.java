@@ -0,0 +1,95 @@
+package com.example.demo.security;
+
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Picks the BCrypt work factor from measurements on the current machine: the lowest strength
+ * whose median hash time reaches the target, within [minStrength, maxStrength]. Each step doubles
+ * the cost, so the measured strengths also give the login throughput per core at every setting.
+ * <p>
+ * Login capacity is this throughput times the {@link PasswordHashingExecutor} threads. The default
+ * 250 ms target usually lands on strength 12, four times the CPU per login of the previous fixed
+ * strength 10: with 4 hashing threads an instance verifies about 16 logins/s instead of about 64,
+ * and a full queue of 64 waits about 4 s, just under the 5 s hashing timeout.
+ */
+@Slf4j
+public final class BCryptWorkFactorCalibrator {
+
+    private static final String SAMPLE_PASSWORD = "calibration-Password-123!";
+    // Timed verifications per strength; the median ignores a run slowed by GC or a busy core
+    private static final int SAMPLES = 5;
+
+    private BCryptWorkFactorCalibrator() {
+    }
+
+    /**
+     * Median time of one hash at a given strength
+     */
+    public record Measurement(int strength, Duration hashTime) {
+
+        /**
+         * Password verifications per second a single core can sustain at this strength
+         */
+        public double loginsPerSecondPerCore() {
+            long nanos = Math.max(1, hashTime.toNanos());
+            return 1_000_000_000.0 / nanos;
+        }
+    }
+
+    @Getter
+    public static class Calibration {
+        private final int strength;
+        private final List<Measurement> measurements;
+
+        Calibration(int strength, List<Measurement> measurements) {
+            this.strength = strength;
+            this.measurements = List.copyOf(measurements);
+        }
+    }
+
+    public static Calibration calibrate(Duration target, int minStrength, int maxStrength) {
+        // Warm up the JIT so the first measurement is not inflated
+        measure(4);
+
+        List<Measurement> measurements = new ArrayList<>();
+        int chosen = maxStrength;
+        for (int strength = minStrength; strength <= maxStrength; strength++) {
+            Measurement measurement = measure(strength);
+            measurements.add(measurement);
+            if (measurement.hashTime().compareTo(target) >= 0) {
+                chosen = strength;
+                break;
+            }
+        }
+
+        for (Measurement m : measurements) {
+            log.info("BCrypt strength {}: {} ms per hash, ~{} logins/s per core",
+                    m.strength(), m.hashTime().toMillis(), String.format("%.1f", m.loginsPerSecondPerCore()));
+        }
+        log.info("BCrypt strength {} selected for target verification time {} ms", chosen, target.toMillis());
+        return new Calibration(chosen, measurements);
+    }
+
+    public static Measurement measure(int strength) {
+        BCryptPasswordEncoder encoder = new BCryptPasswordEncoder(strength);
+        // Not timed: encoding warms up this cost before the measured runs
+        String hash = encoder.encode(SAMPLE_PASSWORD);
+
+        // Verification is what login pays for; it costs the same as hashing
+        long[] samples = new long[SAMPLES];
+        for (int i = 0; i < SAMPLES; i++) {
+            long start = System.nanoTime();
+            encoder.matches(SAMPLE_PASSWORD, hash);
+            samples[i] = System.nanoTime() - start;
+        }
+        Arrays.sort(samples);
+        return new Measurement(strength, Duration.ofNanos(samples[SAMPLES / 2]));
+    }
+}
@@ -2,42 +2,69 @@ package com.example.demo.security;
 
 import com.example.demo.entity.User;
 import com.example.demo.repository.UserRepository;
+import com.example.demo.security.UserDetailsCache.CachedUser;
 import lombok.RequiredArgsConstructor;
-import org.springframework.security.core.GrantedAuthority;
-import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UserDetailsPasswordService;
 import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.stereotype.Service;
-
-import java.util.Collection;
-import java.util.Collections;
+import org.springframework.transaction.annotation.Transactional;
 
 @Service
 @RequiredArgsConstructor
-public class CustomUserDetailsService implements UserDetailsService {
+@Slf4j
+public class CustomUserDetailsService implements UserDetailsService, UserDetailsPasswordService {
 
     private final UserRepository userRepository;
+    private final UserDetailsCache userDetailsCache;
 
+    /**
+     * Load the user from the database. Used for password checks at login, so the stored
+     * hash is always authoritative; the fresh row also refreshes the cache.
+     */
     @Override
     public UserDetails loadUserByUsername(String email) throws UsernameNotFoundException {
-        User user = userRepository.findByEmail(email)
-                .orElseThrow(() -> new UsernameNotFoundException("User not found with email: " + email));
+        return toUserDetails(userDetailsCache.refresh(email, this::loadUser));
+    }
 
-        return new org.springframework.security.core.userdetails.User(
-                user.getEmail(),
-                user.getPassword(),
-                user.getIsActive(),
-                true,
-                true,
-                true,
-                getAuthorities(user)
-        );
+    /**
+     * Load the user for per-request authentication, served from the cache when possible
+     */
+    public UserDetails loadCachedUserByUsername(String email) throws UsernameNotFoundException {
+        return toUserDetails(userDetailsCache.get(email, this::loadUser));
     }
 
-    private Collection<? extends GrantedAuthority> getAuthorities(User user) {
-        return Collections.singletonList(
-                new SimpleGrantedAuthority("ROLE_" + user.getRole().name())
-        );
+    /**
+     * Store a rehashed password after a successful login (work factor or encoding upgrade)
+     */
+    @Override
+    @Transactional
+    public UserDetails updatePassword(UserDetails user, String newPassword) {
+        int updated = userRepository.updatePasswordByEmail(user.getUsername(), newPassword);
+        userDetailsCache.evict(user.getUsername());
+        log.info("Upgraded password hash for user: {} ({} row)", user.getUsername(), updated);
+
+        if (user instanceof AccountUserDetails account) {
+            return toUserDetails(new CachedUser(account.getId(), account.getUsername(), newPassword,
+                    account.isEnabled(), account.getRole(), account.getFirstName(), account.getLastName()));
+        }
+        return org.springframework.security.core.userdetails.User.withUserDetails(user)
+                .password(newPassword)
+                .build();
+    }
+
+    private UserDetails toUserDetails(CachedUser user) {
+        // Always a new instance: authentication erases the credentials of the returned object
+        return new AccountUserDetails(user);
+    }
+
+    private CachedUser loadUser(String email) {
+        User user = userRepository.findByEmail(email)
+                .orElseThrow(() -> new UsernameNotFoundException("User not found with email: " + email));
+
+        return new CachedUser(user.getId(), user.getEmail(), user.getPassword(), user.getIsActive(),
+                user.getRole(), user.getFirstName(), user.getLastName());
     }
-}
\ No newline at end of file
+}
@@ -1,12 +1,16 @@
 package com.example.demo.security;
 
+import com.example.demo.entity.Role;
+import io.jsonwebtoken.Claims;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.web.authentication.WebAuthenticationDetailsSource;
@@ -16,6 +20,7 @@ import org.springframework.web.filter.OncePerRequestFilter;
 
 import java.io.IOException;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 @Component
@@ -25,6 +30,15 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
 
     private final JwtUtil jwtUtil;
     private final CustomUserDetailsService userDetailsService;
+    private final RevokedUserRegistry revokedUserRegistry;
+    private final TokenRevocationList tokenRevocationList;
+
+    /**
+     * When enabled, the authentication is built from the token's userId, email and role
+     * claims alone instead of reloading the user on every request
+     */
+    @Value("${jwt.claims-only-authentication:true}")
+    private boolean claimsOnlyAuthentication;
 
     @Override
     protected void doFilterInternal(
@@ -35,23 +49,31 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
         try {
             String jwt = getJwtFromRequest(request);
 
-            if (StringUtils.hasText(jwt) && jwtUtil.validateToken(jwt)) {
-                String email = jwtUtil.extractEmail(jwt);
+            // Verify the token once and read everything from the resulting claims
+            Claims claims = StringUtils.hasText(jwt) ? jwtUtil.validateAndExtractClaims(jwt) : null;
+
+            if (claims != null && tokenRevocationList.isRevoked(claims.getId())) {
+                log.warn("Rejected revoked token for user: {}", claims.getSubject());
+                claims = null;
+            }
 
-                UserDetails userDetails = userDetailsService.loadUserByUsername(email);
+            if (claims != null) {
+                String email = claims.getSubject();
+                Long userId = claims.get("userId", Long.class);
 
-                Long userId = jwtUtil.extractUserId(jwt);
-                Map<String, Object> details = new HashMap<>();
-                details.put("userId", userId);
+                UsernamePasswordAuthenticationToken authentication = claimsOnlyAuthentication
+                        ? authenticateFromClaims(claims, userId, email)
+                        : authenticateFromUserDetails(email);
 
-                UsernamePasswordAuthenticationToken authentication =
-                        new UsernamePasswordAuthenticationToken(
-                                userDetails, null, userDetails.getAuthorities());
-                authentication.setDetails(details);
+                if (authentication != null) {
+                    Map<String, Object> details = new HashMap<>();
+                    details.put("userId", userId);
+                    authentication.setDetails(details);
 
-                SecurityContextHolder.getContext().setAuthentication(authentication);
+                    SecurityContextHolder.getContext().setAuthentication(authentication);
 
-                log.debug("Set authentication for user: {}", email);
+                    log.debug("Set authentication for user: {}", email);
+                }
             }
         } catch (Exception e) {
             log.error("Cannot set user authentication: {}", e.getMessage());
@@ -60,6 +82,37 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
         filterChain.doFilter(request, response);
     }
 
+    /**
+     * Build the authentication from the verified claims without touching the database.
+     * Tokens of users revoked after issue (deleted or deactivated) are rejected.
+     */
+    private UsernamePasswordAuthenticationToken authenticateFromClaims(Claims claims, Long userId, String email) {
+        if (revokedUserRegistry.isRevoked(userId, claims.getIssuedAt())) {
+            log.warn("Rejected revoked token for user: {}", email);
+            return null;
+        }
+
+        Role role = Role.valueOf(claims.get("role", String.class));
+        AuthenticatedUser principal = new AuthenticatedUser(userId, email, role);
+
+        return new UsernamePasswordAuthenticationToken(
+                principal, null, List.of(new SimpleGrantedAuthority("ROLE_" + role.name())));
+    }
+
+    /**
+     * Build the authentication from the stored user, re-checking that the account is still active
+     */
+    private UsernamePasswordAuthenticationToken authenticateFromUserDetails(String email) {
+        UserDetails userDetails = userDetailsService.loadCachedUserByUsername(email);
+        if (!userDetails.isEnabled()) {
+            log.warn("Rejected token for disabled user: {}", email);
+            return null;
+        }
+
+        return new UsernamePasswordAuthenticationToken(
+                userDetails, null, userDetails.getAuthorities());
+    }
+
     /**
      * Extract JWT token from Authorization header
      */
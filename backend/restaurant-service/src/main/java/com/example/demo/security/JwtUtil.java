@@ -1,6 +1,8 @@
 package com.example.demo.security;
 
 import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtException;
+import io.jsonwebtoken.JwtParser;
 import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.SignatureAlgorithm;
 import io.jsonwebtoken.security.Keys;
@@ -14,6 +16,7 @@ import java.nio.charset.StandardCharsets;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.UUID;
 import java.util.function.Function;
 
 @Component
@@ -26,6 +29,10 @@ public class JwtUtil {
     @Value("${jwt.expiration}")
     private Long expiration;
 
+    // Derived once from the secret; both are immutable and thread-safe
+    private volatile SecretKey signingKey;
+    private volatile JwtParser jwtParser;
+
     /**
      * Generate JWT token for user
      */
@@ -36,6 +43,13 @@ public class JwtUtil {
         return createToken(claims, email);
     }
 
+    /**
+     * Lifetime of generated access tokens in milliseconds
+     */
+    public long getExpirationMillis() {
+        return expiration;
+    }
+
     /**
      * Create token with claims and subject
      */
@@ -45,6 +59,7 @@ public class JwtUtil {
 
         return Jwts.builder()
                 .setClaims(claims)
+                .setId(UUID.randomUUID().toString())
                 .setSubject(subject)
                 .setIssuedAt(now)
                 .setExpiration(expiryDate)
@@ -56,8 +71,27 @@ public class JwtUtil {
      * Get signing key from secret
      */
     private SecretKey getSigningKey() {
-        byte[] keyBytes = secret.getBytes(StandardCharsets.UTF_8);
-        return Keys.hmacShaKeyFor(keyBytes);
+        SecretKey key = signingKey;
+        if (key == null) {
+            byte[] keyBytes = secret.getBytes(StandardCharsets.UTF_8);
+            key = Keys.hmacShaKeyFor(keyBytes);
+            signingKey = key;
+        }
+        return key;
+    }
+
+    /**
+     * Get the parser verifying tokens against the signing key
+     */
+    private JwtParser getParser() {
+        JwtParser parser = jwtParser;
+        if (parser == null) {
+            parser = Jwts.parser()
+                    .verifyWith(getSigningKey())
+                    .build();
+            jwtParser = parser;
+        }
+        return parser;
     }
 
     /**
@@ -98,43 +132,41 @@ public class JwtUtil {
 
     /**
      * Extract all claims from token
+     * Verifies the signature and expiry; throws JwtException if either check fails
      */
     private Claims extractAllClaims(String token) {
-        return Jwts.parser()
-                .verifyWith(getSigningKey())
-                .build()
+        return getParser()
                 .parseSignedClaims(token)
                 .getPayload();
     }
 
     /**
-     * Check if token is expired
+     * Validate token and return its claims in a single parse
+     *
+     * @return the verified claims, or null if the token is invalid or expired
      */
-    private Boolean isTokenExpired(String token) {
-        return extractExpiration(token).before(new Date());
+    public Claims validateAndExtractClaims(String token) {
+        try {
+            return extractAllClaims(token);
+        } catch (JwtException | IllegalArgumentException e) {
+            log.error("Invalid JWT token: {}", e.getMessage());
+            return null;
+        }
     }
 
     /**
      * Validate token
      */
     public Boolean validateToken(String token, UserDetails userDetails) {
-        final String email = extractEmail(token);
-        return (email.equals(userDetails.getUsername()) && !isTokenExpired(token));
+        final Claims claims = extractAllClaims(token);
+        return (claims.getSubject().equals(userDetails.getUsername())
+                && claims.getExpiration().after(new Date()));
     }
 
     /**
      * Validate token without UserDetails
      */
     public Boolean validateToken(String token) {
-        try {
-            Jwts.parser()
-                    .verifyWith(getSigningKey())
-                    .build()
-                    .parseSignedClaims(token);
-            return !isTokenExpired(token);
-        } catch (Exception e) {
-            log.error("Invalid JWT token: {}", e.getMessage());
-            return false;
-        }
+        return validateAndExtractClaims(token) != null;
     }
 }
\ No newline at end of file
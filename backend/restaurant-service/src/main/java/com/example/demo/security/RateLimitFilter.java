@@ -0,0 +1,140 @@
+package com.example.demo.security;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
+/**
+ * Per-client rate limits for the route groups that are expensive or abuse-prone: authentication,
+ * token refresh, review writes and uploads. Runs after JWT authentication so signed-in clients are keyed
+ * by user id; anonymous clients (and every auth request) are keyed by remote address. Refresh and logout
+ * have their own budget, so clients renewing tokens every few minutes do not use up the login attempts.
+ * Everything else passes through.
+ */
+@Component
+@Slf4j
+public class RateLimitFilter extends OncePerRequestFilter {
+
+    private static final Pattern REVIEW_CREATE = Pattern.compile("^/api/restaurants/[^/]+/reviews/?$");
+    private static final Pattern REVIEW_MODIFY = Pattern.compile("^/api/reviews/[^/]+/?$");
+
+    private final boolean enabled;
+    private final RateLimiter authLimiter;
+    private final RateLimiter tokenRefreshLimiter;
+    private final RateLimiter reviewWriteLimiter;
+    private final RateLimiter uploadLimiter;
+
+    public RateLimitFilter(
+            @Value("${rate-limit.enabled:true}") boolean enabled,
+            @Value("${rate-limit.shards:16}") int shards,
+            @Value("${rate-limit.max-keys-per-shard:4096}") int maxKeysPerShard,
+            @Value("${rate-limit.auth.capacity:10}") int authCapacity,
+            @Value("${rate-limit.auth.period:PT1M}") Duration authPeriod,
+            @Value("${rate-limit.token-refresh.capacity:60}") int tokenRefreshCapacity,
+            @Value("${rate-limit.token-refresh.period:PT1M}") Duration tokenRefreshPeriod,
+            @Value("${rate-limit.review-writes.capacity:20}") int reviewCapacity,
+            @Value("${rate-limit.review-writes.period:PT1M}") Duration reviewPeriod,
+            @Value("${rate-limit.uploads.capacity:10}") int uploadCapacity,
+            @Value("${rate-limit.uploads.period:PT1M}") Duration uploadPeriod) {
+        this.enabled = enabled;
+        this.authLimiter = new RateLimiter("auth", authCapacity, authPeriod, shards, maxKeysPerShard);
+        this.tokenRefreshLimiter = new RateLimiter("token-refresh", tokenRefreshCapacity, tokenRefreshPeriod,
+                shards, maxKeysPerShard);
+        this.reviewWriteLimiter = new RateLimiter("review-writes", reviewCapacity, reviewPeriod, shards, maxKeysPerShard);
+        this.uploadLimiter = new RateLimiter("uploads", uploadCapacity, uploadPeriod, shards, maxKeysPerShard);
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !enabled || HttpMethod.OPTIONS.matches(request.getMethod());
+    }
+
+    @Override
+    protected void doFilterInternal(
+            HttpServletRequest request,
+            HttpServletResponse response,
+            FilterChain filterChain) throws ServletException, IOException {
+
+        RateLimiter limiter = resolveLimiter(request);
+        if (limiter != null) {
+            String key = limiter == authLimiter || limiter == tokenRefreshLimiter
+                    ? ipKey(request)
+                    : clientKey(request);
+            long waitNanos = limiter.tryAcquire(key);
+            if (waitNanos > 0) {
+                reject(response, limiter, key, waitNanos);
+                return;
+            }
+        }
+
+        filterChain.doFilter(request, response);
+    }
+
+    private RateLimiter resolveLimiter(HttpServletRequest request) {
+        String path = request.getRequestURI().substring(request.getContextPath().length());
+        String method = request.getMethod();
+
+        if (path.equals("/api/auth/refresh") || path.equals("/api/auth/logout")) {
+            return tokenRefreshLimiter;
+        }
+        if (path.startsWith("/api/auth/")) {
+            return authLimiter;
+        }
+        if (path.startsWith("/api/upload/") && !HttpMethod.GET.matches(method)) {
+            return uploadLimiter;
+        }
+        if ((HttpMethod.POST.matches(method) && REVIEW_CREATE.matcher(path).matches())
+                || ((HttpMethod.PUT.matches(method) || HttpMethod.DELETE.matches(method))
+                && REVIEW_MODIFY.matcher(path).matches())) {
+            return reviewWriteLimiter;
+        }
+        return null;
+    }
+
+    private String clientKey(HttpServletRequest request) {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (authentication != null && authentication.isAuthenticated()) {
+            if (authentication.getPrincipal() instanceof AuthenticatedUser principal) {
+                return "user:" + principal.id();
+            }
+            if (authentication.getDetails() instanceof Map<?, ?> details && details.get("userId") != null) {
+                return "user:" + details.get("userId");
+            }
+        }
+        return ipKey(request);
+    }
+
+    private String ipKey(HttpServletRequest request) {
+        // The proxy's X-Forwarded-For is applied to the remote address by the container (server.forward-headers-strategy)
+        return "ip:" + request.getRemoteAddr();
+    }
+
+    private void reject(HttpServletResponse response, RateLimiter limiter, String key, long waitNanos)
+            throws IOException {
+        long retryAfterSeconds = Math.max(1, TimeUnit.NANOSECONDS.toSeconds(waitNanos + 999_999_999L));
+        log.warn("Rate limit '{}' exceeded for {}", limiter.getName(), key);
+
+        response.setStatus(HttpStatus.TOO_MANY_REQUESTS.value());
+        response.setHeader(HttpHeaders.RETRY_AFTER, String.valueOf(retryAfterSeconds));
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        response.getWriter().write("{\"status\":429,\"error\":\"Too Many Requests\",\"message\":\"" +
+                "Rate limit exceeded, retry in " + retryAfterSeconds + " s\"}");
+    }
+}
@@ -0,0 +1,138 @@
+package com.example.demo.security;
+
+import lombok.Getter;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Token-bucket rate limiter keyed by client, implemented as GCRA: each bucket is a single
+ * AtomicLong holding the theoretical arrival time, updated with a CAS, so acquiring never locks.
+ * Buckets are spread over independent shards, each capped at {@code maxKeysPerShard} entries.
+ * A new client arriving at a full shard evicts the oldest bucket, preferring ones that have refilled
+ * completely and so carry no state; eviction takes constant time and every client keeps its own bucket.
+ */
+public class RateLimiter {
+
+    // Still-throttled buckets moved to the back of the queue before the oldest is evicted regardless
+    private static final int MAX_EVICTION_SKIPS = 8;
+
+    @Getter
+    private final String name;
+    private final long emissionIntervalNanos;
+    private final long burstNanos;
+    private final int maxKeysPerShard;
+    private final Shard[] shards;
+    private final int shardMask;
+
+    /**
+     * @param capacity burst size; also the number of requests allowed per period
+     * @param period   time to refill a full bucket
+     * @param shards   number of shards, rounded up to a power of two
+     */
+    public RateLimiter(String name, int capacity, Duration period, int shards, int maxKeysPerShard) {
+        if (capacity <= 0 || period.isZero() || period.isNegative()) {
+            throw new IllegalArgumentException("Rate limit '" + name + "' needs a positive capacity and period");
+        }
+        this.name = name;
+        this.emissionIntervalNanos = Math.max(1, period.toNanos() / capacity);
+        this.burstNanos = emissionIntervalNanos * capacity;
+        this.maxKeysPerShard = Math.max(1, maxKeysPerShard);
+
+        int shardCount = shards <= 1 ? 1 : Integer.highestOneBit(shards - 1) << 1;
+        this.shards = new Shard[shardCount];
+        for (int i = 0; i < shardCount; i++) {
+            this.shards[i] = new Shard();
+        }
+        this.shardMask = shardCount - 1;
+    }
+
+    /**
+     * Take one token for the key
+     *
+     * @return 0 if allowed, otherwise the nanoseconds until a token is available
+     */
+    public long tryAcquire(String key) {
+        long now = System.nanoTime();
+        AtomicLong bucket = shardFor(key).bucket(key, now);
+
+        while (true) {
+            long arrival = bucket.get();
+            long next = Math.max(arrival, now) + emissionIntervalNanos;
+            long excess = next - now - burstNanos;
+            if (excess > 0) {
+                return excess;
+            }
+            if (bucket.compareAndSet(arrival, next)) {
+                return 0;
+            }
+        }
+    }
+
+    /**
+     * Number of tracked buckets across all shards
+     */
+    public int size() {
+        int size = 0;
+        for (Shard shard : shards) {
+            size += shard.buckets.size();
+        }
+        return size;
+    }
+
+    private Shard shardFor(String key) {
+        int hash = key.hashCode();
+        return shards[(hash ^ (hash >>> 16)) & shardMask];
+    }
+
+    private class Shard {
+        private final Map<String, AtomicLong> buckets = new ConcurrentHashMap<>();
+        // Keys in insertion order, one entry per bucket in the map
+        private final Queue<String> insertionOrder = new ConcurrentLinkedQueue<>();
+
+        AtomicLong bucket(String key, long now) {
+            AtomicLong bucket = buckets.get(key);
+            if (bucket != null) {
+                return bucket;
+            }
+
+            if (buckets.size() >= maxKeysPerShard) {
+                evictOldest(now);
+            }
+            AtomicLong created = new AtomicLong(now);
+            AtomicLong existing = buckets.putIfAbsent(key, created);
+            if (existing != null) {
+                return existing;
+            }
+            insertionOrder.offer(key);
+            return created;
+        }
+
+        /**
+         * Remove the oldest bucket. A bucket whose arrival time has passed is full again and equivalent
+         * to a fresh one; a few throttled ones are moved to the back so active limits survive.
+         */
+        private void evictOldest(long now) {
+            for (int skipped = 0; ; skipped++) {
+                String oldest = insertionOrder.poll();
+                if (oldest == null) {
+                    return;
+                }
+                AtomicLong bucket = buckets.get(oldest);
+                if (bucket == null) {
+                    continue;
+                }
+                if (bucket.get() - now > 0 && skipped < MAX_EVICTION_SKIPS) {
+                    insertionOrder.offer(oldest);
+                    continue;
+                }
+                buckets.remove(oldest, bucket);
+                return;
+            }
+        }
+    }
+}
@@ -0,0 +1,154 @@
+package com.example.demo.security;
+
+import com.example.demo.repository.RevokedUserRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.temporal.ChronoUnit;
+import java.util.Date;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Tracks users whose existing tokens must no longer be accepted (deleted or deactivated accounts, and
+ * role changes, after which the client refreshes to a token with the new role).
+ * Tokens issued before the revocation time are rejected. An entry is only needed until every token
+ * issued before it has expired, so entries are dropped after one token lifetime and the map stays
+ * bounded by the number of revocations within that window.
+ * The revoked_users table is shared by all instances; each instance checks its in-memory copy and pulls
+ * revocations made elsewhere on the same interval as {@link TokenRevocationList}.
+ */
+@Component
+@Slf4j
+public class RevokedUserRegistry {
+
+    // Re-read a margin before the last sync so revocations committed late or on a skewed clock are not missed
+    private static final Duration SYNC_OVERLAP = Duration.ofMinutes(1);
+
+    private final Map<Long, Long> revokedAtByUserId = new ConcurrentHashMap<>();
+    private final RevokedUserRepository revokedUserRepository;
+    private final long tokenLifetimeMillis;
+
+    private volatile LocalDateTime lastSync = LocalDateTime.now();
+
+    public RevokedUserRegistry(RevokedUserRepository revokedUserRepository,
+                               @Value("${jwt.expiration}") long tokenLifetimeMillis) {
+        this.revokedUserRepository = revokedUserRepository;
+        this.tokenLifetimeMillis = tokenLifetimeMillis;
+    }
+
+    /**
+     * Reject all tokens issued to the user up to now. The revocation is stored in the caller's
+     * transaction and takes effect on this instance once it commits, so a rolled back change revokes nothing.
+     */
+    @Transactional
+    public void revokeUser(Long userId) {
+        revoke(userId, LocalDateTime.now());
+    }
+
+    /**
+     * Reject tokens issued to the user in whole seconds before the cutoff, e.g. tokens carrying a role
+     * the user no longer has. Unlike {@link #revokeUser}, a token refreshed in the same second
+     * (iat is truncated to seconds) stays valid, so the client's single retry after refreshing succeeds.
+     */
+    @Transactional
+    public void revokeTokensIssuedBefore(Long userId, LocalDateTime cutoff) {
+        revoke(userId, cutoff.truncatedTo(ChronoUnit.SECONDS).minus(1, ChronoUnit.MILLIS));
+    }
+
+    /**
+     * Check whether a token issued at the given time to the given user has been revoked
+     */
+    public boolean isRevoked(Long userId, Date issuedAt) {
+        if (userId == null) {
+            return false;
+        }
+        Long revokedAt = revokedAtByUserId.get(userId);
+        if (revokedAt == null) {
+            return false;
+        }
+        if (revokedAt + tokenLifetimeMillis < System.currentTimeMillis()) {
+            revokedAtByUserId.remove(userId, revokedAt);
+            return false;
+        }
+        // iat is truncated to seconds, so tokens from the revocation second count as revoked
+        return issuedAt == null || issuedAt.getTime() <= revokedAt;
+    }
+
+    /**
+     * Add revocations made by any instance since the last sync
+     */
+    @Scheduled(fixedDelayString = "${security.token-revocation.sync-interval:PT10S}",
+            initialDelayString = "${security.token-revocation.sync-interval:PT10S}")
+    public void sync() {
+        LocalDateTime now = LocalDateTime.now();
+        revokedUserRepository.findByRevokedAtGreaterThanEqual(lastSync.minus(SYNC_OVERLAP))
+                .forEach(revoked -> record(revoked.getUserId(), revoked.getRevokedAt()));
+        lastSync = now;
+    }
+
+    /**
+     * Drop revocations older than a token lifetime and load the others from the shared table
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(fixedDelayString = "${security.token-revocation.rebuild-interval:PT1H}",
+            initialDelayString = "${security.token-revocation.rebuild-interval:PT1H}")
+    @Transactional
+    public void reload() {
+        LocalDateTime now = LocalDateTime.now();
+        LocalDateTime oldestRelevant = now.minus(Duration.ofMillis(tokenLifetimeMillis));
+        int expired = revokedUserRepository.deleteRevokedBefore(oldestRelevant);
+        revokedUserRepository.findByRevokedAtGreaterThanEqual(oldestRelevant)
+                .forEach(revoked -> record(revoked.getUserId(), revoked.getRevokedAt()));
+        purgeExpired(System.currentTimeMillis());
+        lastSync = now;
+        log.info("Loaded {} user revocations ({} expired removed)", revokedAtByUserId.size(), expired);
+    }
+
+    public int size() {
+        return revokedAtByUserId.size();
+    }
+
+    private void revoke(Long userId, LocalDateTime revokedAt) {
+        if (userId == null) {
+            return;
+        }
+        // Only ever raise the stored time: a blind write from a concurrent or out-of-order revoke could
+        // lower it and un-revoke tokens issued in between
+        if (revokedUserRepository.insertIfAbsent(userId, revokedAt) == 0) {
+            revokedUserRepository.raiseRevokedAt(userId, revokedAt);
+        }
+
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    record(userId, revokedAt);
+                }
+            });
+        } else {
+            record(userId, revokedAt);
+        }
+        log.info("Revoked tokens issued up to {} for user ID: {}", revokedAt, userId);
+    }
+
+    private void record(Long userId, LocalDateTime revokedAt) {
+        long now = System.currentTimeMillis();
+        revokedAtByUserId.merge(userId, revokedAt.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli(), Math::max);
+        purgeExpired(now);
+    }
+
+    private void purgeExpired(long now) {
+        revokedAtByUserId.entrySet().removeIf(entry -> entry.getValue() + tokenLifetimeMillis < now);
+    }
+}
@@ -1,10 +1,12 @@
 package com.example.demo.security;
 
+import com.example.demo.entity.Role;
 import com.example.demo.entity.User;
 import com.example.demo.exception.ResourceNotFoundException;
 import com.example.demo.repository.UserRepository;
 import lombok.RequiredArgsConstructor;
 import org.springframework.security.core.Authentication;
+import org.springframework.security.core.GrantedAuthority;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.stereotype.Component;
 
@@ -32,10 +34,42 @@ public class SecurityUtil {
                 .orElseThrow(() -> new ResourceNotFoundException("User not found with email: " + email));
     }
 
+    /**
+     * Get a lazy reference to the current user for use as a foreign key.
+     * No query is issued unless a non-id property of the reference is accessed.
+     */
+    public User getCurrentUserReference() {
+        return userRepository.getReferenceById(getCurrentUserId());
+    }
+
+    /**
+     * Get id, email and role of the current user as carried by the token,
+     * falling back to a lookup only when the authentication lacks them
+     */
+    public AuthenticatedUser getCurrentPrincipal() {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+
+        if (authentication == null || !authentication.isAuthenticated()) {
+            throw new ResourceNotFoundException("No authenticated user found");
+        }
+
+        if (authentication.getPrincipal() instanceof AuthenticatedUser principal) {
+            return principal;
+        }
+
+        Long userId = getUserIdFromDetails(authentication);
+        Role role = getRoleFromAuthorities(authentication);
+        if (userId != null && role != null) {
+            return new AuthenticatedUser(userId, authentication.getName(), role);
+        }
+
+        User user = getCurrentUser();
+        return new AuthenticatedUser(user.getId(), user.getEmail(), user.getRole());
+    }
+
     /**
      * Get current user ID
      */
-    @SuppressWarnings("unchecked")
     public Long getCurrentUserId() {
         Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
 
@@ -43,14 +77,40 @@ public class SecurityUtil {
             throw new ResourceNotFoundException("No authenticated user found");
         }
 
-        Object details = authentication.getDetails();
-        if (details instanceof Map<?, ?> map && map.containsKey("userId")) {
-            return (Long) map.get("userId");
+        if (authentication.getPrincipal() instanceof AuthenticatedUser principal) {
+            return principal.id();
+        }
+
+        Long userId = getUserIdFromDetails(authentication);
+        if (userId != null) {
+            return userId;
         }
 
         return getCurrentUser().getId();
     }
 
+    /**
+     * Check the current user's role from the granted authorities
+     */
+    public boolean hasRole(Role role) {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+
+        if (authentication == null || !authentication.isAuthenticated()) {
+            return false;
+        }
+
+        String authority = "ROLE_" + role.name();
+        return authentication.getAuthorities().stream()
+                .anyMatch(granted -> authority.equals(granted.getAuthority()));
+    }
+
+    /**
+     * Check if current user is an admin
+     */
+    public boolean isCurrentUserAdmin() {
+        return hasRole(Role.ADMIN);
+    }
+
     /**
      * Get current user email
      */
@@ -71,4 +131,26 @@ public class SecurityUtil {
         Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
         return authentication != null && authentication.isAuthenticated();
     }
+
+    private Long getUserIdFromDetails(Authentication authentication) {
+        Object details = authentication.getDetails();
+        if (details instanceof Map<?, ?> map && map.get("userId") instanceof Long userId) {
+            return userId;
+        }
+        return null;
+    }
+
+    private Role getRoleFromAuthorities(Authentication authentication) {
+        for (GrantedAuthority granted : authentication.getAuthorities()) {
+            String authority = granted.getAuthority();
+            if (authority != null && authority.startsWith("ROLE_")) {
+                try {
+                    return Role.valueOf(authority.substring("ROLE_".length()));
+                } catch (IllegalArgumentException e) {
+                    // Not one of the application roles
+                }
+            }
+        }
+        return null;
+    }
 }
\ No newline at end of file
@@ -0,0 +1,140 @@
+package com.example.demo.security;
+
+import com.example.demo.repository.RevokedTokenRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.Date;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Revoked access tokens, identified by their jti claim. The revoked_tokens table is the authoritative
+ * store shared by all instances; each instance keeps a Bloom filter of it so the per-request check is
+ * a few hashed bit reads, and the database is only asked on a possible hit.
+ * Every instance pulls revocations made elsewhere on a short interval and rebuilds its filter from
+ * scratch less often, which also drops expired tokens and resizes the filter.
+ */
+@Component
+@Slf4j
+public class TokenRevocationList {
+
+    // Re-read a margin before the last sync so revocations committed late or on a skewed clock are not missed
+    private static final Duration SYNC_OVERLAP = Duration.ofMinutes(1);
+
+    private final RevokedTokenRepository revokedTokenRepository;
+    private final int expectedRevocations;
+    private final double falsePositiveRate;
+
+    private volatile BloomFilter filter;
+    // Local revocations made while a rebuild runs, added to the new filter once it replaces the current one
+    private volatile Set<String> addedDuringRebuild;
+    private volatile LocalDateTime lastSync;
+
+    public TokenRevocationList(
+            RevokedTokenRepository revokedTokenRepository,
+            @Value("${security.token-revocation.expected-revocations:10000}") int expectedRevocations,
+            @Value("${security.token-revocation.false-positive-rate:0.01}") double falsePositiveRate) {
+        this.revokedTokenRepository = revokedTokenRepository;
+        this.expectedRevocations = expectedRevocations;
+        this.falsePositiveRate = falsePositiveRate;
+        this.filter = new BloomFilter(expectedRevocations, falsePositiveRate);
+        this.lastSync = LocalDateTime.now();
+    }
+
+    /**
+     * Revoke a single token until its expiry
+     */
+    @Transactional
+    public void revoke(String tokenId, Long userId, Date expiresAt) {
+        if (tokenId == null || expiresAt == null) {
+            return;
+        }
+        revokedTokenRepository.insertIfAbsent(tokenId, userId,
+                LocalDateTime.ofInstant(expiresAt.toInstant(), ZoneId.systemDefault()), LocalDateTime.now());
+        add(tokenId);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            // A rebuild that read the table before this commit must still see the token
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    add(tokenId);
+                }
+            });
+        }
+        log.info("Revoked token {} of user ID: {}", tokenId, userId);
+    }
+
+    /**
+     * Check whether the token has been revoked. Tokens issued without a jti cannot be revoked individually.
+     */
+    public boolean isRevoked(String tokenId) {
+        if (tokenId == null || !filter.mightContain(tokenId)) {
+            return false;
+        }
+        return revokedTokenRepository.existsById(tokenId);
+    }
+
+    /**
+     * Add revocations made by any instance since the last sync to this instance's filter
+     */
+    @Scheduled(fixedDelayString = "${security.token-revocation.sync-interval:PT10S}",
+            initialDelayString = "${security.token-revocation.sync-interval:PT10S}")
+    public void sync() {
+        LocalDateTime now = LocalDateTime.now();
+        List<String> tokenIds = revokedTokenRepository.findTokenIdsRevokedSince(lastSync.minus(SYNC_OVERLAP), now);
+        tokenIds.forEach(this::add);
+        lastSync = now;
+    }
+
+    /**
+     * Drop expired revocations and rebuild the filter from the authoritative store
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(fixedDelayString = "${security.token-revocation.rebuild-interval:PT1H}",
+            initialDelayString = "${security.token-revocation.rebuild-interval:PT1H}")
+    @Transactional
+    public void rebuild() {
+        LocalDateTime now = LocalDateTime.now();
+        int expired = revokedTokenRepository.deleteExpired(now);
+        Set<String> added = ConcurrentHashMap.newKeySet();
+        addedDuringRebuild = added;
+        List<String> tokenIds;
+        BloomFilter rebuilt;
+        try {
+            tokenIds = revokedTokenRepository.findActiveTokenIds(now);
+            rebuilt = new BloomFilter(Math.max(expectedRevocations, tokenIds.size() * 2), falsePositiveRate);
+            tokenIds.forEach(rebuilt::put);
+            filter = rebuilt;
+            lastSync = now;
+        } finally {
+            addedDuringRebuild = null;
+        }
+        // Revocations that went into the previous filter after the table was read
+        added.forEach(rebuilt::put);
+
+        log.info("Rebuilt token revocation filter with {} tokens ({} expired removed)", tokenIds.size(), expired);
+    }
+
+    /**
+     * Record the token before touching the filter, so a rebuild swapping filters in between still carries it over
+     */
+    private void add(String tokenId) {
+        Set<String> added = addedDuringRebuild;
+        if (added != null) {
+            added.add(tokenId);
+        }
+        filter.put(tokenId);
+    }
+}
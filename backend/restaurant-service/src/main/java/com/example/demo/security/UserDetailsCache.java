@@ -0,0 +1,218 @@
+package com.example.demo.security;
+
+import com.example.demo.entity.Role;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/**
+ * Size- and TTL-bounded cache of the account data behind {@link CustomUserDetailsService}, keyed by email.
+ * Only an immutable snapshot is cached; callers build a fresh UserDetails from it, since Spring Security
+ * erases the credentials of the UserDetails it authenticated. Entries are evicted by UserService
+ * whenever the password, role, email or existence of the account changes.
+ */
+@Component
+@Slf4j
+public class UserDetailsCache {
+
+    /**
+     * Account data needed to build a UserDetails
+     */
+    public record CachedUser(Long id, String email, String password, boolean enabled, Role role,
+                             String firstName, String lastName) {
+    }
+
+    private record Entry(CachedUser user, long expiresAt) {
+    }
+
+    private record Insertion(String email, Entry entry) {
+    }
+
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+    // Every entry shares one TTL, so insertion order is expiry order; replaced entries are skipped when polled
+    private final Queue<Insertion> insertionOrder = new ConcurrentLinkedQueue<>();
+    // Bumped on every eviction so a load that raced with an update does not cache the old row
+    private final AtomicLong generation = new AtomicLong();
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+
+    private final int maxSize;
+    private final long ttlMillis;
+
+    @Autowired
+    public UserDetailsCache(ObjectProvider<MeterRegistry> meterRegistry,
+                            @Value("${security.user-details-cache.max-size:10000}") int maxSize,
+                            @Value("${security.user-details-cache.ttl:PT5M}") Duration ttl) {
+        this(meterRegistry.getIfAvailable(), maxSize, ttl);
+    }
+
+    UserDetailsCache(MeterRegistry meterRegistry, int maxSize, Duration ttl) {
+        this.maxSize = maxSize;
+        this.ttlMillis = ttl.toMillis();
+        if (meterRegistry != null) {
+            registerMetrics(meterRegistry);
+        }
+    }
+
+    /**
+     * Return the cached account for the email, loading and caching it on a miss.
+     * Exceptions thrown by the loader (e.g. unknown user) propagate and nothing is cached.
+     */
+    public CachedUser get(String email, Function<String, CachedUser> loader) {
+        if (maxSize <= 0 || email == null) {
+            misses.incrementAndGet();
+            return loader.apply(email);
+        }
+
+        long now = System.currentTimeMillis();
+        Entry entry = entries.get(email);
+        if (entry != null && entry.expiresAt() > now) {
+            hits.incrementAndGet();
+            return entry.user();
+        }
+
+        misses.incrementAndGet();
+        return load(email, loader, now);
+    }
+
+    /**
+     * Load the account and cache it, replacing any cached entry
+     */
+    public CachedUser refresh(String email, Function<String, CachedUser> loader) {
+        if (maxSize <= 0 || email == null) {
+            return loader.apply(email);
+        }
+        return load(email, loader, System.currentTimeMillis());
+    }
+
+    /**
+     * Evict the given emails now and again once the current transaction commits, so a
+     * concurrent request cannot re-cache the pre-update row in between
+     */
+    public void evict(String... emails) {
+        evictNow(emails);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    evictNow(emails);
+                }
+            });
+        }
+    }
+
+    public void clear() {
+        generation.incrementAndGet();
+        evictions.addAndGet(entries.size());
+        entries.clear();
+        insertionOrder.clear();
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    public long getHitCount() {
+        return hits.get();
+    }
+
+    public long getMissCount() {
+        return misses.get();
+    }
+
+    private void registerMetrics(MeterRegistry meterRegistry) {
+        FunctionCounter.builder("security.userdetails.cache.requests", hits, AtomicLong::get)
+                .tag("result", "hit")
+                .description("UserDetails lookups served from the cache")
+                .register(meterRegistry);
+        FunctionCounter.builder("security.userdetails.cache.requests", misses, AtomicLong::get)
+                .tag("result", "miss")
+                .description("UserDetails lookups that queried the database")
+                .register(meterRegistry);
+        FunctionCounter.builder("security.userdetails.cache.evictions", evictions, AtomicLong::get)
+                .description("UserDetails cache entries removed by size bound or invalidation")
+                .register(meterRegistry);
+        Gauge.builder("security.userdetails.cache.size", entries, Map::size)
+                .description("UserDetails cache entries")
+                .register(meterRegistry);
+    }
+
+    private CachedUser load(String email, Function<String, CachedUser> loader, long now) {
+        long loadGeneration = generation.get();
+        CachedUser user = loader.apply(email);
+
+        makeRoom(email, now);
+        Entry loaded = new Entry(user, now + ttlMillis);
+        entries.put(email, loaded);
+        insertionOrder.offer(new Insertion(email, loaded));
+        if (generation.get() != loadGeneration) {
+            // An eviction happened while loading; the row we read may already be stale
+            removeExact(email, loaded);
+        }
+        return user;
+    }
+
+    private void evictNow(String... emails) {
+        generation.incrementAndGet();
+        for (String email : emails) {
+            if (email != null && entries.remove(email) != null) {
+                evictions.incrementAndGet();
+                log.debug("Evicted cached user details for: {}", email);
+            }
+        }
+    }
+
+    /**
+     * Drop the oldest insertions while they are replaced, expired or the cache is too full to add the email.
+     * Only the head of the queue is looked at, so this takes constant time per removed insertion.
+     */
+    private void makeRoom(String incoming, long now) {
+        while (true) {
+            Insertion oldest = insertionOrder.peek();
+            if (oldest == null) {
+                return;
+            }
+            boolean current = entries.get(oldest.email()) == oldest.entry();
+            boolean hasRoom = entries.size() < maxSize || entries.containsKey(incoming);
+            if (current && oldest.entry().expiresAt() > now && hasRoom) {
+                return;
+            }
+            Insertion polled = insertionOrder.poll();
+            if (polled != null && removeExact(polled.email(), polled.entry())) {
+                evictions.incrementAndGet();
+            }
+        }
+    }
+
+    /**
+     * Remove the mapping only if it is this exact entry. Entries are records, so a map's
+     * remove(key, value) would also match a newer entry loaded with equal data in the same millisecond.
+     */
+    private boolean removeExact(String email, Entry entry) {
+        boolean[] removed = new boolean[1];
+        entries.computeIfPresent(email, (key, value) -> {
+            if (value != entry) {
+                return value;
+            }
+            removed[0] = true;
+            return null;
+        });
+        return removed[0];
+    }
+}
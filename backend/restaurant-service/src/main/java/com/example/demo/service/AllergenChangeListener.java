@@ -0,0 +1,47 @@
+package com.example.demo.service;
+
+import com.example.demo.entity.Allergen;
+import jakarta.persistence.PostPersist;
+import jakarta.persistence.PostRemove;
+import jakarta.persistence.PostUpdate;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * JPA entity listener that drops the cached allergen catalogue whenever an allergen
+ * is created, changed or removed. The invalidation runs after commit so the next
+ * snapshot is never built from uncommitted data.
+ */
+@Component
+@RequiredArgsConstructor
+public class AllergenChangeListener {
+
+    // Resolved lazily: listeners are created while the EntityManagerFactory is still being built
+    private final ObjectProvider<AllergenService> allergenService;
+
+    @PostPersist
+    @PostUpdate
+    @PostRemove
+    public void onAllergenChanged(Allergen allergen) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    invalidate();
+                }
+            });
+        } else {
+            invalidate();
+        }
+    }
+
+    private void invalidate() {
+        AllergenService service = allergenService.getIfAvailable();
+        if (service != null) {
+            service.invalidateAllergenCatalogue();
+        }
+    }
+}
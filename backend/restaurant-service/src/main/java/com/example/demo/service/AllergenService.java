@@ -6,13 +6,21 @@ import com.example.demo.entity.User;
 import com.example.demo.exception.ResourceNotFoundException;
 import com.example.demo.repository.AllergenRepository;
 import com.example.demo.repository.UserRepository;
+import lombok.Getter;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import tools.jackson.databind.json.JsonMapper;
 
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 @Service
@@ -22,12 +30,42 @@ public class AllergenService {
 
     private final AllergenRepository allergenRepository;
     private final UserRepository userRepository;
+    // The application's mapper, so the cached body is serialized exactly like other responses
+    private final JsonMapper jsonMapper;
+
+    // Snapshot and invalidation count in one reference, so publishing can CAS against the exact state it read
+    private final AtomicReference<CatalogueState> catalogue = new AtomicReference<>(new CatalogueState(0, null));
 
-    @Transactional(readOnly = true)
     public List<AllergenResponseDTO> getAllAllergens() {
-        return allergenRepository.findAll().stream()
+        return getAllergenCatalogue().getAllergens();
+    }
+
+    /**
+     * Immutable snapshot of the allergen catalogue, built on first use and kept
+     * until {@link #invalidateAllergenCatalogue()} is called after an allergen change.
+     * Not transactional, so a cache hit does not take a database connection.
+     */
+    public AllergenCatalogue getAllergenCatalogue() {
+        CatalogueState read = catalogue.get();
+        if (read.snapshot() != null) {
+            return read.snapshot();
+        }
+
+        List<AllergenResponseDTO> allergens = allergenRepository.findAll().stream()
                 .map(this::mapToDTO)
                 .collect(Collectors.toList());
+        AllergenCatalogue snapshot = new AllergenCatalogue(allergens, serialize(allergens));
+
+        // Fails if an invalidation replaced the state while loading, so a stale snapshot is never published
+        if (catalogue.compareAndSet(read, new CatalogueState(read.generation(), snapshot))) {
+            log.info("Allergen catalogue loaded: {} allergens, ETag {}", allergens.size(), snapshot.getEtag());
+        }
+        return snapshot;
+    }
+
+    public void invalidateAllergenCatalogue() {
+        catalogue.updateAndGet(state -> new CatalogueState(state.generation() + 1, null));
+        log.info("Allergen catalogue invalidated");
     }
 
     @Transactional(readOnly = true)
@@ -64,18 +102,33 @@ public class AllergenService {
         User user = userRepository.findByIdWithAllergens(userId)
                 .orElseThrow(() -> new ResourceNotFoundException("User not found with ID: " + userId));
 
-        // Clear existing allergens
-        user.getAllergens().clear();
+        // Resolve all requested names in one query
+        Set<String> requestedNames = allergenNames != null
+                ? new LinkedHashSet<>(allergenNames)
+                : Collections.emptySet();
+        Map<String, Allergen> requested = requestedNames.isEmpty()
+                ? Collections.emptyMap()
+                : allergenRepository.findByNameIn(requestedNames).stream()
+                        .collect(Collectors.toMap(Allergen::getName, Function.identity()));
+
+        for (String name : requestedNames) {
+            if (!requested.containsKey(name)) {
+                throw new ResourceNotFoundException("Allergen not found: " + name);
+            }
+        }
 
-        // Add new allergens
-        if (allergenNames != null && !allergenNames.isEmpty()) {
-            List<Allergen> allergens = allergenNames.stream()
-                    .map(name -> allergenRepository.findByName(name)
-                            .orElseThrow(() -> new ResourceNotFoundException("Allergen not found: " + name)))
-                    .collect(Collectors.toList());
+        // Apply only the difference so unchanged user_allergens rows are left alone
+        Set<Long> requestedIds = requested.values().stream()
+                .map(Allergen::getId)
+                .collect(Collectors.toSet());
+        Set<Long> currentIds = user.getAllergens().stream()
+                .map(Allergen::getId)
+                .collect(Collectors.toSet());
 
-            user.getAllergens().addAll(allergens);
-        }
+        user.getAllergens().removeIf(allergen -> !requestedIds.contains(allergen.getId()));
+        requested.values().stream()
+                .filter(allergen -> !currentIds.contains(allergen.getId()))
+                .forEach(user.getAllergens()::add);
 
         User savedUser = userRepository.save(user);
         log.info("Successfully updated allergens for user ID: {}", userId);
@@ -92,4 +145,28 @@ public class AllergenService {
                 .name(allergen.getName())
                 .build();
     }
+
+    private byte[] serialize(List<AllergenResponseDTO> allergens) {
+        return jsonMapper.writeValueAsBytes(allergens);
+    }
+
+    private record CatalogueState(long generation, AllergenCatalogue snapshot) {
+    }
+
+    /**
+     * Allergen list together with its pre-serialized JSON body and a strong ETag
+     * derived from the SHA-256 of that body
+     */
+    @Getter
+    public static class AllergenCatalogue {
+        private final List<AllergenResponseDTO> allergens;
+        private final byte[] json;
+        private final String etag;
+
+        public AllergenCatalogue(List<AllergenResponseDTO> allergens, byte[] json) {
+            this.allergens = List.copyOf(allergens);
+            this.json = json;
+            this.etag = "\"" + ContentHash.of(json) + "\"";
+        }
+    }
 }
\ No newline at end of file
@@ -3,17 +3,33 @@ package com.example.demo.service;
 import com.cloudinary.Cloudinary;
 import com.cloudinary.Transformation;
 import com.cloudinary.utils.ObjectUtils;
+import com.example.demo.exception.InvalidFileException;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.stereotype.Service;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.IOException;
-import java.util.Arrays;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
-import java.util.UUID;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
 
 /**
  * Cloudinary cloud storage implementation.
@@ -24,24 +40,72 @@ import java.util.UUID;
  * cloudinary.cloud-name=your-cloud-name
  * cloudinary.api-key=your-api-key
  * cloudinary.api-secret=your-api-secret
+ *
+ * Uploads are asynchronous. The request only streams the image to a spool file on local disk and
+ * returns the image's final delivery URL, which is known up front because the public ID is the content
+ * hash. A small pool of uploader threads then sends the spooled file to Cloudinary, in chunks for
+ * larger files, retrying failures with backoff; {@link #getUploadStatus} reports progress until the
+ * image is live. Spooled files survive a restart and are uploaded again on startup, so in a container
+ * the spool path must be on a persistent volume.
  */
 @Service
 @Slf4j
 @ConditionalOnProperty(name = "storage.type", havingValue = "cloudinary")
-public class CloudinaryFileStorageService implements FileStorageService {
+public class CloudinaryFileStorageService implements FileStorageService, DisposableBean {
 
     private final Cloudinary cloudinary;
 
-    private static final List<String> ALLOWED_TYPES = Arrays.asList(
-        "image/jpeg", "image/jpg", "image/png", "image/gif", "image/webp"
-    );
-
     private static final long MAX_FILE_SIZE = 10 * 1024 * 1024; // 10MB
 
+    private static final String UPLOAD_PATH = "/image/upload/";
+    private static final String DEFAULT_FOLDER = "restaurant-map";
+    private static final int BUFFER_SIZE = 64 * 1024;
+    // Cloudinary's minimum chunk size; smaller files go up in one streamed request
+    private static final int CHUNK_SIZE = 5 * 1024 * 1024;
+    private static final Pattern VERSION_SEGMENT = Pattern.compile("v\\d+");
+    // Public IDs this service assigns; anything else in the account is left alone
+    private static final Pattern CONTENT_ADDRESSED_ID = Pattern.compile("(?:.+/)?[0-9a-f]{64}");
+    private static final int LIST_PAGE_SIZE = 500;
+
+    /**
+     * One page of the Admin API resource listing
+     */
+    private record ResourcePage(List<ListedFile> files, String nextCursor) {
+    }
+
+    /**
+     * A spooled image waiting to be uploaded
+     */
+    private static final class PendingUpload {
+        private final Path spoolFile;
+        private final String publicId;
+        private final String url;
+        // Changed only inside pending.compute for the upload's URL, or by the single task running the upload
+        private volatile UploadStatus status = UploadStatus.PENDING;
+        private volatile boolean cancelled;
+        private volatile int attempts;
+
+        private PendingUpload(Path spoolFile, String publicId, String url) {
+            this.spoolFile = spoolFile;
+            this.publicId = publicId;
+            this.url = url;
+        }
+    }
+
+    private final Path spoolPath;
+    private final int maxAttempts;
+    private final long initialBackoffMillis;
+    private final ScheduledThreadPoolExecutor uploader;
+    private final Map<String, PendingUpload> pending = new ConcurrentHashMap<>();
+
     public CloudinaryFileStorageService(
             @Value("${cloudinary.cloud-name}") String cloudName,
             @Value("${cloudinary.api-key}") String apiKey,
-            @Value("${cloudinary.api-secret}") String apiSecret) {
+            @Value("${cloudinary.api-secret}") String apiSecret,
+            @Value("${cloudinary.upload.spool-path:cloudinary-spool/}") String spoolPath,
+            @Value("${cloudinary.upload.threads:2}") int threads,
+            @Value("${cloudinary.upload.max-attempts:6}") int maxAttempts,
+            @Value("${cloudinary.upload.initial-backoff:PT2S}") Duration initialBackoff) {
 
         this.cloudinary = new Cloudinary(ObjectUtils.asMap(
             "cloud_name", cloudName,
@@ -49,6 +113,24 @@ public class CloudinaryFileStorageService implements FileStorageService {
             "api_secret", apiSecret,
             "secure", true
         ));
+        this.spoolPath = Paths.get(spoolPath).toAbsolutePath().normalize();
+        this.maxAttempts = Math.max(1, maxAttempts);
+        this.initialBackoffMillis = initialBackoff.toMillis();
+
+        AtomicInteger threadNumber = new AtomicInteger();
+        // Fixed thread count bounds concurrent uploads; queued work is only a reference to a spooled file
+        this.uploader = new ScheduledThreadPoolExecutor(Math.max(1, threads), runnable -> {
+            Thread thread = new Thread(runnable, "cloudinary-upload-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        try {
+            Files.createDirectories(this.spoolPath);
+        } catch (IOException e) {
+            throw new IllegalStateException("Could not create Cloudinary spool directory " + this.spoolPath, e);
+        }
+        resumeSpooledUploads();
 
         log.info("Cloudinary service initialized with cloud: {}", cloudName);
     }
@@ -57,37 +139,80 @@ public class CloudinaryFileStorageService implements FileStorageService {
     public String storeFile(MultipartFile file, String folder) throws IOException {
         // Validate file
         if (file.isEmpty()) {
-            throw new IOException("Cannot store empty file");
+            throw new InvalidFileException("Cannot store empty file");
         }
 
-        if (!isValidImageType(file.getContentType())) {
-            throw new IOException("Invalid file type. Only images are allowed.");
+        if (!isValidFileSize(file.getSize())) {
+            throw new InvalidFileException("File size exceeds maximum allowed size (10MB)");
         }
 
-        if (!isValidFileSize(file.getSize())) {
-            throw new IOException("File size exceeds maximum allowed size (10MB)");
+        try (InputStream in = file.getInputStream()) {
+            return storeStream(in, folder).url();
         }
+    }
 
-        // Generate unique public ID
-        String publicId = UUID.randomUUID().toString();
-        if (folder != null && !folder.isEmpty()) {
-            publicId = folder + "/" + publicId;
+    @Override
+    public StoredFile storeStream(InputStream in, String folder) throws IOException {
+        byte[] buffer = new byte[BUFFER_SIZE];
+        int read = in.readNBytes(buffer, 0, ImageFormat.HEADER_LENGTH);
+        if (read == 0) {
+            throw new InvalidFileException("Cannot store empty file");
         }
+        ImageFormat format = ImageFormat.detect(buffer, read)
+                .orElseThrow(() -> new InvalidFileException("Invalid file type. Only images are allowed."));
 
-        // Upload to Cloudinary
-        Map<String, Object> uploadParams = ObjectUtils.asMap(
-            "public_id", publicId,
-            "folder", folder != null ? folder : "restaurant-map",
-            "resource_type", "image",
-            "transformation", new Transformation<>().quality("auto").fetchFormat("auto")
-        );
+        String prefix = folder != null && !folder.isEmpty() ? folder : DEFAULT_FOLDER;
+        Path directory = spoolPath.resolve(prefix).normalize();
+        if (!directory.startsWith(spoolPath) || directory.equals(spoolPath)) {
+            throw new InvalidFileException("Invalid folder");
+        }
+        Files.createDirectories(directory);
 
-        Map uploadResult = cloudinary.uploader().upload(file.getBytes(), uploadParams);
+        // Spooled in 64 KiB chunks and hashed on the way, so the request never holds the image in memory
+        Path tempFile = Files.createTempFile(directory, ".upload-", ".tmp");
+        try {
+            ContentHash.Copied copied = ContentHash.copy(buffer, read, in, tempFile, MAX_FILE_SIZE);
+            long size = copied.size();
 
-        String imageUrl = (String) uploadResult.get("secure_url");
-        log.info("File uploaded to Cloudinary: {}", imageUrl);
+            // Content-addressed public ID: re-uploading the same bytes resolves to the same asset
+            String contentHash = copied.hash();
+            String publicId = prefix + "/" + contentHash;
+            Path spoolFile = directory.resolve(contentHash + format.getExtension());
+            String url = deliveryUrl(publicId, format.getExtension());
 
-        return imageUrl;
+            // Decided atomically per URL, so identical concurrent uploads spool and enqueue the content once
+            PendingUpload spooled = new PendingUpload(spoolFile, publicId, url);
+            PendingUpload current;
+            try {
+                current = pending.compute(url, (key, existing) -> {
+                    if (existing != null && !existing.cancelled && existing.status != UploadStatus.FAILED) {
+                        return existing;
+                    }
+                    moveToSpool(tempFile, spoolFile);
+                    if (existing != null && existing.status == UploadStatus.PENDING) {
+                        // Cancelled but still scheduled: revive it instead of racing it
+                        existing.cancelled = false;
+                        return existing;
+                    }
+                    return spooled;
+                });
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+            if (current == spooled) {
+                uploader.execute(() -> upload(spooled));
+                log.info("Image spooled for Cloudinary upload: {}", publicId);
+            }
+            return new StoredFile(url, contentHash, size, format.getContentType());
+        } finally {
+            Files.deleteIfExists(tempFile);
+        }
+    }
+
+    @Override
+    public UploadStatus getUploadStatus(String fileUrl) {
+        PendingUpload upload = fileUrl == null ? null : pending.get(fileUrl);
+        return upload == null ? UploadStatus.READY : upload.status;
     }
 
     @Override
@@ -97,6 +222,26 @@ public class CloudinaryFileStorageService implements FileStorageService {
             return;
         }
 
+        boolean[] cancelled = new boolean[1];
+        try {
+            pending.computeIfPresent(fileUrl, (key, upload) -> {
+                // The uploader skips a cancelled upload, or destroys the asset if it was already in flight
+                cancelled[0] = true;
+                deleteSpoolFile(upload);
+                if (upload.status == UploadStatus.FAILED) {
+                    return null;
+                }
+                upload.cancelled = true;
+                return upload;
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        if (cancelled[0]) {
+            log.info("Pending Cloudinary upload cancelled: {}", fileUrl);
+            return;
+        }
+
         try {
             // Extract public ID from Cloudinary URL
             String publicId = extractPublicIdFromUrl(fileUrl);
@@ -112,8 +257,30 @@ public class CloudinaryFileStorageService implements FileStorageService {
     }
 
     @Override
-    public boolean isValidImageType(String contentType) {
-        return contentType != null && ALLOWED_TYPES.contains(contentType.toLowerCase());
+    public String getVariantUrl(String fileUrl, ImageVariant variant) {
+        // Resized by Cloudinary on first request and cached on its CDN
+        int upload = fileUrl == null ? -1 : fileUrl.indexOf(UPLOAD_PATH);
+        if (upload < 0) {
+            return fileUrl;
+        }
+        int insertAt = upload + UPLOAD_PATH.length();
+        return fileUrl.substring(0, insertAt) + "c_limit,w_" + variant.getWidth() + ",f_auto,q_auto/" + fileUrl.substring(insertAt);
+    }
+
+    @Override
+    public Stream<ListedFile> listFiles() throws IOException {
+        // Pages are fetched as the stream is consumed
+        return Stream.iterate(listPage(null), Objects::nonNull,
+                        page -> page.nextCursor() == null ? null : uncheckedListPage(page.nextCursor()))
+                .flatMap(page -> page.files().stream());
+    }
+
+    @Override
+    public String getStorageKey(String fileUrl) {
+        if (fileUrl == null || !fileUrl.contains("/" + cloudinary.config.cloudName + UPLOAD_PATH)) {
+            return null;
+        }
+        return extractPublicIdFromUrl(fileUrl);
     }
 
     @Override
@@ -121,6 +288,175 @@ public class CloudinaryFileStorageService implements FileStorageService {
         return size > 0 && size <= MAX_FILE_SIZE;
     }
 
+    @Override
+    public void destroy() {
+        // Unfinished uploads stay spooled and are resumed on the next start
+        uploader.shutdownNow();
+    }
+
+    private void upload(PendingUpload upload) {
+        // Cancelled uploads are dropped in the same atomic step a re-upload would revive them in
+        if (pending.computeIfPresent(upload.url, (key, current) ->
+                current == upload && upload.cancelled ? null : current) != upload) {
+            return;
+        }
+        upload.attempts++;
+        try {
+            Map<String, Object> uploadParams = ObjectUtils.asMap(
+                "public_id", upload.publicId,
+                "resource_type", "image",
+                "overwrite", false,
+                "transformation", new Transformation<>().quality("auto").fetchFormat("auto")
+            );
+            long size = Files.size(upload.spoolFile);
+            // Chunked uploads send the file in parts from disk; smaller files are streamed in one request
+            Map uploadResult = size > CHUNK_SIZE
+                    ? cloudinary.uploader().uploadLarge(upload.spoolFile.toFile(), uploadParams, CHUNK_SIZE)
+                    : cloudinary.uploader().upload(upload.spoolFile.toFile(), uploadParams);
+            log.info("File uploaded to Cloudinary: {} after {} attempt(s)", uploadResult.get("secure_url"), upload.attempts);
+
+            finish(upload);
+        } catch (Exception e) {
+            if (upload.attempts >= maxAttempts) {
+                // Left spooled; retried on the next start or by an upload of the same content
+                pending.computeIfPresent(upload.url, (key, current) -> {
+                    if (current == upload) {
+                        upload.status = UploadStatus.FAILED;
+                    }
+                    return current;
+                });
+                log.error("Cloudinary upload of {} failed after {} attempts: {}", upload.publicId, upload.attempts, e.getMessage());
+                return;
+            }
+            long backoff = initialBackoffMillis << Math.min(upload.attempts - 1, 10);
+            log.warn("Cloudinary upload of {} failed (attempt {}), retrying in {} ms: {}",
+                    upload.publicId, upload.attempts, backoff, e.getMessage());
+            uploader.schedule(() -> upload(upload), backoff, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Drop a finished upload. A cancel that came in while it was in flight destroys the asset, and a
+     * re-upload that revived it while the asset was being destroyed sends it again.
+     */
+    private void finish(PendingUpload upload) throws Exception {
+        boolean destroyed = false;
+        while (true) {
+            boolean cancelled = upload.cancelled;
+            if (cancelled && !destroyed) {
+                cloudinary.uploader().destroy(upload.publicId, ObjectUtils.emptyMap());
+                destroyed = true;
+            } else if (!cancelled && destroyed) {
+                upload.attempts = 0;
+                uploader.execute(() -> upload(upload));
+                return;
+            }
+            // Removed only if no cancel or revive changed it meanwhile; otherwise look again
+            PendingUpload remaining = pending.computeIfPresent(upload.url, (key, current) -> {
+                if (current != upload || upload.cancelled != cancelled) {
+                    return current;
+                }
+                try {
+                    deleteSpoolFile(upload);
+                } catch (UncheckedIOException e) {
+                    log.warn("Could not delete spooled file {}: {}", upload.spoolFile, e.getMessage());
+                }
+                return null;
+            });
+            if (remaining != upload) {
+                return;
+            }
+        }
+    }
+
+    private static void moveToSpool(Path tempFile, Path spoolFile) {
+        try {
+            Files.move(tempFile, spoolFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static void deleteSpoolFile(PendingUpload upload) {
+        try {
+            Files.deleteIfExists(upload.spoolFile);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void resumeSpooledUploads() {
+        try (Stream<Path> files = Files.walk(spoolPath)) {
+            List<Path> spooled = files
+                    .filter(Files::isRegularFile)
+                    .filter(path -> !path.getFileName().toString().startsWith("."))
+                    .toList();
+            for (Path file : spooled) {
+                String relative = spoolPath.relativize(file).toString().replace('\\', '/');
+                int dot = relative.lastIndexOf('.');
+                String publicId = relative.substring(0, dot);
+                PendingUpload upload = new PendingUpload(file, publicId, deliveryUrl(publicId, relative.substring(dot)));
+                pending.put(upload.url, upload);
+                uploader.execute(() -> upload(upload));
+            }
+            if (!spooled.isEmpty()) {
+                log.info("Resuming {} spooled Cloudinary uploads", spooled.size());
+            }
+        } catch (IOException e) {
+            log.error("Could not scan Cloudinary spool directory {}", spoolPath, e);
+        }
+    }
+
+    private ResourcePage uncheckedListPage(String cursor) {
+        try {
+            return listPage(cursor);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private ResourcePage listPage(String cursor) throws IOException {
+        Map<String, Object> options = ObjectUtils.asMap(
+            "type", "upload",
+            "resource_type", "image",
+            "max_results", LIST_PAGE_SIZE
+        );
+        if (cursor != null) {
+            options.put("next_cursor", cursor);
+        }
+        Map<String, Object> response;
+        try {
+            response = cloudinary.api().resources(options);
+        } catch (Exception e) {
+            throw new IOException("Failed to list Cloudinary resources", e);
+        }
+
+        List<ListedFile> files = new ArrayList<>();
+        for (Map<String, Object> resource : (List<Map<String, Object>>) response.get("resources")) {
+            String publicId = (String) resource.get("public_id");
+            if (!CONTENT_ADDRESSED_ID.matcher(publicId).matches()) {
+                continue;
+            }
+            files.add(new ListedFile(publicId, (String) resource.get("secure_url"),
+                    Instant.parse((String) resource.get("created_at"))));
+        }
+        return new ResourcePage(files, (String) response.get("next_cursor"));
+    }
+
+    /**
+     * Delivery URL of an asset, known before it is uploaded. Unversioned, so it stays the same
+     * across retries; delivery converts to the extension's format if the stored one differs.
+     */
+    private String deliveryUrl(String publicId, String extension) {
+        return cloudinary.url()
+                .secure(true)
+                .resourceType("image")
+                .type("upload")
+                .format(extension.substring(1))
+                .generate(publicId);
+    }
+
     /**
      * Extract Cloudinary public ID from URL
      * Example: https://res.cloudinary.com/demo/image/upload/v1234567/folder/abc123.jpg
@@ -128,16 +464,17 @@ public class CloudinaryFileStorageService implements FileStorageService {
      */
     private String extractPublicIdFromUrl(String url) {
         try {
-            // Cloudinary URL format: .../upload/v{version}/{public_id}.{format}
+            // Cloudinary URL format: .../upload/[v{version}/]{public_id}.{format}
             String[] parts = url.split("/upload/");
             if (parts.length < 2) return null;
 
-            String afterUpload = parts[1];
-            // Remove version number (v1234567/)
-            int firstSlash = afterUpload.indexOf('/');
-            if (firstSlash == -1) return null;
+            String publicIdWithExtension = parts[1];
+            // Remove version number (v1234567/) if present
+            int firstSlash = publicIdWithExtension.indexOf('/');
+            if (firstSlash > 0 && VERSION_SEGMENT.matcher(publicIdWithExtension.substring(0, firstSlash)).matches()) {
+                publicIdWithExtension = publicIdWithExtension.substring(firstSlash + 1);
+            }
 
-            String publicIdWithExtension = afterUpload.substring(firstSlash + 1);
             // Remove file extension
             int lastDot = publicIdWithExtension.lastIndexOf('.');
             if (lastDot > 0) {
@@ -150,4 +487,5 @@ public class CloudinaryFileStorageService implements FileStorageService {
             return null;
         }
     }
+
 }
@@ -0,0 +1,86 @@
+package com.example.demo.service;
+
+import com.example.demo.exception.InvalidFileException;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+
+/**
+ * Hex-encoded SHA-256 hashes: the names of content-addressed uploads, allergen catalogue ETags
+ * and the stored form of refresh tokens. Streams are hashed chunk by chunk, never held in memory.
+ */
+public final class ContentHash {
+
+    /**
+     * Hash and size of content copied to a file
+     */
+    public record Copied(String hash, long size) {
+    }
+
+    private ContentHash() {
+    }
+
+    public static String of(byte[] content) {
+        return HexFormat.of().formatHex(sha256().digest(content));
+    }
+
+    public static String of(String value) {
+        return of(value.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Hash the first {@code read} bytes of the buffer, then the rest of the stream
+     *
+     * @param buffer holds the bytes already read from the stream; reused for the remaining chunks
+     */
+    public static String of(byte[] buffer, int read, InputStream in) throws IOException {
+        MessageDigest digest = sha256();
+        do {
+            digest.update(buffer, 0, read);
+        } while ((read = in.read(buffer)) != -1);
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    /**
+     * Write the first {@code read} bytes of the buffer, then the rest of the stream, to the file,
+     * hashing each chunk in the same pass: one read of the source, one disk write
+     *
+     * @throws InvalidFileException if the content exceeds {@code maxSize}; the file is then incomplete
+     */
+    public static Copied copy(byte[] buffer, int read, InputStream in, Path target, long maxSize)
+            throws IOException {
+        MessageDigest digest = sha256();
+        long size = 0;
+        try (FileChannel channel = FileChannel.open(target, StandardOpenOption.WRITE)) {
+            do {
+                size += read;
+                if (size > maxSize) {
+                    throw new InvalidFileException(
+                            "File size exceeds maximum allowed size (" + maxSize / (1024 * 1024) + "MB)");
+                }
+                digest.update(buffer, 0, read);
+                ByteBuffer chunk = ByteBuffer.wrap(buffer, 0, read);
+                while (chunk.hasRemaining()) {
+                    channel.write(chunk);
+                }
+            } while ((read = in.read(buffer)) != -1);
+        }
+        return new Copied(HexFormat.of().formatHex(digest.digest()), size);
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+}
@@ -2,22 +2,27 @@ package com.example.demo.service;
 
 import com.example.demo.dto.dish.DishCreateRequestDTO;
 import com.example.demo.dto.dish.DishResponseDTO;
+import com.example.demo.dto.dish.DishSearchRequestDTO;
+import com.example.demo.dto.dish.DishSearchResultDTO;
 import com.example.demo.entity.*;
 import com.example.demo.exception.ResourceNotFoundException;
 import com.example.demo.exception.UnauthorizedException;
+import com.example.demo.exception.ValidationException;
 import com.example.demo.repository.ComponentRepository;
 import com.example.demo.repository.DishRepository;
 import com.example.demo.repository.RestaurantRepository;
-import com.example.demo.repository.UserRepository;
+import com.example.demo.security.SecurityUtil;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Objects;
 import java.util.Set;
 import java.util.stream.Collectors;
 
@@ -29,7 +34,11 @@ public class DishService {
     private final DishRepository dishRepository;
     private final RestaurantRepository restaurantRepository;
     private final ComponentRepository componentRepository;
-    private final UserRepository userRepository;
+    private final SecurityUtil securityUtil;
+    private final GeocodingService geocodingService;
+    private final StoredImageService storedImageService;
+
+    private static final double KM_PER_DEGREE_LATITUDE = 111.32;
 
     @Transactional
     public DishResponseDTO createDish(DishCreateRequestDTO request, Long restaurantId, Long userId) {
@@ -74,6 +83,7 @@ public class DishService {
         calculateMacros(dish);
 
         Dish savedDish = dishRepository.save(dish);
+        storedImageService.updateReferences(savedDish.getImgUrl());
         log.info("Dish created with ID: {}", savedDish.getId());
 
         return mapToResponse(savedDish);
@@ -93,20 +103,95 @@ public class DishService {
                 .collect(Collectors.toList());
     }
 
+    @Transactional(readOnly = true)
+    public List<DishSearchResultDTO> searchDishes(DishSearchRequestDTO request) {
+        log.info("Searching dishes with filters: {}", request);
+
+        validateRange(request.getMinKcal(), request.getMaxKcal(), "kcal");
+        validateRange(request.getMinProteinG(), request.getMaxProteinG(), "protein");
+        validateRange(request.getMinFatG(), request.getMaxFatG(), "fat");
+        validateRange(request.getMinCarbsG(), request.getMaxCarbsG(), "carbs");
+
+        if ((request.getLatitude() == null) != (request.getLongitude() == null)) {
+            throw new ValidationException("Latitude and longitude must be provided together");
+        }
+
+        boolean hasLocation = request.getLatitude() != null;
+        double radiusKm = request.getRadiusKm() != null ? request.getRadiusKm() : 10.0;
+        int limit = request.getLimit() != null ? request.getLimit() : 50;
+
+        // Bounding box around the point; narrowed to the exact radius below
+        Double minLat = null;
+        Double maxLat = null;
+        Double minLng = null;
+        Double maxLng = null;
+        if (hasLocation) {
+            double latDelta = radiusKm / KM_PER_DEGREE_LATITUDE;
+            double lngDelta = radiusKm / (KM_PER_DEGREE_LATITUDE
+                    * Math.max(Math.cos(Math.toRadians(request.getLatitude())), 0.01));
+            minLat = request.getLatitude() - latDelta;
+            maxLat = request.getLatitude() + latDelta;
+            minLng = request.getLongitude() - lngDelta;
+            maxLng = request.getLongitude() + lngDelta;
+        }
+
+        List<String> excludedAllergens = request.getExcludeAllergens() != null
+                ? request.getExcludeAllergens()
+                : List.of();
+
+        // The box corners lie outside the circle, so fetch pages larger than the limit and keep
+        // paging until the limit is reached within the radius or the box is exhausted
+        int pageSize = hasLocation ? limit * 2 : limit;
+
+        GeocodingService.Coordinates origin = hasLocation
+                ? new GeocodingService.Coordinates(request.getLatitude(), request.getLongitude())
+                : null;
+
+        List<DishSearchResultDTO> results = new ArrayList<>();
+        for (int page = 0; results.size() < limit; page++) {
+            List<Dish> dishes = dishRepository.searchByNutrition(
+                    RestaurantStatus.APPROVED,
+                    request.getMinKcal(), request.getMaxKcal(),
+                    request.getMinProteinG(), request.getMaxProteinG(),
+                    request.getMinFatG(), request.getMaxFatG(),
+                    request.getMinCarbsG(), request.getMaxCarbsG(),
+                    minLat, maxLat, minLng, maxLng,
+                    excludedAllergens,
+                    PageRequest.of(page, pageSize));
+
+            for (Dish dish : dishes) {
+                Double distanceKm = null;
+                if (origin != null) {
+                    Restaurant restaurant = dish.getRestaurant();
+                    distanceKm = geocodingService.calculateDistance(origin,
+                            new GeocodingService.Coordinates(restaurant.getLatitude(), restaurant.getLongitude()));
+                    if (distanceKm > radiusKm) {
+                        continue;
+                    }
+                }
+                results.add(mapToSearchResult(dish, distanceKm));
+                if (results.size() == limit) {
+                    break;
+                }
+            }
+            if (dishes.size() < pageSize) {
+                break;
+            }
+        }
+
+        log.info("Dish search returned {} results", results.size());
+        return results;
+    }
+
     @Transactional
     public DishResponseDTO updateDish(Long id, DishCreateRequestDTO request, Long userId) {
         log.info("Updating dish: {} by user: {}", id, userId);
 
-        Dish dish = dishRepository.findById(id)
-                .orElseThrow(() -> new ResourceNotFoundException("Dish not found with ID: " + id));
+        // Only loaded if the user owns the restaurant or is an admin
+        Dish dish = dishRepository.findByIdIfOwnedOrAdmin(id, userId, securityUtil.isCurrentUserAdmin())
+                .orElseThrow(() -> notFoundOrUnauthorized(id, "You can only update dishes from your own restaurants"));
 
-        // Check if user is the restaurant owner
-        User currentUser = userRepository.findById(userId)
-                .orElseThrow(() -> new ResourceNotFoundException("User not found"));
-        if (!dish.getRestaurant().getOwner().getId().equals(userId)
-                && currentUser.getRole() != Role.ADMIN) {
-            throw new UnauthorizedException("You can only update dishes from your own restaurants");
-        }
+        String previousImageUrl = dish.getImgUrl();
 
         // Update basic fields
         dish.setName(request.getName());
@@ -139,6 +224,9 @@ public class DishService {
         }
 
         Dish savedDish = dishRepository.save(dish);
+        if (!Objects.equals(previousImageUrl, savedDish.getImgUrl())) {
+            storedImageService.updateReferences(previousImageUrl, savedDish.getImgUrl());
+        }
         log.info("Dish updated: {}", id);
 
         return mapToResponse(savedDish);
@@ -148,21 +236,30 @@ public class DishService {
     public void deleteDish(Long dishId, Long userId) {
         log.info("Deleting dish: {} by user: {}", dishId, userId);
 
-        Dish dish = dishRepository.findById(dishId)
-                .orElseThrow(() -> new ResourceNotFoundException("Dish not found with ID: " + dishId));
+        boolean admin = securityUtil.isCurrentUserAdmin();
 
-        // Check if user is the restaurant owner
-        User currentUser = userRepository.findById(userId)
-                .orElseThrow(() -> new ResourceNotFoundException("User not found"));
+        List<String> imageUrls = dishRepository.findImgUrlById(dishId);
 
-        if (!dish.getRestaurant().getOwner().getId().equals(userId) && currentUser.getRole() != Role.ADMIN) {
-            throw new UnauthorizedException("You can only delete dishes from your own restaurants");
+        // Both statements carry the ownership predicate; the dish row count decides the outcome
+        dishRepository.deleteComponentsByDishIdIfOwnedOrAdmin(dishId, userId, admin);
+        if (dishRepository.deleteByIdIfOwnedOrAdmin(dishId, userId, admin) == 0) {
+            throw notFoundOrUnauthorized(dishId, "You can only delete dishes from your own restaurants");
         }
+        storedImageService.updateReferences(imageUrls);
 
-        dishRepository.deleteById(dishId);
         log.info("Dish deleted: {}", dishId);
     }
 
+    /**
+     * Tell apart a missing dish from a forbidden one after a conditional statement matched nothing
+     */
+    private RuntimeException notFoundOrUnauthorized(Long dishId, String message) {
+        if (!dishRepository.existsById(dishId)) {
+            return new ResourceNotFoundException("Dish not found with ID: " + dishId);
+        }
+        return new UnauthorizedException(message);
+    }
+
     private void calculateMacros(Dish dish) {
         double totalProtein = 0.0;
         double totalFat = 0.0;
@@ -185,6 +282,28 @@ public class DishService {
         dish.setBaseKcal(totalKcal);
     }
 
+    private void validateRange(Double min, Double max, String name) {
+        if (min != null && max != null && min > max) {
+            throw new ValidationException("Minimum " + name + " must not be greater than maximum " + name);
+        }
+    }
+
+    private DishSearchResultDTO mapToSearchResult(Dish dish, Double distanceKm) {
+        return DishSearchResultDTO.builder()
+                .id(dish.getId())
+                .name(dish.getName())
+                .price(dish.getPrice())
+                .imageUrl(dish.getImgUrl())
+                .baseKcal(dish.getBaseKcal())
+                .baseProteinG(dish.getBaseProteinG())
+                .baseFatG(dish.getBaseFatG())
+                .baseCarbsG(dish.getBaseCarbsG())
+                .restaurantId(dish.getRestaurant().getId())
+                .restaurantName(dish.getRestaurant().getName())
+                .distanceKm(distanceKm)
+                .build();
+    }
+
     private DishResponseDTO mapToResponse(Dish dish) {
         // Get all unique allergens from components
         Set<String> allergens = dish.getDishComponents().stream()
@@ -0,0 +1,108 @@
+package com.example.demo.service;
+
+import com.example.demo.entity.EmailOutboxMessage;
+import com.example.demo.service.SmtpBatchSender.SendResult;
+import jakarta.mail.MessagingException;
+import jakarta.mail.internet.MimeMessage;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Background sender for the email outbox. Each run claims due messages in batches, sends them
+ * over pooled SMTP connections with no transaction open, and records the outcome per message: sent messages are marked in one
+ * statement, failed ones are rescheduled with backoff by {@link EmailOutboxService#markFailed}.
+ * Delivery is at-least-once; a message whose outcome could not be recorded is sent again after its lease.
+ */
+@Component
+@Slf4j
+public class EmailOutboxDispatcher {
+
+    private final EmailOutboxService emailOutboxService;
+    private final EmailService emailService;
+    private final SmtpBatchSender smtpBatchSender;
+    private final boolean enabled;
+    private final int batchSize;
+    private final int maxBatchesPerRun;
+    private final Duration retention;
+
+    public EmailOutboxDispatcher(
+            EmailOutboxService emailOutboxService,
+            EmailService emailService,
+            SmtpBatchSender smtpBatchSender,
+            @Value("${email.outbox.dispatcher.enabled:true}") boolean enabled,
+            @Value("${email.outbox.batch-size:50}") int batchSize,
+            @Value("${email.outbox.max-batches-per-run:20}") int maxBatchesPerRun,
+            @Value("${email.outbox.retention:P7D}") Duration retention) {
+        this.emailOutboxService = emailOutboxService;
+        this.emailService = emailService;
+        this.smtpBatchSender = smtpBatchSender;
+        this.enabled = enabled;
+        this.batchSize = batchSize;
+        this.maxBatchesPerRun = maxBatchesPerRun;
+        this.retention = retention;
+    }
+
+    @Scheduled(fixedDelayString = "${email.outbox.poll-interval:PT2S}")
+    public void dispatch() {
+        if (!enabled) {
+            return;
+        }
+        for (int i = 0; i < maxBatchesPerRun; i++) {
+            List<EmailOutboxMessage> batch = emailOutboxService.claimDueBatch(batchSize);
+            if (batch.isEmpty()) {
+                return;
+            }
+            sendBatch(batch);
+            if (batch.size() < batchSize) {
+                return;
+            }
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${email.outbox.purge-interval:PT1H}",
+            initialDelayString = "${email.outbox.purge-interval:PT1H}")
+    public void purgeSent() {
+        int purged = emailOutboxService.purgeSent(retention);
+        log.debug("Purged {} sent outbox emails", purged);
+    }
+
+    void sendBatch(List<EmailOutboxMessage> batch) {
+        List<EmailOutboxMessage> composed = new ArrayList<>(batch.size());
+        List<MimeMessage> messages = new ArrayList<>(batch.size());
+        int failed = 0;
+        for (EmailOutboxMessage message : batch) {
+            try {
+                Locale locale = message.getLocale() == null ? null : Locale.forLanguageTag(message.getLocale());
+                messages.add(emailService.compose(message.getType(), locale,
+                        message.getRecipient(), message.getFirstName(), message.getToken()));
+                composed.add(message);
+            } catch (MessagingException | RuntimeException e) {
+                // Fails only this row, e.g. a template or locale problem, not the rest of the batch
+                emailOutboxService.markFailed(message.getId(), "Invalid message: " + e.getMessage());
+                failed++;
+            }
+        }
+
+        // Results come back in input order
+        List<SendResult> results = smtpBatchSender.sendAll(messages);
+        List<Long> sent = new ArrayList<>(composed.size());
+        for (int i = 0; i < composed.size(); i++) {
+            SendResult result = results.get(i);
+            if (result.isSent()) {
+                sent.add(composed.get(i).getId());
+            } else {
+                emailOutboxService.markFailed(composed.get(i).getId(), result.error());
+                failed++;
+            }
+        }
+        emailOutboxService.markSent(sent);
+        log.info("Email outbox batch: {} sent, {} failed", sent.size(), failed);
+    }
+}
@@ -0,0 +1,146 @@
+package com.example.demo.service;
+
+import com.example.demo.entity.EmailOutboxMessage;
+import com.example.demo.entity.EmailOutboxStatus;
+import com.example.demo.entity.EmailType;
+import com.example.demo.repository.EmailOutboxRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.i18n.LocaleContextHolder;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Transactional email outbox. Callers queue emails inside their own transaction, so an email is sent
+ * if and only if the change that triggered it commits, and no SMTP work happens while a database
+ * connection is held. {@link EmailOutboxDispatcher} delivers the queued emails.
+ */
+@Service
+@Slf4j
+public class EmailOutboxService {
+
+    private static final int MAX_ERROR_LENGTH = 1000;
+
+    private final EmailOutboxRepository emailOutboxRepository;
+    private final int maxAttempts;
+    private final Duration initialBackoff;
+    private final Duration maxBackoff;
+    private final Duration lease;
+
+    public EmailOutboxService(
+            EmailOutboxRepository emailOutboxRepository,
+            @Value("${email.outbox.max-attempts:8}") int maxAttempts,
+            @Value("${email.outbox.initial-backoff:PT30S}") Duration initialBackoff,
+            @Value("${email.outbox.max-backoff:PT1H}") Duration maxBackoff,
+            @Value("${email.outbox.lease:PT5M}") Duration lease) {
+        this.emailOutboxRepository = emailOutboxRepository;
+        this.maxAttempts = maxAttempts;
+        this.initialBackoff = initialBackoff;
+        this.maxBackoff = maxBackoff;
+        this.lease = lease;
+    }
+
+    @Transactional
+    public void enqueueVerificationEmail(String toEmail, String firstName, String verificationToken) {
+        enqueue(EmailType.VERIFICATION, toEmail, firstName, verificationToken);
+    }
+
+    @Transactional
+    public void enqueueWelcomeEmail(String toEmail, String firstName) {
+        enqueue(EmailType.WELCOME, toEmail, firstName, null);
+    }
+
+    /**
+     * Claim up to {@code batchSize} due messages for this dispatcher run
+     *
+     * @return the claimed messages, detached
+     */
+    @Transactional
+    public List<EmailOutboxMessage> claimDueBatch(int batchSize) {
+        LocalDateTime now = LocalDateTime.now();
+        List<Long> dueIds = emailOutboxRepository.findDueIds(
+                EmailOutboxStatus.PENDING, now, PageRequest.of(0, batchSize));
+        if (dueIds.isEmpty()) {
+            return List.of();
+        }
+
+        String claimToken = UUID.randomUUID().toString();
+        int claimed = emailOutboxRepository.claim(
+                dueIds, EmailOutboxStatus.PENDING, claimToken, now.plus(lease), now);
+        return claimed == 0 ? List.of() : emailOutboxRepository.findByClaimToken(claimToken);
+    }
+
+    @Transactional
+    public void markSent(Collection<Long> ids) {
+        if (!ids.isEmpty()) {
+            emailOutboxRepository.markSent(ids, EmailOutboxStatus.SENT, LocalDateTime.now());
+        }
+    }
+
+    /**
+     * Record a failed delivery and schedule a retry with exponential backoff and jitter,
+     * giving up after the configured number of attempts
+     */
+    @Transactional
+    public void markFailed(Long id, String error) {
+        emailOutboxRepository.findById(id).ifPresent(message -> {
+            int attempts = message.getAttempts() + 1;
+            message.setAttempts(attempts);
+            message.setClaimToken(null);
+            message.setLastError(error != null && error.length() > MAX_ERROR_LENGTH
+                    ? error.substring(0, MAX_ERROR_LENGTH)
+                    : error);
+
+            if (attempts >= maxAttempts) {
+                message.setStatus(EmailOutboxStatus.FAILED);
+                log.error("Giving up on {} email to {} after {} attempts: {}",
+                        message.getType(), message.getRecipient(), attempts, error);
+            } else {
+                message.setNextAttemptAt(LocalDateTime.now().plus(backoff(attempts)));
+                log.warn("Failed to send {} email to {} (attempt {}), retrying at {}",
+                        message.getType(), message.getRecipient(), attempts, message.getNextAttemptAt());
+            }
+            emailOutboxRepository.save(message);
+        });
+    }
+
+    /**
+     * Delete delivered messages older than the retention period
+     */
+    @Transactional
+    public int purgeSent(Duration retention) {
+        return emailOutboxRepository.deleteSentBefore(EmailOutboxStatus.SENT, LocalDateTime.now().minus(retention));
+    }
+
+    /**
+     * initialBackoff * 2^(attempts - 1), capped, with up to 20% jitter so failed batches spread out
+     */
+    Duration backoff(int attempts) {
+        long base = initialBackoff.toMillis() << Math.min(attempts - 1, 20);
+        long capped = Math.min(base, maxBackoff.toMillis());
+        long jitter = (long) (capped * 0.2 * ThreadLocalRandom.current().nextDouble());
+        return Duration.ofMillis(capped + jitter);
+    }
+
+    private void enqueue(EmailType type, String toEmail, String firstName, String token) {
+        LocalDateTime now = LocalDateTime.now();
+        emailOutboxRepository.save(EmailOutboxMessage.builder()
+                .type(type)
+                .recipient(toEmail)
+                .firstName(firstName)
+                .token(token)
+                .locale(LocaleContextHolder.getLocale().toLanguageTag())
+                .nextAttemptAt(now)
+                .createdAt(now)
+                .build());
+        log.debug("Queued {} email to {}", type, toEmail);
+    }
+}
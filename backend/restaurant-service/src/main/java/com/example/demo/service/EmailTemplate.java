@@ -0,0 +1,129 @@
+package com.example.demo.service;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * An email template compiled once into alternating literal and placeholder segments.
+ * Placeholders are written {@code {{name}}} and bound at compile time to a position in the
+ * parameter list, so rendering is a straight copy of literals and values into the caller's
+ * buffer with no parsing, map lookups or intermediate strings.
+ */
+public final class EmailTemplate {
+
+    private static final String OPEN = "{{";
+    private static final String CLOSE = "}}";
+
+    // literals.length == slots.length + 1; output is literals[0] slot[0] literals[1] ... literals[n]
+    private final String[] literals;
+    private final int[] slots;
+    private final boolean html;
+    private final int literalLength;
+
+    private EmailTemplate(String[] literals, int[] slots, boolean html) {
+        this.literals = literals;
+        this.slots = slots;
+        this.html = html;
+        int length = 0;
+        for (String literal : literals) {
+            length += literal.length();
+        }
+        this.literalLength = length;
+    }
+
+    /**
+     * @param source     template text
+     * @param parameters names the template may reference, in the order values are passed to render
+     * @param html       escape values for HTML when rendering
+     * @throws IllegalArgumentException if the template references an unknown parameter or is malformed
+     */
+    public static EmailTemplate compile(String source, List<String> parameters, boolean html) {
+        List<String> literals = new ArrayList<>();
+        List<Integer> slots = new ArrayList<>();
+        int position = 0;
+        while (true) {
+            int open = source.indexOf(OPEN, position);
+            if (open < 0) {
+                break;
+            }
+            int close = source.indexOf(CLOSE, open + OPEN.length());
+            if (close < 0) {
+                throw new IllegalArgumentException("Unclosed placeholder at offset " + open);
+            }
+            String name = source.substring(open + OPEN.length(), close).trim();
+            int slot = parameters.indexOf(name);
+            if (slot < 0) {
+                throw new IllegalArgumentException("Unknown placeholder: " + name);
+            }
+            literals.add(source.substring(position, open));
+            slots.add(slot);
+            position = close + CLOSE.length();
+        }
+        literals.add(source.substring(position));
+
+        return new EmailTemplate(
+                literals.toArray(String[]::new),
+                slots.stream().mapToInt(Integer::intValue).toArray(),
+                html);
+    }
+
+    /**
+     * Render into a new string sized up front
+     */
+    public String render(String... values) {
+        StringBuilder out = new StringBuilder(estimateLength(values));
+        renderTo(out, values);
+        return out.toString();
+    }
+
+    /**
+     * Append the rendered template to {@code out}; null values render as empty
+     */
+    public void renderTo(StringBuilder out, String... values) {
+        out.ensureCapacity(out.length() + estimateLength(values));
+        for (int i = 0; i < slots.length; i++) {
+            out.append(literals[i]);
+            String value = values[slots[i]];
+            if (value == null) {
+                continue;
+            }
+            if (html) {
+                appendEscaped(out, value);
+            } else {
+                out.append(value);
+            }
+        }
+        out.append(literals[slots.length]);
+    }
+
+    /**
+     * Output length before any HTML escaping
+     */
+    public int estimateLength(String... values) {
+        int length = literalLength;
+        for (int slot : slots) {
+            String value = values[slot];
+            length += value == null ? 0 : value.length();
+        }
+        return length;
+    }
+
+    private static void appendEscaped(StringBuilder out, String value) {
+        int start = 0;
+        for (int i = 0; i < value.length(); i++) {
+            String replacement = switch (value.charAt(i)) {
+                case '&' -> "&amp;";
+                case '<' -> "&lt;";
+                case '>' -> "&gt;";
+                case '"' -> "&quot;";
+                case '\'' -> "&#39;";
+                default -> null;
+            };
+            if (replacement != null) {
+                out.append(value, start, i).append(replacement);
+                start = i + 1;
+            }
+        }
+        out.append(value, start, value.length());
+    }
+}
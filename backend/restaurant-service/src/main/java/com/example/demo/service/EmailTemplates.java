@@ -0,0 +1,129 @@
+package com.example.demo.service;
+
+import com.example.demo.entity.EmailType;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StreamUtils;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Email templates for every {@link EmailType} and supported language, loaded from
+ * {@code classpath:email/} and compiled once at startup. Each variant has a subject, a plain-text
+ * body ({@code <type>[_<lang>].txt}, first line {@code Subject: ...}) and an HTML body
+ * ({@code <type>[_<lang>].html}); the default language has no suffix. A missing or malformed
+ * template fails startup instead of the first send.
+ */
+@Component
+public class EmailTemplates {
+
+    /**
+     * Values a template may reference, in render order
+     */
+    static final List<String> PARAMETERS = List.of("firstName", "link", "appUrl");
+
+    private static final String SUBJECT_PREFIX = "Subject:";
+    // Buffers that grew past this are not kept for reuse
+    private static final int MAX_RETAINED_BUFFER = 16 * 1024;
+
+    /**
+     * A rendered email, ready to be put in a multipart/alternative message
+     */
+    public record RenderedEmail(String subject, String text, String html) {
+    }
+
+    private record Variant(EmailTemplate subject, EmailTemplate text, EmailTemplate html) {
+    }
+
+    private final Map<EmailType, Map<String, Variant>> variants = new EnumMap<>(EmailType.class);
+    private final String defaultLanguage;
+    // The dispatcher renders whole batches on the same scheduler thread, so its buffer is reused across them
+    private final ThreadLocal<StringBuilder> buffer = ThreadLocal.withInitial(() -> new StringBuilder(2048));
+
+    public EmailTemplates(@Value("${email.templates.default-language:en}") String defaultLanguage,
+                          @Value("${email.templates.languages:en,pl}") List<String> languages) {
+        this.defaultLanguage = defaultLanguage;
+        for (EmailType type : EmailType.values()) {
+            Map<String, Variant> byLanguage = new HashMap<>();
+            byLanguage.put(defaultLanguage, load(type, ""));
+            for (String language : languages) {
+                if (!language.equals(defaultLanguage)) {
+                    byLanguage.put(language, load(type, "_" + language));
+                }
+            }
+            variants.put(type, Map.copyOf(byLanguage));
+        }
+    }
+
+    /**
+     * Render the variant for the locale's language, falling back to the default language
+     *
+     * @param link   verification or reset link; unused by welcome emails
+     * @param appUrl frontend URL
+     */
+    public RenderedEmail render(EmailType type, Locale locale, String firstName, String link, String appUrl) {
+        Map<String, Variant> byLanguage = variants.get(type);
+        Variant variant = locale == null ? null : byLanguage.get(locale.getLanguage());
+        if (variant == null) {
+            variant = byLanguage.get(defaultLanguage);
+        }
+
+        String[] values = {firstName, link, appUrl};
+        StringBuilder out = buffer.get();
+        try {
+            return new RenderedEmail(
+                    render(out, variant.subject(), values),
+                    render(out, variant.text(), values),
+                    render(out, variant.html(), values));
+        } finally {
+            if (out.capacity() > MAX_RETAINED_BUFFER) {
+                buffer.remove();
+            }
+        }
+    }
+
+    private static String render(StringBuilder out, EmailTemplate template, String[] values) {
+        out.setLength(0);
+        template.renderTo(out, values);
+        return out.toString();
+    }
+
+    private static Variant load(EmailType type, String suffix) {
+        String base = "email/" + type.name().toLowerCase(Locale.ROOT).replace('_', '-') + suffix;
+        String text = read(base + ".txt");
+        String html = read(base + ".html");
+
+        int lineEnd = text.indexOf('\n');
+        if (!text.startsWith(SUBJECT_PREFIX) || lineEnd < 0) {
+            throw new IllegalStateException("Email template " + base + ".txt must start with a Subject: line");
+        }
+        String subject = text.substring(SUBJECT_PREFIX.length(), lineEnd).trim();
+        // The body starts after the blank line following the subject
+        String body = text.substring(lineEnd + 1).stripLeading();
+
+        try {
+            return new Variant(
+                    EmailTemplate.compile(subject, PARAMETERS, false),
+                    EmailTemplate.compile(body, PARAMETERS, false),
+                    EmailTemplate.compile(html, PARAMETERS, true));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalStateException("Invalid email template " + base + ": " + e.getMessage(), e);
+        }
+    }
+
+    private static String read(String path) {
+        try (InputStream in = new ClassPathResource(path).getInputStream()) {
+            return StreamUtils.copyToString(in, StandardCharsets.UTF_8).replace("\r\n", "\n");
+        } catch (IOException e) {
+            throw new IllegalStateException("Missing email template " + path, e);
+        }
+    }
+}
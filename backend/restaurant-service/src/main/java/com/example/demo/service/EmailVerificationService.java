@@ -18,7 +18,7 @@ import java.util.UUID;
 public class EmailVerificationService {
 
     private final UserRepository userRepository;
-    private final EmailService emailService;
+    private final EmailOutboxService emailOutboxService;
 
     private static final int TOKEN_EXPIRY_HOURS = 24;
 
@@ -34,10 +34,10 @@ public class EmailVerificationService {
 
         userRepository.save(user);
 
-        // Send email
-        emailService.sendVerificationEmail(user.getEmail(), user.getFirstName(), token);
+        // Queue email; it is sent after commit by the outbox dispatcher
+        emailOutboxService.enqueueVerificationEmail(user.getEmail(), user.getFirstName(), token);
 
-        log.info("Verification email sent to user: {}", user.getEmail());
+        log.info("Verification email queued for user: {}", user.getEmail());
     }
 
     @Transactional
@@ -66,8 +66,8 @@ public class EmailVerificationService {
 
         userRepository.save(user);
 
-        // Send welcome email
-        emailService.sendWelcomeEmail(user.getEmail(), user.getFirstName());
+        // Queue welcome email
+        emailOutboxService.enqueueWelcomeEmail(user.getEmail(), user.getFirstName());
 
         log.info("Email verified successfully for user: {}", user.getEmail());
     }
@@ -3,6 +3,9 @@ package com.example.demo.service;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.IOException;
+import java.io.InputStream;
+import java.time.Instant;
+import java.util.stream.Stream;
 
 /**
  * Interface for file storage operations.
@@ -10,6 +13,28 @@ import java.io.IOException;
  */
 public interface FileStorageService {
 
+    /**
+     * A file found by {@link #listFiles()}: its storage key (see {@link #getStorageKey}), public URL
+     * and last modification time
+     */
+    record ListedFile(String key, String url, Instant lastModified) {
+    }
+
+    /**
+     * Upload progress of a stored file. Storage that uploads in the background hands out the final URL
+     * right away; it only serves the content once the upload is READY.
+     */
+    enum UploadStatus {
+        PENDING, READY, FAILED
+    }
+
+    /**
+     * A stored file: its public URL, hex SHA-256 of the content, size in bytes and the content type
+     * detected from the file's magic bytes
+     */
+    record StoredFile(String url, String contentHash, long size, String contentType) {
+    }
+
     /**
      * Store a file and return its URL
      *
@@ -20,6 +45,18 @@ public interface FileStorageService {
      */
     String storeFile(MultipartFile file, String folder) throws IOException;
 
+    /**
+     * Store an image read directly from a stream, e.g. a raw request body, without buffering it
+     * in a temp file first. The type is validated from the magic bytes and the size while reading.
+     *
+     * @param in     The file content; read to the end but not closed
+     * @param folder Optional folder/prefix for organization
+     * @return The stored file
+     * @throws com.example.demo.exception.InvalidFileException if the content is empty, too large or not an image
+     * @throws IOException if storage fails
+     */
+    StoredFile storeStream(InputStream in, String folder) throws IOException;
+
     /**
      * Delete a file by its URL
      *
@@ -29,12 +66,48 @@ public interface FileStorageService {
     void deleteFile(String fileUrl) throws IOException;
 
     /**
-     * Check if a file type is allowed
+     * URL of a stored image resized to at most the variant's width. Storage that cannot resize
+     * returns the original URL.
+     *
+     * @param fileUrl URL returned when the file was stored
+     * @param variant The wanted width
+     * @return The variant URL
+     */
+    default String getVariantUrl(String fileUrl, ImageVariant variant) {
+        return fileUrl;
+    }
+
+    /**
+     * Whether a stored file can be served yet. Storage that writes synchronously is always READY.
+     *
+     * @param fileUrl URL returned when the file was stored
+     * @return The upload status; READY for URLs the storage is not uploading
+     */
+    default UploadStatus getUploadStatus(String fileUrl) {
+        return UploadStatus.READY;
+    }
+
+    /**
+     * Every file in storage, read lazily so the listing is never held in memory. The caller must close
+     * the stream. Storage that cannot be listed returns an empty stream.
+     *
+     * @return The stored files, in no particular order
+     * @throws IOException if listing fails
+     */
+    default Stream<ListedFile> listFiles() throws IOException {
+        return Stream.empty();
+    }
+
+    /**
+     * Key identifying the stored file a URL points at, the same key {@link #listFiles()} reports for it.
+     * Different URLs of one file (e.g. versioned CDN URLs) map to the same key.
      *
-     * @param contentType The MIME type of the file
-     * @return true if allowed, false otherwise
+     * @param fileUrl URL returned when the file was stored
+     * @return The key, or null if the URL is not in this storage
      */
-    boolean isValidImageType(String contentType);
+    default String getStorageKey(String fileUrl) {
+        return null;
+    }
 
     /**
      * Validate file size
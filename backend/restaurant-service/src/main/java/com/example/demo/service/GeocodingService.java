@@ -26,7 +26,8 @@ public class GeocodingService {
     private static final long MIN_REQUEST_INTERVAL_MS = 1000;
 
     private final RestTemplate restTemplate;
-    private final AtomicLong lastRequestTime = new AtomicLong(0);
+    // Earliest time the next request may be sent
+    private final AtomicLong nextRequestTime = new AtomicLong(0);
 
     public GeocodingService() {
         this.restTemplate = new RestTemplate();
@@ -89,20 +90,30 @@ public class GeocodingService {
     }
 
     /**
-     * Enforces rate limiting - waits 1 second between requests
+     * Enforces rate limiting - at most one request per second across all callers.
+     * Each caller reserves the next free slot with a CAS and sleeps outside any lock,
+     * so concurrent callers queue in slot order without holding a monitor while sleeping
+     * (which would pin virtual threads and serialize unrelated callers).
      */
-    private synchronized void enforceRateLimit() {
+    private void enforceRateLimit() {
         long now = System.currentTimeMillis();
-        long timeSinceLastRequest = now - lastRequestTime.get();
-        if (timeSinceLastRequest < MIN_REQUEST_INTERVAL_MS) {
-            long sleepTime = MIN_REQUEST_INTERVAL_MS - timeSinceLastRequest;
+        long slot;
+        while (true) {
+            long next = nextRequestTime.get();
+            slot = Math.max(now, next);
+            if (nextRequestTime.compareAndSet(next, slot + MIN_REQUEST_INTERVAL_MS)) {
+                break;
+            }
+        }
+
+        long sleepTime = slot - now;
+        if (sleepTime > 0) {
             try {
                 Thread.sleep(sleepTime);
             } catch (InterruptedException e) {
                 Thread.currentThread().interrupt();
             }
         }
-        lastRequestTime.set(System.currentTimeMillis());
     }
 
     public double calculateDistance(Coordinates from, Coordinates to) {
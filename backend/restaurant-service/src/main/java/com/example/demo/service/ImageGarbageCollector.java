@@ -0,0 +1,213 @@
+package com.example.demo.service;
+
+import com.example.demo.entity.StoredImage;
+import com.example.demo.repository.StoredImageRepository;
+import com.example.demo.service.FileStorageService.ListedFile;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.function.Predicate;
+import java.util.stream.Stream;
+
+/**
+ * Background mark-and-sweep of images nothing uses any more: uploads that were never attached to a
+ * restaurant or dish, and images replaced or left behind by deletes. Each run first recounts the
+ * references of registered images, which bulk deletes (e.g. a user's restaurants) do not update, and
+ * deletes registered images that have been unused for longer than the minimum age. It then marks the
+ * storage keys of all referenced and still registered images, a bounded partition at a time, and sweeps
+ * the storage listing, compared against them in sorted batches, deleting the other files older than the
+ * minimum age: files that were never registered or whose registration was lost. Deletes go through
+ * {@link StoredImageService#delete}, which locks the registry row and checks references and the minimum
+ * age again (a duplicate upload restarts it), and are made in batches with a pause in between and a cap
+ * per run.
+ */
+@Component
+@Slf4j
+public class ImageGarbageCollector {
+
+    private final StoredImageService storedImageService;
+    private final StoredImageRepository storedImageRepository;
+    private final FileStorageService fileStorageService;
+    private final boolean enabled;
+    private final Duration minAge;
+    private final int batchSize;
+    private final Duration batchDelay;
+    private final int maxDeletesPerRun;
+    private final int maxKeysInMemory;
+
+    public ImageGarbageCollector(
+            StoredImageService storedImageService,
+            StoredImageRepository storedImageRepository,
+            FileStorageService fileStorageService,
+            @Value("${image-gc.enabled:true}") boolean enabled,
+            @Value("${image-gc.min-age:P1D}") Duration minAge,
+            @Value("${image-gc.batch-size:100}") int batchSize,
+            @Value("${image-gc.batch-delay:PT1S}") Duration batchDelay,
+            @Value("${image-gc.max-deletes-per-run:1000}") int maxDeletesPerRun,
+            @Value("${image-gc.max-keys-in-memory:200000}") int maxKeysInMemory) {
+        this.storedImageService = storedImageService;
+        this.storedImageRepository = storedImageRepository;
+        this.fileStorageService = fileStorageService;
+        this.enabled = enabled;
+        this.minAge = minAge;
+        this.batchSize = batchSize;
+        this.batchDelay = batchDelay;
+        this.maxDeletesPerRun = maxDeletesPerRun;
+        this.maxKeysInMemory = Math.max(1, maxKeysInMemory);
+    }
+
+    @Scheduled(fixedDelayString = "${image-gc.interval:PT6H}", initialDelayString = "${image-gc.initial-delay:PT15M}")
+    public void collect() {
+        if (!enabled) {
+            return;
+        }
+        Instant cutoff = Instant.now().minus(minAge);
+        try {
+            int deleted = reconcileRegistry(cutoff);
+            deleted += sweepStorage(cutoff, maxDeletesPerRun - deleted);
+            log.info("Image garbage collection deleted {} unused images", deleted);
+        } catch (IOException | UncheckedIOException e) {
+            log.error("Image garbage collection failed: {}", e.getMessage(), e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Recount the references of every registered image, then delete the ones unused since the cutoff
+     *
+     * @return number of images deleted
+     */
+    int reconcileRegistry(Instant cutoff) throws InterruptedException {
+        String after = "";
+        List<StoredImage> page;
+        do {
+            page = storedImageRepository.findByContentHashGreaterThanOrderByContentHash(after, Limit.of(batchSize));
+            if (page.isEmpty()) {
+                break;
+            }
+            storedImageService.updateReferences(page.stream().map(StoredImage::getUrl).toList());
+            after = page.get(page.size() - 1).getContentHash();
+        } while (page.size() == batchSize);
+
+        LocalDateTime registryCutoff = LocalDateTime.ofInstant(cutoff, ZoneId.systemDefault());
+        int deleted = 0;
+        while (deleted < maxDeletesPerRun) {
+            List<StoredImage> unused = storedImageRepository.findUnreferencedSince(
+                    registryCutoff, Limit.of(Math.min(batchSize, maxDeletesPerRun - deleted)));
+            int deletedInBatch = deleteAll(unused.stream().map(StoredImage::getUrl).toList(), registryCutoff);
+            deleted += deletedInBatch;
+            // A batch of kept images means they are referenced again and were recounted; stop rather than spin
+            if (unused.size() < batchSize || deletedInBatch == 0) {
+                break;
+            }
+            pause();
+        }
+        return deleted;
+    }
+
+    /**
+     * Delete stored files that are neither referenced nor registered and are older than the cutoff.
+     * Registered images were already collected by {@link #reconcileRegistry}. The live keys are held in
+     * memory as a sorted array, at most {@code maxKeysInMemory} at a time: with more images the keys are
+     * split into partitions by hash and the storage listing is swept once per partition.
+     *
+     * @return number of files deleted
+     */
+    int sweepStorage(Instant cutoff, int maxDeletes) throws IOException, InterruptedException {
+        if (maxDeletes <= 0) {
+            return 0;
+        }
+        int partitions = (int) Math.max(1,
+                (storedImageService.maxLiveStorageKeys() + maxKeysInMemory - 1) / maxKeysInMemory);
+        LocalDateTime registryCutoff = LocalDateTime.ofInstant(cutoff, ZoneId.systemDefault());
+        int deleted = 0;
+        for (int partition = 0; partition < partitions && deleted < maxDeletes; partition++) {
+            int current = partition;
+            Predicate<String> inPartition = key -> Math.floorMod(key.hashCode(), partitions) == current;
+            deleted += sweepPartition(inPartition, cutoff, registryCutoff, maxDeletes - deleted);
+        }
+        return deleted;
+    }
+
+    private int sweepPartition(Predicate<String> inPartition, Instant cutoff, LocalDateTime registryCutoff,
+                               int maxDeletes) throws IOException, InterruptedException {
+        String[] live = storedImageService.liveStorageKeys(inPartition);
+        int deleted = 0;
+        try (Stream<ListedFile> files = fileStorageService.listFiles()) {
+            Iterator<ListedFile> iterator = files.filter(file -> inPartition.test(file.key())).iterator();
+            List<ListedFile> batch = new ArrayList<>(batchSize);
+            while (iterator.hasNext() && deleted < maxDeletes) {
+                batch.add(iterator.next());
+                if (batch.size() == batchSize || !iterator.hasNext()) {
+                    List<String> orphans = orphans(batch, live, cutoff);
+                    batch.clear();
+                    if (!orphans.isEmpty()) {
+                        deleted += deleteAll(orphans.subList(0, Math.min(orphans.size(), maxDeletes - deleted)),
+                                registryCutoff);
+                        pause();
+                    }
+                }
+            }
+        }
+        return deleted;
+    }
+
+    /**
+     * URLs of the files in a listing batch that are old enough and not live. The batch is sorted by key
+     * and merged against the sorted live keys, starting where its first key would be.
+     */
+    static List<String> orphans(List<ListedFile> batch, String[] live, Instant cutoff) {
+        batch.sort(Comparator.comparing(ListedFile::key));
+        List<String> orphans = new ArrayList<>();
+        int position = Arrays.binarySearch(live, batch.get(0).key());
+        int next = position >= 0 ? position : -position - 1;
+        for (ListedFile file : batch) {
+            while (next < live.length && live[next].compareTo(file.key()) < 0) {
+                next++;
+            }
+            boolean isLive = next < live.length && live[next].equals(file.key());
+            if (!isLive && file.lastModified().isBefore(cutoff)) {
+                orphans.add(file.url());
+            }
+        }
+        return orphans;
+    }
+
+    private int deleteAll(List<String> urls, LocalDateTime unusedBefore) {
+        int deleted = 0;
+        for (String url : urls) {
+            try {
+                if (storedImageService.delete(url, unusedBefore)) {
+                    deleted++;
+                } else {
+                    // Referenced or reused by an upload since it was marked; bring its count up to date
+                    storedImageService.updateReferences(url);
+                }
+            } catch (IOException e) {
+                log.warn("Could not delete unused image {}: {}", url, e.getMessage());
+            }
+        }
+        return deleted;
+    }
+
+    private void pause() throws InterruptedException {
+        if (!batchDelay.isZero()) {
+            Thread.sleep(batchDelay);
+        }
+    }
+}
@@ -0,0 +1,103 @@
+package com.example.demo.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiFunction;
+
+/**
+ * Bounded pool that validates and stores the images of a batch upload in parallel. At most
+ * {@code threads} images are processed at once across all requests and at most {@code queueCapacity}
+ * wait; when the pool is saturated the submitting request thread processes the image itself, which
+ * slows that request down instead of queueing without limit or failing the batch.
+ */
+@Component
+@Slf4j
+public class ImageUploadExecutor implements DisposableBean {
+
+    private final ThreadPoolExecutor executor;
+    private final int maxBatchSize;
+
+    public ImageUploadExecutor(
+            @Value("${upload.batch.threads:4}") int threads,
+            @Value("${upload.batch.queue-capacity:64}") int queueCapacity,
+            @Value("${upload.batch.max-files:50}") int maxBatchSize) {
+        int poolSize = Math.max(1, threads);
+
+        AtomicInteger threadNumber = new AtomicInteger();
+        ThreadFactory threadFactory = runnable -> {
+            Thread thread = new Thread(runnable, "image-upload-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+
+        this.executor = new ThreadPoolExecutor(poolSize, poolSize, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(Math.max(1, queueCapacity)), threadFactory,
+                new ThreadPoolExecutor.CallerRunsPolicy());
+        this.maxBatchSize = maxBatchSize;
+        log.info("Image upload executor started with {} threads and queue capacity {}", poolSize, queueCapacity);
+    }
+
+    /**
+     * Run the tasks on the pool and wait for all of them. A task that throws does not fail the
+     * others; its result is taken from {@code onFailure} instead.
+     *
+     * @param onFailure result of a failed task, given its index and the exception it threw
+     * @return the results, in the order of the tasks
+     */
+    public <T> List<T> invokeAll(List<? extends Callable<T>> tasks, BiFunction<Integer, Throwable, T> onFailure) {
+        List<Future<T>> futures = new ArrayList<>(tasks.size());
+        for (Callable<T> task : tasks) {
+            futures.add(executor.submit(task));
+        }
+
+        List<T> results = new ArrayList<>(tasks.size());
+        try {
+            for (int i = 0; i < futures.size(); i++) {
+                try {
+                    results.add(futures.get(i).get());
+                } catch (ExecutionException e) {
+                    Throwable cause = e.getCause();
+                    if (cause instanceof Error error) {
+                        futures.forEach(future -> future.cancel(true));
+                        throw error;
+                    }
+                    results.add(onFailure.apply(i, cause));
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            futures.forEach(future -> future.cancel(true));
+            throw new IllegalStateException("Interrupted while waiting for image uploads", e);
+        }
+        return results;
+    }
+
+    /**
+     * Maximum number of files accepted in one batch upload
+     */
+    public int getMaxBatchSize() {
+        return maxBatchSize;
+    }
+
+    public int getQueueSize() {
+        return executor.getQueue().size();
+    }
+
+    @Override
+    public void destroy() {
+        executor.shutdownNow();
+    }
+}
@@ -0,0 +1,39 @@
+package com.example.demo.service;
+
+import java.util.Locale;
+
+/**
+ * Fixed widths uploaded images are resized to, so lists and map popups do not download the original.
+ * Variants are requested with {@code ?w=<width>}; any width maps to the nearest variant at least that wide.
+ */
+public enum ImageVariant {
+    THUMBNAIL(160),
+    CARD(480),
+    FULL(1280);
+
+    private final int width;
+
+    ImageVariant(int width) {
+        this.width = width;
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public String getName() {
+        return name().toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * The narrowest variant at least {@code width} pixels wide, or the widest variant
+     */
+    public static ImageVariant forWidth(int width) {
+        for (ImageVariant variant : values()) {
+            if (variant.width >= width) {
+                return variant;
+            }
+        }
+        return FULL;
+    }
+}
@@ -0,0 +1,301 @@
+package com.example.demo.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageInputStream;
+import javax.imageio.stream.ImageOutputStream;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+/**
+ * Generates the {@link ImageVariant} widths of locally stored images and serves them from an on-disk cache.
+ * The variants of {@code uploads/<path>} live in {@code uploads/.variants/<path>/<width>.<ext>}; the
+ * directory is published with an atomic rename once all variants are written, so its presence means
+ * generation is done. A variant that is missing from a published directory was not needed because the
+ * original is no wider than it, and the original is served instead.
+ *
+ * <p>Resizing is CPU-heavy, so it runs on a small bounded pool of platform threads and never on the
+ * request thread: uploads only enqueue work, and a request for a variant that is not ready yet gets the
+ * original while the variant is generated. When the queue is full the work is dropped and picked up again
+ * by the next request for that image.
+ */
+@Service
+@Slf4j
+@ConditionalOnProperty(name = "storage.type", havingValue = "local")
+public class ImageVariantService implements DisposableBean {
+
+    static final String VARIANTS_DIRECTORY = ".variants";
+
+    // Decoded images are kept under this many pixels by subsampling while reading
+    private static final long MAX_DECODED_PIXELS = 16_000_000L;
+    private static final List<String> VARIANT_EXTENSIONS = List.of(".webp", ".jpg", ".png");
+
+    private final Path uploadPath;
+    private final Path variantsPath;
+    private final float jpegQuality;
+    // Encoded with a WebP ImageIO plugin when one is on the classpath, otherwise JPEG (PNG for transparency)
+    private final boolean webpAvailable = ImageIO.getImageWritersByFormatName("webp").hasNext();
+    private final ThreadPoolExecutor executor;
+    private final Set<Path> inFlight = ConcurrentHashMap.newKeySet();
+
+    public ImageVariantService(
+            @Value("${upload.path:uploads/}") String uploadPath,
+            @Value("${image-variants.threads:0}") int threads,
+            @Value("${image-variants.queue-capacity:200}") int queueCapacity,
+            @Value("${image-variants.jpeg-quality:0.82}") float jpegQuality) {
+        this.uploadPath = Paths.get(uploadPath).toAbsolutePath().normalize();
+        this.variantsPath = this.uploadPath.resolve(VARIANTS_DIRECTORY);
+        this.jpegQuality = jpegQuality;
+
+        int poolSize = threads > 0 ? threads : Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+        AtomicInteger threadNumber = new AtomicInteger();
+        ThreadFactory threadFactory = runnable -> {
+            Thread thread = new Thread(runnable, "image-variant-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            thread.setPriority(Thread.MIN_PRIORITY);
+            return thread;
+        };
+        this.executor = new ThreadPoolExecutor(poolSize, poolSize, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(Math.max(1, queueCapacity)), threadFactory, new ThreadPoolExecutor.AbortPolicy());
+        log.info("Image variant executor started with {} threads, encoding {}", poolSize, webpAvailable ? "WebP" : "JPEG/PNG");
+    }
+
+    /**
+     * File to serve for a request of {@code original} at {@code width} pixels: the cached variant, or the
+     * original if the variant is not needed or not generated yet (in which case generation is queued)
+     */
+    public Path resolve(Path original, int width) {
+        Path directory = variantDirectory(original);
+        if (directory == null) {
+            return original;
+        }
+        if (!Files.isDirectory(directory)) {
+            generateAsync(original);
+            return original;
+        }
+        Path variant = findVariant(directory, ImageVariant.forWidth(width));
+        return variant != null ? variant : original;
+    }
+
+    /**
+     * Whether the variants of {@code original} have been generated; until then {@link #resolve} returns the original
+     */
+    public boolean isGenerated(Path original) {
+        Path directory = variantDirectory(original);
+        return directory != null && Files.isDirectory(directory);
+    }
+
+    /**
+     * Queue generation of all variants of a stored image. Returns immediately.
+     */
+    public void generateAsync(Path original) {
+        if (variantDirectory(original) == null || !inFlight.add(original)) {
+            return;
+        }
+        try {
+            executor.execute(() -> {
+                try {
+                    generate(original);
+                } catch (Exception e) {
+                    log.warn("Could not generate variants of {}: {}", original.getFileName(), e.getMessage());
+                } finally {
+                    inFlight.remove(original);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            inFlight.remove(original);
+            log.debug("Image variant queue full, skipping {}", original.getFileName());
+        }
+    }
+
+    /**
+     * Delete the cached variants of an image
+     */
+    public void deleteVariants(Path original) throws IOException {
+        Path directory = variantDirectory(original);
+        if (directory != null) {
+            deleteDirectory(directory);
+        }
+    }
+
+    public int getQueueSize() {
+        return executor.getQueue().size();
+    }
+
+    @Override
+    public void destroy() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * Decode the original once and write every variant narrower than it, widest first, each scaled from
+     * the previous one
+     */
+    void generate(Path original) throws IOException {
+        Path directory = variantDirectory(original);
+        if (directory == null || Files.isDirectory(directory) || !Files.isRegularFile(original)) {
+            return;
+        }
+        Files.createDirectories(directory.getParent());
+        Path temp = Files.createTempDirectory(directory.getParent(), ".tmp-");
+        try {
+            BufferedImage image;
+            try {
+                image = decode(original);
+            } catch (IOException | RuntimeException e) {
+                log.info("Could not decode {}: {}", original.getFileName(), e.getMessage());
+                image = null;
+            }
+            if (image == null) {
+                // Published empty so the original keeps being served without retrying
+                log.info("No variants for {}, serving the original at every width", original.getFileName());
+            } else {
+                ImageVariant[] variants = ImageVariant.values();
+                for (int i = variants.length - 1; i >= 0; i--) {
+                    if (image.getWidth() > variants[i].getWidth()) {
+                        image = scale(image, variants[i].getWidth());
+                        write(image, temp, variants[i]);
+                    }
+                }
+            }
+            try {
+                Files.move(temp, directory, StandardCopyOption.ATOMIC_MOVE);
+                log.debug("Variants generated for {}", original.getFileName());
+            } catch (FileAlreadyExistsException e) {
+                // Generated concurrently, e.g. by another instance sharing the directory
+            }
+        } finally {
+            deleteDirectory(temp);
+        }
+    }
+
+    private Path variantDirectory(Path original) {
+        Path normalized = original.toAbsolutePath().normalize();
+        if (!normalized.startsWith(uploadPath) || normalized.startsWith(variantsPath)) {
+            return null;
+        }
+        return variantsPath.resolve(uploadPath.relativize(normalized));
+    }
+
+    private static Path findVariant(Path directory, ImageVariant variant) {
+        for (String extension : VARIANT_EXTENSIONS) {
+            Path candidate = directory.resolve(variant.getWidth() + extension);
+            if (Files.isRegularFile(candidate)) {
+                return candidate;
+            }
+        }
+        return null;
+    }
+
+    private static BufferedImage decode(Path original) throws IOException {
+        try (ImageInputStream input = ImageIO.createImageInputStream(original.toFile())) {
+            Iterator<ImageReader> readers = input == null ? null : ImageIO.getImageReaders(input);
+            if (readers == null || !readers.hasNext()) {
+                return null;
+            }
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(input, true, true);
+                long pixels = (long) reader.getWidth(0) * reader.getHeight(0);
+                // Keep at least twice the widest variant before the smooth downscale, and bound the memory used
+                int subsampling = Math.max(1, reader.getWidth(0) / (ImageVariant.FULL.getWidth() * 2));
+                while (pixels / ((long) subsampling * subsampling) > MAX_DECODED_PIXELS) {
+                    subsampling++;
+                }
+                ImageReadParam param = reader.getDefaultReadParam();
+                param.setSourceSubsampling(subsampling, subsampling, 0, 0);
+                return reader.read(0, param);
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+
+    /**
+     * Downscale in halving steps, which keeps bilinear filtering from skipping pixels on large reductions
+     */
+    private static BufferedImage scale(BufferedImage source, int targetWidth) {
+        boolean alpha = source.getColorModel().hasAlpha();
+        int targetHeight = Math.max(1, (int) Math.round((double) source.getHeight() * targetWidth / source.getWidth()));
+        BufferedImage current = source;
+        int width = source.getWidth();
+        int height = source.getHeight();
+        do {
+            width = Math.max(targetWidth, width / 2);
+            height = Math.max(targetHeight, height / 2);
+            BufferedImage next = new BufferedImage(width, height, alpha ? BufferedImage.TYPE_INT_ARGB : BufferedImage.TYPE_INT_RGB);
+            Graphics2D graphics = next.createGraphics();
+            try {
+                graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+                graphics.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+                graphics.drawImage(current, 0, 0, width, height, null);
+            } finally {
+                graphics.dispose();
+            }
+            current = next;
+        } while (width > targetWidth);
+        return current;
+    }
+
+    private void write(BufferedImage image, Path directory, ImageVariant variant) throws IOException {
+        String format;
+        if (webpAvailable) {
+            format = "webp";
+        } else {
+            format = image.getColorModel().hasAlpha() ? "png" : "jpeg";
+        }
+        ImageWriter writer = ImageIO.getImageWritersByFormatName(format).next();
+        Path file = directory.resolve(variant.getWidth() + (format.equals("jpeg") ? ".jpg" : "." + format));
+        try (ImageOutputStream output = ImageIO.createImageOutputStream(file.toFile())) {
+            writer.setOutput(output);
+            ImageWriteParam param = writer.getDefaultWriteParam();
+            if (format.equals("jpeg")) {
+                param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+                param.setCompressionQuality(jpegQuality);
+            }
+            writer.write(null, new IIOImage(image, null, null), param);
+        } finally {
+            writer.dispose();
+        }
+    }
+
+    private static void deleteDirectory(Path directory) throws IOException {
+        if (!Files.isDirectory(directory)) {
+            return;
+        }
+        try (Stream<Path> files = Files.walk(directory)) {
+            for (Path path : files.sorted(Comparator.reverseOrder()).toList()) {
+                Files.deleteIfExists(path);
+            }
+        }
+    }
+}
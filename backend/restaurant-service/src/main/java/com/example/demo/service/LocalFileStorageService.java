@@ -1,5 +1,6 @@
 package com.example.demo.service;
 
+import com.example.demo.exception.InvalidFileException;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
@@ -7,17 +8,21 @@ import org.springframework.stereotype.Service;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.nio.file.StandardCopyOption;
-import java.util.Arrays;
-import java.util.List;
-import java.util.UUID;
+import java.time.Instant;
+import java.util.stream.Stream;
 
 /**
  * Local file system storage implementation.
- * Stores files in a local directory and serves them via HTTP.
+ * Stores files in a local directory, named by the SHA-256 of their content and fanned out into
+ * subdirectories by {@link UploadLayout}, and serves them via HTTP.
+ * Each newly stored image is handed to {@link ImageVariantService} to generate its resized variants
+ * in the background.
  */
 @Service
 @Slf4j
@@ -26,18 +31,22 @@ public class LocalFileStorageService implements FileStorageService {
 
     private final Path uploadPath;
     private final String baseUrl;
-
-    private static final List<String> ALLOWED_TYPES = Arrays.asList(
-        "image/jpeg", "image/jpg", "image/png", "image/gif", "image/webp"
-    );
+    // Path part of the base URL, e.g. /uploads/
+    private final String basePath;
+    private final ImageVariantService imageVariantService;
 
     private static final long MAX_FILE_SIZE = 10 * 1024 * 1024; // 10MB
 
+    private static final int BUFFER_SIZE = 64 * 1024;
+
     public LocalFileStorageService(
             @Value("${upload.path:uploads/}") String uploadPath,
-            @Value("${upload.base-url:http://localhost:8080/uploads/}") String baseUrl) {
+            @Value("${upload.base-url:http://localhost:8080/uploads/}") String baseUrl,
+            ImageVariantService imageVariantService) {
         this.uploadPath = Paths.get(uploadPath).toAbsolutePath().normalize();
         this.baseUrl = baseUrl;
+        this.basePath = URI.create(baseUrl).getPath();
+        this.imageVariantService = imageVariantService;
 
         try {
             Files.createDirectories(this.uploadPath);
@@ -52,44 +61,63 @@ public class LocalFileStorageService implements FileStorageService {
     public String storeFile(MultipartFile file, String folder) throws IOException {
         // Validate file
         if (file.isEmpty()) {
-            throw new IOException("Cannot store empty file");
-        }
-
-        if (!isValidImageType(file.getContentType())) {
-            throw new IOException("Invalid file type. Only images are allowed.");
+            throw new InvalidFileException("Cannot store empty file");
         }
 
         if (!isValidFileSize(file.getSize())) {
-            throw new IOException("File size exceeds maximum allowed size (10MB)");
+            throw new InvalidFileException("File size exceeds maximum allowed size (10MB)");
         }
 
-        // Generate unique filename
-        String originalFilename = file.getOriginalFilename();
-        String extension = "";
-        if (originalFilename != null && originalFilename.contains(".")) {
-            extension = originalFilename.substring(originalFilename.lastIndexOf("."));
+        // The type is checked from the content, not from file.getContentType()
+        try (InputStream in = file.getInputStream()) {
+            return storeStream(in, folder).url();
         }
+    }
 
-        String filename = UUID.randomUUID().toString() + extension;
-
-        // Create folder path if specified
-        Path targetLocation;
-        if (folder != null && !folder.isEmpty()) {
-            Path folderPath = this.uploadPath.resolve(folder);
-            Files.createDirectories(folderPath);
-            targetLocation = folderPath.resolve(filename);
-        } else {
-            targetLocation = this.uploadPath.resolve(filename);
+    @Override
+    public StoredFile storeStream(InputStream in, String folder) throws IOException {
+        byte[] buffer = new byte[BUFFER_SIZE];
+        int read = in.readNBytes(buffer, 0, ImageFormat.HEADER_LENGTH);
+        if (read == 0) {
+            throw new InvalidFileException("Cannot store empty file");
         }
+        ImageFormat format = ImageFormat.detect(buffer, read)
+                .orElseThrow(() -> new InvalidFileException("Invalid file type. Only images are allowed."));
 
-        // Copy file to target location
-        Files.copy(file.getInputStream(), targetLocation, StandardCopyOption.REPLACE_EXISTING);
+        Path directory = resolveFolder(folder);
 
-        log.info("File stored successfully: {}", filename);
-
-        // Return URL
-        String relativePath = this.uploadPath.relativize(targetLocation).toString().replace("\\", "/");
-        return baseUrl + relativePath;
+        // Written to a temp file in the target directory and renamed into place once complete,
+        // so a failed or rejected upload never leaves a partial file under its public name
+        Path tempFile = Files.createTempFile(directory, ".upload-", ".tmp");
+        try {
+            ContentHash.Copied copied = ContentHash.copy(buffer, read, in, tempFile, MAX_FILE_SIZE);
+            long size = copied.size();
+
+            // Content-addressed: the name is the content hash, so identical content maps to one file
+            String contentHash = copied.hash();
+            Path flatLocation = directory.resolve(contentHash + format.getExtension());
+            Path targetLocation = UploadLayout.canonical(flatLocation);
+            Files.createDirectories(targetLocation.getParent());
+            if (Files.exists(targetLocation)) {
+                log.info("File already stored: {}", targetLocation.getFileName());
+            } else if (Files.exists(flatLocation)) {
+                // Stored before the sharded layout and not migrated yet; move it rather than write a copy
+                Files.move(flatLocation, targetLocation, StandardCopyOption.ATOMIC_MOVE);
+                imageVariantService.deleteVariants(flatLocation);
+                log.info("File already stored, moved to sharded layout: {}", targetLocation.getFileName());
+            } else {
+                // Replacing a concurrently stored copy is harmless, it has the same bytes
+                Files.move(tempFile, targetLocation, StandardCopyOption.ATOMIC_MOVE);
+                log.info("File stored successfully: {}", targetLocation.getFileName());
+                imageVariantService.generateAsync(targetLocation);
+            }
+
+            String relativePath = this.uploadPath.relativize(targetLocation).toString().replace("\\", "/");
+            return new StoredFile(baseUrl + relativePath, contentHash, size, format.getContentType());
+        } finally {
+            // No-op once the file has been moved into place
+            Files.deleteIfExists(tempFile);
+        }
     }
 
     @Override
@@ -101,14 +129,17 @@ public class LocalFileStorageService implements FileStorageService {
 
         // Extract relative path from URL
         String relativePath = fileUrl.substring(baseUrl.length());
-        Path filePath = this.uploadPath.resolve(relativePath).normalize();
+        Path requestedPath = this.uploadPath.resolve(relativePath).normalize();
 
         // Security check: ensure file is within upload directory
-        if (!filePath.startsWith(this.uploadPath)) {
+        if (!requestedPath.startsWith(this.uploadPath)) {
             throw new IOException("Cannot delete file outside upload directory");
         }
+        // URLs from before the sharded layout point at the flat path of a file that may since have moved
+        Path filePath = UploadLayout.locate(requestedPath);
 
         // Delete file if exists
+        imageVariantService.deleteVariants(filePath);
         if (Files.exists(filePath)) {
             Files.delete(filePath);
             log.info("File deleted successfully: {}", relativePath);
@@ -118,12 +149,82 @@ public class LocalFileStorageService implements FileStorageService {
     }
 
     @Override
-    public boolean isValidImageType(String contentType) {
-        return contentType != null && ALLOWED_TYPES.contains(contentType.toLowerCase());
+    public String getVariantUrl(String fileUrl, ImageVariant variant) {
+        // Served by the /uploads handler from the variant cache
+        return fileUrl != null && fileUrl.startsWith(baseUrl) ? fileUrl + "?w=" + variant.getWidth() : fileUrl;
     }
 
+    @Override
+    public Stream<ListedFile> listFiles() throws IOException {
+        // Hidden entries are partial uploads and the variant cache
+        return Files.walk(this.uploadPath)
+                .filter(path -> !isHidden(path))
+                .filter(Files::isRegularFile)
+                .map(this::listedFile);
+    }
+
+    @Override
+    public String getStorageKey(String fileUrl) {
+        if (fileUrl == null) {
+            return null;
+        }
+        // Matched on the path only, so URLs stored under an earlier base URL (other host or scheme) keep their file
+        String path;
+        try {
+            path = URI.create(fileUrl).getPath();
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+        if (path == null || !path.startsWith(basePath)) {
+            return null;
+        }
+        return canonicalKey(path.substring(basePath.length()));
+    }
+
+
     @Override
     public boolean isValidFileSize(long size) {
         return size > 0 && size <= MAX_FILE_SIZE;
     }
-}
\ No newline at end of file
+
+    private Path resolveFolder(String folder) throws IOException {
+        if (folder == null || folder.isEmpty()) {
+            return this.uploadPath;
+        }
+        Path folderPath = this.uploadPath.resolve(folder).normalize();
+        if (!folderPath.startsWith(this.uploadPath)) {
+            throw new InvalidFileException("Invalid folder");
+        }
+        Files.createDirectories(folderPath);
+        return folderPath;
+    }
+
+    private boolean isHidden(Path path) {
+        for (Path segment : this.uploadPath.relativize(path)) {
+            if (segment.toString().startsWith(".")) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private ListedFile listedFile(Path path) {
+        String relativePath = this.uploadPath.relativize(path).toString().replace("\\", "/");
+        Instant lastModified;
+        try {
+            lastModified = Files.getLastModifiedTime(path).toInstant();
+        } catch (IOException e) {
+            // Deleted while listing; reported as new so it is never treated as an old orphan
+            lastModified = Instant.now();
+        }
+        return new ListedFile(canonicalKey(relativePath), baseUrl + relativePath, lastModified);
+    }
+
+    // A file keeps one key whether it is still flat or already sharded, and whichever URL refers to it
+    private static String canonicalKey(String relativePath) {
+        if (relativePath.isEmpty()) {
+            return relativePath;
+        }
+        return UploadLayout.canonical(Paths.get(relativePath)).toString().replace("\\", "/");
+    }
+}
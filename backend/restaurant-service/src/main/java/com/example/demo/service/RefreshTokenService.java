@@ -0,0 +1,159 @@
+package com.example.demo.service;
+
+import com.example.demo.entity.RefreshToken;
+import com.example.demo.entity.User;
+import com.example.demo.repository.RefreshTokenRepository;
+import com.example.demo.repository.UserRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.security.SecureRandom;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Base64;
+import java.util.Optional;
+import java.util.UUID;
+
+/**
+ * Issues and rotates refresh tokens. Token values are 256 random bits, so a plain SHA-256 is enough to
+ * keep them useless if the table leaks, and lets a refresh look the token up through the unique hash index.
+ */
+@Service
+@Slf4j
+public class RefreshTokenService {
+
+    private static final int TOKEN_BYTES = 32;
+
+    private final RefreshTokenRepository refreshTokenRepository;
+    private final UserRepository userRepository;
+    private final Duration ttl;
+    private final Duration reuseGrace;
+    private final SecureRandom secureRandom = new SecureRandom();
+
+    public RefreshTokenService(RefreshTokenRepository refreshTokenRepository,
+                               UserRepository userRepository,
+                               @Value("${jwt.refresh-token.ttl:P30D}") Duration ttl,
+                               @Value("${jwt.refresh-token.reuse-grace:PT10S}") Duration reuseGrace) {
+        this.refreshTokenRepository = refreshTokenRepository;
+        this.userRepository = userRepository;
+        this.ttl = ttl;
+        this.reuseGrace = reuseGrace;
+    }
+
+    /**
+     * A token value handed to the client; only its hash is stored
+     */
+    public record IssuedToken(String value, LocalDateTime expiresAt) {
+    }
+
+    /**
+     * Result of a successful refresh: the current account and its next refresh token
+     */
+    public record Rotation(User user, IssuedToken refreshToken) {
+    }
+
+    /**
+     * Start a new token family at login
+     */
+    @Transactional
+    public IssuedToken issue(Long userId) {
+        return create(userId, UUID.randomUUID().toString());
+    }
+
+    /**
+     * Consume the refresh token and issue its successor. Presenting a token that was already used
+     * means it leaked or was replayed, so the whole family is revoked - unless it was used within the
+     * reuse grace period: two tabs sharing one token refresh at the same moment when the access token
+     * expires, and the one that loses gets a sibling in the same family instead of logging everyone out.
+     *
+     * @return empty if the token is unknown, expired, reused or its account is no longer active
+     */
+    @Transactional
+    public Optional<Rotation> rotate(String tokenValue) {
+        Optional<RefreshToken> found = refreshTokenRepository.findByTokenHash(hash(tokenValue));
+        if (found.isEmpty()) {
+            return Optional.empty();
+        }
+
+        RefreshToken token = found.get();
+        LocalDateTime now = LocalDateTime.now();
+        if (!token.getExpiresAt().isAfter(now)) {
+            refreshTokenRepository.deleteByFamilyId(token.getFamilyId());
+            return Optional.empty();
+        }
+        LocalDateTime usedAt = token.getUsedAt();
+        if (usedAt == null && refreshTokenRepository.markUsed(token.getId(), now) == 0) {
+            // A concurrent refresh consumed it first; an empty result means the family is gone already
+            usedAt = refreshTokenRepository.findById(token.getId()).map(RefreshToken::getUsedAt).orElse(null);
+            if (usedAt == null) {
+                return Optional.empty();
+            }
+        }
+        if (usedAt != null) {
+            if (usedAt.plus(reuseGrace).isBefore(now)) {
+                log.warn("Refresh token reuse detected for user ID: {}, revoking family", token.getUserId());
+                refreshTokenRepository.deleteByFamilyId(token.getFamilyId());
+                return Optional.empty();
+            }
+            log.info("Refresh token of user ID: {} reused within the grace period, issuing a sibling", token.getUserId());
+        }
+
+        // Deactivation and role changes take effect here, at most one access token lifetime later
+        Optional<User> user = userRepository.findById(token.getUserId())
+                .filter(u -> !Boolean.FALSE.equals(u.getIsActive()));
+        if (user.isEmpty()) {
+            refreshTokenRepository.deleteByFamilyId(token.getFamilyId());
+            return Optional.empty();
+        }
+
+        return Optional.of(new Rotation(user.get(), create(token.getUserId(), token.getFamilyId())));
+    }
+
+    /**
+     * Revoke the token and every token rotated from the same login
+     */
+    @Transactional
+    public void revoke(String tokenValue) {
+        refreshTokenRepository.findByTokenHash(hash(tokenValue))
+                .ifPresent(token -> refreshTokenRepository.deleteByFamilyId(token.getFamilyId()));
+    }
+
+    @Transactional
+    public void revokeAllForUser(Long userId) {
+        int revoked = refreshTokenRepository.deleteByUserId(userId);
+        log.info("Revoked {} refresh tokens for user ID: {}", revoked, userId);
+    }
+
+    @Scheduled(fixedDelayString = "${jwt.refresh-token.purge-interval:PT1H}",
+            initialDelayString = "${jwt.refresh-token.purge-interval:PT1H}")
+    @Transactional
+    public void purgeExpired() {
+        int purged = refreshTokenRepository.deleteExpired(LocalDateTime.now());
+        log.debug("Purged {} expired refresh tokens", purged);
+    }
+
+    private IssuedToken create(Long userId, String familyId) {
+        byte[] bytes = new byte[TOKEN_BYTES];
+        secureRandom.nextBytes(bytes);
+        String value = Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+
+        LocalDateTime now = LocalDateTime.now();
+        RefreshToken token = RefreshToken.builder()
+                .tokenHash(hash(value))
+                .familyId(familyId)
+                .userId(userId)
+                .createdAt(now)
+                .expiresAt(now.plus(ttl))
+                .build();
+        refreshTokenRepository.save(token);
+
+        return new IssuedToken(value, token.getExpiresAt());
+    }
+
+    private static String hash(String tokenValue) {
+        return ContentHash.of(tokenValue);
+    }
+}
@@ -15,7 +15,9 @@ import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Objects;
 import java.util.stream.Collectors;
 
 @Service
@@ -27,6 +29,7 @@ public class RestaurantService {
     private final UserRepository userRepository;
     private final GeocodingService geocodingService;
     private final SecurityUtil securityUtil;
+    private final StoredImageService storedImageService;
 
     @Transactional
     public RestaurantResponseDTO createRestaurant(RestaurantCreateRequestDTO request, Long ownerId) {
@@ -72,6 +75,7 @@ public class RestaurantService {
                 .build();
 
         Restaurant savedRestaurant = restaurantRepository.save(restaurant);
+        storedImageService.updateReferences(savedRestaurant.getImageUrl());
         log.info("Restaurant created with ID: {} and status: PENDING", savedRestaurant.getId());
 
         return mapToResponse(savedRestaurant);
@@ -151,7 +155,8 @@ public class RestaurantService {
         Restaurant restaurant = restaurantRepository.findById(restaurantId)
                 .orElseThrow(() -> new ResourceNotFoundException("Restaurant not found with ID: " + restaurantId));
 
-        User currentAdmin = securityUtil.getCurrentUser();
+        // Only the foreign key is needed, so a lazy reference avoids loading the admin
+        User currentAdmin = securityUtil.getCurrentUserReference();
 
         restaurant.setIsVerified(true);
         restaurant.setVerifiedAt(LocalDateTime.now());
@@ -162,7 +167,7 @@ public class RestaurantService {
         restaurant.setUpdatedAt(LocalDateTime.now());
 
         Restaurant savedRestaurant = restaurantRepository.save(restaurant);
-        log.info("Restaurant verified: {} by admin: {}", restaurantId, currentAdmin.getEmail());
+        log.info("Restaurant verified: {} by admin: {}", restaurantId, securityUtil.getCurrentUserEmail());
 
         return mapToResponse(savedRestaurant);
     }
@@ -190,15 +195,11 @@ public class RestaurantService {
     public RestaurantResponseDTO updateRestaurant(Long restaurantId, RestaurantCreateRequestDTO request, Long userId) {
         log.info("Updating restaurant: {} by user: {}", restaurantId, userId);
 
-        Restaurant restaurant = restaurantRepository.findById(restaurantId)
-                .orElseThrow(() -> new ResourceNotFoundException("Restaurant not found with ID: " + restaurantId));
+        Restaurant restaurant = restaurantRepository
+                .findByIdIfOwnedOrAdmin(restaurantId, userId, securityUtil.isCurrentUserAdmin())
+                .orElseThrow(() -> notFoundOrUnauthorized(restaurantId, "You can only update your own restaurants"));
 
-        User currentUser = userRepository.findById(userId)
-                .orElseThrow(() -> new ResourceNotFoundException("User not found"));
-
-        if (!restaurant.getOwner().getId().equals(userId) && currentUser.getRole() != Role.ADMIN) {
-            throw new UnauthorizedException("You can only update your own restaurants");
-        }
+        String previousImageUrl = restaurant.getImageUrl();
 
         restaurant.setName(request.getName());
         restaurant.setAddress(request.getAddress());
@@ -223,6 +224,9 @@ public class RestaurantService {
         }
 
         Restaurant updated = restaurantRepository.save(restaurant);
+        if (!Objects.equals(previousImageUrl, updated.getImageUrl())) {
+            storedImageService.updateReferences(previousImageUrl, updated.getImageUrl());
+        }
         return mapToResponse(updated);
     }
 
@@ -230,20 +234,33 @@ public class RestaurantService {
     public void deleteRestaurant(Long restaurantId, Long userId) {
         log.info("Deleting restaurant: {} by user: {}", restaurantId, userId);
 
-        Restaurant restaurant = restaurantRepository.findById(restaurantId)
-                .orElseThrow(() -> new ResourceNotFoundException("Restaurant not found with ID: " + restaurantId));
+        boolean admin = securityUtil.isCurrentUserAdmin();
 
-        User currentUser = userRepository.findById(userId)
-                .orElseThrow(() -> new ResourceNotFoundException("User not found"));
+        List<String> imageUrls = new ArrayList<>(restaurantRepository.findImageUrlById(restaurantId));
+        imageUrls.addAll(restaurantRepository.findDishImageUrlsByRestaurantId(restaurantId));
 
-        if (!restaurant.getOwner().getId().equals(userId) && currentUser.getRole() != Role.ADMIN) {
-            throw new UnauthorizedException("You can only delete your own restaurants");
+        // Every statement carries the ownership predicate; the restaurant row count decides the outcome
+        restaurantRepository.deleteDishComponentsByRestaurantIdIfOwnedOrAdmin(restaurantId, userId, admin);
+        restaurantRepository.deleteDishesByRestaurantIdIfOwnedOrAdmin(restaurantId, userId, admin);
+        restaurantRepository.deleteDietaryOptionsByIdIfOwnedOrAdmin(restaurantId, userId, admin);
+        if (restaurantRepository.deleteByIdIfOwnedOrAdmin(restaurantId, userId, admin) == 0) {
+            throw notFoundOrUnauthorized(restaurantId, "You can only delete your own restaurants");
         }
+        storedImageService.updateReferences(imageUrls);
 
-        restaurantRepository.deleteById(restaurantId);
         log.info("Restaurant deleted: {}", restaurantId);
     }
 
+    /**
+     * Tell apart a missing restaurant from a forbidden one after a conditional statement matched nothing
+     */
+    private RuntimeException notFoundOrUnauthorized(Long restaurantId, String message) {
+        if (!restaurantRepository.existsById(restaurantId)) {
+            return new ResourceNotFoundException("Restaurant not found with ID: " + restaurantId);
+        }
+        return new UnauthorizedException(message);
+    }
+
     private RestaurantResponseDTO mapToResponse(Restaurant restaurant) {
         RestaurantResponseDTO.UserDTO ownerDTO = new RestaurantResponseDTO.UserDTO(
                 restaurant.getOwner().getId(),
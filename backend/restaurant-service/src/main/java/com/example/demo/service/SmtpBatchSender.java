@@ -0,0 +1,236 @@
+package com.example.demo.service;
+
+import jakarta.mail.Address;
+import jakarta.mail.MessagingException;
+import jakarta.mail.Session;
+import jakarta.mail.Transport;
+import jakarta.mail.internet.MimeMessage;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.mail.javamail.JavaMailSenderImpl;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+
+/**
+ * Sends batches of emails over a small pool of connected, authenticated SMTP transports.
+ * A batch is split across up to {@code poolSize} connections that send in parallel, each sending
+ * its share back to back over one session, so the connect/STARTTLS/AUTH handshake is paid once per
+ * connection rather than once per message. Connections are reused across batches until they have
+ * been idle too long or have sent {@code maxMessagesPerConnection} messages.
+ * Results are reported per message and in input order; a failure never aborts the rest of the batch.
+ */
+@Component
+@Slf4j
+public class SmtpBatchSender implements DisposableBean {
+
+    /**
+     * Outcome of one message; {@code error} is null if it was accepted by the server
+     */
+    public record SendResult(MimeMessage message, String error) {
+
+        public boolean isSent() {
+            return error == null;
+        }
+    }
+
+    private static final class PooledTransport {
+        private final Transport transport;
+        private long lastUsedNanos;
+        private int sent;
+
+        private PooledTransport(Transport transport) {
+            this.transport = transport;
+            this.lastUsedNanos = System.nanoTime();
+        }
+    }
+
+    private final JavaMailSenderImpl mailSender;
+    private final int poolSize;
+    private final int maxMessagesPerConnection;
+    private final long idleTimeoutNanos;
+    private final Semaphore connections;
+    private final ConcurrentLinkedDeque<PooledTransport> idle = new ConcurrentLinkedDeque<>();
+    // Workers only wait on the network; their number is capped by the connection semaphore
+    private final ExecutorService workers = Executors.newVirtualThreadPerTaskExecutor();
+
+    public SmtpBatchSender(
+            JavaMailSenderImpl mailSender,
+            @Value("${email.smtp.pool-size:4}") int poolSize,
+            @Value("${email.smtp.max-messages-per-connection:100}") int maxMessagesPerConnection,
+            @Value("${email.smtp.idle-timeout:PT1M}") Duration idleTimeout) {
+        this.mailSender = mailSender;
+        this.poolSize = Math.max(1, poolSize);
+        this.maxMessagesPerConnection = Math.max(1, maxMessagesPerConnection);
+        this.idleTimeoutNanos = idleTimeout.toNanos();
+        this.connections = new Semaphore(this.poolSize);
+    }
+
+    /**
+     * Send all messages and return one result per message, in the same order
+     */
+    public List<SendResult> sendAll(List<MimeMessage> messages) {
+        if (messages.isEmpty()) {
+            return List.of();
+        }
+
+        int chunkCount = Math.min(poolSize, messages.size());
+        int chunkSize = (messages.size() + chunkCount - 1) / chunkCount;
+        List<List<MimeMessage>> chunks = new ArrayList<>(chunkCount);
+        List<Future<List<SendResult>>> futures = new ArrayList<>(chunkCount);
+        for (int from = 0; from < messages.size(); from += chunkSize) {
+            List<MimeMessage> chunk = messages.subList(from, Math.min(from + chunkSize, messages.size()));
+            chunks.add(chunk);
+            futures.add(workers.submit(() -> sendChunk(chunk)));
+        }
+
+        // A worker that fails or is not waited for fails only its own messages, which are then retried
+        List<SendResult> results = new ArrayList<>(messages.size());
+        for (int i = 0; i < futures.size(); i++) {
+            Future<List<SendResult>> future = futures.get(i);
+            String error;
+            try {
+                results.addAll(future.get());
+                continue;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                future.cancel(true);
+                error = "Interrupted while sending";
+            } catch (ExecutionException e) {
+                log.error("Email batch worker failed", e.getCause());
+                error = "Send failed: " + e.getCause();
+            }
+            for (MimeMessage message : chunks.get(i)) {
+                results.add(new SendResult(message, error));
+            }
+        }
+        return results;
+    }
+
+    /**
+     * Number of open connections waiting to be reused
+     */
+    public int getIdleConnectionCount() {
+        return idle.size();
+    }
+
+    @Override
+    public void destroy() {
+        workers.shutdownNow();
+        PooledTransport pooled;
+        while ((pooled = idle.poll()) != null) {
+            close(pooled);
+        }
+    }
+
+    private List<SendResult> sendChunk(List<MimeMessage> chunk) throws InterruptedException {
+        connections.acquire();
+        PooledTransport pooled = null;
+        try {
+            List<SendResult> results = new ArrayList<>(chunk.size());
+            for (MimeMessage message : chunk) {
+                Address[] recipients;
+                try {
+                    recipients = prepare(message);
+                } catch (Exception e) {
+                    results.add(new SendResult(message, "Invalid message: " + e.getMessage()));
+                    continue;
+                }
+
+                String error = null;
+                for (int attempt = 0; attempt < 2; attempt++) {
+                    try {
+                        if (pooled == null || pooled.sent >= maxMessagesPerConnection) {
+                            close(pooled);
+                            pooled = acquire();
+                        }
+                        pooled.transport.sendMessage(message, recipients);
+                        pooled.sent++;
+                        error = null;
+                        break;
+                    } catch (MessagingException e) {
+                        error = e.getMessage();
+                        // A dropped connection is retried once on a fresh one; a rejected message is not
+                        if (pooled != null && pooled.transport.isConnected()) {
+                            break;
+                        }
+                        close(pooled);
+                        pooled = null;
+                    } catch (RuntimeException e) {
+                        // The SMTP session is left mid-transaction; fail this message and reconnect for the next
+                        error = "Send failed: " + e;
+                        close(pooled);
+                        pooled = null;
+                        break;
+                    }
+                }
+                results.add(new SendResult(message, error));
+            }
+            return results;
+        } finally {
+            release(pooled);
+            connections.release();
+        }
+    }
+
+    private PooledTransport acquire() throws MessagingException {
+        PooledTransport pooled;
+        while ((pooled = idle.poll()) != null) {
+            boolean fresh = System.nanoTime() - pooled.lastUsedNanos < idleTimeoutNanos;
+            if (fresh && pooled.sent < maxMessagesPerConnection && pooled.transport.isConnected()) {
+                return pooled;
+            }
+            close(pooled);
+        }
+
+        // The protocol is only set when configured (spring.mail.protocol); otherwise use the session default
+        Session session = mailSender.getSession();
+        Transport transport = mailSender.getProtocol() != null
+                ? session.getTransport(mailSender.getProtocol())
+                : session.getTransport("smtp");
+        transport.connect(mailSender.getHost(), mailSender.getPort(), mailSender.getUsername(), mailSender.getPassword());
+        log.debug("Opened SMTP connection to {}:{}", mailSender.getHost(), mailSender.getPort());
+        return new PooledTransport(transport);
+    }
+
+    private void release(PooledTransport pooled) {
+        if (pooled == null) {
+            return;
+        }
+        if (pooled.transport.isConnected() && pooled.sent < maxMessagesPerConnection) {
+            pooled.lastUsedNanos = System.nanoTime();
+            idle.push(pooled);
+        } else {
+            close(pooled);
+        }
+    }
+
+    private void close(PooledTransport pooled) {
+        if (pooled == null) {
+            return;
+        }
+        try {
+            pooled.transport.close();
+        } catch (MessagingException e) {
+            log.debug("Error closing SMTP connection: {}", e.getMessage());
+        }
+    }
+
+    private static Address[] prepare(MimeMessage message) throws MessagingException {
+        Address[] recipients = message.getAllRecipients();
+        if (recipients == null || recipients.length == 0) {
+            throw new MessagingException("No recipients");
+        }
+        message.saveChanges();
+        return recipients;
+    }
+}
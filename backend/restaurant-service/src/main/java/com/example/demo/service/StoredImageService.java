@@ -0,0 +1,271 @@
+package com.example.demo.service;
+
+import com.example.demo.entity.StoredImage;
+import com.example.demo.exception.InvalidFileException;
+import com.example.demo.repository.DishRepository;
+import com.example.demo.repository.RestaurantRepository;
+import com.example.demo.repository.StoredImageRepository;
+import com.example.demo.service.FileStorageService.StoredFile;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.Predicate;
+import java.util.stream.Stream;
+
+/**
+ * Content-addressed front of {@link FileStorageService}. Every image is registered under the SHA-256
+ * of its content, so uploading bytes that are already stored returns the existing URL without
+ * writing anything, and a chain using one logo for all its locations keeps a single copy.
+ * Because images are shared, a file is only deleted once no restaurant or dish references it.
+ */
+@Service
+@Slf4j
+public class StoredImageService {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final FileStorageService fileStorageService;
+    private final StoredImageRepository storedImageRepository;
+    private final RestaurantRepository restaurantRepository;
+    private final DishRepository dishRepository;
+    private final Duration minUnusedAge;
+
+    public StoredImageService(FileStorageService fileStorageService,
+                              StoredImageRepository storedImageRepository,
+                              RestaurantRepository restaurantRepository,
+                              DishRepository dishRepository,
+                              @Value("${image-gc.min-age:P1D}") Duration minUnusedAge) {
+        this.fileStorageService = fileStorageService;
+        this.storedImageRepository = storedImageRepository;
+        this.restaurantRepository = restaurantRepository;
+        this.dishRepository = dishRepository;
+        this.minUnusedAge = minUnusedAge;
+    }
+
+    /**
+     * Store a multipart upload, or return the already stored image with the same content.
+     * The upload is hashed from the container's temp file first, so a duplicate costs a read, not a write.
+     */
+    public StoredImage store(MultipartFile file, String folder) throws IOException {
+        String contentHash;
+        String contentType;
+        try (InputStream in = file.getInputStream()) {
+            byte[] buffer = new byte[BUFFER_SIZE];
+            int headerLength = in.readNBytes(buffer, 0, ImageFormat.HEADER_LENGTH);
+            contentType = ImageFormat.detect(buffer, headerLength).map(ImageFormat::getContentType).orElse(null);
+            contentHash = ContentHash.of(buffer, headerLength, in);
+        }
+
+        Optional<StoredImage> existing = reuse(contentHash);
+        if (existing.isPresent()) {
+            log.info("Duplicate upload of {}, reusing {}", contentHash, existing.get().getUrl());
+            return existing.get();
+        }
+
+        String url = fileStorageService.storeFile(file, folder);
+        return register(contentHash, url, file.getSize(), contentType);
+    }
+
+    /**
+     * Store an image read from a stream, or return the already stored image with the same content.
+     *
+     * @param expectedHash hex SHA-256 declared by the client, or null. If it is already stored the
+     *                     stream is not read at all; otherwise the content must match it.
+     */
+    public StoredImage store(InputStream in, String folder, String expectedHash) throws IOException {
+        String declared = expectedHash == null ? null : expectedHash.toLowerCase(Locale.ROOT);
+        if (declared != null) {
+            Optional<StoredImage> existing = reuse(declared);
+            if (existing.isPresent()) {
+                log.info("Upload of known content {} skipped, reusing {}", declared, existing.get().getUrl());
+                return existing.get();
+            }
+        }
+
+        StoredFile stored = fileStorageService.storeStream(in, folder);
+
+        Optional<StoredImage> existing = reuse(stored.contentHash());
+        if (declared != null && !declared.equals(stored.contentHash())) {
+            if (existing.isEmpty()) {
+                fileStorageService.deleteFile(stored.url());
+            }
+            throw new InvalidFileException("Content does not match the declared SHA-256");
+        }
+        if (existing.isPresent()) {
+            // Same content stored under another folder; keep the registered copy only
+            discardDuplicate(stored.url(), existing.get());
+            return existing.get();
+        }
+        return register(stored.contentHash(), stored.url(), stored.size(), stored.contentType());
+    }
+
+    /**
+     * Delete an image unless a restaurant or dish still references it or it was uploaded, handed out
+     * again or referenced within the garbage collector's minimum age. Identical uploads share one URL,
+     * so an image nothing references yet may be another user's pending upload; the collector removes
+     * it once it has been unused for that long.
+     *
+     * @return false if the image was kept because it is still in use
+     */
+    @Transactional(rollbackFor = IOException.class)
+    public boolean delete(String url) throws IOException {
+        return delete(url, LocalDateTime.now().minus(minUnusedAge));
+    }
+
+    /**
+     * Delete an image unless a restaurant or dish still references it or, given a cutoff, it has been
+     * referenced or handed out by an upload since then. The registry row is locked before the checks,
+     * so they cannot interleave with an upload reusing the image or a transaction recounting its references.
+     *
+     * @param unusedBefore only delete a registered image unused since this time; null to skip that check
+     * @return false if the image was kept because it is still in use
+     */
+    @Transactional(rollbackFor = IOException.class)
+    public boolean delete(String url, LocalDateTime unusedBefore) throws IOException {
+        Optional<StoredImage> registered = storedImageRepository.findByUrlForUpdate(url);
+        if (unusedBefore != null && registered.isPresent()
+                && !registered.get().getReferencesUpdatedAt().isBefore(unusedBefore)) {
+            log.info("Image {} was used recently, keeping it", url);
+            return false;
+        }
+        if (restaurantRepository.countByImageUrl(url) + dishRepository.countByImgUrl(url) > 0) {
+            log.info("Image {} is still referenced, keeping it", url);
+            return false;
+        }
+        // The registry row goes first so a failed file delete rolls it back
+        storedImageRepository.deleteByUrl(url);
+        fileStorageService.deleteFile(url);
+        return true;
+    }
+
+    /**
+     * Recompute the reference counts of the given image URLs from the restaurant and dish image
+     * columns. Called in the transaction that changed those columns, after the change, with the
+     * URLs the change added or removed; URLs that are not registered images are ignored.
+     * The registry rows are locked before counting, so a concurrent change of the same image counts
+     * after this transaction commits and sees its rows, instead of both counting only their own.
+     * The URLs are counted with one grouped query per column, not one query per image.
+     */
+    @Transactional
+    public void updateReferences(Collection<String> urls) {
+        Set<String> distinct = new LinkedHashSet<>(urls);
+        distinct.remove(null);
+        distinct.removeIf(String::isBlank);
+        if (distinct.isEmpty()) {
+            return;
+        }
+        List<StoredImage> registered = storedImageRepository.findByUrlInForUpdate(distinct);
+        if (registered.isEmpty()) {
+            return;
+        }
+
+        List<String> registeredUrls = registered.stream().map(StoredImage::getUrl).toList();
+        Map<String, Long> counts = new HashMap<>();
+        restaurantRepository.countByImageUrlIn(registeredUrls)
+                .forEach(count -> counts.merge(count.url(), count.count(), Long::sum));
+        dishRepository.countByImgUrlIn(registeredUrls)
+                .forEach(count -> counts.merge(count.url(), count.count(), Long::sum));
+
+        LocalDateTime now = LocalDateTime.now();
+        for (StoredImage image : registered) {
+            long count = counts.getOrDefault(image.getUrl(), 0L);
+            if (count != image.getReferenceCount()) {
+                storedImageRepository.updateReferenceCount(image.getUrl(), count, now);
+            }
+        }
+    }
+
+    @Transactional
+    public void updateReferences(String... urls) {
+        updateReferences(Arrays.asList(urls));
+    }
+
+    /**
+     * Upper bound of the number of live storage keys: one per restaurant, dish and registered image
+     */
+    @Transactional(readOnly = true)
+    public long maxLiveStorageKeys() {
+        return restaurantRepository.count() + dishRepository.count() + storedImageRepository.count();
+    }
+
+    /**
+     * Storage keys of every image still in use that pass the filter, sorted and without duplicates: images
+     * a restaurant or dish references, and registered images, which are collected through their registry
+     * row instead. The URLs are streamed from the image columns and the registry; only the matching keys
+     * are kept, as a compact array, so a filter selecting a partition of the keys bounds the memory used.
+     */
+    @Transactional(readOnly = true)
+    public String[] liveStorageKeys(Predicate<String> keyFilter) {
+        try (Stream<String> restaurantUrls = restaurantRepository.streamImageUrls();
+             Stream<String> dishUrls = dishRepository.streamImgUrls();
+             Stream<String> registeredUrls = storedImageRepository.streamUrls()) {
+            return Stream.of(restaurantUrls, dishUrls, registeredUrls)
+                    .flatMap(urls -> urls)
+                    .map(fileStorageService::getStorageKey)
+                    .filter(Objects::nonNull)
+                    .filter(keyFilter)
+                    .sorted()
+                    .distinct()
+                    .toArray(String[]::new);
+        }
+    }
+
+    /**
+     * The registered image with this content, its unused period restarted because it is handed out again;
+     * empty if there is none or it was deleted since it was read
+     */
+    private Optional<StoredImage> reuse(String contentHash) {
+        return storedImageRepository.findById(contentHash)
+                .filter(image -> storedImageRepository.touch(contentHash, LocalDateTime.now()) > 0);
+    }
+
+    private StoredImage register(String contentHash, String url, long size, String contentType) {
+        LocalDateTime now = LocalDateTime.now();
+        StoredImage image = StoredImage.builder()
+                .contentHash(contentHash)
+                .url(url)
+                .size(size)
+                .contentType(contentType)
+                .createdAt(now)
+                .referencesUpdatedAt(now)
+                .build();
+        try {
+            return storedImageRepository.saveAndFlush(image);
+        } catch (DataIntegrityViolationException e) {
+            // A concurrent upload of the same content registered first
+            StoredImage winner = storedImageRepository.findById(contentHash).orElseThrow(() -> e);
+            discardDuplicate(url, winner);
+            return winner;
+        }
+    }
+
+    private void discardDuplicate(String url, StoredImage kept) {
+        if (url.equals(kept.getUrl())) {
+            return;
+        }
+        try {
+            fileStorageService.deleteFile(url);
+        } catch (IOException e) {
+            log.warn("Could not delete duplicate image {}: {}", url, e.getMessage());
+        }
+    }
+
+}
@@ -0,0 +1,63 @@
+package com.example.demo.service;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.regex.Pattern;
+
+/**
+ * Directory layout of local uploads. Files are fanned out over two levels of subdirectories named by
+ * the first two pairs of characters of the file name ({@code <folder>/ab/cd/abcd...<ext>}), so no
+ * directory grows past a few thousand entries (65,536 leaf directories per folder for content hashes).
+ * Older uploads were stored flat as {@code <folder>/<name>}; {@link #canonical} maps such a path to its
+ * sharded location, which is where {@link UploadLayoutMigrator} moves the file.
+ */
+public final class UploadLayout {
+
+    // Names are content hashes (or, for early uploads, UUIDs): shardable when they start with 4 hex chars
+    private static final Pattern SHARDABLE = Pattern.compile("[0-9a-f]{4}.*");
+
+    private UploadLayout() {
+    }
+
+    /**
+     * Sharded location of a file, relative to the same base as the given path
+     *
+     * @param path A flat or already sharded path of a stored file
+     * @return The sharded path; the path itself if it is sharded already or its name cannot be sharded
+     */
+    public static Path canonical(Path path) {
+        String name = path.getFileName().toString();
+        if (!SHARDABLE.matcher(name).matches() || isSharded(path)) {
+            return path;
+        }
+        return path.resolveSibling(name.substring(0, 2)).resolve(name.substring(2, 4)).resolve(name);
+    }
+
+    /**
+     * Whether a file is already stored under its shard directories
+     */
+    public static boolean isSharded(Path path) {
+        String name = path.getFileName().toString();
+        Path second = path.getParent();
+        Path first = second == null ? null : second.getParent();
+        return first != null && first.getFileName() != null && SHARDABLE.matcher(name).matches()
+                && second.getFileName().toString().equals(name.substring(2, 4))
+                && first.getFileName().toString().equals(name.substring(0, 2));
+    }
+
+    /**
+     * The stored file a flat or sharded path refers to: the sharded location if the file is there,
+     * otherwise the path itself
+     */
+    public static Path locate(Path path) {
+        Path sharded = canonical(path);
+        if (Files.exists(sharded)) {
+            return sharded;
+        }
+        if (Files.exists(path)) {
+            return path;
+        }
+        // Moved by the layout migration between the two checks
+        return sharded;
+    }
+}
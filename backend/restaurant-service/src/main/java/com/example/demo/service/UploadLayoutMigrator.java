@@ -0,0 +1,127 @@
+package com.example.demo.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.util.Iterator;
+import java.util.stream.Stream;
+
+/**
+ * Moves local uploads stored flat by earlier versions into the sharded {@link UploadLayout}, online:
+ * it runs on a background thread after startup while the application keeps serving, moving each file
+ * with an atomic rename and pausing between batches. Requests for a file find it at either location
+ * (see {@link UploadLayout#locate}), so old URLs keep working during and after the migration and stored
+ * URLs need no rewrite. Variants cached under the old path are dropped and regenerated on demand.
+ * A marker file records a completed migration so later starts skip the scan.
+ */
+@Component
+@Slf4j
+@ConditionalOnProperty(name = "storage.type", havingValue = "local")
+public class UploadLayoutMigrator {
+
+    static final String MARKER_FILE = ".layout-sharded";
+
+    private final Path uploadPath;
+    private final ImageVariantService imageVariantService;
+    private final boolean enabled;
+    private final int batchSize;
+    private final Duration batchDelay;
+
+    public UploadLayoutMigrator(
+            @Value("${upload.path:uploads/}") String uploadPath,
+            ImageVariantService imageVariantService,
+            @Value("${upload.layout-migration.enabled:true}") boolean enabled,
+            @Value("${upload.layout-migration.batch-size:500}") int batchSize,
+            @Value("${upload.layout-migration.batch-delay:PT0.1S}") Duration batchDelay) {
+        this.uploadPath = Paths.get(uploadPath).toAbsolutePath().normalize();
+        this.imageVariantService = imageVariantService;
+        this.enabled = enabled;
+        this.batchSize = batchSize;
+        this.batchDelay = batchDelay;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        if (!enabled || Files.exists(uploadPath.resolve(MARKER_FILE))) {
+            return;
+        }
+        Thread thread = new Thread(this::run, "upload-layout-migration");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    private void run() {
+        try {
+            int moved = migrate();
+            log.info("Upload layout migration finished, {} files moved", moved);
+        } catch (IOException e) {
+            log.error("Upload layout migration failed, it resumes on the next start: {}", e.getMessage(), e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Move every flat file into its shard directory and write the completion marker
+     *
+     * @return number of files moved
+     */
+    int migrate() throws IOException, InterruptedException {
+        int moved = 0;
+        try (Stream<Path> files = Files.walk(uploadPath)) {
+            Iterator<Path> iterator = files.iterator();
+            while (iterator.hasNext()) {
+                Path file = iterator.next();
+                if (isHidden(file) || !Files.isRegularFile(file)) {
+                    continue;
+                }
+                Path target = UploadLayout.canonical(file);
+                if (target.equals(file)) {
+                    continue;
+                }
+                if (move(file, target)) {
+                    moved++;
+                    if (moved % batchSize == 0) {
+                        log.info("Upload layout migration: {} files moved", moved);
+                        Thread.sleep(batchDelay);
+                    }
+                }
+            }
+        }
+        Files.writeString(uploadPath.resolve(MARKER_FILE), "sharded\n");
+        return moved;
+    }
+
+    private boolean move(Path file, Path target) throws IOException {
+        Files.createDirectories(target.getParent());
+        try {
+            // Content-addressed, so a file already at the target has the same bytes and is replaced harmlessly
+            Files.move(file, target, StandardCopyOption.ATOMIC_MOVE);
+        } catch (NoSuchFileException e) {
+            // Deleted or already moved by an upload of the same content
+            return false;
+        }
+        imageVariantService.deleteVariants(file);
+        return true;
+    }
+
+    private boolean isHidden(Path path) {
+        for (Path segment : uploadPath.relativize(path)) {
+            if (segment.toString().startsWith(".")) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
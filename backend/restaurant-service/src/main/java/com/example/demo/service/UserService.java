@@ -8,7 +8,10 @@ import com.example.demo.dto.user.UserResponseDTO;
 import com.example.demo.entity.Role;
 import com.example.demo.entity.User;
 import com.example.demo.exception.ResourceNotFoundException;
+import com.example.demo.repository.RestaurantRepository;
 import com.example.demo.repository.UserRepository;
+import com.example.demo.security.RevokedUserRegistry;
+import com.example.demo.security.UserDetailsCache;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.security.crypto.password.PasswordEncoder;
@@ -18,6 +21,7 @@ import org.springframework.transaction.annotation.Transactional;
 
 
 import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.stream.Collectors;
 
@@ -29,6 +33,11 @@ public class UserService {
     private final UserRepository userRepository;
     private final PasswordEncoder passwordEncoder;
     private final EmailVerificationService emailVerificationService;
+    private final RevokedUserRegistry revokedUserRegistry;
+    private final UserDetailsCache userDetailsCache;
+    private final RefreshTokenService refreshTokenService;
+    private final RestaurantRepository restaurantRepository;
+    private final StoredImageService storedImageService;
 
     @Transactional
     public UserResponseDTO registerUser(UserRegistrationRequestDTO request) {
@@ -53,11 +62,11 @@ public class UserService {
         User savedUser = userRepository.save(user);
         log.info("User registered successfully with ID: {}", savedUser.getId());
 
-        // Send verification email
+        // Queue verification email; it is delivered after commit, outside this transaction
         try {
             emailVerificationService.sendVerificationEmail(savedUser);
         } catch (Exception e) {
-            log.error("Failed to send verification email for user: {}", savedUser.getEmail(), e);
+            log.error("Failed to queue verification email for user: {}", savedUser.getEmail(), e);
             // Don't fail registration if email fails
         }
 
@@ -91,9 +100,16 @@ public class UserService {
         User user = userRepository.findById(userId)
                 .orElseThrow(() -> new ResourceNotFoundException("User not found with ID: " + userId));
 
+        Role previousRole = user.getRole();
         user.setRole(Role.VERIFIED_USER);
         user.setVerifiedAt(LocalDateTime.now());
-        return mapToResponse(userRepository.save(user));
+        User savedUser = userRepository.save(user);
+        userDetailsCache.evict(savedUser.getEmail());
+        if (previousRole != savedUser.getRole()) {
+            // Access tokens carry the role claim; reject the old ones so the client refreshes into the new role
+            revokedUserRegistry.revokeTokensIssuedBefore(savedUser.getId(), savedUser.getVerifiedAt());
+        }
+        return mapToResponse(savedUser);
     }
 
     @Transactional
@@ -133,6 +149,7 @@ public class UserService {
         }
 
         User savedUser = userRepository.save(user);
+        userDetailsCache.evict(currentEmail, savedUser.getEmail());
         log.info("User saved: id={}, email={}", savedUser.getId(), savedUser.getEmail());
         log.info("==== UPDATE PROFILE END ====");
 
@@ -149,6 +166,9 @@ public class UserService {
         }
         user.setPassword(passwordEncoder.encode(request.getNewPassword()));
         userRepository.save(user);
+        userDetailsCache.evict(email);
+        // Sessions elsewhere end once their short-lived access tokens expire
+        refreshTokenService.revokeAllForUser(user.getId());
     }
 
     @Transactional
@@ -157,8 +177,7 @@ public class UserService {
         User user = userRepository.findByEmail(email)
                 .orElseThrow(() -> new ResourceNotFoundException("User not found"));
 
-        // Cascade is configured in entity, so this should delete reviews and restaurants too
-        userRepository.delete(user);
+        deleteUser(user);
     }
 
     @Transactional
@@ -167,8 +186,19 @@ public class UserService {
         User user = userRepository.findById(id)
                 .orElseThrow(() -> new ResourceNotFoundException("User not found with ID: " + id));
 
+        deleteUser(user);
+    }
+
+    private void deleteUser(User user) {
+        List<String> imageUrls = new ArrayList<>(restaurantRepository.findImageUrlsByOwnerId(user.getId()));
+        imageUrls.addAll(restaurantRepository.findDishImageUrlsByOwnerId(user.getId()));
+
         // Cascade is configured in entity, so this should delete reviews and restaurants too
         userRepository.delete(user);
+        storedImageService.updateReferences(imageUrls);
+        revokedUserRegistry.revokeUser(user.getId());
+        refreshTokenService.revokeAllForUser(user.getId());
+        userDetailsCache.evict(user.getEmail());
     }
 
     private UserResponseDTO mapToResponse(User user) {
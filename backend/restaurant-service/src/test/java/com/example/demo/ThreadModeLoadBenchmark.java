@@ -0,0 +1,126 @@
+package com.example.demo;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Manual closed-loop HTTP load test used to compare the platform-thread and virtual-thread modes
+ * ({@code VIRTUAL_THREADS_ENABLED=false|true}); not part of the test suite. Each simulated client
+ * runs on its own virtual thread so the client side is never the bottleneck, and cycles through the
+ * given paths as fast as the server answers. Prints throughput, error count and latency percentiles.
+ * <p>
+ * Run against a started instance, once per mode, with the same arguments:
+ * {@code java -cp <test-classpath> com.example.demo.ThreadModeLoadBenchmark <label> [baseUrl] [clients] [seconds] [paths]}
+ * <br>
+ * Set {@code LOAD_TEST_TOKEN} to send a bearer token with every request.
+ */
+public class ThreadModeLoadBenchmark {
+
+    private record ClientResult(long[] latenciesNanos, int count, int errors) {
+    }
+
+    public static void main(String[] args) throws Exception {
+        String label = args.length > 0 ? args[0] : "run";
+        String baseUrl = args.length > 1 ? args[1] : "http://localhost:8080";
+        int clients = args.length > 2 ? Integer.parseInt(args[2]) : 400;
+        long seconds = args.length > 3 ? Long.parseLong(args[3]) : 30;
+        String[] paths = (args.length > 4 ? args[4] : "/api/restaurants,/api/allergens").split(",");
+        String token = System.getenv("LOAD_TEST_TOKEN");
+
+        HttpClient httpClient = HttpClient.newBuilder()
+                .connectTimeout(Duration.ofSeconds(5))
+                .executor(Executors.newVirtualThreadPerTaskExecutor())
+                .build();
+        List<HttpRequest> requests = new ArrayList<>();
+        for (String path : paths) {
+            HttpRequest.Builder builder = HttpRequest.newBuilder(URI.create(baseUrl + path.trim()))
+                    .timeout(Duration.ofSeconds(30))
+                    .GET();
+            if (token != null && !token.isBlank()) {
+                builder.header("Authorization", "Bearer " + token);
+            }
+            requests.add(builder.build());
+        }
+
+        // Warm-up so JIT compilation and pool start-up do not skew either mode
+        run(httpClient, requests, Math.min(clients, 50), Math.min(seconds, 5));
+
+        List<ClientResult> results = run(httpClient, requests, clients, seconds);
+        report(label, clients, seconds, results);
+    }
+
+    private static List<ClientResult> run(HttpClient httpClient, List<HttpRequest> requests, int clients, long seconds)
+            throws Exception {
+        long deadline = System.nanoTime() + seconds * 1_000_000_000L;
+        List<Future<ClientResult>> futures = new ArrayList<>();
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < clients; i++) {
+                int offset = i;
+                futures.add(executor.submit(() -> {
+                    long[] latencies = new long[1024];
+                    int count = 0;
+                    int errors = 0;
+                    while (System.nanoTime() < deadline) {
+                        HttpRequest request = requests.get((offset + count) % requests.size());
+                        long start = System.nanoTime();
+                        try {
+                            HttpResponse<Void> response = httpClient.send(request, HttpResponse.BodyHandlers.discarding());
+                            if (response.statusCode() >= 400) {
+                                errors++;
+                            }
+                        } catch (Exception e) {
+                            errors++;
+                        }
+                        if (count == latencies.length) {
+                            latencies = Arrays.copyOf(latencies, count * 2);
+                        }
+                        latencies[count++] = System.nanoTime() - start;
+                    }
+                    return new ClientResult(latencies, count, errors);
+                }));
+            }
+        }
+
+        List<ClientResult> results = new ArrayList<>();
+        for (Future<ClientResult> future : futures) {
+            results.add(future.get());
+        }
+        return results;
+    }
+
+    private static void report(String label, int clients, long seconds, List<ClientResult> results) {
+        int total = results.stream().mapToInt(ClientResult::count).sum();
+        int errors = results.stream().mapToInt(ClientResult::errors).sum();
+        long[] all = new long[total];
+        int position = 0;
+        for (ClientResult result : results) {
+            System.arraycopy(result.latenciesNanos(), 0, all, position, result.count());
+            position += result.count();
+        }
+        Arrays.sort(all);
+
+        System.out.printf("%-10s %8s %10s %8s %9s %9s %9s %9s%n",
+                "mode", "clients", "req/s", "errors", "p50 ms", "p95 ms", "p99 ms", "max ms");
+        System.out.printf("%-10s %8d %10.1f %8d %9.1f %9.1f %9.1f %9.1f%n",
+                label, clients, (double) total / seconds, errors,
+                percentile(all, 0.50), percentile(all, 0.95), percentile(all, 0.99),
+                all.length > 0 ? all[all.length - 1] / 1_000_000.0 : 0.0);
+    }
+
+    private static double percentile(long[] sorted, double quantile) {
+        if (sorted.length == 0) {
+            return 0.0;
+        }
+        int index = (int) Math.min(sorted.length - 1, Math.ceil(quantile * sorted.length) - 1);
+        return sorted[Math.max(0, index)] / 1_000_000.0;
+    }
+}
@@ -0,0 +1,52 @@
+package com.example.demo.config;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SecurityConfigTest {
+
+    private PasswordEncoder passwordEncoder;
+
+    @BeforeEach
+    void setUp() {
+        passwordEncoder = new SecurityConfig(null, null, null).passwordEncoder(5, Duration.ZERO);
+    }
+
+    @Test
+    void passwordEncoder_ShouldWritePrefixedHashesAtConfiguredStrength() {
+        // When
+        String encoded = passwordEncoder.encode("SecurePassword123!");
+
+        // Then
+        assertThat(encoded).startsWith("{bcrypt}$2a$05$");
+        assertThat(passwordEncoder.matches("SecurePassword123!", encoded)).isTrue();
+        assertThat(passwordEncoder.upgradeEncoding(encoded)).isFalse();
+    }
+
+    @Test
+    void passwordEncoder_WithLegacyHash_ShouldMatchAndRequestUpgrade() {
+        // Given - Hash stored before the delegating encoder was introduced
+        String legacy = new BCryptPasswordEncoder(4).encode("SecurePassword123!");
+
+        // When/Then
+        assertThat(passwordEncoder.matches("SecurePassword123!", legacy)).isTrue();
+        assertThat(passwordEncoder.matches("wrong", legacy)).isFalse();
+        assertThat(passwordEncoder.upgradeEncoding(legacy)).isTrue();
+    }
+
+    @Test
+    void passwordEncoder_WithWeakerPrefixedHash_ShouldRequestUpgrade() {
+        // Given
+        String weaker = "{bcrypt}" + new BCryptPasswordEncoder(4).encode("SecurePassword123!");
+
+        // When/Then
+        assertThat(passwordEncoder.matches("SecurePassword123!", weaker)).isTrue();
+        assertThat(passwordEncoder.upgradeEncoding(weaker)).isTrue();
+    }
+}
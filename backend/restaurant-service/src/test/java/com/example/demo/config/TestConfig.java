@@ -8,6 +8,8 @@ import org.springframework.context.annotation.Primary;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 
 /**
  * Test configuration to provide mock beans for testing
@@ -28,13 +30,14 @@ public class TestConfig {
             }
 
             @Override
-            public void deleteFile(String fileUrl) throws IOException {
-                // Mock implementation - do nothing
+            public StoredFile storeStream(InputStream in, String folder) throws IOException {
+                long size = in.transferTo(OutputStream.nullOutputStream());
+                return new StoredFile("http://localhost:8080/uploads/test-file.jpg", "0".repeat(64), size, "image/jpeg");
             }
 
             @Override
-            public boolean isValidImageType(String contentType) {
-                return contentType != null && contentType.startsWith("image/");
+            public void deleteFile(String fileUrl) throws IOException {
+                // Mock implementation - do nothing
             }
 
             @Override
@@ -60,7 +60,7 @@ class AllergenControllerIntegrationTest {
     @Test
     void getAllAllergens_ShouldReturnAllAllergens() throws Exception {
         // Given
-        when(allergenService.getAllAllergens()).thenReturn(List.of(glutenAllergen, nutsAllergen));
+        when(allergenService.getAllergenCatalogue()).thenReturn(catalogueOf(glutenAllergen, nutsAllergen));
 
         // When/Then
         mockMvc.perform(get("/api/allergens"))
@@ -74,7 +74,7 @@ class AllergenControllerIntegrationTest {
     @Test
     void getAllAllergens_WithEmptyDatabase_ShouldReturnEmptyList() throws Exception {
         // Given
-        when(allergenService.getAllAllergens()).thenReturn(List.of());
+        when(allergenService.getAllergenCatalogue()).thenReturn(catalogueOf());
 
         // When/Then
         mockMvc.perform(get("/api/allergens"))
@@ -86,7 +86,7 @@ class AllergenControllerIntegrationTest {
     @Test
     void getAllAllergens_WithoutAuthentication_ShouldSucceed() throws Exception {
         // Given - Public endpoint should work without authentication
-        when(allergenService.getAllAllergens()).thenReturn(List.of(glutenAllergen));
+        when(allergenService.getAllergenCatalogue()).thenReturn(catalogueOf(glutenAllergen));
 
         // When/Then
         mockMvc.perform(get("/api/allergens"))
@@ -94,6 +94,46 @@ class AllergenControllerIntegrationTest {
                 .andExpect(jsonPath("$[0].name").value("Gluten"));
     }
 
+    @Test
+    void getAllAllergens_ShouldReturnStrongETag() throws Exception {
+        // Given
+        AllergenService.AllergenCatalogue catalogue = catalogueOf(glutenAllergen);
+        when(allergenService.getAllergenCatalogue()).thenReturn(catalogue);
+
+        // When/Then
+        mockMvc.perform(get("/api/allergens"))
+                .andExpect(status().isOk())
+                .andExpect(header().string("ETag", catalogue.getEtag()))
+                .andExpect(header().string("Cache-Control", "no-cache"))
+                .andExpect(content().contentTypeCompatibleWith(MediaType.APPLICATION_JSON));
+    }
+
+    @Test
+    void getAllAllergens_WithMatchingIfNoneMatch_ShouldReturnNotModified() throws Exception {
+        // Given
+        AllergenService.AllergenCatalogue catalogue = catalogueOf(glutenAllergen, nutsAllergen);
+        when(allergenService.getAllergenCatalogue()).thenReturn(catalogue);
+
+        // When/Then
+        mockMvc.perform(get("/api/allergens")
+                        .header("If-None-Match", catalogue.getEtag()))
+                .andExpect(status().isNotModified())
+                .andExpect(header().string("ETag", catalogue.getEtag()))
+                .andExpect(content().string(""));
+    }
+
+    @Test
+    void getAllAllergens_WithStaleIfNoneMatch_ShouldReturnBody() throws Exception {
+        // Given
+        when(allergenService.getAllergenCatalogue()).thenReturn(catalogueOf(glutenAllergen));
+
+        // When/Then
+        mockMvc.perform(get("/api/allergens")
+                        .header("If-None-Match", "\"stale\""))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].name").value("Gluten"));
+    }
+
     @Test
     @WithMockUser
     void getUserAllergens_WithAuthentication_ShouldReturnUserAllergens() throws Exception {
@@ -168,4 +208,9 @@ class AllergenControllerIntegrationTest {
                 .content(objectMapper.writeValueAsString(request)))
                 .andExpect(status().isForbidden());
     }
-}
\ No newline at end of file
+
+    private AllergenService.AllergenCatalogue catalogueOf(AllergenResponseDTO... allergens) throws Exception {
+        List<AllergenResponseDTO> list = List.of(allergens);
+        return new AllergenService.AllergenCatalogue(list, objectMapper.writeValueAsBytes(list));
+    }
+}
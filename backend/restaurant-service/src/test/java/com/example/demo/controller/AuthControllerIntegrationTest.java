@@ -2,14 +2,23 @@ package com.example.demo.controller;
 
 import com.example.demo.dto.user.AuthResponseDTO;
 import com.example.demo.dto.user.LoginRequestDTO;
+import com.example.demo.dto.user.RefreshTokenRequestDTO;
 import com.example.demo.dto.user.UserRegistrationRequestDTO;
 import com.example.demo.dto.user.UserResponseDTO;
 import com.example.demo.entity.Role;
 import com.example.demo.entity.User;
 import com.example.demo.repository.UserRepository;
+import com.example.demo.security.AccountUserDetails;
 import com.example.demo.security.JwtUtil;
+import com.example.demo.security.TokenRevocationList;
+import com.example.demo.security.UserDetailsCache.CachedUser;
+import com.example.demo.service.RefreshTokenService;
+import com.example.demo.service.RefreshTokenService.IssuedToken;
+import com.example.demo.service.RefreshTokenService.Rotation;
 import com.example.demo.service.UserService;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.Jwts;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -24,10 +33,15 @@ import org.springframework.test.context.TestPropertySource;
 import org.springframework.test.context.bean.override.mockito.MockitoBean;
 import org.springframework.test.web.servlet.MockMvc;
 
+import java.time.Instant;
 import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.Date;
 import java.util.Optional;
 
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.csrf;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
@@ -55,6 +69,12 @@ class AuthControllerIntegrationTest {
     @MockitoBean
     private JwtUtil jwtUtil;
 
+    @MockitoBean
+    private TokenRevocationList tokenRevocationList;
+
+    @MockitoBean
+    private RefreshTokenService refreshTokenService;
+
     private UserRegistrationRequestDTO registrationRequest;
     private LoginRequestDTO loginRequest;
     private User testUser;
@@ -95,6 +115,9 @@ class AuthControllerIntegrationTest {
                 .isActive(true)
                 .createdAt(LocalDateTime.now())
                 .build();
+
+        when(refreshTokenService.issue(1L)).thenReturn(
+                new IssuedToken("mock-refresh-token", LocalDateTime.now().plusDays(30)));
     }
 
     @Test
@@ -174,11 +197,37 @@ class AuthControllerIntegrationTest {
                 .andExpect(status().isOk())
                 .andExpect(jsonPath("$.token").value("mock-jwt-token"))
                 .andExpect(jsonPath("$.type").value("Bearer"))
+                .andExpect(jsonPath("$.refreshToken").value("mock-refresh-token"))
                 .andExpect(jsonPath("$.id").value(1))
                 .andExpect(jsonPath("$.email").value("john@example.com"))
                 .andExpect(jsonPath("$.role").value("USER"));
     }
 
+    @Test
+    void login_WithAccountPrincipal_ShouldNotLoadUserAgain() throws Exception {
+        // Given
+        AccountUserDetails principal = new AccountUserDetails(new CachedUser(
+                1L, "john@example.com", "encodedPassword", true, Role.USER, "John", "Doe"));
+        Authentication authentication = new UsernamePasswordAuthenticationToken(
+                principal, null, principal.getAuthorities());
+        when(authenticationManager.authenticate(any())).thenReturn(authentication);
+        when(jwtUtil.generateToken("john@example.com", 1L, "USER"))
+                .thenReturn("mock-jwt-token");
+
+        // When/Then
+        mockMvc.perform(post("/api/auth/login")
+                .with(csrf())
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(loginRequest)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.token").value("mock-jwt-token"))
+                .andExpect(jsonPath("$.id").value(1))
+                .andExpect(jsonPath("$.firstName").value("John"))
+                .andExpect(jsonPath("$.role").value("USER"));
+
+        verify(userRepository, never()).findByEmail(any());
+    }
+
     @Test
     void login_WithInvalidCredentials_ShouldReturnUnauthorized() throws Exception {
         // Given
@@ -273,4 +322,79 @@ class AuthControllerIntegrationTest {
                 .content(objectMapper.writeValueAsString(registrationRequest)))
                 .andExpect(status().isBadRequest());
     }
-}
\ No newline at end of file
+
+    @Test
+    void logout_WithValidToken_ShouldRevokeIt() throws Exception {
+        // Given
+        // JWT dates have second precision; the exp claim read back is truncated to whole seconds
+        Date expiresAt = Date.from(Instant.now().plusSeconds(60).truncatedTo(ChronoUnit.SECONDS));
+        Claims claims = Jwts.claims()
+                .id("token-id")
+                .subject("john@example.com")
+                .expiration(expiresAt)
+                .add("userId", 1L)
+                .build();
+        when(jwtUtil.validateAndExtractClaims("valid-token")).thenReturn(claims);
+
+        // When/Then
+        mockMvc.perform(post("/api/auth/logout")
+                .with(csrf())
+                .header("Authorization", "Bearer valid-token"))
+                .andExpect(status().isNoContent());
+
+        verify(tokenRevocationList).revoke("token-id", 1L, expiresAt);
+    }
+
+    @Test
+    void logout_WithoutToken_ShouldReturnUnauthorized() throws Exception {
+        mockMvc.perform(post("/api/auth/logout")
+                .with(csrf()))
+                .andExpect(status().isUnauthorized());
+
+        verify(tokenRevocationList, never()).revoke(any(), any(), any());
+    }
+
+    @Test
+    void refresh_WithValidToken_ShouldReturnNewTokens() throws Exception {
+        // Given
+        when(refreshTokenService.rotate("old-refresh-token")).thenReturn(Optional.of(new Rotation(
+                testUser, new IssuedToken("new-refresh-token", LocalDateTime.now().plusDays(30)))));
+        when(jwtUtil.generateToken("john@example.com", 1L, "USER")).thenReturn("new-jwt-token");
+
+        // When/Then
+        mockMvc.perform(post("/api/auth/refresh")
+                .with(csrf())
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(new RefreshTokenRequestDTO("old-refresh-token"))))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.token").value("new-jwt-token"))
+                .andExpect(jsonPath("$.refreshToken").value("new-refresh-token"))
+                .andExpect(jsonPath("$.id").value(1));
+    }
+
+    @Test
+    void refresh_WithInvalidToken_ShouldReturnUnauthorized() throws Exception {
+        // Given
+        when(refreshTokenService.rotate("reused-token")).thenReturn(Optional.empty());
+
+        // When/Then
+        mockMvc.perform(post("/api/auth/refresh")
+                .with(csrf())
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(new RefreshTokenRequestDTO("reused-token"))))
+                .andExpect(status().isUnauthorized());
+
+        verify(jwtUtil, never()).generateToken(any(), any(), any());
+    }
+
+    @Test
+    void logout_WithRefreshToken_ShouldRevokeFamily() throws Exception {
+        mockMvc.perform(post("/api/auth/logout")
+                .with(csrf())
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(new RefreshTokenRequestDTO("refresh-token"))))
+                .andExpect(status().isNoContent());
+
+        verify(refreshTokenService).revoke("refresh-token");
+    }
+}
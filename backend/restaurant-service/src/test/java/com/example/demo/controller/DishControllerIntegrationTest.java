@@ -2,6 +2,7 @@ package com.example.demo.controller;
 
 import com.example.demo.dto.dish.DishCreateRequestDTO;
 import com.example.demo.dto.dish.DishResponseDTO;
+import com.example.demo.dto.dish.DishSearchResultDTO;
 import com.example.demo.service.DishService;
 import com.example.demo.security.SecurityUtil;
 import com.fasterxml.jackson.databind.ObjectMapper;
@@ -85,6 +86,40 @@ class DishControllerIntegrationTest {
                 .andExpect(jsonPath("$[0].price").value(25.99));
     }
 
+    @Test
+    void searchDishes_WithoutAuthentication_ShouldReturnResults() throws Exception {
+        // Given
+        DishSearchResultDTO result = DishSearchResultDTO.builder()
+                .id(1L)
+                .name("Grilled Chicken")
+                .baseKcal(450.0)
+                .baseProteinG(45.0)
+                .restaurantId(1L)
+                .restaurantName("Test Restaurant")
+                .distanceKm(1.2)
+                .build();
+        when(dishService.searchDishes(any())).thenReturn(List.of(result));
+
+        // When/Then
+        mockMvc.perform(get("/api/dishes/search")
+                        .param("maxKcal", "600")
+                        .param("minProteinG", "30")
+                        .param("latitude", "50.06")
+                        .param("longitude", "19.94")
+                        .param("excludeAllergens", "Gluten,Nuts"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].name").value("Grilled Chicken"))
+                .andExpect(jsonPath("$[0].distanceKm").value(1.2));
+    }
+
+    @Test
+    void searchDishes_WithInvalidLimit_ShouldReturnBadRequest() throws Exception {
+        // When/Then
+        mockMvc.perform(get("/api/dishes/search")
+                        .param("limit", "500"))
+                .andExpect(status().isBadRequest());
+    }
+
     @Test
     void getDishById_WhenExists_ShouldReturnDish() throws Exception {
         // Given
@@ -1,6 +1,8 @@
 package com.example.demo.controller;
 
+import com.example.demo.exception.InvalidFileException;
 import com.example.demo.service.FileStorageService;
+import com.example.demo.service.FileStorageService.StoredFile;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
@@ -10,10 +12,15 @@ import org.springframework.security.test.context.support.WithMockUser;
 import org.springframework.test.context.TestPropertySource;
 import org.springframework.test.context.bean.override.mockito.MockitoBean;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.MockMultipartHttpServletRequestBuilder;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.web.multipart.MultipartFile;
 
 import java.io.IOException;
+import java.util.UUID;
 
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
 import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.csrf;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
@@ -22,6 +29,7 @@ import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.
 @SpringBootTest
 @AutoConfigureMockMvc
 @TestPropertySource(locations = "classpath:application-test.properties")
+@Transactional
 class FileUploadControllerIntegrationTest {
 
     @Autowired
@@ -40,8 +48,6 @@ class FileUploadControllerIntegrationTest {
                 "image/jpeg",
                 "test image content".getBytes()
         );
-
-        when(fileStorageService.isValidImageType("image/jpeg")).thenReturn(true);
         when(fileStorageService.isValidFileSize(anyLong())).thenReturn(true);
         // Controller calls storeFile(file, folder) where folder can be null
         when(fileStorageService.storeFile(any(), any()))
@@ -68,8 +74,6 @@ class FileUploadControllerIntegrationTest {
                 "image/png",
                 "test image content".getBytes()
         );
-
-        when(fileStorageService.isValidImageType("image/png")).thenReturn(true);
         when(fileStorageService.isValidFileSize(anyLong())).thenReturn(true);
         when(fileStorageService.storeFile(any(), any()))
                 .thenReturn("http://localhost:8080/uploads/test.png");
@@ -91,8 +95,6 @@ class FileUploadControllerIntegrationTest {
                 "image/gif",
                 "test image content".getBytes()
         );
-
-        when(fileStorageService.isValidImageType("image/gif")).thenReturn(true);
         when(fileStorageService.isValidFileSize(anyLong())).thenReturn(true);
         when(fileStorageService.storeFile(any(), any()))
                 .thenReturn("http://localhost:8080/uploads/test.gif");
@@ -114,8 +116,6 @@ class FileUploadControllerIntegrationTest {
                 "image/webp",
                 "test image content".getBytes()
         );
-
-        when(fileStorageService.isValidImageType("image/webp")).thenReturn(true);
         when(fileStorageService.isValidFileSize(anyLong())).thenReturn(true);
         when(fileStorageService.storeFile(any(), any()))
                 .thenReturn("http://localhost:8080/uploads/test.webp");
@@ -129,23 +129,25 @@ class FileUploadControllerIntegrationTest {
 
     @Test
     @WithMockUser
-    void uploadImage_WithInvalidType_ShouldReturnBadRequest() throws Exception {
-        // Given
+    void uploadImage_WithImageSentAsOtherType_ShouldBeStored() throws Exception {
+        // Given - The declared type is ignored; the content decides when it is stored
         MockMultipartFile file = new MockMultipartFile(
                 "file",
-                "test.txt",
-                "text/plain",
-                "test content".getBytes()
+                "photo",
+                "application/octet-stream",
+                "test image content".getBytes()
         );
 
-        when(fileStorageService.isValidImageType("text/plain")).thenReturn(false);
+        when(fileStorageService.isValidFileSize(anyLong())).thenReturn(true);
+        when(fileStorageService.storeFile(any(), any()))
+                .thenReturn("http://localhost:8080/uploads/photo.jpg");
 
         // When/Then
         mockMvc.perform(multipart("/api/upload/image")
                 .file(file)
                 .with(csrf()))
-                .andExpect(status().isBadRequest())
-                .andExpect(jsonPath("$.message").value("Invalid file type. Only images (JPEG, PNG, GIF, WebP) are allowed."));
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.url").value("http://localhost:8080/uploads/photo.jpg"));
     }
 
     @Test
@@ -178,8 +180,6 @@ class FileUploadControllerIntegrationTest {
                 "image/jpeg",
                 largeContent
         );
-
-        when(fileStorageService.isValidImageType("image/jpeg")).thenReturn(true);
         when(fileStorageService.isValidFileSize(largeContent.length)).thenReturn(false);
 
         // When/Then
@@ -200,8 +200,6 @@ class FileUploadControllerIntegrationTest {
                 "image/jpeg",
                 "test content".getBytes()
         );
-
-        when(fileStorageService.isValidImageType("image/jpeg")).thenReturn(true);
         when(fileStorageService.isValidFileSize(anyLong())).thenReturn(true);
         when(fileStorageService.storeFile(any(), eq("restaurants")))
                 .thenReturn("http://localhost:8080/uploads/restaurants/test.jpg");
@@ -225,8 +223,6 @@ class FileUploadControllerIntegrationTest {
                 "image/jpeg",
                 "test content".getBytes()
         );
-
-        when(fileStorageService.isValidImageType("image/jpeg")).thenReturn(true);
         when(fileStorageService.isValidFileSize(anyLong())).thenReturn(true);
         when(fileStorageService.storeFile(any(), eq("dishes")))
                 .thenReturn("http://localhost:8080/uploads/dishes/dish.jpg");
@@ -249,8 +245,6 @@ class FileUploadControllerIntegrationTest {
                 "image/jpeg",
                 "test content".getBytes()
         );
-
-        when(fileStorageService.isValidImageType("image/jpeg")).thenReturn(true);
         when(fileStorageService.isValidFileSize(anyLong())).thenReturn(true);
         when(fileStorageService.storeFile(any(), any()))
                 .thenThrow(new IOException("Storage failed"));
@@ -263,6 +257,232 @@ class FileUploadControllerIntegrationTest {
                 .andExpect(jsonPath("$.message").value("Failed to upload file: Storage failed"));
     }
 
+    @Test
+    @WithMockUser
+    void uploadImage_WithRejectedContent_ShouldReturnBadRequest() throws Exception {
+        // Given
+        MockMultipartFile file = new MockMultipartFile("file", "fake.jpg", "image/jpeg", "not an image".getBytes());
+        when(fileStorageService.isValidFileSize(anyLong())).thenReturn(true);
+        when(fileStorageService.storeFile(any(), any()))
+                .thenThrow(new InvalidFileException("Invalid file type. Only images are allowed."));
+
+        // When/Then
+        mockMvc.perform(multipart("/api/upload/image")
+                .file(file)
+                .with(csrf()))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.message").value("Invalid file type. Only images are allowed."));
+    }
+
+    @Test
+    @WithMockUser
+    void uploadImages_WithSeveralFiles_ShouldReturnResultPerFileInOrder() throws Exception {
+        // Given - Stored on the upload pool, outside the test transaction, so each content is unique
+        String batch = UUID.randomUUID().toString();
+        MockMultipartFile first = new MockMultipartFile("files", "soup.jpg", "image/jpeg", (batch + "-soup").getBytes());
+        MockMultipartFile invalid = new MockMultipartFile("files", "menu.txt", "text/plain", "menu".getBytes());
+        MockMultipartFile last = new MockMultipartFile("files", "cake.png", "image/png", (batch + "-cake").getBytes());
+        when(fileStorageService.isValidFileSize(anyLong())).thenReturn(true);
+        when(fileStorageService.storeFile(any(), eq("dishes"))).thenAnswer(invocation -> {
+            MultipartFile part = invocation.getArgument(0);
+            if (part.getOriginalFilename().endsWith(".txt")) {
+                throw new InvalidFileException("Invalid file type. Only images are allowed.");
+            }
+            return "http://localhost:8080/uploads/dishes/" + batch + "-" + part.getOriginalFilename();
+        });
+
+        // When/Then
+        mockMvc.perform(multipart("/api/upload/images")
+                .file(first)
+                .file(invalid)
+                .file(last)
+                .param("folder", "dishes")
+                .with(csrf()))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.uploaded").value(2))
+                .andExpect(jsonPath("$.failed").value(1))
+                .andExpect(jsonPath("$.results[0].index").value(0))
+                .andExpect(jsonPath("$.results[0].success").value(true))
+                .andExpect(jsonPath("$.results[0].file.url").value("http://localhost:8080/uploads/dishes/" + batch + "-soup.jpg"))
+                .andExpect(jsonPath("$.results[1].success").value(false))
+                .andExpect(jsonPath("$.results[1].file.fileName").value("menu.txt"))
+                .andExpect(jsonPath("$.results[1].error").value("Invalid file type. Only images are allowed."))
+                .andExpect(jsonPath("$.results[2].success").value(true))
+                .andExpect(jsonPath("$.results[2].file.url").value("http://localhost:8080/uploads/dishes/" + batch + "-cake.png"));
+
+        verify(fileStorageService, times(3)).storeFile(any(), eq("dishes"));
+    }
+
+    @Test
+    @WithMockUser
+    void uploadImages_WhenOneFileFailsUnexpectedlyOrIsTooLarge_ShouldFailOnlyThoseFiles() throws Exception {
+        // Given
+        String batch = UUID.randomUUID().toString();
+        MockMultipartFile ok = new MockMultipartFile("files", "soup.jpg", "image/jpeg", (batch + "-soup").getBytes());
+        MockMultipartFile broken = new MockMultipartFile("files", "broken.jpg", "image/jpeg", (batch + "-broken").getBytes());
+        MockMultipartFile large = new MockMultipartFile("files", "large.jpg", "image/jpeg", new byte[64]);
+        when(fileStorageService.isValidFileSize(anyLong())).thenReturn(true);
+        when(fileStorageService.isValidFileSize(64L)).thenReturn(false);
+        when(fileStorageService.storeFile(any(), eq("dishes"))).thenAnswer(invocation -> {
+            MultipartFile part = invocation.getArgument(0);
+            if (part.getOriginalFilename().equals("broken.jpg")) {
+                throw new IllegalStateException("Storage unavailable");
+            }
+            return "http://localhost:8080/uploads/dishes/" + batch + "-" + part.getOriginalFilename();
+        });
+
+        // When/Then
+        mockMvc.perform(multipart("/api/upload/images")
+                .file(ok)
+                .file(broken)
+                .file(large)
+                .param("folder", "dishes")
+                .with(csrf()))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.uploaded").value(1))
+                .andExpect(jsonPath("$.failed").value(2))
+                .andExpect(jsonPath("$.results[0].success").value(true))
+                .andExpect(jsonPath("$.results[1].success").value(false))
+                .andExpect(jsonPath("$.results[1].file.fileName").value("broken.jpg"))
+                .andExpect(jsonPath("$.results[1].error").value("Failed to upload file: Storage unavailable"))
+                .andExpect(jsonPath("$.results[2].success").value(false))
+                .andExpect(jsonPath("$.results[2].error").value("File size exceeds maximum allowed size (10MB)"));
+
+        verify(fileStorageService, times(2)).storeFile(any(), eq("dishes"));
+    }
+
+    @Test
+    @WithMockUser
+    void uploadImages_WithTooManyFiles_ShouldReturnBadRequest() throws Exception {
+        // Given
+        MockMultipartHttpServletRequestBuilder request = multipart("/api/upload/images");
+        for (int i = 0; i < 51; i++) {
+            request.file(new MockMultipartFile("files", i + ".jpg", "image/jpeg", new byte[]{1}));
+        }
+
+        // When/Then
+        mockMvc.perform(request.with(csrf()))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.message").value("Too many files, at most 50 per request"));
+
+        verify(fileStorageService, never()).storeFile(any(), any());
+    }
+
+    @Test
+    @WithMockUser
+    void uploadImageStream_WithRawBody_ShouldReturnStoredFile() throws Exception {
+        // Given
+        byte[] content = "raw image bytes".getBytes();
+        when(fileStorageService.isValidFileSize(content.length)).thenReturn(true);
+        when(fileStorageService.storeStream(any(), eq("restaurants"))).thenReturn(new StoredFile(
+                "http://localhost:8080/uploads/restaurants/abc.png", "ab".repeat(32), content.length, "image/png"));
+
+        // When/Then
+        mockMvc.perform(post("/api/upload/image/stream")
+                .param("folder", "restaurants")
+                .param("fileName", "logo.png")
+                .contentType("image/png")
+                .content(content)
+                .with(csrf()))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.url").value("http://localhost:8080/uploads/restaurants/abc.png"))
+                .andExpect(jsonPath("$.fileName").value("logo.png"))
+                .andExpect(jsonPath("$.fileSize").value(content.length))
+                .andExpect(jsonPath("$.contentType").value("image/png"))
+                .andExpect(jsonPath("$.contentHash").value("ab".repeat(32)));
+    }
+
+    @Test
+    @WithMockUser
+    void uploadImageStream_WithOversizedDeclaredLength_ShouldRejectBeforeReading() throws Exception {
+        // Given
+        byte[] content = "raw image bytes".getBytes();
+        when(fileStorageService.isValidFileSize(content.length)).thenReturn(false);
+
+        // When/Then
+        mockMvc.perform(post("/api/upload/image/stream")
+                .contentType("image/jpeg")
+                .content(content)
+                .with(csrf()))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.message").value("File size exceeds maximum allowed size (10MB)"));
+
+        verify(fileStorageService, never()).storeStream(any(), any());
+    }
+
+    @Test
+    @WithMockUser
+    void uploadImageStream_WithNonImageContent_ShouldReturnBadRequest() throws Exception {
+        // Given
+        byte[] content = "%PDF-1.7".getBytes();
+        when(fileStorageService.isValidFileSize(content.length)).thenReturn(true);
+        when(fileStorageService.storeStream(any(), any()))
+                .thenThrow(new InvalidFileException("Invalid file type. Only images are allowed."));
+
+        // When/Then
+        mockMvc.perform(post("/api/upload/image/stream")
+                .contentType("image/jpeg")
+                .content(content)
+                .with(csrf()))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.message").value("Invalid file type. Only images are allowed."));
+    }
+
+    @Test
+    @WithMockUser
+    void uploadImage_WithSameContentTwice_ShouldReturnFirstUrlAndStoreOnce() throws Exception {
+        // Given
+        byte[] content = "shared logo".getBytes();
+        when(fileStorageService.isValidFileSize(anyLong())).thenReturn(true);
+        when(fileStorageService.storeFile(any(), any()))
+                .thenReturn("http://localhost:8080/uploads/restaurants/logo.png");
+
+        // When/Then
+        mockMvc.perform(multipart("/api/upload/image")
+                .file(new MockMultipartFile("file", "logo.png", "image/png", content))
+                .param("folder", "restaurants")
+                .with(csrf()))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.url").value("http://localhost:8080/uploads/restaurants/logo.png"));
+        mockMvc.perform(multipart("/api/upload/image")
+                .file(new MockMultipartFile("file", "copy.png", "image/png", content))
+                .param("folder", "dishes")
+                .with(csrf()))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.url").value("http://localhost:8080/uploads/restaurants/logo.png"))
+                .andExpect(jsonPath("$.fileName").value("copy.png"));
+
+        verify(fileStorageService, times(1)).storeFile(any(), any());
+    }
+
+    @Test
+    @WithMockUser
+    void uploadImageStream_WithKnownDeclaredHash_ShouldSkipStoring() throws Exception {
+        // Given
+        byte[] content = "raw image bytes".getBytes();
+        String hash = "cd".repeat(32);
+        when(fileStorageService.isValidFileSize(content.length)).thenReturn(true);
+        when(fileStorageService.storeStream(any(), any())).thenReturn(new StoredFile(
+                "http://localhost:8080/uploads/cd.png", hash, content.length, "image/png"));
+        mockMvc.perform(post("/api/upload/image/stream")
+                .contentType("image/png")
+                .content(content)
+                .with(csrf()))
+                .andExpect(status().isOk());
+
+        // When/Then
+        mockMvc.perform(post("/api/upload/image/stream")
+                .header("X-Content-SHA256", hash.toUpperCase())
+                .contentType("image/png")
+                .content(content)
+                .with(csrf()))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.url").value("http://localhost:8080/uploads/cd.png"))
+                .andExpect(jsonPath("$.contentHash").value(hash));
+
+        verify(fileStorageService, times(1)).storeStream(any(), any());
+    }
+
     @Test
     @WithMockUser
     void uploadImage_WithoutFile_ShouldReturnInternalServerError() throws Exception {
@@ -282,8 +502,6 @@ class FileUploadControllerIntegrationTest {
                 "image/jpeg",
                 "test content".getBytes()
         );
-
-        when(fileStorageService.isValidImageType("image/jpeg")).thenReturn(true);
         when(fileStorageService.isValidFileSize(anyLong())).thenReturn(true);
         when(fileStorageService.storeFile(any(), any()))
                 .thenReturn("http://localhost:8080/uploads/test-file.jpg");
@@ -295,6 +513,28 @@ class FileUploadControllerIntegrationTest {
                 .andExpect(status().isOk());
     }
 
+    @Test
+    @WithMockUser
+    void getImageStatus_WhileUploadPending_ShouldReturnPending() throws Exception {
+        // Given
+        String fileUrl = "https://res.cloudinary.com/demo/image/upload/restaurants/" + "ab".repeat(32) + ".png";
+        when(fileStorageService.getUploadStatus(fileUrl)).thenReturn(FileStorageService.UploadStatus.PENDING);
+
+        // When/Then
+        mockMvc.perform(get("/api/upload/image/status")
+                .param("url", fileUrl))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.url").value(fileUrl))
+                .andExpect(jsonPath("$.status").value("PENDING"));
+    }
+
+    @Test
+    void getImageStatus_WithoutAuthentication_ShouldBeRejected() throws Exception {
+        mockMvc.perform(get("/api/upload/image/status")
+                .param("url", "https://res.cloudinary.com/demo/image/upload/a.png"))
+                .andExpect(status().is4xxClientError());
+    }
+
     @Test
     @WithMockUser
     void deleteImage_WithValidUrl_ShouldSucceed() throws Exception {
@@ -401,8 +641,6 @@ class FileUploadControllerIntegrationTest {
                 "image/jpeg",
                 "test content".getBytes()
         );
-
-        when(fileStorageService.isValidImageType("image/jpeg")).thenReturn(true);
         when(fileStorageService.isValidFileSize(anyLong())).thenReturn(true);
         when(fileStorageService.storeFile(any(), any()))
                 .thenReturn("http://localhost:8080/uploads/short-name.jpg");
@@ -424,8 +662,6 @@ class FileUploadControllerIntegrationTest {
                 "image/jpeg",
                 "test content".getBytes()
         );
-
-        when(fileStorageService.isValidImageType("image/jpeg")).thenReturn(true);
         when(fileStorageService.isValidFileSize(anyLong())).thenReturn(true);
         when(fileStorageService.storeFile(any(), any()))
                 .thenReturn("http://localhost:8080/uploads/file.jpg");
@@ -447,8 +683,6 @@ class FileUploadControllerIntegrationTest {
                 "image/jpeg",
                 "test content".getBytes()
         );
-
-        when(fileStorageService.isValidImageType("image/jpeg")).thenReturn(true);
         when(fileStorageService.isValidFileSize(anyLong())).thenReturn(true);
         when(fileStorageService.storeFile(any(), any()))
                 .thenReturn("http://localhost:8080/uploads/file.jpg");
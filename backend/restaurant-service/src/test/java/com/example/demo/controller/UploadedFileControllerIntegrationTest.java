@@ -0,0 +1,163 @@
+package com.example.demo.controller;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.webmvc.test.autoconfigure.AutoConfigureMockMvc;
+import org.springframework.http.HttpHeaders;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.UUID;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.head;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+@TestPropertySource(locations = "classpath:application-test.properties")
+class UploadedFileControllerIntegrationTest {
+
+    private static final Path UPLOADS = Paths.get("target/test-uploads");
+    private static final String HASH = "ab".repeat(32);
+    private static final byte[] CONTENT = "\u0089PNG\r\n\u001a\n0123456789".getBytes(StandardCharsets.ISO_8859_1);
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    private Path file;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        file = UPLOADS.resolve("restaurants/" + HASH + ".png");
+        Files.createDirectories(file.getParent());
+        Files.write(file, CONTENT);
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        Files.deleteIfExists(file);
+    }
+
+    @Test
+    void getFile_WithoutAuthentication_ShouldServeImmutableFileWithContentHashEtag() throws Exception {
+        mockMvc.perform(get("/uploads/restaurants/" + HASH + ".png"))
+                .andExpect(status().isOk())
+                .andExpect(content().bytes(CONTENT))
+                .andExpect(content().contentType("image/png"))
+                .andExpect(header().string(HttpHeaders.ETAG, "\"" + HASH + "\""))
+                .andExpect(header().string(HttpHeaders.CACHE_CONTROL, UploadedFileController.IMMUTABLE_CACHE_CONTROL))
+                .andExpect(header().string(HttpHeaders.ACCEPT_RANGES, "bytes"))
+                .andExpect(header().longValue(HttpHeaders.CONTENT_LENGTH, CONTENT.length));
+    }
+
+    @Test
+    void getFile_WithMatchingIfNoneMatch_ShouldReturnNotModified() throws Exception {
+        mockMvc.perform(get("/uploads/restaurants/" + HASH + ".png")
+                        .header(HttpHeaders.IF_NONE_MATCH, "\"other\", W/\"" + HASH + "\""))
+                .andExpect(status().isNotModified())
+                .andExpect(header().string(HttpHeaders.ETAG, "\"" + HASH + "\""))
+                .andExpect(content().bytes(new byte[0]));
+    }
+
+    @Test
+    void getFile_WithRange_ShouldReturnPartialContent() throws Exception {
+        mockMvc.perform(get("/uploads/restaurants/" + HASH + ".png")
+                        .header(HttpHeaders.RANGE, "bytes=8-11"))
+                .andExpect(status().isPartialContent())
+                .andExpect(header().string(HttpHeaders.CONTENT_RANGE, "bytes 8-11/" + CONTENT.length))
+                .andExpect(content().string("0123"));
+    }
+
+    @Test
+    void getFile_WithSuffixRange_ShouldReturnLastBytes() throws Exception {
+        mockMvc.perform(get("/uploads/restaurants/" + HASH + ".png")
+                        .header(HttpHeaders.RANGE, "bytes=-3"))
+                .andExpect(status().isPartialContent())
+                .andExpect(content().string("789"));
+    }
+
+    @Test
+    void getFile_WithRangeOutsideFile_ShouldReturnRangeNotSatisfiable() throws Exception {
+        mockMvc.perform(get("/uploads/restaurants/" + HASH + ".png")
+                        .header(HttpHeaders.RANGE, "bytes=1000-"))
+                .andExpect(status().isRequestedRangeNotSatisfiable())
+                .andExpect(header().string(HttpHeaders.CONTENT_RANGE, "bytes */" + CONTENT.length));
+    }
+
+    @Test
+    void getFile_WithStaleIfRange_ShouldReturnWholeFile() throws Exception {
+        mockMvc.perform(get("/uploads/restaurants/" + HASH + ".png")
+                        .header(HttpHeaders.RANGE, "bytes=0-3")
+                        .header(HttpHeaders.IF_RANGE, "\"stale\""))
+                .andExpect(status().isOk())
+                .andExpect(content().bytes(CONTENT));
+    }
+
+    @Test
+    void headFile_ShouldReturnHeadersOnly() throws Exception {
+        mockMvc.perform(head("/uploads/restaurants/" + HASH + ".png"))
+                .andExpect(status().isOk())
+                .andExpect(header().longValue(HttpHeaders.CONTENT_LENGTH, CONTENT.length))
+                .andExpect(content().bytes(new byte[0]));
+    }
+
+    @Test
+    void getFile_WithVariantNotGeneratedYet_ShouldServeOriginalWithShortCaching() throws Exception {
+        // A fresh name, so no variants exist from an earlier run
+        Path other = UPLOADS.resolve("restaurants/" + UUID.randomUUID().toString().replace("-", "") + ".png");
+        Files.write(other, CONTENT);
+        try {
+            mockMvc.perform(get("/uploads/restaurants/" + other.getFileName()).param("w", "160"))
+                    .andExpect(status().isOk())
+                    .andExpect(content().bytes(CONTENT))
+                    .andExpect(header().string(HttpHeaders.CACHE_CONTROL, UploadedFileController.PENDING_VARIANT_CACHE_CONTROL));
+        } finally {
+            Files.deleteIfExists(other);
+        }
+    }
+
+    @Test
+    void getFile_WithFlatUrlOfShardedFile_ShouldServeFile() throws Exception {
+        // Links from before the sharded layout keep working once the file has moved
+        String hash = "cd".repeat(32);
+        Path sharded = UPLOADS.resolve("restaurants/cd/cd/" + hash + ".png");
+        Files.createDirectories(sharded.getParent());
+        Files.write(sharded, CONTENT);
+        try {
+            mockMvc.perform(get("/uploads/restaurants/" + hash + ".png"))
+                    .andExpect(status().isOk())
+                    .andExpect(content().bytes(CONTENT))
+                    .andExpect(header().string(HttpHeaders.ETAG, "\"" + hash + "\""));
+        } finally {
+            Files.deleteIfExists(sharded);
+        }
+    }
+
+    @Test
+    void getFile_Missing_ShouldReturnNotFound() throws Exception {
+        mockMvc.perform(get("/uploads/restaurants/missing.png"))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    void getFile_InHiddenDirectory_ShouldReturnNotFound() throws Exception {
+        Path hidden = UPLOADS.resolve(".variants/secret.png");
+        Files.createDirectories(hidden.getParent());
+        Files.write(hidden, CONTENT);
+        try {
+            mockMvc.perform(get("/uploads/.variants/secret.png"))
+                    .andExpect(status().isNotFound());
+        } finally {
+            Files.deleteIfExists(hidden);
+        }
+    }
+}
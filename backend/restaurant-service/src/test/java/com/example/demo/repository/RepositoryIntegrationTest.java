@@ -5,6 +5,7 @@ import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.test.context.TestPropertySource;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -12,6 +13,7 @@ import java.time.LocalDateTime;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
 
 import static org.assertj.core.api.Assertions.assertThat;
 
@@ -32,6 +34,15 @@ class RepositoryIntegrationTest {
     @Autowired
     private AllergenRepository allergenRepository;
 
+    @Autowired
+    private DishRepository dishRepository;
+
+    @Autowired
+    private ComponentRepository componentRepository;
+
+    @Autowired
+    private EmailOutboxRepository emailOutboxRepository;
+
     private User testUser;
     private Restaurant testRestaurant;
     private Allergen glutenAllergen;
@@ -428,4 +439,197 @@ class RepositoryIntegrationTest {
         // Then
         assertThat(found).isEmpty();
     }
-}
\ No newline at end of file
+
+    // Dish Repository Tests
+    @Test
+    void dishRepository_searchByNutrition_ShouldApplyRangesLocationAndAllergenExclusion() {
+        // Given
+        Component breadedChicken = Component.builder()
+                .name("Breaded Chicken")
+                .proteinPer100g(25.0)
+                .fatPer100g(12.0)
+                .carbsPer100g(15.0)
+                .kcalPer100g(270.0)
+                .allergens(new HashSet<>(Set.of(glutenAllergen)))
+                .build();
+        breadedChicken = componentRepository.save(breadedChicken);
+
+        Dish leanDish = Dish.builder()
+                .name("Grilled Chicken")
+                .restaurant(testRestaurant)
+                .isAvailable(true)
+                .price(25.0)
+                .baseKcal(450.0)
+                .baseProteinG(45.0)
+                .baseFatG(10.0)
+                .baseCarbsG(20.0)
+                .build();
+        dishRepository.save(leanDish);
+
+        Dish heavyDish = Dish.builder()
+                .name("Burger")
+                .restaurant(testRestaurant)
+                .isAvailable(true)
+                .price(30.0)
+                .baseKcal(950.0)
+                .baseProteinG(40.0)
+                .baseFatG(50.0)
+                .baseCarbsG(70.0)
+                .build();
+        dishRepository.save(heavyDish);
+
+        Dish glutenDish = Dish.builder()
+                .name("Schnitzel")
+                .restaurant(testRestaurant)
+                .isAvailable(true)
+                .price(28.0)
+                .baseKcal(540.0)
+                .baseProteinG(50.0)
+                .baseFatG(24.0)
+                .baseCarbsG(30.0)
+                .build();
+        glutenDish.getDishComponents().add(DishComponent.builder()
+                .dish(glutenDish)
+                .component(breadedChicken)
+                .amount(200.0)
+                .isOptional(false)
+                .build());
+        dishRepository.save(glutenDish);
+
+        // When
+        List<Dish> withoutExclusions = dishRepository.searchByNutrition(RestaurantStatus.APPROVED,
+                null, 600.0, 30.0, null, null, null, null, null,
+                49.9, 50.1, 18.9, 19.1, List.of(), PageRequest.of(0, 10));
+        List<Dish> withExclusions = dishRepository.searchByNutrition(RestaurantStatus.APPROVED,
+                null, 600.0, 30.0, null, null, null, null, null,
+                null, null, null, null, List.of("Gluten"), PageRequest.of(0, 10));
+        List<Dish> outsideBox = dishRepository.searchByNutrition(RestaurantStatus.APPROVED,
+                null, 600.0, null, null, null, null, null, null,
+                51.0, 51.2, 18.9, 19.1, List.of(), PageRequest.of(0, 10));
+
+        // Then
+        assertThat(withoutExclusions).extracting(Dish::getName)
+                .containsExactly("Grilled Chicken", "Schnitzel");
+        assertThat(withExclusions).extracting(Dish::getName)
+                .containsExactly("Grilled Chicken");
+        assertThat(outsideBox).isEmpty();
+    }
+
+    // ========== Conditional ownership statements ==========
+
+    @Test
+    void dishRepository_deleteByIdIfOwnedOrAdmin_ShouldOnlyDeleteForOwnerOrAdmin() {
+        // Given
+        Dish dish = saveDishWithComponent("Owned Dish");
+        Long strangerId = testUser.getId() + 1000;
+
+        // When - Stranger cannot delete
+        int strangerComponents = dishRepository.deleteComponentsByDishIdIfOwnedOrAdmin(dish.getId(), strangerId, false);
+        int strangerDishes = dishRepository.deleteByIdIfOwnedOrAdmin(dish.getId(), strangerId, false);
+
+        // Then
+        assertThat(strangerComponents).isZero();
+        assertThat(strangerDishes).isZero();
+        assertThat(dishRepository.findByIdIfOwnedOrAdmin(dish.getId(), strangerId, false)).isEmpty();
+        assertThat(dishRepository.findByIdIfOwnedOrAdmin(dish.getId(), strangerId, true)).isPresent();
+        assertThat(dishRepository.findByIdIfOwnedOrAdmin(dish.getId(), testUser.getId(), false)).isPresent();
+
+        // When - Owner can delete
+        int ownerComponents = dishRepository.deleteComponentsByDishIdIfOwnedOrAdmin(dish.getId(), testUser.getId(), false);
+        int ownerDishes = dishRepository.deleteByIdIfOwnedOrAdmin(dish.getId(), testUser.getId(), false);
+
+        // Then
+        assertThat(ownerComponents).isEqualTo(1);
+        assertThat(ownerDishes).isEqualTo(1);
+        assertThat(dishRepository.existsById(dish.getId())).isFalse();
+    }
+
+    @Test
+    void restaurantRepository_deleteByIdIfOwnedOrAdmin_ShouldDeleteRestaurantWithDependents() {
+        // Given
+        testRestaurant.addDietaryOption("VEGAN");
+        restaurantRepository.save(testRestaurant);
+        Dish dish = saveDishWithComponent("Restaurant Dish");
+        Long restaurantId = testRestaurant.getId();
+        Long strangerId = testUser.getId() + 1000;
+
+        // When - Stranger cannot delete
+        int strangerRows = restaurantRepository.deleteDishComponentsByRestaurantIdIfOwnedOrAdmin(restaurantId, strangerId, false)
+                + restaurantRepository.deleteDishesByRestaurantIdIfOwnedOrAdmin(restaurantId, strangerId, false)
+                + restaurantRepository.deleteDietaryOptionsByIdIfOwnedOrAdmin(restaurantId, strangerId, false)
+                + restaurantRepository.deleteByIdIfOwnedOrAdmin(restaurantId, strangerId, false);
+
+        // Then
+        assertThat(strangerRows).isZero();
+        assertThat(restaurantRepository.findByIdIfOwnedOrAdmin(restaurantId, strangerId, false)).isEmpty();
+        assertThat(restaurantRepository.findByIdIfOwnedOrAdmin(restaurantId, testUser.getId(), false)).isPresent();
+
+        // When - Admin can delete
+        restaurantRepository.deleteDishComponentsByRestaurantIdIfOwnedOrAdmin(restaurantId, strangerId, true);
+        restaurantRepository.deleteDishesByRestaurantIdIfOwnedOrAdmin(restaurantId, strangerId, true);
+        restaurantRepository.deleteDietaryOptionsByIdIfOwnedOrAdmin(restaurantId, strangerId, true);
+        int deleted = restaurantRepository.deleteByIdIfOwnedOrAdmin(restaurantId, strangerId, true);
+
+        // Then
+        assertThat(deleted).isEqualTo(1);
+        assertThat(restaurantRepository.existsById(restaurantId)).isFalse();
+        assertThat(dishRepository.existsById(dish.getId())).isFalse();
+    }
+
+    @Test
+    void emailOutbox_ClaimShouldTakeOnlyDueUnclaimedMessages() {
+        // Given
+        LocalDateTime now = LocalDateTime.now();
+        EmailOutboxMessage due = emailOutboxRepository.save(outboxMessage(now.minusSeconds(5)));
+        emailOutboxRepository.save(outboxMessage(now.plusMinutes(5)));
+        List<Long> dueIds = emailOutboxRepository.findDueIds(EmailOutboxStatus.PENDING, now, PageRequest.of(0, 10));
+
+        // When - Two dispatchers race for the same rows
+        int first = emailOutboxRepository.claim(dueIds, EmailOutboxStatus.PENDING, "claim-1", now.plusMinutes(5), now);
+        int second = emailOutboxRepository.claim(dueIds, EmailOutboxStatus.PENDING, "claim-2", now.plusMinutes(5), now);
+
+        // Then
+        assertThat(dueIds).containsExactly(due.getId());
+        assertThat(first).isEqualTo(1);
+        assertThat(second).isZero();
+        assertThat(emailOutboxRepository.findByClaimToken("claim-1"))
+                .extracting(EmailOutboxMessage::getId)
+                .containsExactly(due.getId());
+    }
+
+    private EmailOutboxMessage outboxMessage(LocalDateTime nextAttemptAt) {
+        return EmailOutboxMessage.builder()
+                .type(EmailType.VERIFICATION)
+                .recipient("john@example.com")
+                .firstName("John")
+                .token("token")
+                .nextAttemptAt(nextAttemptAt)
+                .createdAt(LocalDateTime.now())
+                .build();
+    }
+
+    private Dish saveDishWithComponent(String name) {
+        Component rice = componentRepository.save(Component.builder()
+                .name("Rice " + name)
+                .proteinPer100g(3.0)
+                .fatPer100g(0.5)
+                .carbsPer100g(28.0)
+                .kcalPer100g(130.0)
+                .allergens(new HashSet<>())
+                .build());
+
+        Dish dish = Dish.builder()
+                .name(name)
+                .restaurant(testRestaurant)
+                .isAvailable(true)
+                .price(20.0)
+                .build();
+        dish.getDishComponents().add(DishComponent.builder()
+                .dish(dish)
+                .component(rice)
+                .amount(100.0)
+                .isOptional(false)
+                .build());
+        return dishRepository.save(dish);
+    }
+}
@@ -0,0 +1,41 @@
+package com.example.demo.security;
+
+import com.example.demo.security.BCryptWorkFactorCalibrator.Calibration;
+import com.example.demo.security.BCryptWorkFactorCalibrator.Measurement;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class BCryptWorkFactorCalibratorTest {
+
+    @Test
+    void calibrate_WithReachedTarget_ShouldPickFirstStrengthAtOrAboveTarget() {
+        // When
+        Calibration calibration = BCryptWorkFactorCalibrator.calibrate(Duration.ZERO, 4, 6);
+
+        // Then
+        assertThat(calibration.getStrength()).isEqualTo(4);
+        assertThat(calibration.getMeasurements()).extracting(Measurement::strength).containsExactly(4);
+    }
+
+    @Test
+    void calibrate_WithUnreachableTarget_ShouldCapAtMaxStrength() {
+        // When
+        Calibration calibration = BCryptWorkFactorCalibrator.calibrate(Duration.ofHours(1), 4, 5);
+
+        // Then
+        assertThat(calibration.getStrength()).isEqualTo(5);
+        assertThat(calibration.getMeasurements()).extracting(Measurement::strength).containsExactly(4, 5);
+    }
+
+    @Test
+    void measurement_ShouldReportThroughputPerCore() {
+        // Given
+        Measurement measurement = new Measurement(10, Duration.ofMillis(100));
+
+        // When/Then
+        assertThat(measurement.loginsPerSecondPerCore()).isEqualTo(10.0);
+    }
+}
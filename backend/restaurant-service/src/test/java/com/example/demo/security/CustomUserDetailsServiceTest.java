@@ -3,21 +3,23 @@ package com.example.demo.security;
 import com.example.demo.entity.Role;
 import com.example.demo.entity.User;
 import com.example.demo.repository.UserRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
-import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.security.core.GrantedAuthority;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 
+import java.time.Duration;
 import java.util.Collection;
 import java.util.Optional;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
@@ -27,13 +29,17 @@ class CustomUserDetailsServiceTest {
     @Mock
     private UserRepository userRepository;
 
-    @InjectMocks
+    private UserDetailsCache userDetailsCache;
+
     private CustomUserDetailsService customUserDetailsService;
 
     private User testUser;
 
     @BeforeEach
     void setUp() {
+        userDetailsCache = new UserDetailsCache(new SimpleMeterRegistry(), 100, Duration.ofMinutes(5));
+        customUserDetailsService = new CustomUserDetailsService(userRepository, userDetailsCache);
+
         testUser = User.builder()
                 .id(1L)
                 .firstName("John")
@@ -244,4 +250,109 @@ class CustomUserDetailsServiceTest {
                 customUserDetailsService.loadUserByUsername(""))
                 .isInstanceOf(UsernameNotFoundException.class);
     }
-}
\ No newline at end of file
+
+    // ========== Caching ==========
+
+    @Test
+    void loadCachedUserByUsername_CalledTwice_ShouldQueryDatabaseOnce() {
+        // Given
+        when(userRepository.findByEmail("john@example.com"))
+                .thenReturn(Optional.of(testUser));
+
+        // When
+        customUserDetailsService.loadCachedUserByUsername("john@example.com");
+        UserDetails userDetails = customUserDetailsService.loadCachedUserByUsername("john@example.com");
+
+        // Then
+        assertThat(userDetails.getUsername()).isEqualTo("john@example.com");
+        verify(userRepository, times(1)).findByEmail("john@example.com");
+        assertThat(userDetailsCache.getHitCount()).isEqualTo(1);
+        assertThat(userDetailsCache.getMissCount()).isEqualTo(1);
+    }
+
+    @Test
+    void loadUserByUsername_ShouldAlwaysQueryDatabaseAndRefreshCache() {
+        // Given
+        when(userRepository.findByEmail("john@example.com"))
+                .thenReturn(Optional.of(testUser));
+
+        // When
+        customUserDetailsService.loadUserByUsername("john@example.com");
+        customUserDetailsService.loadUserByUsername("john@example.com");
+        customUserDetailsService.loadCachedUserByUsername("john@example.com");
+
+        // Then
+        verify(userRepository, times(2)).findByEmail("john@example.com");
+        assertThat(userDetailsCache.getHitCount()).isEqualTo(1);
+    }
+
+    @Test
+    void loadCachedUserByUsername_ShouldReturnFreshInstanceWithCredentials() {
+        // Given
+        when(userRepository.findByEmail("john@example.com"))
+                .thenReturn(Optional.of(testUser));
+
+        // When - Authentication erases the credentials of the returned instance
+        UserDetails first = customUserDetailsService.loadCachedUserByUsername("john@example.com");
+        ((org.springframework.security.core.userdetails.User) first).eraseCredentials();
+        UserDetails second = customUserDetailsService.loadCachedUserByUsername("john@example.com");
+
+        // Then
+        assertThat(second).isNotSameAs(first);
+        assertThat(second.getPassword()).isEqualTo("encodedPassword123");
+    }
+
+    @Test
+    void loadCachedUserByUsername_AfterEviction_ShouldReturnUpdatedRole() {
+        // Given
+        when(userRepository.findByEmail("john@example.com"))
+                .thenReturn(Optional.of(testUser));
+        customUserDetailsService.loadCachedUserByUsername("john@example.com");
+
+        // When - Admin promotes the user
+        testUser.setRole(Role.ADMIN);
+        userDetailsCache.evict("john@example.com");
+        UserDetails userDetails = customUserDetailsService.loadCachedUserByUsername("john@example.com");
+
+        // Then
+        assertThat(userDetails.getAuthorities())
+                .extracting(GrantedAuthority::getAuthority)
+                .containsExactly("ROLE_ADMIN");
+        verify(userRepository, times(2)).findByEmail("john@example.com");
+    }
+
+    @Test
+    void loadCachedUserByUsername_WithNonExistentUser_ShouldNotCacheFailure() {
+        // Given
+        when(userRepository.findByEmail("new@example.com"))
+                .thenReturn(Optional.empty())
+                .thenReturn(Optional.of(testUser));
+
+        // When/Then
+        assertThatThrownBy(() -> customUserDetailsService.loadCachedUserByUsername("new@example.com"))
+                .isInstanceOf(UsernameNotFoundException.class);
+        assertThat(customUserDetailsService.loadCachedUserByUsername("new@example.com")).isNotNull();
+        assertThat(userDetailsCache.size()).isEqualTo(1);
+    }
+
+    // ========== Password upgrade ==========
+
+    @Test
+    void updatePassword_ShouldStoreNewHashAndKeepAccountPrincipal() {
+        // Given
+        when(userRepository.findByEmail("john@example.com"))
+                .thenReturn(Optional.of(testUser));
+        when(userRepository.updatePasswordByEmail("john@example.com", "{bcrypt}newHash")).thenReturn(1);
+        UserDetails loaded = customUserDetailsService.loadUserByUsername("john@example.com");
+
+        // When
+        UserDetails upgraded = customUserDetailsService.updatePassword(loaded, "{bcrypt}newHash");
+
+        // Then
+        assertThat(upgraded).isInstanceOf(AccountUserDetails.class);
+        assertThat(upgraded.getPassword()).isEqualTo("{bcrypt}newHash");
+        assertThat(((AccountUserDetails) upgraded).getId()).isEqualTo(1L);
+        verify(userRepository).updatePasswordByEmail("john@example.com", "{bcrypt}newHash");
+        assertThat(userDetailsCache.size()).isZero();
+    }
+}
@@ -1,5 +1,6 @@
 package com.example.demo.security;
 
+import io.jsonwebtoken.Claims;
 import io.jsonwebtoken.ExpiredJwtException;
 import io.jsonwebtoken.MalformedJwtException;
 import org.junit.jupiter.api.BeforeEach;
@@ -237,4 +238,85 @@ class JwtUtilTest {
         assertThat(jwtUtil.extractUserId(token1)).isEqualTo(jwtUtil.extractUserId(token2));
         assertThat(jwtUtil.extractRole(token1)).isEqualTo(jwtUtil.extractRole(token2));
     }
-}
\ No newline at end of file
+
+    @Test
+    void generateToken_ShouldAssignUniqueTokenId() {
+        // When - Same user and same second
+        String token1 = jwtUtil.generateToken("test@example.com", 1L, "ROLE_USER");
+        String token2 = jwtUtil.generateToken("test@example.com", 1L, "ROLE_USER");
+
+        // Then
+        String tokenId = jwtUtil.validateAndExtractClaims(token1).getId();
+        assertThat(tokenId).isNotBlank();
+        assertThat(tokenId).isNotEqualTo(jwtUtil.validateAndExtractClaims(token2).getId());
+    }
+
+    @Test
+    void validateAndExtractClaims_WithValidToken_ShouldReturnAllClaims() {
+        // Given
+        String token = jwtUtil.generateToken("test@example.com", 42L, "ADMIN");
+
+        // When
+        Claims claims = jwtUtil.validateAndExtractClaims(token);
+
+        // Then
+        assertThat(claims).isNotNull();
+        assertThat(claims.getSubject()).isEqualTo("test@example.com");
+        assertThat(claims.get("userId", Long.class)).isEqualTo(42L);
+        assertThat(claims.get("role", String.class)).isEqualTo("ADMIN");
+        assertThat(claims.getExpiration()).isAfter(new Date());
+    }
+
+    @Test
+    void validateAndExtractClaims_WithExpiredToken_ShouldReturnNull() {
+        // Given
+        ReflectionTestUtils.setField(jwtUtil, "expiration", -1000L);
+        String token = jwtUtil.generateToken("test@example.com", 1L, "USER");
+        ReflectionTestUtils.setField(jwtUtil, "expiration", TEST_EXPIRATION);
+
+        // When/Then
+        assertThat(jwtUtil.validateAndExtractClaims(token)).isNull();
+    }
+
+    @Test
+    void validateAndExtractClaims_WithTamperedSignature_ShouldReturnNull() {
+        // Given
+        String token = jwtUtil.generateToken("test@example.com", 1L, "USER");
+        String otherToken = jwtUtil.generateToken("admin@example.com", 2L, "ADMIN");
+        String tampered = token.substring(0, token.lastIndexOf('.'))
+                + otherToken.substring(otherToken.lastIndexOf('.'));
+
+        // When/Then
+        assertThat(jwtUtil.validateAndExtractClaims(tampered)).isNull();
+    }
+
+    @Test
+    void validateAndExtractClaims_WithTokenFromOtherSecret_ShouldReturnNull() {
+        // Given
+        JwtUtil otherJwtUtil = new JwtUtil();
+        ReflectionTestUtils.setField(otherJwtUtil, "secret", TEST_SECRET + "-other");
+        ReflectionTestUtils.setField(otherJwtUtil, "expiration", TEST_EXPIRATION);
+        String foreignToken = otherJwtUtil.generateToken("test@example.com", 1L, "USER");
+
+        // When/Then
+        assertThat(jwtUtil.validateAndExtractClaims(foreignToken)).isNull();
+    }
+
+    @Test
+    void parser_ShouldBeBuiltOnceAndReused() {
+        // Given
+        String token = jwtUtil.generateToken("test@example.com", 1L, "USER");
+
+        // When
+        jwtUtil.validateAndExtractClaims(token);
+        Object firstParser = ReflectionTestUtils.getField(jwtUtil, "jwtParser");
+        Object firstKey = ReflectionTestUtils.getField(jwtUtil, "signingKey");
+        jwtUtil.validateToken(token);
+        jwtUtil.extractEmail(token);
+
+        // Then
+        assertThat(firstParser).isNotNull();
+        assertThat(ReflectionTestUtils.getField(jwtUtil, "jwtParser")).isSameAs(firstParser);
+        assertThat(ReflectionTestUtils.getField(jwtUtil, "signingKey")).isSameAs(firstKey);
+    }
+}
@@ -0,0 +1,66 @@
+package com.example.demo.security;
+
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Manual benchmark of login cost per BCrypt work factor; not part of the test suite.
+ * Prints verification time, single-core throughput and all-core throughput for each strength.
+ * <p>
+ * Run with: {@code java -cp <test-classpath> com.example.demo.security.PasswordHashingBenchmark [min] [max] [seconds]}
+ */
+public class PasswordHashingBenchmark {
+
+    private static final String PASSWORD = "SecurePassword123!";
+
+    public static void main(String[] args) throws Exception {
+        int minStrength = args.length > 0 ? Integer.parseInt(args[0]) : 10;
+        int maxStrength = args.length > 1 ? Integer.parseInt(args[1]) : 14;
+        long seconds = args.length > 2 ? Long.parseLong(args[2]) : 3;
+        int cores = Runtime.getRuntime().availableProcessors();
+
+        System.out.printf("cores=%d, %d s per run%n", cores, seconds);
+        System.out.printf("%-8s %12s %18s %18s%n", "strength", "ms/verify", "logins/s (1 core)", "logins/s (all)");
+
+        for (int strength = minStrength; strength <= maxStrength; strength++) {
+            BCryptPasswordEncoder encoder = new BCryptPasswordEncoder(strength);
+            String hash = encoder.encode(PASSWORD);
+            encoder.matches(PASSWORD, hash); // warm-up
+
+            double single = throughput(encoder, hash, 1, seconds);
+            double all = throughput(encoder, hash, cores, seconds);
+            System.out.printf("%-8d %12.1f %18.1f %18.1f%n", strength, 1000.0 / single, single, all);
+        }
+    }
+
+    private static double throughput(BCryptPasswordEncoder encoder, String hash, int threads, long seconds)
+            throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        long deadline = System.nanoTime() + seconds * 1_000_000_000L;
+        try {
+            List<Future<Integer>> results = new ArrayList<>();
+            for (int i = 0; i < threads; i++) {
+                results.add(pool.submit(() -> {
+                    int count = 0;
+                    while (System.nanoTime() < deadline) {
+                        encoder.matches(PASSWORD, hash);
+                        count++;
+                    }
+                    return count;
+                }));
+            }
+            long total = 0;
+            for (Future<Integer> result : results) {
+                total += result.get();
+            }
+            return (double) total / seconds;
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+}
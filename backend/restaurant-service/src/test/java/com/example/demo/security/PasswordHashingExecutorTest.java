@@ -0,0 +1,93 @@
+package com.example.demo.security;
+
+import com.example.demo.exception.ServiceUnavailableException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.authentication.BadCredentialsException;
+
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class PasswordHashingExecutorTest {
+
+    private PasswordHashingExecutor executor;
+    private final ExecutorService callers = Executors.newFixedThreadPool(2);
+    private final CountDownLatch release = new CountDownLatch(1);
+
+    @AfterEach
+    void tearDown() {
+        release.countDown();
+        callers.shutdownNow();
+        if (executor != null) {
+            executor.destroy();
+        }
+    }
+
+    @Test
+    void execute_ShouldReturnTaskResult() {
+        // Given
+        executor = new PasswordHashingExecutor(1, 1, Duration.ofSeconds(5));
+
+        // When
+        String result = executor.execute(() -> Thread.currentThread().getName());
+
+        // Then
+        assertThat(result).startsWith("password-hash-");
+    }
+
+    @Test
+    void execute_ShouldRethrowTaskException() {
+        // Given
+        executor = new PasswordHashingExecutor(1, 1, Duration.ofSeconds(5));
+
+        // When/Then
+        assertThatThrownBy(() -> executor.execute(() -> {
+            throw new BadCredentialsException("Bad credentials");
+        }))
+                .isInstanceOf(BadCredentialsException.class)
+                .hasMessage("Bad credentials");
+    }
+
+    @Test
+    void execute_WhenPoolAndQueueFull_ShouldRejectImmediately() throws Exception {
+        // Given - One running task and one queued task saturate the pool
+        executor = new PasswordHashingExecutor(1, 1, Duration.ofSeconds(5));
+        CountDownLatch started = new CountDownLatch(1);
+        callers.submit(() -> executor.execute(() -> {
+            started.countDown();
+            return release.await(5, TimeUnit.SECONDS);
+        }));
+        assertThat(started.await(5, TimeUnit.SECONDS)).isTrue();
+        callers.submit(() -> executor.execute(() -> release.await(5, TimeUnit.SECONDS)));
+        waitForQueueSize(1);
+
+        // When/Then
+        assertThatThrownBy(() -> executor.execute(() -> "too many"))
+                .isInstanceOf(ServiceUnavailableException.class);
+        assertThat(executor.getRejectedCount()).isEqualTo(1);
+    }
+
+    @Test
+    void execute_WhenTaskTooSlow_ShouldFailWithServiceUnavailable() {
+        // Given
+        executor = new PasswordHashingExecutor(1, 1, Duration.ofMillis(50));
+
+        // When/Then
+        assertThatThrownBy(() -> executor.execute(() -> release.await(5, TimeUnit.SECONDS)))
+                .isInstanceOf(ServiceUnavailableException.class);
+    }
+
+    private void waitForQueueSize(int expected) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (executor.getQueueSize() < expected && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertThat(executor.getQueueSize()).isEqualTo(expected);
+    }
+}
@@ -0,0 +1,117 @@
+package com.example.demo.security;
+
+import com.example.demo.entity.Role;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+import java.time.Duration;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class RateLimitFilterTest {
+
+    private RateLimitFilter filter;
+
+    @BeforeEach
+    void setUp() {
+        Duration minute = Duration.ofMinutes(1);
+        filter = new RateLimitFilter(true, 4, 100, 2, minute, 3, minute, 2, minute, 2, minute);
+    }
+
+    @AfterEach
+    void tearDown() {
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    void authRequests_BeyondLimit_ShouldReturn429WithRetryAfter() throws Exception {
+        // Given
+        assertThat(perform("POST", "/api/auth/login", "10.0.0.1").getStatus()).isEqualTo(200);
+        assertThat(perform("POST", "/api/auth/login", "10.0.0.1").getStatus()).isEqualTo(200);
+
+        // When
+        MockHttpServletResponse response = perform("POST", "/api/auth/login", "10.0.0.1");
+
+        // Then
+        assertThat(response.getStatus()).isEqualTo(429);
+        assertThat(response.getHeader("Retry-After")).isEqualTo("30");
+        assertThat(response.getContentAsString()).contains("Too Many Requests");
+        assertThat(perform("POST", "/api/auth/login", "10.0.0.2").getStatus()).isEqualTo(200);
+    }
+
+    @Test
+    void tokenRefresh_ShouldNotUseTheLoginBudget() throws Exception {
+        // Given
+        perform("POST", "/api/auth/refresh", "10.0.0.1");
+        perform("POST", "/api/auth/refresh", "10.0.0.1");
+        perform("POST", "/api/auth/logout", "10.0.0.1");
+
+        // When/Then
+        assertThat(perform("POST", "/api/auth/refresh", "10.0.0.1").getStatus()).isEqualTo(429);
+        assertThat(perform("POST", "/api/auth/login", "10.0.0.1").getStatus()).isEqualTo(200);
+        assertThat(perform("POST", "/api/auth/login", "10.0.0.1").getStatus()).isEqualTo(200);
+    }
+
+    @Test
+    void unlimitedRoutes_ShouldAlwaysPass() throws Exception {
+        for (int i = 0; i < 5; i++) {
+            assertThat(perform("GET", "/api/restaurants/1/reviews", "10.0.0.1").getStatus()).isEqualTo(200);
+            assertThat(perform("GET", "/api/upload/files/a.png", "10.0.0.1").getStatus()).isEqualTo(200);
+        }
+    }
+
+    @Test
+    void reviewWrites_ShouldBeLimitedPerUser() throws Exception {
+        // Given - Two users behind the same address
+        authenticateAs(1L);
+        perform("POST", "/api/restaurants/1/reviews", "10.0.0.1");
+        perform("PUT", "/api/reviews/5", "10.0.0.1");
+        assertThat(perform("DELETE", "/api/reviews/5", "10.0.0.1").getStatus()).isEqualTo(429);
+
+        // When
+        authenticateAs(2L);
+
+        // Then
+        assertThat(perform("POST", "/api/restaurants/1/reviews", "10.0.0.1").getStatus()).isEqualTo(200);
+    }
+
+    @Test
+    void uploads_BeyondLimit_ShouldReturn429() throws Exception {
+        perform("POST", "/api/upload/image", "10.0.0.1");
+        perform("POST", "/api/upload/image", "10.0.0.1");
+
+        assertThat(perform("POST", "/api/upload/image", "10.0.0.1").getStatus()).isEqualTo(429);
+    }
+
+    @Test
+    void disabledFilter_ShouldNotLimit() throws Exception {
+        Duration minute = Duration.ofMinutes(1);
+        filter = new RateLimitFilter(false, 4, 100, 1, minute, 1, minute, 1, minute, 1, minute);
+
+        for (int i = 0; i < 3; i++) {
+            assertThat(perform("POST", "/api/auth/login", "10.0.0.1").getStatus()).isEqualTo(200);
+        }
+    }
+
+    private MockHttpServletResponse perform(String method, String uri, String remoteAddr) throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest(method, uri);
+        request.setRemoteAddr(remoteAddr);
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        filter.doFilter(request, response, new MockFilterChain());
+        return response;
+    }
+
+    private void authenticateAs(Long userId) {
+        AuthenticatedUser principal = new AuthenticatedUser(userId, "user" + userId + "@example.com", Role.USER);
+        SecurityContextHolder.getContext().setAuthentication(new UsernamePasswordAuthenticationToken(
+                principal, null, List.of(new SimpleGrantedAuthority("ROLE_USER"))));
+    }
+}
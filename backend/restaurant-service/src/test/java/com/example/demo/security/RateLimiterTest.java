@@ -0,0 +1,97 @@
+package com.example.demo.security;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class RateLimiterTest {
+
+    @Test
+    void tryAcquire_WithinCapacity_ShouldAllowBurst() {
+        RateLimiter limiter = new RateLimiter("test", 3, Duration.ofMinutes(1), 4, 100);
+
+        assertThat(limiter.tryAcquire("a")).isZero();
+        assertThat(limiter.tryAcquire("a")).isZero();
+        assertThat(limiter.tryAcquire("a")).isZero();
+    }
+
+    @Test
+    void tryAcquire_BeyondCapacity_ShouldReturnWaitTime() {
+        // Given
+        RateLimiter limiter = new RateLimiter("test", 2, Duration.ofMinutes(1), 4, 100);
+        limiter.tryAcquire("a");
+        limiter.tryAcquire("a");
+
+        // When
+        long wait = limiter.tryAcquire("a");
+
+        // Then - One token refills every 30 seconds
+        assertThat(wait).isPositive().isLessThanOrEqualTo(Duration.ofSeconds(30).toNanos());
+    }
+
+    @Test
+    void tryAcquire_WithDifferentKeys_ShouldUseSeparateBuckets() {
+        RateLimiter limiter = new RateLimiter("test", 1, Duration.ofMinutes(1), 4, 100);
+
+        assertThat(limiter.tryAcquire("a")).isZero();
+        assertThat(limiter.tryAcquire("a")).isPositive();
+        assertThat(limiter.tryAcquire("b")).isZero();
+    }
+
+    @Test
+    void tryAcquire_AfterRefill_ShouldAllowAgain() throws InterruptedException {
+        // Given
+        RateLimiter limiter = new RateLimiter("test", 1, Duration.ofMillis(50), 1, 100);
+        limiter.tryAcquire("a");
+        assertThat(limiter.tryAcquire("a")).isPositive();
+
+        // When
+        Thread.sleep(60);
+
+        // Then
+        assertThat(limiter.tryAcquire("a")).isZero();
+    }
+
+    @Test
+    void tryAcquire_WithFullShard_ShouldEvictOldestAndKeepSeparateBuckets() {
+        // Given - A single shard holding at most two clients
+        RateLimiter limiter = new RateLimiter("test", 1, Duration.ofMinutes(1), 1, 2);
+        limiter.tryAcquire("a");
+        limiter.tryAcquire("b");
+
+        // When - Each new client gets its own bucket in place of the oldest one
+        long first = limiter.tryAcquire("c");
+        long second = limiter.tryAcquire("d");
+
+        // Then
+        assertThat(limiter.size()).isEqualTo(2);
+        assertThat(first).isZero();
+        assertThat(second).isZero();
+        assertThat(limiter.tryAcquire("d")).isPositive();
+    }
+
+    @Test
+    void tryAcquire_WithFullShard_ShouldPreferEvictingRefilledBuckets() throws InterruptedException {
+        // Given - "a" has refilled, "b" is still throttled
+        RateLimiter limiter = new RateLimiter("test", 1, Duration.ofMillis(200), 1, 2);
+        limiter.tryAcquire("a");
+        Thread.sleep(250);
+        limiter.tryAcquire("b");
+
+        // When
+        limiter.tryAcquire("c");
+
+        // Then - "b" kept its state
+        assertThat(limiter.size()).isEqualTo(2);
+        assertThat(limiter.tryAcquire("b")).isPositive();
+    }
+
+    @Test
+    void constructor_WithZeroCapacity_ShouldThrow() {
+        assertThatThrownBy(() -> new RateLimiter("test", 0, Duration.ofMinutes(1), 1, 1))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+}
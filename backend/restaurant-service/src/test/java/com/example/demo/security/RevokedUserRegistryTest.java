@@ -0,0 +1,202 @@
+package com.example.demo.security;
+
+import com.example.demo.entity.RevokedUser;
+import com.example.demo.repository.RevokedUserRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class RevokedUserRegistryTest {
+
+    private static final Long TOKEN_LIFETIME = 3600000L; // 1 hour
+
+    @Mock
+    private RevokedUserRepository revokedUserRepository;
+
+    private RevokedUserRegistry registry;
+
+    @BeforeEach
+    void setUp() {
+        registry = new RevokedUserRegistry(revokedUserRepository, TOKEN_LIFETIME);
+    }
+
+    @Test
+    void isRevoked_WithUnknownUser_ShouldReturnFalse() {
+        assertThat(registry.isRevoked(1L, new Date())).isFalse();
+    }
+
+    @Test
+    void isRevoked_WithTokenIssuedBeforeRevocation_ShouldReturnTrue() {
+        // Given
+        Date issuedAt = new Date(System.currentTimeMillis() - 60000);
+
+        // When
+        registry.revokeUser(1L);
+
+        // Then
+        assertThat(registry.isRevoked(1L, issuedAt)).isTrue();
+        assertThat(registry.isRevoked(2L, issuedAt)).isFalse();
+    }
+
+    @Test
+    void isRevoked_WithTokenIssuedAfterRevocation_ShouldReturnFalse() {
+        // Given
+        registry.revokeUser(1L);
+
+        // When
+        Date issuedAt = new Date(System.currentTimeMillis() + 5000);
+
+        // Then
+        assertThat(registry.isRevoked(1L, issuedAt)).isFalse();
+    }
+
+    @Test
+    void isRevoked_AfterTokenLifetime_ShouldForgetEntry() {
+        // Given - Revocation older than any still-valid token
+        revokedAt(1L, System.currentTimeMillis() - TOKEN_LIFETIME - 1000);
+
+        // When/Then
+        assertThat(registry.isRevoked(1L, new Date(0))).isFalse();
+        assertThat(registry.size()).isZero();
+    }
+
+    @Test
+    void revokeUser_ShouldPurgeExpiredEntries() {
+        // Given
+        revokedAt(1L, System.currentTimeMillis() - TOKEN_LIFETIME - 1000);
+        revokedAt(2L, System.currentTimeMillis() - TOKEN_LIFETIME - 1000);
+
+        // When
+        registry.revokeUser(3L);
+
+        // Then
+        assertThat(registry.size()).isEqualTo(1);
+    }
+
+    @Test
+    void revokeUser_WithNullId_ShouldBeIgnored() {
+        // When
+        registry.revokeUser(null);
+
+        // Then
+        assertThat(registry.size()).isZero();
+        assertThat(registry.isRevoked(null, new Date())).isFalse();
+    }
+
+    @Test
+    void revokeUser_ShouldPersistRevocationForOtherInstances() {
+        // Given
+        when(revokedUserRepository.insertIfAbsent(eq(1L), any())).thenReturn(1);
+
+        // When
+        registry.revokeUser(1L);
+
+        // Then
+        verify(revokedUserRepository).insertIfAbsent(eq(1L), any(LocalDateTime.class));
+        verify(revokedUserRepository, never()).raiseRevokedAt(any(), any());
+    }
+
+    @Test
+    void revokeUser_WhenAlreadyRevoked_ShouldOnlyRaiseStoredTime() {
+        // Given - Another instance revoked the user first
+        when(revokedUserRepository.insertIfAbsent(eq(1L), any())).thenReturn(0);
+
+        // When
+        registry.revokeUser(1L);
+
+        // Then
+        ArgumentCaptor<LocalDateTime> revokedAt = ArgumentCaptor.forClass(LocalDateTime.class);
+        verify(revokedUserRepository).insertIfAbsent(eq(1L), revokedAt.capture());
+        verify(revokedUserRepository).raiseRevokedAt(1L, revokedAt.getValue());
+    }
+
+    @Test
+    void revokeUser_InTransaction_ShouldTakeEffectOnlyAfterCommit() {
+        // Given
+        Date issuedAt = new Date(System.currentTimeMillis() - 60000);
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            // When
+            registry.revokeUser(1L);
+
+            // Then - A rollback would leave the user untouched
+            assertThat(registry.isRevoked(1L, issuedAt)).isFalse();
+            TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+            assertThat(registry.isRevoked(1L, issuedAt)).isTrue();
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Test
+    void revokeTokensIssuedBefore_ShouldKeepTokensFromTheCutoffSecond() {
+        // Given
+        LocalDateTime cutoff = LocalDateTime.now().withNano(500_000_000);
+        long cutoffSecond = epochMillis(cutoff.withNano(0));
+
+        // When
+        registry.revokeTokensIssuedBefore(1L, cutoff);
+
+        // Then - iat is truncated to seconds, so a token refreshed right after the cutoff has the cutoff second
+        assertThat(registry.isRevoked(1L, new Date(cutoffSecond - 1000))).isTrue();
+        assertThat(registry.isRevoked(1L, new Date(cutoffSecond))).isFalse();
+    }
+
+    @Test
+    void sync_ShouldApplyRevocationsFromOtherInstances() {
+        // Given
+        when(revokedUserRepository.findByRevokedAtGreaterThanEqual(any()))
+                .thenReturn(List.of(new RevokedUser(5L, LocalDateTime.now())));
+
+        // When
+        registry.sync();
+
+        // Then
+        assertThat(registry.isRevoked(5L, new Date(System.currentTimeMillis() - 60000))).isTrue();
+    }
+
+    @Test
+    void reload_ShouldDeleteExpiredRowsAndLoadTheRest() {
+        // Given
+        when(revokedUserRepository.findByRevokedAtGreaterThanEqual(any()))
+                .thenReturn(List.of(new RevokedUser(5L, LocalDateTime.now().minusMinutes(5))));
+
+        // When
+        registry.reload();
+
+        // Then
+        verify(revokedUserRepository).deleteRevokedBefore(any());
+        assertThat(registry.size()).isEqualTo(1);
+        verify(revokedUserRepository, never()).insertIfAbsent(any(), any());
+    }
+
+    private long epochMillis(LocalDateTime time) {
+        return time.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+
+    @SuppressWarnings("unchecked")
+    private void revokedAt(Long userId, long timestamp) {
+        Map<Long, Long> entries = (Map<Long, Long>) ReflectionTestUtils.getField(registry, "revokedAtByUserId");
+        entries.put(userId, timestamp);
+    }
+}
@@ -18,11 +18,16 @@ import org.springframework.security.core.context.SecurityContext;
 import org.springframework.security.core.context.SecurityContextHolder;
 
 import java.util.Collections;
+import java.util.Map;
 import java.util.Optional;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
 import static org.mockito.Mockito.when;
 
 @ExtendWith(MockitoExtension.class)
@@ -311,4 +316,109 @@ class SecurityUtilTest {
         // Then
         assertThat(result.getRole()).isEqualTo(Role.VERIFIED_USER);
     }
-}
\ No newline at end of file
+
+    // ========== Token principal ==========
+
+    @Test
+    void getCurrentPrincipal_WithTokenPrincipal_ShouldNotQueryDatabase() {
+        // Given
+        AuthenticatedUser principal = new AuthenticatedUser(1L, "john@example.com", Role.ADMIN);
+        Authentication authentication = new UsernamePasswordAuthenticationToken(
+                principal,
+                null,
+                Collections.singletonList(new SimpleGrantedAuthority("ROLE_ADMIN"))
+        );
+        when(securityContext.getAuthentication()).thenReturn(authentication);
+
+        // When
+        AuthenticatedUser result = securityUtil.getCurrentPrincipal();
+
+        // Then
+        assertThat(result).isEqualTo(principal);
+        assertThat(securityUtil.getCurrentUserId()).isEqualTo(1L);
+        assertThat(securityUtil.getCurrentUserEmail()).isEqualTo("john@example.com");
+        verifyNoInteractions(userRepository);
+    }
+
+    @Test
+    void getCurrentPrincipal_WithUserIdInDetails_ShouldBuildFromAuthorities() {
+        // Given
+        UsernamePasswordAuthenticationToken authentication = new UsernamePasswordAuthenticationToken(
+                "john@example.com",
+                null,
+                Collections.singletonList(new SimpleGrantedAuthority("ROLE_VERIFIED_USER"))
+        );
+        authentication.setDetails(Map.of("userId", 1L));
+        when(securityContext.getAuthentication()).thenReturn(authentication);
+
+        // When
+        AuthenticatedUser result = securityUtil.getCurrentPrincipal();
+
+        // Then
+        assertThat(result.id()).isEqualTo(1L);
+        assertThat(result.email()).isEqualTo("john@example.com");
+        assertThat(result.role()).isEqualTo(Role.VERIFIED_USER);
+        verifyNoInteractions(userRepository);
+    }
+
+    @Test
+    void getCurrentPrincipal_WithoutUserId_ShouldFallBackToLookup() {
+        // Given
+        Authentication authentication = new UsernamePasswordAuthenticationToken(
+                "john@example.com",
+                "password",
+                Collections.singletonList(new SimpleGrantedAuthority("ROLE_USER"))
+        );
+        when(securityContext.getAuthentication()).thenReturn(authentication);
+        when(userRepository.findByEmail("john@example.com")).thenReturn(Optional.of(testUser));
+
+        // When
+        AuthenticatedUser result = securityUtil.getCurrentPrincipal();
+
+        // Then
+        assertThat(result.id()).isEqualTo(1L);
+        assertThat(result.role()).isEqualTo(Role.USER);
+    }
+
+    @Test
+    void getCurrentUserReference_ShouldReturnReferenceWithoutLookup() {
+        // Given
+        AuthenticatedUser principal = new AuthenticatedUser(1L, "john@example.com", Role.ADMIN);
+        Authentication authentication = new UsernamePasswordAuthenticationToken(
+                principal,
+                null,
+                Collections.singletonList(new SimpleGrantedAuthority("ROLE_ADMIN"))
+        );
+        when(securityContext.getAuthentication()).thenReturn(authentication);
+        when(userRepository.getReferenceById(1L)).thenReturn(testUser);
+
+        // When
+        User result = securityUtil.getCurrentUserReference();
+
+        // Then
+        assertThat(result).isSameAs(testUser);
+        verify(userRepository, never()).findByEmail(anyString());
+    }
+
+    @Test
+    void isCurrentUserAdmin_ShouldCheckAuthorities() {
+        // Given
+        Authentication admin = new UsernamePasswordAuthenticationToken(
+                "admin@example.com",
+                null,
+                Collections.singletonList(new SimpleGrantedAuthority("ROLE_ADMIN"))
+        );
+        Authentication user = new UsernamePasswordAuthenticationToken(
+                "john@example.com",
+                null,
+                Collections.singletonList(new SimpleGrantedAuthority("ROLE_USER"))
+        );
+        when(securityContext.getAuthentication()).thenReturn(admin, user, null);
+
+        // When/Then
+        assertThat(securityUtil.isCurrentUserAdmin()).isTrue();
+        assertThat(securityUtil.isCurrentUserAdmin()).isFalse();
+        assertThat(securityUtil.isCurrentUserAdmin()).isFalse();
+        verifyNoInteractions(userRepository);
+    }
+}
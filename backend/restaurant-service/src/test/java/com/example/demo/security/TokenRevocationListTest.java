@@ -0,0 +1,101 @@
+package com.example.demo.security;
+
+import com.example.demo.repository.RevokedTokenRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.Date;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class TokenRevocationListTest {
+
+    @Mock
+    private RevokedTokenRepository revokedTokenRepository;
+
+    private TokenRevocationList revocationList;
+
+    @BeforeEach
+    void setUp() {
+        revocationList = new TokenRevocationList(revokedTokenRepository, 100, 0.01);
+    }
+
+    @Test
+    void isRevoked_WithUnknownToken_ShouldNotQueryStore() {
+        assertThat(revocationList.isRevoked("unknown")).isFalse();
+
+        verify(revokedTokenRepository, never()).existsById(anyString());
+    }
+
+    @Test
+    void isRevoked_WithNullTokenId_ShouldReturnFalse() {
+        assertThat(revocationList.isRevoked(null)).isFalse();
+    }
+
+    @Test
+    void revoke_ShouldStoreTokenAndConfirmOnLookup() {
+        // Given
+        when(revokedTokenRepository.existsById("token-1")).thenReturn(true);
+
+        // When
+        revocationList.revoke("token-1", 1L, new Date(System.currentTimeMillis() + 60000));
+
+        // Then
+        verify(revokedTokenRepository).insertIfAbsent(eq("token-1"), eq(1L), any(), any());
+        assertThat(revocationList.isRevoked("token-1")).isTrue();
+    }
+
+    @Test
+    void rebuild_ShouldKeepRevocationsMadeWhileReadingTheTable() {
+        // Given - A logout lands after the table was read but before the new filter is installed
+        when(revokedTokenRepository.findActiveTokenIds(any())).thenAnswer(inv -> {
+            revocationList.revoke("token-2", 1L, new Date(System.currentTimeMillis() + 60000));
+            return List.of("token-1");
+        });
+        when(revokedTokenRepository.existsById("token-2")).thenReturn(true);
+
+        // When
+        revocationList.rebuild();
+
+        // Then
+        assertThat(revocationList.isRevoked("token-2")).isTrue();
+    }
+
+    @Test
+    void rebuild_ShouldLoadActiveRevocationsAndPurgeExpired() {
+        // Given
+        when(revokedTokenRepository.deleteExpired(any())).thenReturn(3);
+        when(revokedTokenRepository.findActiveTokenIds(any())).thenReturn(List.of("token-1"));
+        when(revokedTokenRepository.existsById("token-1")).thenReturn(true);
+
+        // When
+        revocationList.rebuild();
+
+        // Then
+        assertThat(revocationList.isRevoked("token-1")).isTrue();
+    }
+
+    @Test
+    void sync_ShouldAddRevocationsFromOtherInstances() {
+        // Given
+        when(revokedTokenRepository.findTokenIdsRevokedSince(any(), any())).thenReturn(List.of("remote-token"));
+        when(revokedTokenRepository.existsById("remote-token")).thenReturn(true);
+
+        // When
+        revocationList.sync();
+
+        // Then
+        assertThat(revocationList.isRevoked("remote-token")).isTrue();
+    }
+}
@@ -0,0 +1,167 @@
+package com.example.demo.security;
+
+import com.example.demo.entity.Role;
+import com.example.demo.security.UserDetailsCache.CachedUser;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class UserDetailsCacheTest {
+
+    private MeterRegistry meterRegistry;
+    private AtomicInteger loads;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        loads = new AtomicInteger();
+    }
+
+    @Test
+    void get_ShouldNotExceedMaxSize() {
+        // Given
+        UserDetailsCache cache = new UserDetailsCache(meterRegistry, 2, Duration.ofMinutes(5));
+
+        // When
+        cache.get("a@example.com", this::load);
+        cache.get("b@example.com", this::load);
+        cache.get("c@example.com", this::load);
+
+        // Then
+        assertThat(cache.size()).isEqualTo(2);
+    }
+
+    @Test
+    void get_AfterTtl_ShouldReload() {
+        // Given
+        UserDetailsCache cache = new UserDetailsCache(meterRegistry, 10, Duration.ZERO);
+
+        // When
+        cache.get("a@example.com", this::load);
+        cache.get("a@example.com", this::load);
+
+        // Then
+        assertThat(loads.get()).isEqualTo(2);
+    }
+
+    @Test
+    void get_WithZeroMaxSize_ShouldNotCache() {
+        // Given
+        UserDetailsCache cache = new UserDetailsCache(meterRegistry, 0, Duration.ofMinutes(5));
+
+        // When
+        cache.get("a@example.com", this::load);
+        cache.get("a@example.com", this::load);
+
+        // Then
+        assertThat(loads.get()).isEqualTo(2);
+        assertThat(cache.size()).isZero();
+    }
+
+    @Test
+    void get_WhenEvictedDuringLoad_ShouldNotCacheLoadedValue() {
+        // Given
+        UserDetailsCache cache = new UserDetailsCache(meterRegistry, 10, Duration.ofMinutes(5));
+
+        // When - The account is updated while the old row is being read
+        cache.get("a@example.com", email -> {
+            cache.evict(email);
+            return load(email);
+        });
+
+        // Then
+        assertThat(cache.size()).isZero();
+    }
+
+    @Test
+    void refresh_WhenEvictedDuringLoad_ShouldNotCacheLoadedValue() {
+        // Given
+        UserDetailsCache cache = new UserDetailsCache(meterRegistry, 10, Duration.ofMinutes(5));
+
+        // When - A login reads the row while the password is being changed
+        cache.refresh("a@example.com", email -> {
+            cache.evict(email);
+            return load(email);
+        });
+
+        // Then
+        assertThat(cache.size()).isZero();
+    }
+
+    @Test
+    void refresh_ShouldReplaceCachedEntry() {
+        // Given
+        UserDetailsCache cache = new UserDetailsCache(meterRegistry, 10, Duration.ofMinutes(5));
+        cache.get("a@example.com", this::load);
+
+        // When
+        cache.refresh("a@example.com", this::load);
+        cache.get("a@example.com", this::load);
+
+        // Then
+        assertThat(loads.get()).isEqualTo(2);
+        assertThat(cache.size()).isEqualTo(1);
+    }
+
+    @Test
+    void get_WhenFull_ShouldEvictOldestEntry() {
+        // Given
+        UserDetailsCache cache = new UserDetailsCache(meterRegistry, 2, Duration.ofMinutes(5));
+        cache.get("a@example.com", this::load);
+        cache.get("b@example.com", this::load);
+        cache.refresh("a@example.com", this::load);
+
+        // When - "b" is now the oldest insertion; the replaced "a" is skipped
+        cache.get("c@example.com", this::load);
+
+        // Then
+        loads.set(0);
+        cache.get("a@example.com", this::load);
+        cache.get("c@example.com", this::load);
+        assertThat(loads.get()).isZero();
+        assertThat(cache.size()).isEqualTo(2);
+    }
+
+    @Test
+    void evict_ShouldRemoveAllGivenEmails() {
+        // Given
+        UserDetailsCache cache = new UserDetailsCache(meterRegistry, 10, Duration.ofMinutes(5));
+        cache.get("old@example.com", this::load);
+        cache.get("other@example.com", this::load);
+
+        // When
+        cache.evict("old@example.com", "new@example.com");
+
+        // Then
+        assertThat(cache.size()).isEqualTo(1);
+    }
+
+    @Test
+    void metrics_ShouldExposeHitsAndMisses() {
+        // Given
+        UserDetailsCache cache = new UserDetailsCache(meterRegistry, 10, Duration.ofMinutes(5));
+
+        // When
+        cache.get("a@example.com", this::load);
+        cache.get("a@example.com", this::load);
+        cache.get("a@example.com", this::load);
+
+        // Then
+        assertThat(meterRegistry.get("security.userdetails.cache.requests").tag("result", "hit")
+                .functionCounter().count()).isEqualTo(2.0);
+        assertThat(meterRegistry.get("security.userdetails.cache.requests").tag("result", "miss")
+                .functionCounter().count()).isEqualTo(1.0);
+        assertThat(meterRegistry.get("security.userdetails.cache.size").gauge().value()).isEqualTo(1.0);
+    }
+
+    private CachedUser load(String email) {
+        loads.incrementAndGet();
+        return new CachedUser(1L, email, "encoded", true, Role.USER, "John", "Doe");
+    }
+}
@@ -11,7 +11,9 @@ import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
+import tools.jackson.databind.json.JsonMapper;
 
 import java.util.*;
 
@@ -33,6 +35,9 @@ class AllergenServiceTest {
     @Mock
     private UserRepository userRepository;
 
+    @Spy
+    private JsonMapper jsonMapper = JsonMapper.builder().build();
+
     @InjectMocks
     private AllergenService allergenService;
 
@@ -118,7 +123,7 @@ class AllergenServiceTest {
     }
 
     @Test
-    void getAllAllergens_CalledMultipleTimes_ShouldReturnConsistentResults() {
+    void getAllAllergens_CalledMultipleTimes_ShouldLoadCatalogueOnce() {
         // Given
         List<Allergen> allergens = Arrays.asList(glutenAllergen, nutsAllergen);
         when(allergenRepository.findAll()).thenReturn(allergens);
@@ -132,7 +137,76 @@ class AllergenServiceTest {
         assertThat(results1).hasSize(2);
         assertThat(results2).hasSize(2);
         assertThat(results3).hasSize(2);
-        verify(allergenRepository, times(3)).findAll();
+        verify(allergenRepository, times(1)).findAll();
+    }
+
+    // ========== getAllergenCatalogue Tests ==========
+
+    @Test
+    void getAllergenCatalogue_ShouldContainSerializedJsonAndStrongETag() {
+        // Given
+        when(allergenRepository.findAll()).thenReturn(List.of(glutenAllergen));
+
+        // When
+        AllergenService.AllergenCatalogue catalogue = allergenService.getAllergenCatalogue();
+
+        // Then
+        assertThat(new String(catalogue.getJson())).isEqualTo("[{\"id\":1,\"name\":\"Gluten\"}]");
+        assertThat(catalogue.getEtag()).startsWith("\"").endsWith("\"").hasSize(66);
+    }
+
+    @Test
+    void getAllergenCatalogue_AfterInvalidation_ShouldReloadAndChangeETag() {
+        // Given
+        when(allergenRepository.findAll())
+                .thenReturn(List.of(glutenAllergen))
+                .thenReturn(List.of(glutenAllergen, nutsAllergen));
+
+        // When
+        AllergenService.AllergenCatalogue before = allergenService.getAllergenCatalogue();
+        AllergenService.AllergenCatalogue cached = allergenService.getAllergenCatalogue();
+        allergenService.invalidateAllergenCatalogue();
+        AllergenService.AllergenCatalogue after = allergenService.getAllergenCatalogue();
+
+        // Then
+        assertThat(cached).isSameAs(before);
+        assertThat(after.getAllergens()).hasSize(2);
+        assertThat(after.getEtag()).isNotEqualTo(before.getEtag());
+        verify(allergenRepository, times(2)).findAll();
+    }
+
+    @Test
+    void getAllergenCatalogue_WhenInvalidatedWhileLoading_ShouldNotCacheStaleSnapshot() {
+        // Given - An allergen change commits while the first load is reading
+        when(allergenRepository.findAll())
+                .thenAnswer(invocation -> {
+                    allergenService.invalidateAllergenCatalogue();
+                    return List.of(glutenAllergen);
+                })
+                .thenReturn(List.of(glutenAllergen, nutsAllergen));
+
+        // When
+        AllergenService.AllergenCatalogue stale = allergenService.getAllergenCatalogue();
+        AllergenService.AllergenCatalogue reloaded = allergenService.getAllergenCatalogue();
+
+        // Then
+        assertThat(stale.getAllergens()).hasSize(1);
+        assertThat(reloaded.getAllergens()).hasSize(2);
+        verify(allergenRepository, times(2)).findAll();
+    }
+
+    @Test
+    void getAllergenCatalogue_WithSameContent_ShouldKeepSameETag() {
+        // Given
+        when(allergenRepository.findAll()).thenReturn(List.of(glutenAllergen, nutsAllergen));
+
+        // When
+        String firstEtag = allergenService.getAllergenCatalogue().getEtag();
+        allergenService.invalidateAllergenCatalogue();
+        String secondEtag = allergenService.getAllergenCatalogue().getEtag();
+
+        // Then
+        assertThat(secondEtag).isEqualTo(firstEtag);
     }
 
     // ========== getAllergenById Tests ==========
@@ -307,7 +381,7 @@ class AllergenServiceTest {
     void updateUserAllergens_AddingSingleAllergen_ShouldSucceed() {
         // Given
         when(userRepository.findByIdWithAllergens(1L)).thenReturn(Optional.of(testUser));
-        when(allergenRepository.findByName("Gluten")).thenReturn(Optional.of(glutenAllergen));
+        stubAllergenLookup(glutenAllergen);
         when(userRepository.save(any(User.class))).thenAnswer(inv -> inv.getArgument(0));
 
         // When
@@ -323,10 +397,7 @@ class AllergenServiceTest {
     void updateUserAllergens_AddingMultipleAllergens_ShouldSucceed() {
         // Given
         when(userRepository.findByIdWithAllergens(1L)).thenReturn(Optional.of(testUser));
-        when(allergenRepository.findByName("Gluten")).thenReturn(Optional.of(glutenAllergen));
-        when(allergenRepository.findByName("Nuts")).thenReturn(Optional.of(nutsAllergen));
-        when(allergenRepository.findByName("Dairy")).thenReturn(Optional.of(dairyAllergen));
-        when(allergenRepository.findByName("Shellfish")).thenReturn(Optional.of(shellfishAllergen));
+        stubAllergenLookup(glutenAllergen, nutsAllergen, dairyAllergen, shellfishAllergen);
         when(userRepository.save(any(User.class))).thenAnswer(inv -> inv.getArgument(0));
 
         List<String> allergenNames = Arrays.asList("Gluten", "Nuts", "Dairy", "Shellfish");
@@ -345,8 +416,7 @@ class AllergenServiceTest {
         testUser.getAllergens().add(glutenAllergen);
         testUser.getAllergens().add(nutsAllergen);
         when(userRepository.findByIdWithAllergens(1L)).thenReturn(Optional.of(testUser));
-        when(allergenRepository.findByName("Dairy")).thenReturn(Optional.of(dairyAllergen));
-        when(allergenRepository.findByName("Soy")).thenReturn(Optional.of(soyAllergen));
+        stubAllergenLookup(dairyAllergen, soyAllergen);
         when(userRepository.save(any(User.class))).thenAnswer(inv -> inv.getArgument(0));
 
         // When
@@ -369,7 +439,7 @@ class AllergenServiceTest {
     void updateUserAllergens_WithDuplicateAllergenNames_ShouldOnlyAddOnce() {
         // Given
         when(userRepository.findByIdWithAllergens(1L)).thenReturn(Optional.of(testUser));
-        when(allergenRepository.findByName("Gluten")).thenReturn(Optional.of(glutenAllergen));
+        stubAllergenLookup(glutenAllergen);
         when(userRepository.save(any(User.class))).thenAnswer(inv -> inv.getArgument(0));
 
         List<String> duplicateNames = Arrays.asList("Gluten", "Gluten", "Gluten");
@@ -386,8 +456,7 @@ class AllergenServiceTest {
     void updateUserAllergens_WithMixOfValidAndInvalid_ShouldFailOnFirstInvalid() {
         // Given
         when(userRepository.findByIdWithAllergens(1L)).thenReturn(Optional.of(testUser));
-        when(allergenRepository.findByName("Gluten")).thenReturn(Optional.of(glutenAllergen));
-        when(allergenRepository.findByName("InvalidAllergen")).thenReturn(Optional.empty());
+        stubAllergenLookup(glutenAllergen);
 
         List<String> mixedNames = Arrays.asList("Gluten", "InvalidAllergen", "Nuts");
 
@@ -434,8 +503,7 @@ class AllergenServiceTest {
     void updateUserAllergens_AddingAllergensTwice_ShouldReplaceNotAppend() {
         // Given
         when(userRepository.findByIdWithAllergens(1L)).thenReturn(Optional.of(testUser));
-        when(allergenRepository.findByName("Gluten")).thenReturn(Optional.of(glutenAllergen));
-        when(allergenRepository.findByName("Nuts")).thenReturn(Optional.of(nutsAllergen));
+        stubAllergenLookup(glutenAllergen, nutsAllergen);
         when(userRepository.save(any(User.class))).thenAnswer(inv -> inv.getArgument(0));
 
         // When - First update
@@ -466,8 +534,8 @@ class AllergenServiceTest {
                     .build();
             manyAllergens.add(allergen);
             manyNames.add("Allergen" + i);
-            when(allergenRepository.findByName("Allergen" + i)).thenReturn(Optional.of(allergen));
         }
+        stubAllergenLookup(manyAllergens.toArray(new Allergen[0]));
 
         when(userRepository.findByIdWithAllergens(1L)).thenReturn(Optional.of(testUser));
         when(userRepository.save(any(User.class))).thenAnswer(inv -> inv.getArgument(0));
@@ -477,14 +545,15 @@ class AllergenServiceTest {
 
         // Then
         assertThat(results).hasSize(20);
-        verify(allergenRepository, times(20)).findByName(anyString());
+        verify(allergenRepository, times(1)).findByNameIn(anyCollection());
+        verify(allergenRepository, never()).findByName(anyString());
     }
 
     @Test
     void updateUserAllergens_ConcurrentModification_ShouldHandleGracefully() {
         // Given
         when(userRepository.findByIdWithAllergens(1L)).thenReturn(Optional.of(testUser));
-        when(allergenRepository.findByName("Gluten")).thenReturn(Optional.of(glutenAllergen));
+        stubAllergenLookup(glutenAllergen);
 
         // Simulate concurrent modification during save
         when(userRepository.save(any(User.class))).thenAnswer(inv -> {
@@ -505,7 +574,7 @@ class AllergenServiceTest {
     void updateUserAllergens_WithSpecialCharactersInName_ShouldNotFind() {
         // Given
         when(userRepository.findByIdWithAllergens(1L)).thenReturn(Optional.of(testUser));
-        when(allergenRepository.findByName("Gluten@#$")).thenReturn(Optional.empty());
+        stubAllergenLookup();
 
         // When/Then
         assertThatThrownBy(() -> allergenService.updateUserAllergens(1L, List.of("Gluten@#$")))
@@ -519,7 +588,7 @@ class AllergenServiceTest {
         String originalFirstName = "John";
 
         when(userRepository.findByIdWithAllergens(1L)).thenReturn(Optional.of(testUser));
-        when(allergenRepository.findByName("Gluten")).thenReturn(Optional.of(glutenAllergen));
+        stubAllergenLookup(glutenAllergen);
         when(userRepository.save(any(User.class))).thenAnswer(inv -> inv.getArgument(0));
 
         // When
@@ -531,4 +600,80 @@ class AllergenServiceTest {
                 user.getFirstName().equals(originalFirstName)
         ));
     }
-}
\ No newline at end of file
+
+    @Test
+    void updateUserAllergens_WithOverlappingSelection_ShouldOnlyApplyDifference() {
+        // Given - Track writes to the user's allergen set
+        List<Allergen> added = new ArrayList<>();
+        Set<Allergen> trackedAllergens = new HashSet<>() {
+            @Override
+            public boolean add(Allergen allergen) {
+                added.add(allergen);
+                return super.add(allergen);
+            }
+
+            @Override
+            public void clear() {
+                throw new AssertionError("Allergen set must not be cleared");
+            }
+        };
+        trackedAllergens.addAll(List.of(glutenAllergen, nutsAllergen));
+        added.clear();
+        testUser.setAllergens(trackedAllergens);
+
+        when(userRepository.findByIdWithAllergens(1L)).thenReturn(Optional.of(testUser));
+        stubAllergenLookup(glutenAllergen, dairyAllergen);
+        when(userRepository.save(any(User.class))).thenAnswer(inv -> inv.getArgument(0));
+
+        // When
+        List<AllergenResponseDTO> results = allergenService.updateUserAllergens(
+                1L, Arrays.asList("Gluten", "Dairy"));
+
+        // Then
+        assertThat(results).extracting(AllergenResponseDTO::getName)
+                .containsExactlyInAnyOrder("Gluten", "Dairy");
+        assertThat(added).containsExactly(dairyAllergen);
+        assertThat(trackedAllergens).contains(glutenAllergen).doesNotContain(nutsAllergen);
+    }
+
+    @Test
+    void updateUserAllergens_ShouldResolveAllNamesInSingleQuery() {
+        // Given
+        when(userRepository.findByIdWithAllergens(1L)).thenReturn(Optional.of(testUser));
+        stubAllergenLookup(glutenAllergen, nutsAllergen, dairyAllergen);
+        when(userRepository.save(any(User.class))).thenAnswer(inv -> inv.getArgument(0));
+
+        // When
+        allergenService.updateUserAllergens(1L, Arrays.asList("Gluten", "Nuts", "Dairy"));
+
+        // Then
+        verify(allergenRepository).findByNameIn(argThat(names ->
+                names.size() == 3 && names.containsAll(List.of("Gluten", "Nuts", "Dairy"))));
+        verify(allergenRepository, never()).findByName(anyString());
+    }
+
+    @Test
+    void updateUserAllergens_WithEmptyList_ShouldNotQueryAllergens() {
+        // Given
+        when(userRepository.findByIdWithAllergens(1L)).thenReturn(Optional.of(testUser));
+        when(userRepository.save(any(User.class))).thenAnswer(inv -> inv.getArgument(0));
+
+        // When
+        allergenService.updateUserAllergens(1L, Collections.emptyList());
+
+        // Then
+        verifyNoInteractions(allergenRepository);
+    }
+
+    /**
+     * Answers findByNameIn with the given allergens whose names were requested
+     */
+    private void stubAllergenLookup(Allergen... known) {
+        when(allergenRepository.findByNameIn(anyCollection())).thenAnswer(inv -> {
+            Collection<String> names = inv.getArgument(0);
+            return Arrays.stream(known)
+                    .filter(allergen -> names.contains(allergen.getName()))
+                    .toList();
+        });
+    }
+}
@@ -0,0 +1,71 @@
+package com.example.demo.service;
+
+import com.example.demo.exception.InvalidFileException;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class ContentHashTest {
+
+    // SHA-256 of "hello world"
+    private static final String HELLO_WORLD = "b94d27b9934d3e08a52e52d7da7dabfac484efe37a5380ee9088f7ace2efcde9";
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void of_ShouldReturnHexSha256() {
+        assertThat(ContentHash.of("hello world")).isEqualTo(HELLO_WORLD);
+        assertThat(ContentHash.of("hello world".getBytes(StandardCharsets.UTF_8))).isEqualTo(HELLO_WORLD);
+    }
+
+    @Test
+    void of_WithBufferedHeader_ShouldHashHeaderAndRestOfStream() throws Exception {
+        // Given - The first bytes were already read into the buffer, e.g. to detect the format
+        InputStream in = new ByteArrayInputStream("hello world".getBytes(StandardCharsets.UTF_8));
+        byte[] buffer = new byte[4];
+        int read = in.readNBytes(buffer, 0, 4);
+
+        // When/Then
+        assertThat(ContentHash.of(buffer, read, in)).isEqualTo(HELLO_WORLD);
+    }
+
+    @Test
+    void copy_ShouldWriteAndHashInOnePass() throws Exception {
+        // Given
+        InputStream in = new ByteArrayInputStream("hello world".getBytes(StandardCharsets.UTF_8));
+        byte[] buffer = new byte[4];
+        int read = in.readNBytes(buffer, 0, 4);
+        Path target = Files.createFile(tempDir.resolve("upload.tmp"));
+
+        // When
+        ContentHash.Copied copied = ContentHash.copy(buffer, read, in, target, 1024);
+
+        // Then
+        assertThat(copied.hash()).isEqualTo(HELLO_WORLD);
+        assertThat(copied.size()).isEqualTo(11);
+        assertThat(Files.readString(target)).isEqualTo("hello world");
+    }
+
+    @Test
+    void copy_BeyondMaxSize_ShouldThrow() throws Exception {
+        // Given
+        InputStream in = new ByteArrayInputStream(new byte[3 * 1024 * 1024]);
+        byte[] buffer = new byte[64 * 1024];
+        int read = in.readNBytes(buffer, 0, 12);
+        Path target = Files.createFile(tempDir.resolve("upload.tmp"));
+
+        // When/Then
+        assertThatThrownBy(() -> ContentHash.copy(buffer, read, in, target, 2 * 1024 * 1024))
+                .isInstanceOf(InvalidFileException.class)
+                .hasMessage("File size exceeds maximum allowed size (2MB)");
+    }
+}
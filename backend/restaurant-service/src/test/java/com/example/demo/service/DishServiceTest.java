@@ -2,19 +2,25 @@ package com.example.demo.service;
 
 import com.example.demo.dto.dish.DishCreateRequestDTO;
 import com.example.demo.dto.dish.DishResponseDTO;
+import com.example.demo.dto.dish.DishSearchRequestDTO;
+import com.example.demo.dto.dish.DishSearchResultDTO;
 import com.example.demo.entity.*;
 import com.example.demo.exception.ResourceNotFoundException;
 import com.example.demo.exception.UnauthorizedException;
+import com.example.demo.exception.ValidationException;
 import com.example.demo.repository.ComponentRepository;
 import com.example.demo.repository.DishRepository;
 import com.example.demo.repository.RestaurantRepository;
-import com.example.demo.repository.UserRepository;
+import com.example.demo.security.SecurityUtil;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.Pageable;
 
 import java.util.ArrayList;
 import java.util.HashSet;
@@ -39,7 +45,13 @@ class DishServiceTest {
     private ComponentRepository componentRepository;
 
     @Mock
-    private UserRepository userRepository;
+    private SecurityUtil securityUtil;
+
+    @Mock
+    private GeocodingService geocodingService;
+
+    @Mock
+    private StoredImageService storedImageService;
 
     @InjectMocks
     private DishService dishService;
@@ -231,10 +243,9 @@ class DishServiceTest {
     @Test
     void updateDish_ByOwner_ShouldSucceed() {
         // Given
-        when(dishRepository.findById(1L)).thenReturn(Optional.of(testDish));
+        when(dishRepository.findByIdIfOwnedOrAdmin(1L, 1L, false)).thenReturn(Optional.of(testDish));
         when(componentRepository.findById(1L)).thenReturn(Optional.of(testComponent));
         when(dishRepository.save(any(Dish.class))).thenAnswer(invocation -> invocation.getArgument(0));
-        when(userRepository.findById(1L)).thenReturn(Optional.of(owner));
 
         DishCreateRequestDTO updateRequest = new DishCreateRequestDTO();
         updateRequest.setName("Updated Chicken");
@@ -265,10 +276,9 @@ class DishServiceTest {
     @Test
     void updateDish_ByNonOwner_ShouldThrowException() {
         // Given
-        when(dishRepository.findById(1L)).thenReturn(Optional.of(testDish));
-
-        User nonOwner = User.builder().id(999L).role(Role.USER).build();
-        when(userRepository.findById(999L)).thenReturn(Optional.of(nonOwner));
+        when(securityUtil.isCurrentUserAdmin()).thenReturn(false);
+        when(dishRepository.findByIdIfOwnedOrAdmin(1L, 999L, false)).thenReturn(Optional.empty());
+        when(dishRepository.existsById(1L)).thenReturn(true);
 
         // When/Then
         assertThatThrownBy(() -> dishService.updateDish(1L, createRequest, 999L))
@@ -278,33 +288,84 @@ class DishServiceTest {
         verify(dishRepository, never()).save(any());
     }
 
+    @Test
+    void updateDish_WithNonExistentDish_ShouldThrowNotFound() {
+        // Given
+        when(dishRepository.findByIdIfOwnedOrAdmin(99L, 1L, false)).thenReturn(Optional.empty());
+        when(dishRepository.existsById(99L)).thenReturn(false);
+
+        // When/Then
+        assertThatThrownBy(() -> dishService.updateDish(99L, createRequest, 1L))
+                .isInstanceOf(ResourceNotFoundException.class)
+                .hasMessageContaining("Dish not found with ID: 99");
+    }
+
     @Test
     void deleteDish_ByOwner_ShouldSucceed() {
         // Given
-        when(dishRepository.findById(1L)).thenReturn(Optional.of(testDish));
-        when(userRepository.findById(1L)).thenReturn(Optional.of(owner));
+        when(dishRepository.deleteByIdIfOwnedOrAdmin(1L, 1L, false)).thenReturn(1);
 
         // When
         dishService.deleteDish(1L, 1L);
 
         // Then
-        verify(dishRepository).deleteById(1L);
+        verify(dishRepository).deleteComponentsByDishIdIfOwnedOrAdmin(1L, 1L, false);
+        verify(dishRepository, never()).findById(any());
+        verify(dishRepository, never()).existsById(any());
     }
 
     @Test
-    void deleteDish_ByNonOwner_ShouldThrowException() {
+    void deleteDish_ShouldRecountDishImageAfterDelete() {
         // Given
-        when(dishRepository.findById(1L)).thenReturn(Optional.of(testDish));
+        String imageUrl = "http://localhost:8080/uploads/dishes/abc.jpg";
+        when(dishRepository.findImgUrlById(1L)).thenReturn(List.of(imageUrl));
+        when(dishRepository.deleteByIdIfOwnedOrAdmin(1L, 1L, false)).thenReturn(1);
+
+        // When
+        dishService.deleteDish(1L, 1L);
+
+        // Then
+        InOrder inOrder = inOrder(dishRepository, storedImageService);
+        inOrder.verify(dishRepository).deleteByIdIfOwnedOrAdmin(1L, 1L, false);
+        inOrder.verify(storedImageService).updateReferences(List.of(imageUrl));
+    }
 
-        User nonOwner = User.builder().id(999L).role(Role.USER).build();
-        when(userRepository.findById(999L)).thenReturn(Optional.of(nonOwner));
+    @Test
+    void deleteDish_ByNonOwner_ShouldThrowException() {
+        // Given
+        when(securityUtil.isCurrentUserAdmin()).thenReturn(false);
+        when(dishRepository.deleteByIdIfOwnedOrAdmin(1L, 999L, false)).thenReturn(0);
+        when(dishRepository.existsById(1L)).thenReturn(true);
 
         // When/Then
         assertThatThrownBy(() -> dishService.deleteDish(1L, 999L))
                 .isInstanceOf(UnauthorizedException.class)
                 .hasMessageContaining("You can only delete dishes from your own restaurants");
+    }
+
+    @Test
+    void deleteDish_WithNonExistentDish_ShouldThrowNotFound() {
+        // Given
+        when(dishRepository.deleteByIdIfOwnedOrAdmin(99L, 1L, false)).thenReturn(0);
+        when(dishRepository.existsById(99L)).thenReturn(false);
+
+        // When/Then
+        assertThatThrownBy(() -> dishService.deleteDish(99L, 1L))
+                .isInstanceOf(ResourceNotFoundException.class)
+                .hasMessageContaining("Dish not found with ID: 99");
+    }
+
+    @Test
+    void deleteDish_ByAdmin_ShouldSucceedWithoutLoadingUser() {
+        // Given
+        when(securityUtil.isCurrentUserAdmin()).thenReturn(true);
+        when(dishRepository.deleteByIdIfOwnedOrAdmin(1L, 999L, true)).thenReturn(1);
+
+        // When
+        dishService.deleteDish(1L, 999L);
 
-        verify(dishRepository, never()).deleteById(any());
+        // Then
+        verify(dishRepository).deleteComponentsByDishIdIfOwnedOrAdmin(1L, 999L, true);
     }
 
     @Test
@@ -385,4 +446,132 @@ class DishServiceTest {
         assertThat(result.getBaseCarbsG()).isEqualTo(56.0);
         assertThat(result.getBaseKcal()).isEqualTo(425.0);
     }
-}
\ No newline at end of file
+
+    // ========== searchDishes Tests ==========
+
+    @Test
+    void searchDishes_WithMacroRanges_ShouldReturnMatchingDishes() {
+        // Given
+        DishSearchRequestDTO request = new DishSearchRequestDTO();
+        request.setMaxKcal(600.0);
+        request.setMinProteinG(30.0);
+
+        when(dishRepository.searchByNutrition(eq(RestaurantStatus.APPROVED),
+                isNull(), eq(600.0), eq(30.0), isNull(), isNull(), isNull(), isNull(), isNull(),
+                isNull(), isNull(), isNull(), isNull(), eq(List.of()), any(Pageable.class)))
+                .thenReturn(List.of(testDish));
+
+        // When
+        List<DishSearchResultDTO> results = dishService.searchDishes(request);
+
+        // Then
+        assertThat(results).hasSize(1);
+        assertThat(results.get(0).getName()).isEqualTo("Grilled Chicken");
+        assertThat(results.get(0).getBaseProteinG()).isEqualTo(31.0);
+        assertThat(results.get(0).getRestaurantName()).isEqualTo("Test Restaurant");
+        assertThat(results.get(0).getDistanceKm()).isNull();
+        verifyNoInteractions(geocodingService);
+    }
+
+    @Test
+    void searchDishes_WithLocation_ShouldDropDishesOutsideRadius() {
+        // Given
+        restaurant.setLatitude(50.06);
+        restaurant.setLongitude(19.94);
+
+        Restaurant farRestaurant = Restaurant.builder()
+                .id(2L)
+                .name("Far Restaurant")
+                .latitude(50.15)
+                .longitude(20.05)
+                .owner(owner)
+                .build();
+
+        Dish farDish = Dish.builder()
+                .id(2L)
+                .name("Protein Bowl")
+                .price(19.99)
+                .restaurant(farRestaurant)
+                .dishComponents(new ArrayList<>())
+                .baseProteinG(40.0)
+                .baseKcal(550.0)
+                .build();
+
+        DishSearchRequestDTO request = new DishSearchRequestDTO();
+        request.setLatitude(50.06);
+        request.setLongitude(19.94);
+        request.setRadiusKm(5.0);
+        request.setExcludeAllergens(List.of("Gluten"));
+
+        when(dishRepository.searchByNutrition(eq(RestaurantStatus.APPROVED),
+                isNull(), isNull(), isNull(), isNull(), isNull(), isNull(), isNull(), isNull(),
+                notNull(), notNull(), notNull(), notNull(), eq(List.of("Gluten")), any(Pageable.class)))
+                .thenReturn(List.of(testDish, farDish));
+        when(geocodingService.calculateDistance(any(), any())).thenReturn(0.5, 12.3);
+
+        // When
+        List<DishSearchResultDTO> results = dishService.searchDishes(request);
+
+        // Then
+        assertThat(results).hasSize(1);
+        assertThat(results.get(0).getId()).isEqualTo(1L);
+        assertThat(results.get(0).getDistanceKm()).isEqualTo(0.5);
+    }
+
+    @Test
+    void searchDishes_WithLocation_ShouldKeepPagingUntilLimitIsFilled() {
+        // Given - The first page is mostly in the box corners, outside the radius
+        restaurant.setLatitude(50.06);
+        restaurant.setLongitude(19.94);
+
+        DishSearchRequestDTO request = new DishSearchRequestDTO();
+        request.setLatitude(50.06);
+        request.setLongitude(19.94);
+        request.setRadiusKm(5.0);
+        request.setLimit(2);
+
+        when(dishRepository.searchByNutrition(eq(RestaurantStatus.APPROVED),
+                isNull(), isNull(), isNull(), isNull(), isNull(), isNull(), isNull(), isNull(),
+                notNull(), notNull(), notNull(), notNull(), eq(List.of()), any(Pageable.class)))
+                .thenReturn(List.of(testDish, testDish, testDish, testDish), List.of(testDish, testDish));
+        when(geocodingService.calculateDistance(any(), any())).thenReturn(6.0, 7.0, 8.0, 1.0, 2.0);
+
+        // When
+        List<DishSearchResultDTO> results = dishService.searchDishes(request);
+
+        // Then
+        assertThat(results).extracting(DishSearchResultDTO::getDistanceKm).containsExactly(1.0, 2.0);
+        ArgumentCaptor<Pageable> pages = ArgumentCaptor.forClass(Pageable.class);
+        verify(dishRepository, times(2)).searchByNutrition(any(), any(), any(), any(), any(), any(), any(),
+                any(), any(), any(), any(), any(), any(), any(), pages.capture());
+        assertThat(pages.getAllValues()).extracting(Pageable::getPageNumber).containsExactly(0, 1);
+        assertThat(pages.getAllValues()).extracting(Pageable::getPageSize).containsOnly(4);
+    }
+
+    @Test
+    void searchDishes_WithInvertedRange_ShouldThrowValidationException() {
+        // Given
+        DishSearchRequestDTO request = new DishSearchRequestDTO();
+        request.setMinKcal(800.0);
+        request.setMaxKcal(600.0);
+
+        // When/Then
+        assertThatThrownBy(() -> dishService.searchDishes(request))
+                .isInstanceOf(ValidationException.class)
+                .hasMessageContaining("kcal");
+
+        verifyNoInteractions(dishRepository);
+    }
+
+    @Test
+    void searchDishes_WithLatitudeOnly_ShouldThrowValidationException() {
+        // Given
+        DishSearchRequestDTO request = new DishSearchRequestDTO();
+        request.setLatitude(50.06);
+
+        // When/Then
+        assertThatThrownBy(() -> dishService.searchDishes(request))
+                .isInstanceOf(ValidationException.class)
+                .hasMessageContaining("Latitude and longitude");
+    }
+}
@@ -0,0 +1,156 @@
+package com.example.demo.service;
+
+import com.example.demo.entity.EmailOutboxMessage;
+import com.example.demo.entity.EmailType;
+import com.example.demo.service.SmtpBatchSender.SendResult;
+import jakarta.mail.Message;
+import jakarta.mail.MessagingException;
+import jakarta.mail.Session;
+import jakarta.mail.internet.MimeMessage;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Locale;
+import java.util.Properties;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class EmailOutboxDispatcherTest {
+
+    private static final Locale POLISH = Locale.forLanguageTag("pl");
+
+    @Mock
+    private EmailOutboxService emailOutboxService;
+
+    @Mock
+    private EmailService emailService;
+
+    @Mock
+    private SmtpBatchSender smtpBatchSender;
+
+    private EmailOutboxDispatcher dispatcher;
+
+    @BeforeEach
+    void setUp() {
+        dispatcher = new EmailOutboxDispatcher(
+                emailOutboxService, emailService, smtpBatchSender, true, 2, 5, Duration.ofDays(7));
+    }
+
+    @Test
+    void dispatch_ShouldSendClaimedMessagesAndRecordResultsPerMessage() throws Exception {
+        // Given
+        MimeMessage ok = mail("john@example.com");
+        MimeMessage failing = mail("bad@example.com");
+        when(emailOutboxService.claimDueBatch(2)).thenReturn(List.of(
+                message(1L, "john@example.com"), message(2L, "bad@example.com")), List.of());
+        when(emailService.compose(EmailType.VERIFICATION, POLISH, "john@example.com", "John", "token")).thenReturn(ok);
+        when(emailService.compose(EmailType.VERIFICATION, POLISH, "bad@example.com", "John", "token")).thenReturn(failing);
+        when(smtpBatchSender.sendAll(List.of(ok, failing))).thenReturn(List.of(
+                new SendResult(ok, null), new SendResult(failing, "550 Mailbox unavailable")));
+
+        // When
+        dispatcher.dispatch();
+
+        // Then
+        verify(emailOutboxService).markSent(List.of(1L));
+        verify(emailOutboxService).markFailed(2L, "550 Mailbox unavailable");
+        verify(emailOutboxService, times(2)).claimDueBatch(2);
+    }
+
+    @Test
+    void dispatch_WithPartialBatch_ShouldStopClaiming() throws Exception {
+        // Given
+        MimeMessage mail = mail("john@example.com");
+        when(emailOutboxService.claimDueBatch(2)).thenReturn(List.of(message(1L, "john@example.com")));
+        when(emailService.compose(EmailType.VERIFICATION, POLISH, "john@example.com", "John", "token")).thenReturn(mail);
+        when(smtpBatchSender.sendAll(List.of(mail))).thenReturn(List.of(new SendResult(mail, null)));
+
+        // When
+        dispatcher.dispatch();
+
+        // Then
+        verify(emailOutboxService, times(1)).claimDueBatch(2);
+        verify(emailOutboxService).markSent(List.of(1L));
+    }
+
+    @Test
+    void dispatch_WhenMessageCannotBeComposed_ShouldFailItAndSendTheRest() throws Exception {
+        // Given
+        MimeMessage ok = mail("john@example.com");
+        when(emailOutboxService.claimDueBatch(2)).thenReturn(List.of(
+                message(1L, "not an address"), message(2L, "john@example.com")), List.of());
+        when(emailService.compose(EmailType.VERIFICATION, POLISH, "not an address", "John", "token"))
+                .thenThrow(new MessagingException("Illegal address"));
+        when(emailService.compose(EmailType.VERIFICATION, POLISH, "john@example.com", "John", "token")).thenReturn(ok);
+        when(smtpBatchSender.sendAll(List.of(ok))).thenReturn(List.of(new SendResult(ok, null)));
+
+        // When
+        dispatcher.dispatch();
+
+        // Then
+        verify(emailOutboxService).markFailed(1L, "Invalid message: Illegal address");
+        verify(emailOutboxService).markSent(List.of(2L));
+    }
+
+    @Test
+    void dispatch_WhenComposingThrowsRuntimeException_ShouldFailOnlyThatMessage() throws Exception {
+        // Given
+        MimeMessage ok = mail("john@example.com");
+        when(emailOutboxService.claimDueBatch(2)).thenReturn(List.of(
+                message(1L, "broken@example.com"), message(2L, "john@example.com")), List.of());
+        when(emailService.compose(EmailType.VERIFICATION, POLISH, "broken@example.com", "John", "token"))
+                .thenThrow(new IllegalArgumentException("Missing template"));
+        when(emailService.compose(EmailType.VERIFICATION, POLISH, "john@example.com", "John", "token")).thenReturn(ok);
+        when(smtpBatchSender.sendAll(List.of(ok))).thenReturn(List.of(new SendResult(ok, null)));
+
+        // When
+        dispatcher.dispatch();
+
+        // Then
+        verify(emailOutboxService).markFailed(1L, "Invalid message: Missing template");
+        verify(emailOutboxService).markSent(List.of(2L));
+    }
+
+    @Test
+    void dispatch_WhenDisabled_ShouldDoNothing() {
+        dispatcher = new EmailOutboxDispatcher(
+                emailOutboxService, emailService, smtpBatchSender, false, 2, 5, Duration.ofDays(7));
+
+        dispatcher.dispatch();
+
+        verify(emailOutboxService, never()).claimDueBatch(anyInt());
+        verify(smtpBatchSender, never()).sendAll(any());
+    }
+
+    private MimeMessage mail(String to) throws MessagingException {
+        MimeMessage mail = new MimeMessage(Session.getInstance(new Properties()));
+        mail.setRecipients(Message.RecipientType.TO, to);
+        return mail;
+    }
+
+    private EmailOutboxMessage message(Long id, String recipient) {
+        return EmailOutboxMessage.builder()
+                .id(id)
+                .type(EmailType.VERIFICATION)
+                .recipient(recipient)
+                .firstName("John")
+                .token("token")
+                .locale("pl")
+                .attempts(0)
+                .nextAttemptAt(LocalDateTime.now())
+                .createdAt(LocalDateTime.now())
+                .build();
+    }
+}
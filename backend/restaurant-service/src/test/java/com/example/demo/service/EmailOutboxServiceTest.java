@@ -0,0 +1,126 @@
+package com.example.demo.service;
+
+import com.example.demo.entity.EmailOutboxMessage;
+import com.example.demo.entity.EmailOutboxStatus;
+import com.example.demo.entity.EmailType;
+import com.example.demo.repository.EmailOutboxRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.i18n.LocaleContextHolder;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Locale;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class EmailOutboxServiceTest {
+
+    @Mock
+    private EmailOutboxRepository emailOutboxRepository;
+
+    private EmailOutboxService emailOutboxService;
+
+    @BeforeEach
+    void setUp() {
+        emailOutboxService = new EmailOutboxService(emailOutboxRepository, 3,
+                Duration.ofSeconds(30), Duration.ofMinutes(5), Duration.ofMinutes(5));
+    }
+
+    @Test
+    void enqueueVerificationEmail_ShouldSavePendingMessageDueNow() {
+        // Given
+        LocaleContextHolder.setLocale(Locale.forLanguageTag("pl-PL"));
+
+        // When
+        try {
+            emailOutboxService.enqueueVerificationEmail("john@example.com", "John", "token-123");
+        } finally {
+            LocaleContextHolder.resetLocaleContext();
+        }
+
+        // Then
+        ArgumentCaptor<EmailOutboxMessage> captor = ArgumentCaptor.forClass(EmailOutboxMessage.class);
+        verify(emailOutboxRepository).save(captor.capture());
+        EmailOutboxMessage message = captor.getValue();
+        assertThat(message.getType()).isEqualTo(EmailType.VERIFICATION);
+        assertThat(message.getRecipient()).isEqualTo("john@example.com");
+        assertThat(message.getToken()).isEqualTo("token-123");
+        assertThat(message.getLocale()).isEqualTo("pl-PL");
+        assertThat(message.getStatus()).isEqualTo(EmailOutboxStatus.PENDING);
+        assertThat(message.getNextAttemptAt()).isBeforeOrEqualTo(LocalDateTime.now());
+    }
+
+    @Test
+    void claimDueBatch_WithNothingDue_ShouldNotClaim() {
+        when(emailOutboxRepository.findDueIds(eq(EmailOutboxStatus.PENDING), any(), any())).thenReturn(List.of());
+
+        assertThat(emailOutboxService.claimDueBatch(10)).isEmpty();
+        verify(emailOutboxRepository, never()).claim(any(), any(), anyString(), any(), any());
+    }
+
+    @Test
+    void markFailed_BeforeMaxAttempts_ShouldRescheduleWithBackoff() {
+        // Given
+        EmailOutboxMessage message = message(0);
+        when(emailOutboxRepository.findById(1L)).thenReturn(Optional.of(message));
+
+        // When
+        emailOutboxService.markFailed(1L, "Connection refused");
+
+        // Then
+        assertThat(message.getAttempts()).isEqualTo(1);
+        assertThat(message.getStatus()).isEqualTo(EmailOutboxStatus.PENDING);
+        assertThat(message.getNextAttemptAt()).isAfter(LocalDateTime.now().plusSeconds(29));
+        assertThat(message.getLastError()).isEqualTo("Connection refused");
+        assertThat(message.getClaimToken()).isNull();
+        verify(emailOutboxRepository).save(message);
+    }
+
+    @Test
+    void markFailed_AtMaxAttempts_ShouldGiveUp() {
+        // Given
+        EmailOutboxMessage message = message(2);
+        when(emailOutboxRepository.findById(1L)).thenReturn(Optional.of(message));
+
+        // When
+        emailOutboxService.markFailed(1L, "Mailbox unavailable");
+
+        // Then
+        assertThat(message.getAttempts()).isEqualTo(3);
+        assertThat(message.getStatus()).isEqualTo(EmailOutboxStatus.FAILED);
+    }
+
+    @Test
+    void backoff_ShouldGrowExponentiallyUpToCap() {
+        assertThat(emailOutboxService.backoff(1)).isBetween(Duration.ofSeconds(30), Duration.ofSeconds(36));
+        assertThat(emailOutboxService.backoff(2)).isBetween(Duration.ofSeconds(60), Duration.ofSeconds(72));
+        assertThat(emailOutboxService.backoff(20)).isBetween(Duration.ofMinutes(5), Duration.ofMinutes(6));
+    }
+
+    private EmailOutboxMessage message(int attempts) {
+        return EmailOutboxMessage.builder()
+                .id(1L)
+                .type(EmailType.WELCOME)
+                .recipient("john@example.com")
+                .firstName("John")
+                .attempts(attempts)
+                .claimToken("claim")
+                .nextAttemptAt(LocalDateTime.now())
+                .createdAt(LocalDateTime.now())
+                .build();
+    }
+}
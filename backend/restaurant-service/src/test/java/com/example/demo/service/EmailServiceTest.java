@@ -1,20 +1,29 @@
 package com.example.demo.service;
 
+import com.example.demo.entity.EmailType;
+import jakarta.mail.Address;
+import jakarta.mail.Message;
+import jakarta.mail.MessagingException;
+import jakarta.mail.Multipart;
+import jakarta.mail.Part;
+import jakarta.mail.Session;
+import jakarta.mail.internet.MimeMessage;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
-import org.mockito.ArgumentCaptor;
-import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
-import org.springframework.mail.SimpleMailMessage;
 import org.springframework.mail.javamail.JavaMailSender;
 import org.springframework.test.util.ReflectionTestUtils;
 
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Properties;
+
 import static org.assertj.core.api.Assertions.assertThat;
-import static org.assertj.core.api.Assertions.assertThatThrownBy;
-import static org.mockito.ArgumentMatchers.any;
-import static org.mockito.Mockito.*;
+import static org.mockito.Mockito.when;
 
 @ExtendWith(MockitoExtension.class)
 class EmailServiceTest {
@@ -22,7 +31,6 @@ class EmailServiceTest {
     @Mock
     private JavaMailSender mailSender;
 
-    @InjectMocks
     private EmailService emailService;
 
     private static final String FRONTEND_URL = "http://localhost:5173";
@@ -30,216 +38,202 @@ class EmailServiceTest {
 
     @BeforeEach
     void setUp() {
+        emailService = new EmailService(mailSender, new EmailTemplates("en", List.of("en", "pl")));
+        when(mailSender.createMimeMessage())
+                .thenAnswer(invocation -> new MimeMessage(Session.getInstance(new Properties())));
         ReflectionTestUtils.setField(emailService, "frontendUrl", FRONTEND_URL);
         ReflectionTestUtils.setField(emailService, "fromEmail", FROM_EMAIL);
     }
 
     @Test
-    void sendVerificationEmail_WithValidData_ShouldSendEmail() {
+    void compose_VerificationEmail_ShouldAddressAndLinkTheUser() throws Exception {
         // Given
         String toEmail = "test@example.com";
         String firstName = "John";
         String verificationToken = "test-token-123";
 
-        ArgumentCaptor<SimpleMailMessage> messageCaptor = ArgumentCaptor.forClass(SimpleMailMessage.class);
-
         // When
-        emailService.sendVerificationEmail(toEmail, firstName, verificationToken);
+        MimeMessage message = emailService.compose(
+                EmailType.VERIFICATION, Locale.ENGLISH, toEmail, firstName, verificationToken);
 
         // Then
-        verify(mailSender).send(messageCaptor.capture());
-        SimpleMailMessage sentMessage = messageCaptor.getValue();
-
-        assertThat(sentMessage.getTo()).containsExactly(toEmail);
-        assertThat(sentMessage.getFrom()).isEqualTo(FROM_EMAIL);
-        assertThat(sentMessage.getSubject()).isEqualTo("Verify Your Email Address");
-        assertThat(sentMessage.getText()).contains(firstName);
-        assertThat(sentMessage.getText()).contains(FRONTEND_URL + "/verify-email?token=" + verificationToken);
+        assertThat(to(message)).containsExactly(toEmail);
+        assertThat(from(message)).isEqualTo(FROM_EMAIL);
+        assertThat(subject(message)).isEqualTo("Verify Your Email Address");
+        assertThat(text(message)).contains(firstName);
+        assertThat(text(message)).contains(FRONTEND_URL + "/verify-email?token=" + verificationToken);
     }
 
     @Test
-    void sendVerificationEmail_ShouldIncludeVerificationLink() {
+    void compose_WelcomeEmail_ShouldAddressTheUser() throws Exception {
         // Given
         String toEmail = "test@example.com";
-        String firstName = "Jane";
-        String token = "abc123xyz";
-
-        ArgumentCaptor<SimpleMailMessage> messageCaptor = ArgumentCaptor.forClass(SimpleMailMessage.class);
+        String firstName = "John";
 
         // When
-        emailService.sendVerificationEmail(toEmail, firstName, token);
+        MimeMessage message = emailService.compose(EmailType.WELCOME, Locale.ENGLISH, toEmail, firstName, null);
 
         // Then
-        verify(mailSender).send(messageCaptor.capture());
-        SimpleMailMessage sentMessage = messageCaptor.getValue();
-
-        String expectedLink = FRONTEND_URL + "/verify-email?token=" + token;
-        assertThat(sentMessage.getText()).contains(expectedLink);
-    }
-
-    @Test
-    void sendVerificationEmail_WhenMailSenderFails_ShouldThrowException() {
-        // Given
-        doThrow(new RuntimeException("Mail server error"))
-                .when(mailSender).send(any(SimpleMailMessage.class));
-
-        // When/Then
-        assertThatThrownBy(() ->
-                emailService.sendVerificationEmail("test@example.com", "John", "token"))
-                .isInstanceOf(RuntimeException.class)
-                .hasMessageContaining("Failed to send verification email");
+        assertThat(to(message)).containsExactly(toEmail);
+        assertThat(from(message)).isEqualTo(FROM_EMAIL);
+        assertThat(subject(message)).isEqualTo("Welcome to Restaurant App!");
+        assertThat(text(message)).contains(firstName);
+        assertThat(text(message)).contains("Welcome to Restaurant App");
     }
 
     @Test
-    void sendWelcomeEmail_WithValidData_ShouldSendEmail() {
+    void compose_PasswordResetEmail_ShouldAddressAndLinkTheUser() throws Exception {
         // Given
         String toEmail = "test@example.com";
         String firstName = "John";
-
-        ArgumentCaptor<SimpleMailMessage> messageCaptor = ArgumentCaptor.forClass(SimpleMailMessage.class);
+        String resetToken = "reset-token-123";
 
         // When
-        emailService.sendWelcomeEmail(toEmail, firstName);
+        MimeMessage message = emailService.compose(
+                EmailType.PASSWORD_RESET, Locale.ENGLISH, toEmail, firstName, resetToken);
 
         // Then
-        verify(mailSender).send(messageCaptor.capture());
-        SimpleMailMessage sentMessage = messageCaptor.getValue();
-
-        assertThat(sentMessage.getTo()).containsExactly(toEmail);
-        assertThat(sentMessage.getFrom()).isEqualTo(FROM_EMAIL);
-        assertThat(sentMessage.getSubject()).isEqualTo("Welcome to Restaurant App!");
-        assertThat(sentMessage.getText()).contains(firstName);
-        assertThat(sentMessage.getText()).contains("Welcome to Restaurant App");
+        assertThat(to(message)).containsExactly(toEmail);
+        assertThat(from(message)).isEqualTo(FROM_EMAIL);
+        assertThat(subject(message)).isEqualTo("Reset Your Password");
+        assertThat(text(message)).contains(firstName);
+        assertThat(text(message)).contains(FRONTEND_URL + "/reset-password?token=" + resetToken);
     }
 
     @Test
-    void sendWelcomeEmail_WhenFails_ShouldNotThrowException() {
-        // Given
-        doThrow(new RuntimeException("Mail server error"))
-                .when(mailSender).send(any(SimpleMailMessage.class));
-
-        // When/Then - Should not throw (welcome email is not critical)
-        emailService.sendWelcomeEmail("test@example.com", "John");
+    void verificationEmail_ShouldMentionExpirationTime() throws Exception {
+        // When
+        MimeMessage message = emailService.compose(
+                EmailType.VERIFICATION, Locale.ENGLISH, "test@example.com", "John", "token");
 
-        verify(mailSender).send(any(SimpleMailMessage.class));
+        // Then
+        assertThat(text(message)).contains("24 hours");
     }
 
     @Test
-    void sendPasswordResetEmail_WithValidData_ShouldSendEmail() {
-        // Given
-        String toEmail = "test@example.com";
-        String firstName = "John";
-        String resetToken = "reset-token-123";
-
-        ArgumentCaptor<SimpleMailMessage> messageCaptor = ArgumentCaptor.forClass(SimpleMailMessage.class);
-
+    void passwordResetEmail_ShouldMentionExpirationTime() throws Exception {
         // When
-        emailService.sendPasswordResetEmail(toEmail, firstName, resetToken);
+        MimeMessage message = emailService.compose(
+                EmailType.PASSWORD_RESET, Locale.ENGLISH, "test@example.com", "John", "token");
 
         // Then
-        verify(mailSender).send(messageCaptor.capture());
-        SimpleMailMessage sentMessage = messageCaptor.getValue();
-
-        assertThat(sentMessage.getTo()).containsExactly(toEmail);
-        assertThat(sentMessage.getFrom()).isEqualTo(FROM_EMAIL);
-        assertThat(sentMessage.getSubject()).isEqualTo("Reset Your Password");
-        assertThat(sentMessage.getText()).contains(firstName);
-        assertThat(sentMessage.getText()).contains(FRONTEND_URL + "/reset-password?token=" + resetToken);
+        assertThat(text(message)).contains("1 hour");
     }
 
     @Test
-    void sendPasswordResetEmail_ShouldIncludeResetLink() {
-        // Given
-        String toEmail = "test@example.com";
-        String firstName = "Jane";
-        String token = "reset-xyz789";
-
-        ArgumentCaptor<SimpleMailMessage> messageCaptor = ArgumentCaptor.forClass(SimpleMailMessage.class);
-
+    void welcomeEmail_ShouldIncludeFrontendUrl() throws Exception {
         // When
-        emailService.sendPasswordResetEmail(toEmail, firstName, token);
+        MimeMessage message = emailService.compose(EmailType.WELCOME, Locale.ENGLISH, "test@example.com", "John", null);
 
         // Then
-        verify(mailSender).send(messageCaptor.capture());
-        SimpleMailMessage sentMessage = messageCaptor.getValue();
-
-        String expectedLink = FRONTEND_URL + "/reset-password?token=" + token;
-        assertThat(sentMessage.getText()).contains(expectedLink);
+        assertThat(text(message)).contains(FRONTEND_URL);
     }
 
     @Test
-    void sendPasswordResetEmail_WhenMailSenderFails_ShouldThrowException() {
-        // Given
-        doThrow(new RuntimeException("Mail server error"))
-                .when(mailSender).send(any(SimpleMailMessage.class));
+    void compose_ShouldIncludeHtmlAlternative() throws Exception {
+        // When
+        MimeMessage message = emailService.compose(
+                EmailType.VERIFICATION, Locale.ENGLISH, "test@example.com", "John", "token");
 
-        // When/Then
-        assertThatThrownBy(() ->
-                emailService.sendPasswordResetEmail("test@example.com", "John", "token"))
-                .isInstanceOf(RuntimeException.class)
-                .hasMessageContaining("Failed to send password reset email");
+        // Then
+        String html = html(message);
+        assertThat(html).contains("<html");
+        assertThat(html).contains("href=\"" + FRONTEND_URL + "/verify-email?token=token\"");
+        assertThat(text(message)).doesNotContain("<html");
     }
 
     @Test
-    void allEmails_ShouldUseCorrectFromAddress() {
-        // Given
-        ArgumentCaptor<SimpleMailMessage> messageCaptor = ArgumentCaptor.forClass(SimpleMailMessage.class);
-
+    void htmlPart_ShouldEscapeUserSuppliedValues() throws Exception {
         // When
-        emailService.sendVerificationEmail("test@example.com", "John", "token1");
-        emailService.sendWelcomeEmail("test@example.com", "John");
-        emailService.sendPasswordResetEmail("test@example.com", "John", "token2");
+        MimeMessage message = emailService.compose(
+                EmailType.WELCOME, Locale.ENGLISH, "test@example.com", "<b>John</b>", null);
 
         // Then
-        verify(mailSender, times(3)).send(messageCaptor.capture());
-
-        messageCaptor.getAllValues().forEach(message ->
-                assertThat(message.getFrom()).isEqualTo(FROM_EMAIL)
-        );
+        assertThat(html(message)).contains("&lt;b&gt;John&lt;/b&gt;").doesNotContain("<b>John");
+        assertThat(text(message)).contains("<b>John</b>");
     }
 
     @Test
-    void verificationEmail_ShouldMentionExpirationTime() {
-        // Given
-        ArgumentCaptor<SimpleMailMessage> messageCaptor = ArgumentCaptor.forClass(SimpleMailMessage.class);
-
+    void compose_WithPolishLocale_ShouldUsePolishVariant() throws Exception {
         // When
-        emailService.sendVerificationEmail("test@example.com", "John", "token");
+        MimeMessage message = emailService.compose(
+                EmailType.PASSWORD_RESET, Locale.forLanguageTag("pl-PL"), "test@example.com", "Jan", "token");
 
         // Then
-        verify(mailSender).send(messageCaptor.capture());
-        SimpleMailMessage sentMessage = messageCaptor.getValue();
-
-        assertThat(sentMessage.getText()).contains("24 hours");
+        assertThat(subject(message)).isEqualTo("Zresetuj hasło");
+        assertThat(text(message)).contains("Witaj Jan").contains("1 godzinę")
+                .contains(FRONTEND_URL + "/reset-password?token=token");
+        assertThat(html(message)).contains("lang=\"pl\"");
     }
 
     @Test
-    void passwordResetEmail_ShouldMentionExpirationTime() {
-        // Given
-        ArgumentCaptor<SimpleMailMessage> messageCaptor = ArgumentCaptor.forClass(SimpleMailMessage.class);
-
+    void compose_WithUnsupportedLocale_ShouldFallBackToDefaultLanguage() throws Exception {
         // When
-        emailService.sendPasswordResetEmail("test@example.com", "John", "token");
+        MimeMessage message = emailService.compose(
+                EmailType.VERIFICATION, Locale.JAPANESE, "test@example.com", "John", "token");
 
         // Then
-        verify(mailSender).send(messageCaptor.capture());
-        SimpleMailMessage sentMessage = messageCaptor.getValue();
+        assertThat(subject(message)).isEqualTo("Verify Your Email Address");
+        assertThat(text(message)).startsWith("Hello John,");
+    }
 
-        assertThat(sentMessage.getText()).contains("1 hour");
+    private static List<String> to(MimeMessage message) {
+        try {
+            return Arrays.stream(message.getRecipients(Message.RecipientType.TO)).map(Address::toString).toList();
+        } catch (MessagingException e) {
+            throw new IllegalStateException(e);
+        }
     }
 
-    @Test
-    void welcomeEmail_ShouldIncludeFrontendUrl() {
-        // Given
-        ArgumentCaptor<SimpleMailMessage> messageCaptor = ArgumentCaptor.forClass(SimpleMailMessage.class);
+    private static String from(MimeMessage message) {
+        try {
+            return message.getFrom()[0].toString();
+        } catch (MessagingException e) {
+            throw new IllegalStateException(e);
+        }
+    }
 
-        // When
-        emailService.sendWelcomeEmail("test@example.com", "John");
+    private static String subject(MimeMessage message) {
+        try {
+            return message.getSubject();
+        } catch (MessagingException e) {
+            throw new IllegalStateException(e);
+        }
+    }
 
-        // Then
-        verify(mailSender).send(messageCaptor.capture());
-        SimpleMailMessage sentMessage = messageCaptor.getValue();
+    private static String text(MimeMessage message) {
+        return part(message, "text/plain");
+    }
+
+    private static String html(MimeMessage message) {
+        return part(message, "text/html");
+    }
+
+    private static String part(MimeMessage message, String mimeType) {
+        try {
+            // Content-Type headers are only filled in once the message is saved
+            message.saveChanges();
+            String content = find(message, mimeType);
+            assertThat(content).as(mimeType + " part").isNotNull();
+            return content;
+        } catch (MessagingException | IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
 
-        assertThat(sentMessage.getText()).contains(FRONTEND_URL);
+    private static String find(Part part, String mimeType) throws MessagingException, IOException {
+        if (part.isMimeType(mimeType)) {
+            return (String) part.getContent();
+        }
+        if (part.isMimeType("multipart/*")) {
+            Multipart multipart = (Multipart) part.getContent();
+            for (int i = 0; i < multipart.getCount(); i++) {
+                String content = find(multipart.getBodyPart(i), mimeType);
+                if (content != null) {
+                    return content;
+                }
+            }
+        }
+        return null;
     }
-}
\ No newline at end of file
+}
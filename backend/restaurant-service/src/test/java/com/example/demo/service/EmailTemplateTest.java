@@ -0,0 +1,81 @@
+package com.example.demo.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class EmailTemplateTest {
+
+    private static final List<String> PARAMETERS = List.of("name", "link");
+
+    @Test
+    void render_ShouldSubstitutePlaceholdersInOrder() {
+        // Given
+        EmailTemplate template = EmailTemplate.compile("Hi {{name}}, open {{ link }} now, {{name}}!", PARAMETERS, false);
+
+        // When/Then
+        assertThat(template.render("Ann", "http://x/y?a=1&b=2"))
+                .isEqualTo("Hi Ann, open http://x/y?a=1&b=2 now, Ann!");
+    }
+
+    @Test
+    void render_WithoutPlaceholders_ShouldReturnSource() {
+        EmailTemplate template = EmailTemplate.compile("Plain text", PARAMETERS, false);
+
+        assertThat(template.render("Ann", null)).isEqualTo("Plain text");
+    }
+
+    @Test
+    void render_WithNullValue_ShouldRenderEmpty() {
+        EmailTemplate template = EmailTemplate.compile("[{{link}}]", PARAMETERS, false);
+
+        assertThat(template.render("Ann", null)).isEqualTo("[]");
+    }
+
+    @Test
+    void render_HtmlTemplate_ShouldEscapeValuesButNotLiterals() {
+        // Given
+        EmailTemplate template = EmailTemplate.compile("<a href=\"{{link}}\">{{name}}</a>", PARAMETERS, true);
+
+        // When/Then
+        assertThat(template.render("<Tom & \"Jerry\">", "http://x/?a=1&b='2'"))
+                .isEqualTo("<a href=\"http://x/?a=1&amp;b=&#39;2&#39;\">&lt;Tom &amp; &quot;Jerry&quot;&gt;</a>");
+    }
+
+    @Test
+    void renderTo_ShouldAppendToExistingBuffer() {
+        // Given
+        EmailTemplate template = EmailTemplate.compile("Hello {{name}}", PARAMETERS, false);
+        StringBuilder out = new StringBuilder("> ");
+
+        // When
+        template.renderTo(out, "Ann", null);
+
+        // Then
+        assertThat(out).hasToString("> Hello Ann");
+    }
+
+    @Test
+    void estimateLength_ShouldMatchUnescapedOutput() {
+        EmailTemplate template = EmailTemplate.compile("Hi {{name}} ({{link}})", PARAMETERS, false);
+
+        assertThat(template.estimateLength("Ann", "x")).isEqualTo(template.render("Ann", "x").length());
+    }
+
+    @Test
+    void compile_WithUnknownPlaceholder_ShouldThrow() {
+        assertThatThrownBy(() -> EmailTemplate.compile("Hi {{surname}}", PARAMETERS, false))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("surname");
+    }
+
+    @Test
+    void compile_WithUnclosedPlaceholder_ShouldThrow() {
+        assertThatThrownBy(() -> EmailTemplate.compile("Hi {{name", PARAMETERS, false))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("Unclosed");
+    }
+}
@@ -30,7 +30,7 @@ class EmailVerificationServiceTest {
     private UserRepository userRepository;
 
     @Mock
-    private EmailService emailService;
+    private EmailOutboxService emailOutboxService;
 
     @InjectMocks
     private EmailVerificationService emailVerificationService;
@@ -71,7 +71,7 @@ class EmailVerificationServiceTest {
     }
 
     @Test
-    void sendVerificationEmail_ShouldCallEmailService() {
+    void sendVerificationEmail_ShouldQueueEmail() {
         // Given
         when(userRepository.save(any(User.class))).thenAnswer(i -> i.getArgument(0));
 
@@ -79,7 +79,7 @@ class EmailVerificationServiceTest {
         emailVerificationService.sendVerificationEmail(testUser);
 
         // Then
-        verify(emailService).sendVerificationEmail(
+        verify(emailOutboxService).enqueueVerificationEmail(
                 eq("john@example.com"),
                 eq("John"),
                 anyString()
@@ -126,7 +126,7 @@ class EmailVerificationServiceTest {
         emailVerificationService.verifyEmail(token);
 
         // Then
-        verify(emailService).sendWelcomeEmail("john@example.com", "John");
+        verify(emailOutboxService).enqueueWelcomeEmail("john@example.com", "John");
     }
 
     @Test
@@ -142,7 +142,7 @@ class EmailVerificationServiceTest {
                 .hasMessageContaining("Invalid verification token");
 
         verify(userRepository, never()).save(any());
-        verify(emailService, never()).sendWelcomeEmail(anyString(), anyString());
+        verify(emailOutboxService, never()).enqueueWelcomeEmail(anyString(), anyString());
     }
 
     @Test
@@ -180,7 +180,7 @@ class EmailVerificationServiceTest {
 
         // Then - Should not save or send welcome email again
         verify(userRepository, never()).save(any());
-        verify(emailService, never()).sendWelcomeEmail(anyString(), anyString());
+        verify(emailOutboxService, never()).enqueueWelcomeEmail(anyString(), anyString());
     }
 
     @Test
@@ -195,7 +195,7 @@ class EmailVerificationServiceTest {
         emailVerificationService.resendVerificationEmail("john@example.com");
 
         // Then
-        verify(emailService).sendVerificationEmail(
+        verify(emailOutboxService).enqueueVerificationEmail(
                 eq("john@example.com"),
                 eq("John"),
                 anyString()
@@ -228,7 +228,7 @@ class EmailVerificationServiceTest {
                 .isInstanceOf(ValidationException.class)
                 .hasMessageContaining("Email is already verified");
 
-        verify(emailService, never()).sendVerificationEmail(anyString(), anyString(), anyString());
+        verify(emailOutboxService, never()).enqueueVerificationEmail(anyString(), anyString(), anyString());
     }
 
     @Test
@@ -250,7 +250,7 @@ class EmailVerificationServiceTest {
                 .hasMessage("Verification email was recently sent. Please check your inbox or wait a few minutes.");
 
         verify(userRepository).findByEmail("john@example.com");
-        verify(emailService, never()).sendVerificationEmail(anyString(), anyString(), anyString());
+        verify(emailOutboxService, never()).enqueueVerificationEmail(anyString(), anyString(), anyString());
     }
 
     @Test
@@ -267,7 +267,7 @@ class EmailVerificationServiceTest {
         emailVerificationService.resendVerificationEmail("john@example.com");
 
         // Then
-        verify(emailService).sendVerificationEmail(
+        verify(emailOutboxService).enqueueVerificationEmail(
                 eq("john@example.com"),
                 eq("John"),
                 anyString()
@@ -0,0 +1,215 @@
+package com.example.demo.service;
+
+import com.example.demo.entity.StoredImage;
+import com.example.demo.repository.StoredImageRepository;
+import com.example.demo.service.FileStorageService.ListedFile;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.Limit;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Predicate;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class ImageGarbageCollectorTest {
+
+    private static final String BASE_URL = "http://localhost:8080/uploads/";
+    private static final Instant OLD = Instant.now().minus(Duration.ofDays(30));
+
+    @Mock
+    private StoredImageService storedImageService;
+
+    @Mock
+    private StoredImageRepository storedImageRepository;
+
+    @Mock
+    private FileStorageService fileStorageService;
+
+    private ImageGarbageCollector collector;
+
+    @BeforeEach
+    void setUp() {
+        collector = new ImageGarbageCollector(storedImageService, storedImageRepository, fileStorageService,
+                true, Duration.ofDays(1), 2, Duration.ZERO, 10, 1000);
+    }
+
+    @Test
+    void collect_ShouldDeleteOldUnreferencedFilesOnly() throws Exception {
+        // Given
+        when(storedImageRepository.findByContentHashGreaterThanOrderByContentHash(eq(""), any(Limit.class)))
+                .thenReturn(List.of());
+        when(storedImageRepository.findUnreferencedSince(any(LocalDateTime.class), any(Limit.class)))
+                .thenReturn(List.of());
+        when(storedImageService.liveStorageKeys(any())).thenReturn(new String[]{"dishes/b.png", "restaurants/a.png"});
+        when(fileStorageService.listFiles()).thenReturn(Stream.of(
+                file("restaurants/a.png", OLD),
+                file("restaurants/orphan.png", OLD),
+                file("dishes/b.png", OLD),
+                file("dishes/new.png", Instant.now())));
+        when(storedImageService.delete(eq(BASE_URL + "restaurants/orphan.png"), any(LocalDateTime.class))).thenReturn(true);
+
+        // When
+        collector.collect();
+
+        // Then
+        verify(storedImageService).delete(eq(BASE_URL + "restaurants/orphan.png"), any(LocalDateTime.class));
+        verify(storedImageService, never()).delete(eq(BASE_URL + "restaurants/a.png"), any(LocalDateTime.class));
+        verify(storedImageService, never()).delete(eq(BASE_URL + "dishes/b.png"), any(LocalDateTime.class));
+        verify(storedImageService, never()).delete(eq(BASE_URL + "dishes/new.png"), any(LocalDateTime.class));
+    }
+
+    @Test
+    void collect_ShouldRecountRegistryInPagesThenDeleteUnusedImages() throws Exception {
+        // Given
+        StoredImage first = image("a".repeat(64));
+        StoredImage second = image("b".repeat(64));
+        StoredImage third = image("c".repeat(64));
+        when(storedImageRepository.findByContentHashGreaterThanOrderByContentHash(eq(""), any(Limit.class)))
+                .thenReturn(List.of(first, second));
+        when(storedImageRepository.findByContentHashGreaterThanOrderByContentHash(eq(second.getContentHash()), any(Limit.class)))
+                .thenReturn(List.of(third));
+        when(storedImageRepository.findUnreferencedSince(any(LocalDateTime.class), any(Limit.class)))
+                .thenReturn(List.of(third));
+        when(storedImageService.delete(eq(third.getUrl()), any(LocalDateTime.class))).thenReturn(true);
+        when(storedImageService.liveStorageKeys(any())).thenReturn(new String[0]);
+        when(fileStorageService.listFiles()).thenReturn(Stream.empty());
+
+        // When
+        collector.collect();
+
+        // Then
+        verify(storedImageService).updateReferences(List.of(first.getUrl(), second.getUrl()));
+        verify(storedImageService).updateReferences(List.of(third.getUrl()));
+        verify(storedImageService).delete(eq(third.getUrl()), any(LocalDateTime.class));
+    }
+
+    @Test
+    void collect_WhenImageIsReferencedAgain_ShouldRecountInsteadOfDeleting() throws Exception {
+        // Given
+        when(storedImageRepository.findByContentHashGreaterThanOrderByContentHash(eq(""), any(Limit.class)))
+                .thenReturn(List.of());
+        when(storedImageRepository.findUnreferencedSince(any(LocalDateTime.class), any(Limit.class)))
+                .thenReturn(List.of());
+        when(storedImageService.liveStorageKeys(any())).thenReturn(new String[0]);
+        when(fileStorageService.listFiles()).thenReturn(Stream.of(file("restaurants/a.png", OLD)));
+        when(storedImageService.delete(eq(BASE_URL + "restaurants/a.png"), any(LocalDateTime.class))).thenReturn(false);
+
+        // When
+        collector.collect();
+
+        // Then
+        verify(storedImageService).updateReferences(BASE_URL + "restaurants/a.png");
+    }
+
+    @Test
+    void collect_ShouldStopAtMaxDeletesPerRun() throws Exception {
+        // Given
+        collector = new ImageGarbageCollector(storedImageService, storedImageRepository, fileStorageService,
+                true, Duration.ofDays(1), 2, Duration.ZERO, 3, 1000);
+        when(storedImageRepository.findByContentHashGreaterThanOrderByContentHash(eq(""), any(Limit.class)))
+                .thenReturn(List.of());
+        when(storedImageRepository.findUnreferencedSince(any(LocalDateTime.class), any(Limit.class)))
+                .thenReturn(List.of());
+        when(storedImageService.liveStorageKeys(any())).thenReturn(new String[0]);
+        List<ListedFile> files = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            files.add(file("restaurants/" + i + ".png", OLD));
+        }
+        when(fileStorageService.listFiles()).thenReturn(files.stream());
+        when(storedImageService.delete(anyString(), any(LocalDateTime.class))).thenReturn(true);
+
+        // When
+        collector.collect();
+
+        // Then
+        verify(storedImageService, times(3)).delete(anyString(), any(LocalDateTime.class));
+    }
+
+    @Test
+    void collect_WithMoreLiveKeysThanFitInMemory_ShouldSweepOnePartitionAtATime() throws Exception {
+        // Given - At most 2 keys in memory for up to 4 live keys: two partitions, each listing storage once
+        collector = new ImageGarbageCollector(storedImageService, storedImageRepository, fileStorageService,
+                true, Duration.ofDays(1), 2, Duration.ZERO, 10, 2);
+        List<String> live = List.of("dishes/b.png", "restaurants/a.png", "restaurants/c.png");
+        when(storedImageRepository.findByContentHashGreaterThanOrderByContentHash(eq(""), any(Limit.class)))
+                .thenReturn(List.of());
+        when(storedImageRepository.findUnreferencedSince(any(LocalDateTime.class), any(Limit.class)))
+                .thenReturn(List.of());
+        when(storedImageService.maxLiveStorageKeys()).thenReturn(4L);
+        List<Predicate<String>> filters = new ArrayList<>();
+        when(storedImageService.liveStorageKeys(any())).thenAnswer(invocation -> {
+            Predicate<String> filter = invocation.getArgument(0);
+            filters.add(filter);
+            return live.stream().filter(filter).sorted().toArray(String[]::new);
+        });
+        when(fileStorageService.listFiles()).thenAnswer(invocation -> Stream.of(
+                file("restaurants/a.png", OLD),
+                file("restaurants/orphan.png", OLD),
+                file("dishes/b.png", OLD),
+                file("restaurants/c.png", OLD)));
+        when(storedImageService.delete(eq(BASE_URL + "restaurants/orphan.png"), any(LocalDateTime.class)))
+                .thenReturn(true);
+
+        // When
+        collector.collect();
+
+        // Then - Every key falls in exactly one partition
+        assertThat(filters).hasSize(2);
+        assertThat(live).allSatisfy(key -> assertThat(filters.stream().filter(f -> f.test(key))).hasSize(1));
+        verify(storedImageService).delete(eq(BASE_URL + "restaurants/orphan.png"), any(LocalDateTime.class));
+        verify(storedImageService, times(1)).delete(anyString(), any(LocalDateTime.class));
+    }
+
+    @Test
+    void collect_WhenDisabled_ShouldDoNothing() throws IOException {
+        collector = new ImageGarbageCollector(storedImageService, storedImageRepository, fileStorageService,
+                false, Duration.ofDays(1), 2, Duration.ZERO, 10, 1000);
+
+        collector.collect();
+
+        verify(fileStorageService, never()).listFiles();
+        verify(storedImageService, never()).liveStorageKeys(any());
+    }
+
+    @Test
+    void orphans_ShouldMergeUnsortedBatchAgainstSortedLiveKeys() {
+        List<ListedFile> batch = new ArrayList<>(List.of(
+                file("c.png", OLD), file("a.png", OLD), file("d.png", OLD), file("b.png", OLD)));
+
+        List<String> orphans = ImageGarbageCollector.orphans(batch, new String[]{"a.png", "c.png", "z.png"},
+                Instant.now().minus(Duration.ofDays(1)));
+
+        assertThat(orphans).containsExactly(BASE_URL + "b.png", BASE_URL + "d.png");
+    }
+
+    private static ListedFile file(String key, Instant lastModified) {
+        return new ListedFile(key, BASE_URL + key, lastModified);
+    }
+
+    private static StoredImage image(String contentHash) {
+        return StoredImage.builder()
+                .contentHash(contentHash)
+                .url(BASE_URL + contentHash + ".png")
+                .createdAt(LocalDateTime.now())
+                .referencesUpdatedAt(LocalDateTime.now())
+                .build();
+    }
+}
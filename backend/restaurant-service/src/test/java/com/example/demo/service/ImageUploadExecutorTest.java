@@ -0,0 +1,87 @@
+package com.example.demo.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ImageUploadExecutorTest {
+
+    private ImageUploadExecutor executor;
+
+    @AfterEach
+    void tearDown() {
+        executor.destroy();
+    }
+
+    @Test
+    void invokeAll_ShouldRunTasksInParallelAndReturnResultsInOrder() {
+        // Given - Every task waits for the others, so they only finish if they run at the same time
+        executor = new ImageUploadExecutor(3, 10, 50);
+        CountDownLatch allStarted = new CountDownLatch(3);
+        List<Callable<Integer>> tasks = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            int index = i;
+            tasks.add(() -> {
+                allStarted.countDown();
+                assertThat(allStarted.await(5, TimeUnit.SECONDS)).isTrue();
+                return index;
+            });
+        }
+
+        // When
+        List<Integer> results = executor.invokeAll(tasks, (index, e) -> -1);
+
+        // Then
+        assertThat(results).containsExactly(0, 1, 2);
+    }
+
+    @Test
+    void invokeAll_WhenPoolAndQueueFull_ShouldRunOverflowOnCallingThread() {
+        // Given - One thread and one queue slot; the third task cannot be queued
+        executor = new ImageUploadExecutor(1, 1, 50);
+        List<Callable<String>> tasks = new ArrayList<>();
+        CountDownLatch release = new CountDownLatch(1);
+        tasks.add(() -> {
+            release.await(5, TimeUnit.SECONDS);
+            return Thread.currentThread().getName();
+        });
+        tasks.add(() -> Thread.currentThread().getName());
+        tasks.add(() -> {
+            release.countDown();
+            return Thread.currentThread().getName();
+        });
+
+        // When
+        List<String> results = executor.invokeAll(tasks, (index, e) -> null);
+
+        // Then
+        assertThat(results.get(0)).startsWith("image-upload-");
+        assertThat(results.get(1)).startsWith("image-upload-");
+        assertThat(results.get(2)).isEqualTo(Thread.currentThread().getName());
+    }
+
+    @Test
+    void invokeAll_WhenTaskThrows_ShouldFailOnlyThatTask() {
+        // Given
+        executor = new ImageUploadExecutor(2, 10, 50);
+        List<Callable<String>> tasks = List.of(
+                () -> "first",
+                () -> {
+                    throw new IllegalArgumentException("broken");
+                },
+                () -> "last");
+
+        // When
+        List<String> results = executor.invokeAll(tasks, (index, e) -> index + ": " + e.getMessage());
+
+        // Then
+        assertThat(results).containsExactly("first", "1: broken", "last");
+    }
+}
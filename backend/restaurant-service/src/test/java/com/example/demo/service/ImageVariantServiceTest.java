@@ -0,0 +1,127 @@
+package com.example.demo.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ImageVariantServiceTest {
+
+    @TempDir
+    Path tempDir;
+
+    private ImageVariantService imageVariantService;
+
+    @BeforeEach
+    void setUp() {
+        imageVariantService = new ImageVariantService(tempDir.toString(), 1, 10, 0.8f);
+    }
+
+    @AfterEach
+    void tearDown() {
+        imageVariantService.destroy();
+    }
+
+    @Test
+    void generate_ShouldWriteEveryVariantNarrowerThanOriginal() throws IOException {
+        // Given
+        Path original = image("restaurants/logo.jpg", 2000, 1000, "jpeg");
+
+        // When
+        imageVariantService.generate(original);
+
+        // Then
+        assertThat(widthOf(imageVariantService.resolve(original, 100))).isEqualTo(160);
+        assertThat(widthOf(imageVariantService.resolve(original, 480))).isEqualTo(480);
+        assertThat(widthOf(imageVariantService.resolve(original, 481))).isEqualTo(1280);
+        assertThat(widthOf(imageVariantService.resolve(original, 5000))).isEqualTo(1280);
+        assertThat(ImageIO.read(imageVariantService.resolve(original, 480).toFile()).getHeight()).isEqualTo(240);
+        assertThat(imageVariantService.resolve(original, 480))
+                .isEqualTo(tempDir.resolve(".variants/restaurants/logo.jpg/480.jpg"));
+    }
+
+    @Test
+    void resolve_WhenVariantWiderThanOriginal_ShouldReturnOriginal() throws IOException {
+        // Given
+        Path original = image("small.png", 300, 200, "png");
+
+        // When
+        imageVariantService.generate(original);
+
+        // Then
+        assertThat(imageVariantService.resolve(original, 160)).isEqualTo(tempDir.resolve(".variants/small.png/160.png"));
+        assertThat(imageVariantService.resolve(original, 480)).isEqualTo(original);
+    }
+
+    @Test
+    void resolve_BeforeGeneration_ShouldReturnOriginalAndGenerateInBackground() throws Exception {
+        // Given
+        Path original = image("dish.jpg", 800, 600, "jpeg");
+
+        // When
+        Path served = imageVariantService.resolve(original, 160);
+
+        // Then
+        assertThat(served).isEqualTo(original);
+        Path variants = tempDir.resolve(".variants/dish.jpg");
+        for (int i = 0; i < 100 && !Files.isDirectory(variants); i++) {
+            Thread.sleep(50);
+        }
+        assertThat(imageVariantService.resolve(original, 160)).isEqualTo(variants.resolve("160.jpg"));
+    }
+
+    @Test
+    void generate_WithUndecodableImage_ShouldServeOriginalWithoutRetrying() throws IOException {
+        // Given
+        Path original = tempDir.resolve("broken.webp");
+        Files.write(original, "RIFF\0\0\0\0WEBPnot really".getBytes());
+
+        // When
+        imageVariantService.generate(original);
+
+        // Then
+        assertThat(tempDir.resolve(".variants/broken.webp")).isEmptyDirectory();
+        assertThat(imageVariantService.resolve(original, 160)).isEqualTo(original);
+    }
+
+    @Test
+    void deleteVariants_ShouldRemoveCachedVariants() throws IOException {
+        // Given
+        Path original = image("logo.jpg", 1000, 1000, "jpeg");
+        imageVariantService.generate(original);
+
+        // When
+        imageVariantService.deleteVariants(original);
+
+        // Then
+        assertThat(tempDir.resolve(".variants/logo.jpg")).doesNotExist();
+        assertThat(original).exists();
+    }
+
+    @Test
+    void resolve_OutsideUploadDirectory_ShouldReturnPathUnchanged() {
+        Path outside = tempDir.getParent().resolve("elsewhere.jpg");
+
+        assertThat(imageVariantService.resolve(outside, 160)).isEqualTo(outside);
+    }
+
+    private Path image(String relativePath, int width, int height, String format) throws IOException {
+        Path path = tempDir.resolve(relativePath);
+        Files.createDirectories(path.getParent());
+        int type = format.equals("png") ? BufferedImage.TYPE_INT_ARGB : BufferedImage.TYPE_INT_RGB;
+        ImageIO.write(new BufferedImage(width, height, type), format, path.toFile());
+        return path;
+    }
+
+    private static int widthOf(Path path) throws IOException {
+        return ImageIO.read(path.toFile()).getWidth();
+    }
+}
@@ -1,16 +1,30 @@
 package com.example.demo.service;
 
+import com.example.demo.exception.InvalidFileException;
+import com.example.demo.service.FileStorageService.ListedFile;
+import com.example.demo.service.FileStorageService.StoredFile;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.io.TempDir;
 import org.springframework.mock.web.MockMultipartFile;
 
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.util.Arrays;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Stream;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 
 class LocalFileStorageServiceTest {
 
@@ -18,14 +32,17 @@ class LocalFileStorageServiceTest {
     Path tempDir;
 
     private LocalFileStorageService fileStorageService;
+    private ImageVariantService imageVariantService;
     private String baseUrl;
 
     @BeforeEach
     void setUp() {
         baseUrl = "http://localhost:8080/uploads/";
+        imageVariantService = mock(ImageVariantService.class);
         fileStorageService = new LocalFileStorageService(
                 tempDir.toString(),
-                baseUrl
+                baseUrl,
+                imageVariantService
         );
     }
 
@@ -40,7 +57,7 @@ class LocalFileStorageServiceTest {
                 "file",
                 "test-image.jpg",
                 "image/jpeg",
-                "test content".getBytes()
+                jpeg("test content")
         );
 
         // When
@@ -59,7 +76,7 @@ class LocalFileStorageServiceTest {
                 "file",
                 "test-image.jpg",
                 "image/jpeg",
-                "test content".getBytes()
+                jpeg("test content")
         );
 
         // When
@@ -69,7 +86,7 @@ class LocalFileStorageServiceTest {
         String fileName = fileUrl.substring(baseUrl.length());
         Path savedFile = tempDir.resolve(fileName);
         assertThat(Files.exists(savedFile)).isTrue();
-        assertThat(Files.readString(savedFile)).isEqualTo("test content");
+        assertThat(Files.readAllBytes(savedFile)).isEqualTo(jpeg("test content"));
     }
 
     @Test
@@ -79,7 +96,7 @@ class LocalFileStorageServiceTest {
                 "file",
                 "restaurant.jpg",
                 "image/jpeg",
-                "restaurant image".getBytes()
+                jpeg("restaurant image")
         );
 
         // When
@@ -150,7 +167,7 @@ class LocalFileStorageServiceTest {
                 "file",
                 "imagefile",
                 "image/jpeg",
-                "content".getBytes()
+                jpeg("content")
         );
 
         // When
@@ -168,13 +185,13 @@ class LocalFileStorageServiceTest {
                 "file",
                 "image.jpg",
                 "image/jpeg",
-                "content1".getBytes()
+                jpeg("content1")
         );
         MockMultipartFile file2 = new MockMultipartFile(
                 "file",
                 "image.jpg",
                 "image/jpeg",
-                "content2".getBytes()
+                jpeg("content2")
         );
 
         // When
@@ -185,6 +202,71 @@ class LocalFileStorageServiceTest {
         assertThat(url1).isNotEqualTo(url2);
     }
 
+    @Test
+    void storeFile_WithSameContent_ShouldReuseSingleFileNamedByHash() throws Exception {
+        // Given
+        MockMultipartFile file1 = new MockMultipartFile("file", "a.jpg", "image/jpeg", jpeg("same"));
+        MockMultipartFile file2 = new MockMultipartFile("file", "b.jpg", "image/jpeg", jpeg("same"));
+
+        // When
+        String url1 = fileStorageService.storeFile(file1, null);
+        String url2 = fileStorageService.storeFile(file2, null);
+
+        // Then
+        String hash = HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(jpeg("same")));
+        String shardedPath = hash.substring(0, 2) + "/" + hash.substring(2, 4) + "/" + hash + ".jpg";
+        assertThat(url1).isEqualTo(url2).isEqualTo(baseUrl + shardedPath);
+        try (Stream<Path> files = Files.walk(tempDir)) {
+            assertThat(files.filter(Files::isRegularFile)).containsExactly(tempDir.resolve(shardedPath));
+        }
+        // Variants are generated once, for the copy actually written
+        verify(imageVariantService, times(1)).generateAsync(tempDir.resolve(shardedPath));
+    }
+
+    @Test
+    void storeFile_WithContentStoredFlatBeforeSharding_ShouldMoveItInsteadOfWritingCopy() throws Exception {
+        // Given
+        String hash = HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(jpeg("legacy")));
+        Path flat = tempDir.resolve("dishes/" + hash + ".jpg");
+        Files.createDirectories(flat.getParent());
+        Files.write(flat, jpeg("legacy"));
+
+        // When
+        String fileUrl = fileStorageService.storeFile(
+                new MockMultipartFile("file", "a.jpg", "image/jpeg", jpeg("legacy")), "dishes");
+
+        // Then
+        Path sharded = tempDir.resolve("dishes/" + hash.substring(0, 2) + "/" + hash.substring(2, 4) + "/" + hash + ".jpg");
+        assertThat(fileUrl).isEqualTo(baseUrl + tempDir.relativize(sharded).toString().replace('\\', '/'));
+        assertThat(flat).doesNotExist();
+        assertThat(sharded).hasBinaryContent(jpeg("legacy"));
+        verify(imageVariantService).deleteVariants(flat);
+    }
+
+    @Test
+    void deleteFile_WithFlatUrlOfMigratedFile_ShouldDeleteShardedFile() throws Exception {
+        // Given
+        String hash = "ab".repeat(32);
+        Path sharded = tempDir.resolve("restaurants/ab/ab/" + hash + ".png");
+        Files.createDirectories(sharded.getParent());
+        Files.write(sharded, png("migrated"));
+
+        // When
+        fileStorageService.deleteFile(baseUrl + "restaurants/" + hash + ".png");
+
+        // Then
+        assertThat(sharded).doesNotExist();
+        verify(imageVariantService).deleteVariants(sharded);
+    }
+
+    @Test
+    void getVariantUrl_ForLocalFile_ShouldAddWidthParameter() {
+        assertThat(fileStorageService.getVariantUrl(baseUrl + "dishes/a.jpg", ImageVariant.CARD))
+                .isEqualTo(baseUrl + "dishes/a.jpg?w=480");
+        assertThat(fileStorageService.getVariantUrl("https://example.com/a.jpg", ImageVariant.CARD))
+                .isEqualTo("https://example.com/a.jpg");
+    }
+
     @Test
     void storeFile_ShouldReplaceExistingFile() throws IOException {
         // Given
@@ -192,7 +274,7 @@ class LocalFileStorageServiceTest {
                 "file",
                 "test.jpg",
                 "image/jpeg",
-                "original content".getBytes()
+                jpeg("original content")
         );
 
         String url1 = fileStorageService.storeFile(file, null);
@@ -203,7 +285,7 @@ class LocalFileStorageServiceTest {
                 "file",
                 "test.jpg",
                 "image/jpeg",
-                "new content".getBytes()
+                jpeg("new content")
         );
 
         // Force same filename by manually copying
@@ -226,7 +308,7 @@ class LocalFileStorageServiceTest {
                 "file",
                 "test.jpg",
                 "image/jpeg",
-                "content".getBytes()
+                jpeg("content")
         );
         String fileUrl = fileStorageService.storeFile(file, null);
 
@@ -239,6 +321,7 @@ class LocalFileStorageServiceTest {
 
         // Then
         assertThat(Files.exists(filePath)).isFalse();
+        verify(imageVariantService).deleteVariants(filePath);
     }
 
     @Test
@@ -289,7 +372,7 @@ class LocalFileStorageServiceTest {
                 "file",
                 "test.jpg",
                 "image/jpeg",
-                "content".getBytes()
+                jpeg("content")
         );
         String fileUrl = fileStorageService.storeFile(file, "restaurants");
 
@@ -304,56 +387,6 @@ class LocalFileStorageServiceTest {
         assertThat(Files.exists(filePath)).isFalse();
     }
 
-    // ========================================
-    // isValidImageType tests
-    // ========================================
-
-    @Test
-    void isValidImageType_WithJpeg_ShouldReturnTrue() {
-        assertThat(fileStorageService.isValidImageType("image/jpeg")).isTrue();
-    }
-
-    @Test
-    void isValidImageType_WithJpg_ShouldReturnTrue() {
-        assertThat(fileStorageService.isValidImageType("image/jpg")).isTrue();
-    }
-
-    @Test
-    void isValidImageType_WithPng_ShouldReturnTrue() {
-        assertThat(fileStorageService.isValidImageType("image/png")).isTrue();
-    }
-
-    @Test
-    void isValidImageType_WithGif_ShouldReturnTrue() {
-        assertThat(fileStorageService.isValidImageType("image/gif")).isTrue();
-    }
-
-    @Test
-    void isValidImageType_WithWebp_ShouldReturnTrue() {
-        assertThat(fileStorageService.isValidImageType("image/webp")).isTrue();
-    }
-
-    @Test
-    void isValidImageType_WithPdf_ShouldReturnFalse() {
-        assertThat(fileStorageService.isValidImageType("application/pdf")).isFalse();
-    }
-
-    @Test
-    void isValidImageType_WithText_ShouldReturnFalse() {
-        assertThat(fileStorageService.isValidImageType("text/plain")).isFalse();
-    }
-
-    @Test
-    void isValidImageType_WithNull_ShouldReturnFalse() {
-        assertThat(fileStorageService.isValidImageType(null)).isFalse();
-    }
-
-    @Test
-    void isValidImageType_CaseInsensitive_ShouldWork() {
-        assertThat(fileStorageService.isValidImageType("IMAGE/JPEG")).isTrue();
-        assertThat(fileStorageService.isValidImageType("Image/Png")).isTrue();
-    }
-
     // ========================================
     // isValidFileSize tests
     // ========================================
@@ -402,7 +435,7 @@ class LocalFileStorageServiceTest {
                 "file",
                 "workflow-test.jpg",
                 "image/jpeg",
-                "test content for workflow".getBytes()
+                jpeg("test content for workflow")
         );
 
         // When - Store
@@ -412,7 +445,7 @@ class LocalFileStorageServiceTest {
         String relativePath = fileUrl.substring(baseUrl.length());
         Path filePath = tempDir.resolve(relativePath);
         assertThat(Files.exists(filePath)).isTrue();
-        assertThat(Files.readString(filePath)).isEqualTo("test content for workflow");
+        assertThat(Files.readAllBytes(filePath)).isEqualTo(jpeg("test content for workflow"));
 
         // When - Delete
         fileStorageService.deleteFile(fileUrl);
@@ -428,7 +461,7 @@ class LocalFileStorageServiceTest {
                 "file",
                 "nested.jpg",
                 "image/jpeg",
-                "content".getBytes()
+                jpeg("content")
         );
 
         // When
@@ -449,7 +482,7 @@ class LocalFileStorageServiceTest {
                 "file",
                 "test.jpg",
                 "image/jpeg",
-                "content".getBytes()
+                jpeg("content")
         );
 
         // When
@@ -462,9 +495,9 @@ class LocalFileStorageServiceTest {
     @Test
     void concurrentStoreOperations_ShouldNotConflict() throws IOException {
         // Given
-        MockMultipartFile file1 = new MockMultipartFile("file", "test1.jpg", "image/jpeg", "content1".getBytes());
-        MockMultipartFile file2 = new MockMultipartFile("file", "test2.jpg", "image/jpeg", "content2".getBytes());
-        MockMultipartFile file3 = new MockMultipartFile("file", "test3.jpg", "image/jpeg", "content3".getBytes());
+        MockMultipartFile file1 = new MockMultipartFile("file", "test1.jpg", "image/jpeg", jpeg("content1"));
+        MockMultipartFile file2 = new MockMultipartFile("file", "test2.jpg", "image/jpeg", jpeg("content2"));
+        MockMultipartFile file3 = new MockMultipartFile("file", "test3.jpg", "image/jpeg", jpeg("content3"));
 
         // When - Store multiple files
         String url1 = fileStorageService.storeFile(file1, null);
@@ -481,4 +514,150 @@ class LocalFileStorageServiceTest {
         assertThat(Files.exists(tempDir.resolve(url2.substring(baseUrl.length())))).isTrue();
         assertThat(Files.exists(tempDir.resolve(url3.substring(baseUrl.length())))).isTrue();
     }
-}
\ No newline at end of file
+
+    // ========================================
+    // storeStream tests
+    // ========================================
+
+    @Test
+    void storeStream_ShouldReturnHashSizeAndDetectedType() throws Exception {
+        // Given
+        byte[] content = png("png content");
+
+        // When
+        StoredFile stored = fileStorageService.storeStream(new ByteArrayInputStream(content), "dishes");
+
+        // Then
+        String expectedHash = HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(content));
+        assertThat(stored.contentHash()).isEqualTo(expectedHash);
+        assertThat(stored.size()).isEqualTo(content.length);
+        assertThat(stored.contentType()).isEqualTo("image/png");
+        assertThat(stored.url()).startsWith(baseUrl + "dishes/").endsWith(".png");
+        assertThat(Files.readAllBytes(tempDir.resolve(stored.url().substring(baseUrl.length())))).isEqualTo(content);
+    }
+
+    @Test
+    void storeStream_WithLargeStream_ShouldWriteEveryChunk() throws Exception {
+        // Given - Several copy buffers' worth of data
+        byte[] content = new byte[1024 * 1024];
+        new Random(42).nextBytes(content);
+        System.arraycopy(jpeg(""), 0, content, 0, 3);
+
+        // When
+        StoredFile stored = fileStorageService.storeStream(new ByteArrayInputStream(content), null);
+
+        // Then
+        assertThat(stored.size()).isEqualTo(content.length);
+        assertThat(Files.readAllBytes(tempDir.resolve(stored.url().substring(baseUrl.length())))).isEqualTo(content);
+    }
+
+    @Test
+    void storeStream_WithOversizedStream_ShouldThrowAndLeaveNoFile() throws IOException {
+        // Given - No declared size, so the limit is enforced while copying
+        byte[] content = new byte[11 * 1024 * 1024];
+        System.arraycopy(jpeg(""), 0, content, 0, 3);
+
+        // When/Then
+        assertThatThrownBy(() -> fileStorageService.storeStream(new ByteArrayInputStream(content), null))
+                .isInstanceOf(InvalidFileException.class)
+                .hasMessageContaining("File size exceeds maximum");
+        try (Stream<Path> files = Files.list(tempDir)) {
+            assertThat(files).isEmpty();
+        }
+    }
+
+    @Test
+    void storeStream_WithEmptyStream_ShouldThrowException() {
+        assertThatThrownBy(() -> fileStorageService.storeStream(new ByteArrayInputStream(new byte[0]), null))
+                .isInstanceOf(InvalidFileException.class)
+                .hasMessageContaining("Cannot store empty file");
+    }
+
+    @Test
+    void storeStream_WithFolderOutsideUploadDirectory_ShouldThrowException() {
+        assertThatThrownBy(() -> fileStorageService.storeStream(new ByteArrayInputStream(jpeg("x")), "../outside"))
+                .isInstanceOf(InvalidFileException.class);
+    }
+
+    @Test
+    void storeFile_WithImageContentTypeButNonImageBytes_ShouldThrowException() {
+        // Given - The client claims JPEG, the bytes say otherwise
+        MockMultipartFile file = new MockMultipartFile("file", "fake.jpg", "image/jpeg", "<script>".getBytes());
+
+        // When/Then
+        assertThatThrownBy(() -> fileStorageService.storeFile(file, null))
+                .isInstanceOf(InvalidFileException.class)
+                .hasMessageContaining("Invalid file type");
+    }
+
+    @Test
+    void storeFile_WithMislabelledImage_ShouldUseDetectedFormat() throws IOException {
+        // Given
+        MockMultipartFile file = new MockMultipartFile("file", "photo.jpg", "image/jpeg", png("content"));
+
+        // When
+        String fileUrl = fileStorageService.storeFile(file, null);
+
+        // Then
+        assertThat(fileUrl).endsWith(".png");
+    }
+
+    @Test
+    void listFiles_ShouldListStoredFilesAndSkipHiddenEntries() throws IOException {
+        // Given
+        String fileUrl = fileStorageService.storeFile(
+                new MockMultipartFile("file", "a.png", "image/png", png("listed")), "dishes");
+        Files.createDirectories(tempDir.resolve(".variants/dishes"));
+        Files.write(tempDir.resolve(".variants/dishes/160.png"), png("variant"));
+        Files.write(tempDir.resolve(".upload-123.tmp"), png("partial"));
+
+        // When
+        List<ListedFile> files;
+        try (Stream<ListedFile> listed = fileStorageService.listFiles()) {
+            files = listed.toList();
+        }
+
+        // Then
+        assertThat(files).singleElement().satisfies(file -> {
+            assertThat(file.url()).isEqualTo(fileUrl);
+            assertThat(file.key()).isEqualTo(fileStorageService.getStorageKey(fileUrl));
+            assertThat(file.lastModified()).isNotNull();
+        });
+    }
+
+    @Test
+    void getStorageKey_ShouldReturnRelativePathOrNullForExternalUrls() {
+        String hash = "cd".repeat(32);
+        // Flat URLs from before the sharded layout map to the same key as the sharded file
+        assertThat(fileStorageService.getStorageKey(baseUrl + "dishes/" + hash + ".png?w=160"))
+                .isEqualTo("dishes/cd/cd/" + hash + ".png")
+                .isEqualTo(fileStorageService.getStorageKey(baseUrl + "dishes/cd/cd/" + hash + ".png"));
+        assertThat(fileStorageService.getStorageKey(baseUrl + "dishes/logo.png")).isEqualTo("dishes/logo.png");
+        assertThat(fileStorageService.getStorageKey("https://example.com/abc.png")).isNull();
+    }
+
+    @Test
+    void getStorageKey_WithUrlStoredUnderEarlierBaseUrl_ShouldMapToSameFile() {
+        // References saved before upload.base-url moved to another host or scheme keep their files live
+        String hash = "ef".repeat(32);
+
+        assertThat(fileStorageService.getStorageKey("https://images.example.com/uploads/dishes/" + hash + ".png"))
+                .isEqualTo(fileStorageService.getStorageKey(baseUrl + "dishes/" + hash + ".png"))
+                .isEqualTo("dishes/ef/ef/" + hash + ".png");
+    }
+
+    private static byte[] jpeg(String content) {
+        return withHeader(new byte[]{(byte) 0xFF, (byte) 0xD8, (byte) 0xFF, (byte) 0xE0}, content);
+    }
+
+    private static byte[] png(String content) {
+        return withHeader(new byte[]{(byte) 0x89, 'P', 'N', 'G', '\r', '\n', 0x1A, '\n'}, content);
+    }
+
+    private static byte[] withHeader(byte[] header, String content) {
+        byte[] body = content.getBytes(StandardCharsets.UTF_8);
+        byte[] bytes = Arrays.copyOf(header, header.length + body.length);
+        System.arraycopy(body, 0, bytes, header.length, body.length);
+        return bytes;
+    }
+}
@@ -0,0 +1,188 @@
+package com.example.demo.service;
+
+import com.example.demo.entity.RefreshToken;
+import com.example.demo.entity.Role;
+import com.example.demo.entity.User;
+import com.example.demo.repository.RefreshTokenRepository;
+import com.example.demo.repository.UserRepository;
+import com.example.demo.service.RefreshTokenService.IssuedToken;
+import com.example.demo.service.RefreshTokenService.Rotation;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class RefreshTokenServiceTest {
+
+    @Mock
+    private RefreshTokenRepository refreshTokenRepository;
+
+    @Mock
+    private UserRepository userRepository;
+
+    private RefreshTokenService refreshTokenService;
+
+    private User testUser;
+
+    @BeforeEach
+    void setUp() {
+        refreshTokenService = new RefreshTokenService(refreshTokenRepository, userRepository, Duration.ofDays(30),
+                Duration.ofSeconds(10));
+        testUser = User.builder()
+                .id(1L)
+                .email("john@example.com")
+                .role(Role.USER)
+                .isActive(true)
+                .build();
+    }
+
+    @Test
+    void issue_ShouldStoreOnlyTheHash() {
+        // When
+        IssuedToken issued = refreshTokenService.issue(1L);
+
+        // Then
+        ArgumentCaptor<RefreshToken> saved = ArgumentCaptor.forClass(RefreshToken.class);
+        verify(refreshTokenRepository).save(saved.capture());
+        assertThat(issued.value()).hasSizeGreaterThanOrEqualTo(43);
+        assertThat(saved.getValue().getTokenHash()).hasSize(64).isNotEqualTo(issued.value());
+        assertThat(saved.getValue().getUserId()).isEqualTo(1L);
+        assertThat(saved.getValue().getFamilyId()).isNotBlank();
+    }
+
+    @Test
+    void rotate_WithValidToken_ShouldConsumeItAndIssueSuccessorInSameFamily() {
+        // Given
+        IssuedToken issued = refreshTokenService.issue(1L);
+        ArgumentCaptor<RefreshToken> saved = ArgumentCaptor.forClass(RefreshToken.class);
+        verify(refreshTokenRepository).save(saved.capture());
+        RefreshToken stored = saved.getValue();
+        stored.setId(10L);
+
+        when(refreshTokenRepository.findByTokenHash(stored.getTokenHash())).thenReturn(Optional.of(stored));
+        when(refreshTokenRepository.markUsed(eq(10L), any())).thenReturn(1);
+        when(userRepository.findById(1L)).thenReturn(Optional.of(testUser));
+
+        // When
+        Optional<Rotation> rotation = refreshTokenService.rotate(issued.value());
+
+        // Then
+        assertThat(rotation).isPresent();
+        assertThat(rotation.get().user()).isEqualTo(testUser);
+        assertThat(rotation.get().refreshToken().value()).isNotEqualTo(issued.value());
+        verify(refreshTokenRepository, times(2)).save(saved.capture());
+        assertThat(saved.getValue().getFamilyId()).isEqualTo(stored.getFamilyId());
+    }
+
+    @Test
+    void rotate_WithAlreadyUsedToken_ShouldRevokeFamily() {
+        // Given
+        RefreshToken used = token(LocalDateTime.now().plusDays(1));
+        used.setUsedAt(LocalDateTime.now().minusMinutes(1));
+        when(refreshTokenRepository.findByTokenHash(anyString())).thenReturn(Optional.of(used));
+
+        // When
+        Optional<Rotation> rotation = refreshTokenService.rotate("stolen-token");
+
+        // Then
+        assertThat(rotation).isEmpty();
+        verify(refreshTokenRepository).deleteByFamilyId("family-1");
+        verify(refreshTokenRepository, never()).save(any());
+    }
+
+    @Test
+    void rotate_WhenConcurrentRefreshWon_ShouldIssueSiblingInSameFamily() {
+        // Given - Another tab consumed the same token a moment ago
+        RefreshToken consumed = token(LocalDateTime.now().plusDays(1));
+        consumed.setUsedAt(LocalDateTime.now());
+        when(refreshTokenRepository.findByTokenHash(anyString()))
+                .thenReturn(Optional.of(token(LocalDateTime.now().plusDays(1))));
+        when(refreshTokenRepository.markUsed(eq(10L), any())).thenReturn(0);
+        when(refreshTokenRepository.findById(10L)).thenReturn(Optional.of(consumed));
+        when(userRepository.findById(1L)).thenReturn(Optional.of(testUser));
+
+        // When
+        Optional<Rotation> rotation = refreshTokenService.rotate("token");
+
+        // Then
+        assertThat(rotation).isPresent();
+        ArgumentCaptor<RefreshToken> saved = ArgumentCaptor.forClass(RefreshToken.class);
+        verify(refreshTokenRepository).save(saved.capture());
+        assertThat(saved.getValue().getFamilyId()).isEqualTo("family-1");
+        verify(refreshTokenRepository, never()).deleteByFamilyId(anyString());
+    }
+
+    @Test
+    void rotate_WithTokenUsedWithinGracePeriod_ShouldIssueSibling() {
+        // Given
+        RefreshToken used = token(LocalDateTime.now().plusDays(1));
+        used.setUsedAt(LocalDateTime.now().minusSeconds(2));
+        when(refreshTokenRepository.findByTokenHash(anyString())).thenReturn(Optional.of(used));
+        when(userRepository.findById(1L)).thenReturn(Optional.of(testUser));
+
+        // When/Then
+        assertThat(refreshTokenService.rotate("token")).isPresent();
+        verify(refreshTokenRepository, never()).markUsed(any(), any());
+        verify(refreshTokenRepository, never()).deleteByFamilyId(anyString());
+    }
+
+    @Test
+    void rotate_WithExpiredToken_ShouldReturnEmpty() {
+        // Given
+        when(refreshTokenRepository.findByTokenHash(anyString()))
+                .thenReturn(Optional.of(token(LocalDateTime.now().minusMinutes(1))));
+
+        // When/Then
+        assertThat(refreshTokenService.rotate("token")).isEmpty();
+        verify(refreshTokenRepository, never()).markUsed(any(), any());
+    }
+
+    @Test
+    void rotate_ForDeactivatedUser_ShouldReturnEmpty() {
+        // Given
+        testUser.setIsActive(false);
+        when(refreshTokenRepository.findByTokenHash(anyString()))
+                .thenReturn(Optional.of(token(LocalDateTime.now().plusDays(1))));
+        when(refreshTokenRepository.markUsed(eq(10L), any())).thenReturn(1);
+        when(userRepository.findById(1L)).thenReturn(Optional.of(testUser));
+
+        // When/Then
+        assertThat(refreshTokenService.rotate("token")).isEmpty();
+        verify(refreshTokenRepository).deleteByFamilyId("family-1");
+        verify(refreshTokenRepository, never()).save(any());
+    }
+
+    @Test
+    void rotate_WithUnknownToken_ShouldReturnEmpty() {
+        when(refreshTokenRepository.findByTokenHash(anyString())).thenReturn(Optional.empty());
+
+        assertThat(refreshTokenService.rotate("unknown")).isEmpty();
+    }
+
+    private RefreshToken token(LocalDateTime expiresAt) {
+        return RefreshToken.builder()
+                .id(10L)
+                .tokenHash("hash")
+                .familyId("family-1")
+                .userId(1L)
+                .createdAt(LocalDateTime.now().minusDays(1))
+                .expiresAt(expiresAt)
+                .build();
+    }
+}
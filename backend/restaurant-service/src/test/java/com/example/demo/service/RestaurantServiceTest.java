@@ -44,6 +44,9 @@ class RestaurantServiceTest {
     @Mock
     private SecurityUtil securityUtil;
 
+    @Mock
+    private StoredImageService storedImageService;
+
     @InjectMocks
     private RestaurantService restaurantService;
 
@@ -226,9 +229,8 @@ class RestaurantServiceTest {
     @Test
     void updateRestaurant_ByOwner_ShouldSucceed() {
         // Given
-        when(restaurantRepository.findById(1L)).thenReturn(Optional.of(testRestaurant));
+        when(restaurantRepository.findByIdIfOwnedOrAdmin(1L, 1L, false)).thenReturn(Optional.of(testRestaurant));
         when(restaurantRepository.save(any(Restaurant.class))).thenAnswer(i -> i.getArgument(0));
-        when(userRepository.findById(1L)).thenReturn(Optional.of(testUser));
 
         RestaurantCreateRequestDTO updateRequest = new RestaurantCreateRequestDTO();
         updateRequest.setName("Updated Restaurant");
@@ -240,49 +242,138 @@ class RestaurantServiceTest {
         // Then
         assertThat(result.getName()).isEqualTo("Updated Restaurant");
         assertThat(result.getAddress()).isEqualTo("456 New St");
+        verifyNoInteractions(userRepository);
     }
 
     @Test
     void updateRestaurant_ByNonOwner_ShouldThrowException() {
         // Given
-        when(restaurantRepository.findById(1L)).thenReturn(Optional.of(testRestaurant));
-
-        User nonOwner = User.builder().id(999L).role(Role.USER).build();
-        when(userRepository.findById(999L)).thenReturn(Optional.of(nonOwner));
+        when(securityUtil.isCurrentUserAdmin()).thenReturn(false);
+        when(restaurantRepository.findByIdIfOwnedOrAdmin(1L, 999L, false)).thenReturn(Optional.empty());
+        when(restaurantRepository.existsById(1L)).thenReturn(true);
 
         // When/Then
         assertThatThrownBy(() -> restaurantService.updateRestaurant(1L, createRequest, 999L))
                 .isInstanceOf(UnauthorizedException.class)
                 .hasMessageContaining("You can only update your own restaurants");
+
+        verify(restaurantRepository, never()).save(any());
+    }
+
+    @Test
+    void updateRestaurant_WithNonExistentRestaurant_ShouldThrowNotFound() {
+        // Given
+        when(restaurantRepository.findByIdIfOwnedOrAdmin(99L, 1L, false)).thenReturn(Optional.empty());
+        when(restaurantRepository.existsById(99L)).thenReturn(false);
+
+        // When/Then
+        assertThatThrownBy(() -> restaurantService.updateRestaurant(99L, createRequest, 1L))
+                .isInstanceOf(ResourceNotFoundException.class)
+                .hasMessageContaining("Restaurant not found with ID: 99");
     }
 
     @Test
     void deleteRestaurant_ByOwner_ShouldSucceed() {
         // Given
-        when(restaurantRepository.findById(1L)).thenReturn(Optional.of(testRestaurant));
-        when(userRepository.findById(1L)).thenReturn(Optional.of(testUser));
+        when(restaurantRepository.deleteByIdIfOwnedOrAdmin(1L, 1L, false)).thenReturn(1);
 
         // When
         restaurantService.deleteRestaurant(1L, 1L);
 
         // Then
-        verify(restaurantRepository).deleteById(1L);
+        verify(restaurantRepository).deleteDishComponentsByRestaurantIdIfOwnedOrAdmin(1L, 1L, false);
+        verify(restaurantRepository).deleteDishesByRestaurantIdIfOwnedOrAdmin(1L, 1L, false);
+        verify(restaurantRepository).deleteDietaryOptionsByIdIfOwnedOrAdmin(1L, 1L, false);
+        verify(restaurantRepository, never()).findById(any());
+        verify(restaurantRepository, never()).existsById(any());
     }
 
     @Test
-    void deleteRestaurant_ByNonOwner_ShouldThrowException() {
+    void updateRestaurant_WithNewImage_ShouldRecountOldAndNewImage() {
         // Given
-        when(restaurantRepository.findById(1L)).thenReturn(Optional.of(testRestaurant));
+        testRestaurant.setImageUrl("http://localhost:8080/uploads/old.jpg");
+        when(restaurantRepository.findByIdIfOwnedOrAdmin(1L, 1L, false)).thenReturn(Optional.of(testRestaurant));
+        when(restaurantRepository.save(any(Restaurant.class))).thenAnswer(i -> i.getArgument(0));
+        createRequest.setImageUrl("http://localhost:8080/uploads/new.jpg");
+
+        // When
+        restaurantService.updateRestaurant(1L, createRequest, 1L);
+
+        // Then
+        verify(storedImageService).updateReferences(
+                "http://localhost:8080/uploads/old.jpg", "http://localhost:8080/uploads/new.jpg");
+    }
+
+    @Test
+    void deleteRestaurant_ShouldRecountRestaurantAndDishImages() {
+        // Given
+        when(restaurantRepository.findImageUrlById(1L)).thenReturn(List.of("http://localhost:8080/uploads/logo.jpg"));
+        when(restaurantRepository.findDishImageUrlsByRestaurantId(1L))
+                .thenReturn(List.of("http://localhost:8080/uploads/dish.jpg"));
+        when(restaurantRepository.deleteByIdIfOwnedOrAdmin(1L, 1L, false)).thenReturn(1);
 
-        User nonOwner = User.builder().id(999L).role(Role.USER).build();
-        when(userRepository.findById(999L)).thenReturn(Optional.of(nonOwner));
+        // When
+        restaurantService.deleteRestaurant(1L, 1L);
+
+        // Then
+        verify(storedImageService).updateReferences(
+                List.of("http://localhost:8080/uploads/logo.jpg", "http://localhost:8080/uploads/dish.jpg"));
+    }
+
+    @Test
+    void deleteRestaurant_ByNonOwner_ShouldThrowException() {
+        // Given
+        when(restaurantRepository.deleteByIdIfOwnedOrAdmin(1L, 999L, false)).thenReturn(0);
+        when(restaurantRepository.existsById(1L)).thenReturn(true);
 
         // When/Then
         assertThatThrownBy(() -> restaurantService.deleteRestaurant(1L, 999L))
                 .isInstanceOf(UnauthorizedException.class)
                 .hasMessageContaining("You can only delete your own restaurants");
+    }
+
+    @Test
+    void deleteRestaurant_WithNonExistentRestaurant_ShouldThrowNotFound() {
+        // Given
+        when(restaurantRepository.deleteByIdIfOwnedOrAdmin(99L, 1L, false)).thenReturn(0);
+        when(restaurantRepository.existsById(99L)).thenReturn(false);
+
+        // When/Then
+        assertThatThrownBy(() -> restaurantService.deleteRestaurant(99L, 1L))
+                .isInstanceOf(ResourceNotFoundException.class)
+                .hasMessageContaining("Restaurant not found with ID: 99");
+    }
+
+    @Test
+    void deleteRestaurant_ByAdmin_ShouldSucceedWithoutLoadingUser() {
+        // Given
+        when(securityUtil.isCurrentUserAdmin()).thenReturn(true);
+        when(restaurantRepository.deleteByIdIfOwnedOrAdmin(1L, 999L, true)).thenReturn(1);
 
-        verify(restaurantRepository, never()).deleteById(any());
+        // When
+        restaurantService.deleteRestaurant(1L, 999L);
+
+        // Then
+        verify(restaurantRepository).deleteDishesByRestaurantIdIfOwnedOrAdmin(1L, 999L, true);
+        verifyNoInteractions(userRepository);
+    }
+
+    @Test
+    void verifyRestaurant_ShouldUseAdminReferenceWithoutLoadingUser() {
+        // Given
+        User adminReference = User.builder().id(5L).build();
+        when(restaurantRepository.findById(1L)).thenReturn(Optional.of(testRestaurant));
+        when(restaurantRepository.save(any(Restaurant.class))).thenAnswer(i -> i.getArgument(0));
+        when(securityUtil.getCurrentUserReference()).thenReturn(adminReference);
+
+        // When
+        restaurantService.verifyRestaurant(1L, null);
+
+        // Then
+        verify(restaurantRepository).save(argThat(r ->
+                r.getIsVerified() && r.getVerifiedBy() == adminReference
+        ));
+        verify(securityUtil, never()).getCurrentUser();
     }
 
     @Test
@@ -0,0 +1,151 @@
+package com.example.demo.service;
+
+import com.example.demo.service.SmtpBatchSender.SendResult;
+import jakarta.mail.Message;
+import jakarta.mail.MessagingException;
+import jakarta.mail.Session;
+import jakarta.mail.internet.InternetAddress;
+import jakarta.mail.internet.MimeMessage;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mail.javamail.JavaMailSenderImpl;
+
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SmtpBatchSenderTest {
+
+    private FakeSmtpServer smtpServer;
+    private SmtpBatchSender sender;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        smtpServer = new FakeSmtpServer(Set.of("rejected@example.com"));
+        sender = newSender(2, 100);
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        sender.destroy();
+        smtpServer.close();
+    }
+
+    @Test
+    void sendAll_ShouldDeliverEveryMessageOverPooledConnections() throws Exception {
+        // When
+        List<SendResult> results = sender.sendAll(messages(20));
+
+        // Then - At most one connection per pool slot for twenty messages
+        assertThat(results).hasSize(20).allMatch(SendResult::isSent);
+        assertThat(smtpServer.getMessages()).hasSize(20);
+        assertThat(smtpServer.getConnectionCount()).isBetween(1, 2);
+    }
+
+    @Test
+    void sendAll_ShouldReuseConnectionsAcrossBatches() throws Exception {
+        // Given
+        sender.destroy();
+        sender = newSender(1, 100);
+        sender.sendAll(messages(4));
+
+        // When
+        sender.sendAll(messages(4));
+
+        // Then - The second batch runs on the connection left open by the first
+        assertThat(smtpServer.getMessages()).hasSize(8);
+        assertThat(smtpServer.getConnectionCount()).isEqualTo(1);
+        assertThat(sender.getIdleConnectionCount()).isEqualTo(1);
+    }
+
+    @Test
+    void sendAll_WithRejectedRecipient_ShouldReportPerMessageInOrder() throws Exception {
+        // Given
+        List<MimeMessage> messages = messages(3);
+        messages.get(1).setRecipients(Message.RecipientType.TO, "rejected@example.com");
+
+        // When
+        List<SendResult> results = sender.sendAll(messages);
+
+        // Then - The rejection does not stop the rest of the batch
+        assertThat(results).extracting(SendResult::isSent).containsExactly(true, false, true);
+        assertThat(results.get(1).message().getAllRecipients())
+                .containsExactly(new InternetAddress("rejected@example.com"));
+        assertThat(results.get(1).error()).isNotBlank();
+        assertThat(smtpServer.getMessages()).hasSize(2);
+    }
+
+    @Test
+    void sendAll_WhenSendingThrowsRuntimeException_ShouldFailOnlyThatMessage() throws Exception {
+        // Given
+        List<MimeMessage> messages = messages(3);
+        MimeMessage broken = new MimeMessage(Session.getInstance(new Properties())) {
+            @Override
+            public void writeTo(OutputStream os, String[] ignoreList) {
+                throw new IllegalStateException("broken body");
+            }
+        };
+        broken.setFrom("noreply@example.com");
+        broken.setRecipients(Message.RecipientType.TO, "broken@example.com");
+        messages.set(1, broken);
+
+        // When
+        List<SendResult> results = sender.sendAll(messages);
+
+        // Then
+        assertThat(results).extracting(SendResult::isSent).containsExactly(true, false, true);
+        assertThat(results.get(1).error()).contains("broken body");
+        assertThat(smtpServer.getMessages()).hasSize(2);
+    }
+
+    @Test
+    void sendAll_ShouldRotateConnectionsAfterMessageLimit() throws Exception {
+        // Given
+        sender.destroy();
+        sender = newSender(1, 3);
+
+        // When
+        List<SendResult> results = sender.sendAll(messages(7));
+
+        // Then - 3 + 3 + 1 messages
+        assertThat(results).allMatch(SendResult::isSent);
+        assertThat(smtpServer.getConnectionCount()).isEqualTo(3);
+    }
+
+    @Test
+    void sendAll_WithEmptyBatch_ShouldNotConnect() {
+        assertThat(sender.sendAll(List.of())).isEmpty();
+        assertThat(smtpServer.getConnectionCount()).isZero();
+    }
+
+    private SmtpBatchSender newSender(int poolSize, int maxMessagesPerConnection) {
+        JavaMailSenderImpl mailSender = new JavaMailSenderImpl();
+        mailSender.setHost(InetAddress.getLoopbackAddress().getHostAddress());
+        mailSender.setPort(smtpServer.getPort());
+        mailSender.setProtocol("smtp");
+        mailSender.getJavaMailProperties().put("mail.smtp.timeout", "5000");
+        mailSender.getJavaMailProperties().put("mail.smtp.connectiontimeout", "5000");
+        return new SmtpBatchSender(mailSender, poolSize, maxMessagesPerConnection, Duration.ofMinutes(1));
+    }
+
+    private List<MimeMessage> messages(int count) throws MessagingException {
+        Session session = Session.getInstance(new Properties());
+        List<MimeMessage> messages = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            MimeMessage message = new MimeMessage(session);
+            message.setFrom("noreply@example.com");
+            message.setRecipients(Message.RecipientType.TO, "user" + i + "@example.com");
+            message.setSubject("Message " + i);
+            message.setText("Body " + i);
+            messages.add(message);
+        }
+        return messages;
+    }
+}
@@ -0,0 +1,317 @@
+package com.example.demo.service;
+
+import com.example.demo.entity.StoredImage;
+import com.example.demo.exception.InvalidFileException;
+import com.example.demo.repository.DishRepository;
+import com.example.demo.repository.ImageUrlCount;
+import com.example.demo.repository.RestaurantRepository;
+import com.example.demo.repository.StoredImageRepository;
+import com.example.demo.service.FileStorageService.StoredFile;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.mock.web.MockMultipartFile;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.security.MessageDigest;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class StoredImageServiceTest {
+
+    private static final byte[] PNG = {(byte) 0x89, 'P', 'N', 'G', '\r', '\n', 0x1A, '\n', 1, 2, 3};
+    private static final String URL = "http://localhost:8080/uploads/restaurants/abc.png";
+
+    @Mock
+    private FileStorageService fileStorageService;
+
+    @Mock
+    private StoredImageRepository storedImageRepository;
+
+    @Mock
+    private RestaurantRepository restaurantRepository;
+
+    @Mock
+    private DishRepository dishRepository;
+
+    private StoredImageService storedImageService;
+
+    @BeforeEach
+    void setUp() {
+        storedImageService = new StoredImageService(fileStorageService, storedImageRepository,
+                restaurantRepository, dishRepository, Duration.ofDays(1));
+    }
+
+    @Test
+    void store_WithNewContent_ShouldStoreAndRegisterUnderContentHash() throws Exception {
+        // Given
+        MockMultipartFile file = new MockMultipartFile("file", "logo.png", "image/png", PNG);
+        when(storedImageRepository.findById(sha256(PNG))).thenReturn(Optional.empty());
+        when(fileStorageService.storeFile(file, "restaurants")).thenReturn(URL);
+        when(storedImageRepository.saveAndFlush(any(StoredImage.class))).thenAnswer(i -> i.getArgument(0));
+
+        // When
+        StoredImage image = storedImageService.store(file, "restaurants");
+
+        // Then
+        assertThat(image.getContentHash()).isEqualTo(sha256(PNG));
+        assertThat(image.getUrl()).isEqualTo(URL);
+        assertThat(image.getContentType()).isEqualTo("image/png");
+        assertThat(image.getSize()).isEqualTo(PNG.length);
+        assertThat(image.getReferenceCount()).isZero();
+    }
+
+    @Test
+    void store_WithKnownContent_ShouldReturnExistingUrlWithoutWriting() throws Exception {
+        // Given
+        MockMultipartFile file = new MockMultipartFile("file", "copy.png", "image/png", PNG);
+        when(storedImageRepository.findById(sha256(PNG))).thenReturn(Optional.of(image(URL)));
+        when(storedImageRepository.touch(eq(sha256(PNG)), any(LocalDateTime.class))).thenReturn(1);
+
+        // When
+        StoredImage image = storedImageService.store(file, "restaurants");
+
+        // Then - The unused period restarts, so the image is not collected before the client attaches it
+        assertThat(image.getUrl()).isEqualTo(URL);
+        verify(storedImageRepository).touch(eq(sha256(PNG)), any(LocalDateTime.class));
+        verify(fileStorageService, never()).storeFile(any(), any());
+        verify(storedImageRepository, never()).saveAndFlush(any());
+    }
+
+    @Test
+    void store_WhenKnownContentIsDeletedConcurrently_ShouldStoreItAgain() throws Exception {
+        // Given
+        MockMultipartFile file = new MockMultipartFile("file", "copy.png", "image/png", PNG);
+        when(storedImageRepository.findById(sha256(PNG))).thenReturn(Optional.of(image(URL)));
+        when(storedImageRepository.touch(eq(sha256(PNG)), any(LocalDateTime.class))).thenReturn(0);
+        when(fileStorageService.storeFile(file, "restaurants")).thenReturn(URL);
+        when(storedImageRepository.saveAndFlush(any(StoredImage.class))).thenAnswer(i -> i.getArgument(0));
+
+        // When
+        StoredImage image = storedImageService.store(file, "restaurants");
+
+        // Then
+        assertThat(image.getUrl()).isEqualTo(URL);
+        verify(fileStorageService).storeFile(file, "restaurants");
+    }
+
+    @Test
+    void storeStream_WithKnownDeclaredHash_ShouldNotReadTheBody() throws Exception {
+        // Given
+        InputStream body = mock(InputStream.class);
+        when(storedImageRepository.findById(sha256(PNG))).thenReturn(Optional.of(image(URL)));
+        when(storedImageRepository.touch(eq(sha256(PNG)), any(LocalDateTime.class))).thenReturn(1);
+
+        // When
+        StoredImage image = storedImageService.store(body, null, sha256(PNG).toUpperCase());
+
+        // Then
+        assertThat(image.getUrl()).isEqualTo(URL);
+        verify(body, never()).read(any());
+        verify(fileStorageService, never()).storeStream(any(), any());
+    }
+
+    @Test
+    void storeStream_WithContentStoredUnderAnotherFolder_ShouldDiscardTheNewCopy() throws Exception {
+        // Given
+        String copyUrl = "http://localhost:8080/uploads/dishes/abc.png";
+        when(fileStorageService.storeStream(any(), eq("dishes")))
+                .thenReturn(new StoredFile(copyUrl, sha256(PNG), PNG.length, "image/png"));
+        when(storedImageRepository.findById(sha256(PNG))).thenReturn(Optional.of(image(URL)));
+        when(storedImageRepository.touch(eq(sha256(PNG)), any(LocalDateTime.class))).thenReturn(1);
+
+        // When
+        StoredImage image = storedImageService.store(new ByteArrayInputStream(PNG), "dishes", null);
+
+        // Then
+        assertThat(image.getUrl()).isEqualTo(URL);
+        verify(fileStorageService).deleteFile(copyUrl);
+    }
+
+    @Test
+    void storeStream_WithMismatchingDeclaredHash_ShouldRejectAndDeleteStoredFile() throws Exception {
+        // Given
+        String declared = "0".repeat(64);
+        when(storedImageRepository.findById(declared)).thenReturn(Optional.empty());
+        when(fileStorageService.storeStream(any(), any()))
+                .thenReturn(new StoredFile(URL, sha256(PNG), PNG.length, "image/png"));
+        when(storedImageRepository.findById(sha256(PNG))).thenReturn(Optional.empty());
+
+        // When/Then
+        assertThatThrownBy(() -> storedImageService.store(new ByteArrayInputStream(PNG), null, declared))
+                .isInstanceOf(InvalidFileException.class)
+                .hasMessageContaining("declared SHA-256");
+        verify(fileStorageService).deleteFile(URL);
+    }
+
+    @Test
+    void delete_WhenStillReferenced_ShouldKeepFile() throws Exception {
+        // Given
+        when(restaurantRepository.countByImageUrl(URL)).thenReturn(0L);
+        when(dishRepository.countByImgUrl(URL)).thenReturn(2L);
+
+        // When
+        boolean deleted = storedImageService.delete(URL);
+
+        // Then
+        assertThat(deleted).isFalse();
+        verify(fileStorageService, never()).deleteFile(anyString());
+        verify(storedImageRepository, never()).deleteByUrl(anyString());
+    }
+
+    @Test
+    void delete_WhenUnreferenced_ShouldDeleteFileAndRegistration() throws Exception {
+        // Given
+        when(restaurantRepository.countByImageUrl(URL)).thenReturn(0L);
+        when(dishRepository.countByImgUrl(URL)).thenReturn(0L);
+
+        // When
+        boolean deleted = storedImageService.delete(URL);
+
+        // Then
+        assertThat(deleted).isTrue();
+        verify(storedImageRepository).deleteByUrl(URL);
+        verify(fileStorageService).deleteFile(URL);
+    }
+
+    @Test
+    void delete_WhenUploadedRecently_ShouldKeepFile() throws Exception {
+        // Given - Nothing references the image yet, but another user may have just uploaded the same bytes
+        when(storedImageRepository.findByUrlForUpdate(URL)).thenReturn(Optional.of(image(URL)));
+
+        // When
+        boolean deleted = storedImageService.delete(URL);
+
+        // Then
+        assertThat(deleted).isFalse();
+        verify(storedImageRepository, never()).deleteByUrl(anyString());
+        verify(fileStorageService, never()).deleteFile(anyString());
+    }
+
+    @Test
+    void delete_WithCutoff_WhenUsedSinceCutoff_ShouldKeepFile() throws Exception {
+        // Given - An upload handed the image out again after the collector listed it
+        when(storedImageRepository.findByUrlForUpdate(URL)).thenReturn(Optional.of(image(URL)));
+
+        // When
+        boolean deleted = storedImageService.delete(URL, LocalDateTime.now().minusDays(1));
+
+        // Then
+        assertThat(deleted).isFalse();
+        verify(storedImageRepository, never()).deleteByUrl(anyString());
+        verify(fileStorageService, never()).deleteFile(anyString());
+    }
+
+    @Test
+    void delete_WithCutoff_WhenUnusedSinceCutoff_ShouldDeleteLockedRegistration() throws Exception {
+        // Given
+        StoredImage unused = image(URL);
+        unused.setReferencesUpdatedAt(LocalDateTime.now().minusDays(3));
+        when(storedImageRepository.findByUrlForUpdate(URL)).thenReturn(Optional.of(unused));
+        when(restaurantRepository.countByImageUrl(URL)).thenReturn(0L);
+        when(dishRepository.countByImgUrl(URL)).thenReturn(0L);
+
+        // When
+        boolean deleted = storedImageService.delete(URL, LocalDateTime.now().minusDays(1));
+
+        // Then
+        assertThat(deleted).isTrue();
+        verify(storedImageRepository).deleteByUrl(URL);
+        verify(fileStorageService).deleteFile(URL);
+    }
+
+    @Test
+    void updateReferences_ShouldCountRestaurantAndDishRowsForRegisteredUrls() throws Exception {
+        // Given
+        String external = "https://example.com/photo.jpg";
+        when(storedImageRepository.findByUrlInForUpdate(Set.of(URL, external))).thenReturn(List.of(image(URL)));
+        when(restaurantRepository.countByImageUrlIn(List.of(URL))).thenReturn(List.of(new ImageUrlCount(URL, 3L)));
+        when(dishRepository.countByImgUrlIn(List.of(URL))).thenReturn(List.of(new ImageUrlCount(URL, 1L)));
+
+        // When
+        storedImageService.updateReferences(URL, null, external, URL);
+
+        // Then
+        verify(storedImageRepository).updateReferenceCount(eq(URL), eq(4L), any(LocalDateTime.class));
+    }
+
+    @Test
+    void updateReferences_WhenCountIsUnchanged_ShouldNotWrite() throws Exception {
+        // Given - image() is referenced once
+        when(storedImageRepository.findByUrlInForUpdate(Set.of(URL))).thenReturn(List.of(image(URL)));
+        when(restaurantRepository.countByImageUrlIn(List.of(URL))).thenReturn(List.of(new ImageUrlCount(URL, 1L)));
+        when(dishRepository.countByImgUrlIn(List.of(URL))).thenReturn(List.of());
+
+        // When
+        storedImageService.updateReferences(URL);
+
+        // Then
+        verify(storedImageRepository, never()).updateReferenceCount(anyString(), anyLong(), any());
+    }
+
+    @Test
+    void updateReferences_WithNoUrls_ShouldDoNothing() {
+        storedImageService.updateReferences(List.of());
+
+        verify(storedImageRepository, never()).updateReferenceCount(anyString(), anyLong(), any());
+    }
+
+    @Test
+    void liveStorageKeys_ShouldReturnSortedDistinctKeysOfReferencedAndRegisteredImages() {
+        // Given
+        String other = "http://localhost:8080/uploads/dishes/def.png";
+        String registered = "http://localhost:8080/uploads/aaa.png";
+        String external = "https://example.com/logo.png";
+        when(restaurantRepository.streamImageUrls()).thenAnswer(invocation -> Stream.of(URL, external));
+        when(dishRepository.streamImgUrls()).thenAnswer(invocation -> Stream.of(other, URL));
+        when(storedImageRepository.streamUrls()).thenAnswer(invocation -> Stream.of(registered));
+        when(fileStorageService.getStorageKey(anyString()))
+                .thenAnswer(invocation -> invocation.<String>getArgument(0).startsWith("http://localhost:8080/uploads/")
+                        ? invocation.<String>getArgument(0).substring("http://localhost:8080/uploads/".length())
+                        : null);
+
+        // When
+        String[] keys = storedImageService.liveStorageKeys(key -> true);
+        String[] partition = storedImageService.liveStorageKeys(key -> key.startsWith("d"));
+
+        // Then
+        assertThat(keys).containsExactly("aaa.png", "dishes/def.png", "restaurants/abc.png");
+        assertThat(partition).containsExactly("dishes/def.png");
+    }
+
+    private static StoredImage image(String url) throws Exception {
+        return StoredImage.builder()
+                .contentHash(sha256(PNG))
+                .url(url)
+                .contentType("image/png")
+                .size((long) PNG.length)
+                .referenceCount(1L)
+                .createdAt(LocalDateTime.now())
+                .referencesUpdatedAt(LocalDateTime.now())
+                .build();
+    }
+
+    private static String sha256(byte[] content) throws Exception {
+        return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(content));
+    }
+}
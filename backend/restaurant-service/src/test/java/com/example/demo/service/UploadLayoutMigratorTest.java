@@ -0,0 +1,95 @@
+package com.example.demo.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+
+class UploadLayoutMigratorTest {
+
+    private static final String HASH = "0123456789abcdef".repeat(4);
+
+    @TempDir
+    Path tempDir;
+
+    private ImageVariantService imageVariantService;
+
+    private UploadLayoutMigrator migrator;
+
+    @BeforeEach
+    void setUp() {
+        imageVariantService = mock(ImageVariantService.class);
+        migrator = new UploadLayoutMigrator(tempDir.toString(), imageVariantService, true, 1, Duration.ZERO);
+    }
+
+    @Test
+    void migrate_ShouldMoveFlatFilesIntoShardDirectoriesAndWriteMarker() throws Exception {
+        // Given
+        Path flat = write("restaurants/" + HASH + ".png");
+        Path sharded = write("dishes/ab/cd/abcd" + HASH.substring(4) + ".jpg");
+        Path legacy = write("restaurants/logo.png");
+        Path hidden = write(".variants/restaurants/" + HASH + ".png/160.png");
+
+        // When
+        int moved = migrator.migrate();
+
+        // Then
+        assertThat(moved).isEqualTo(1);
+        assertThat(flat).doesNotExist();
+        assertThat(tempDir.resolve("restaurants/01/23/" + HASH + ".png")).hasContent("content");
+        assertThat(sharded).exists();
+        assertThat(legacy).exists();
+        assertThat(hidden).exists();
+        assertThat(tempDir.resolve(UploadLayoutMigrator.MARKER_FILE)).exists();
+        verify(imageVariantService).deleteVariants(flat);
+    }
+
+    @Test
+    void migrate_WhenRunAgain_ShouldMoveNothing() throws Exception {
+        write(HASH + ".png");
+
+        migrator.migrate();
+
+        assertThat(migrator.migrate()).isZero();
+        assertThat(tempDir.resolve("01/23/" + HASH + ".png")).exists();
+    }
+
+    @Test
+    void canonical_ShouldShardByLeadingHexCharactersOnly() {
+        assertThat(UploadLayout.canonical(Paths.get("restaurants/" + HASH + ".png")))
+                .isEqualTo(Paths.get("restaurants/01/23/" + HASH + ".png"));
+        assertThat(UploadLayout.canonical(Paths.get("restaurants/01/23/" + HASH + ".png")))
+                .isEqualTo(Paths.get("restaurants/01/23/" + HASH + ".png"));
+        assertThat(UploadLayout.canonical(Paths.get("restaurants/logo.png")))
+                .isEqualTo(Paths.get("restaurants/logo.png"));
+    }
+
+    @Test
+    void locate_ShouldPreferShardedLocationAndFallBackToFlat() throws IOException {
+        Path flat = tempDir.resolve("restaurants/" + HASH + ".png");
+        Path sharded = tempDir.resolve("restaurants/01/23/" + HASH + ".png");
+
+        assertThat(UploadLayout.locate(flat)).isEqualTo(sharded);
+        write("restaurants/" + HASH + ".png");
+        assertThat(UploadLayout.locate(flat)).isEqualTo(flat);
+        write("restaurants/01/23/" + HASH + ".png");
+        assertThat(UploadLayout.locate(flat)).isEqualTo(sharded);
+    }
+
+    private Path write(String relativePath) throws IOException {
+        Path path = tempDir.resolve(relativePath);
+        Files.createDirectories(path.getParent());
+        Files.writeString(path, "content", StandardCharsets.UTF_8);
+        return path;
+    }
+}
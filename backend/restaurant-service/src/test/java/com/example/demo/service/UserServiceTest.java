@@ -8,16 +8,21 @@ import com.example.demo.entity.Role;
 import com.example.demo.entity.User;
 import com.example.demo.exception.ResourceNotFoundException;
 import com.example.demo.exception.ValidationException;
+import com.example.demo.repository.RestaurantRepository;
 import com.example.demo.repository.UserRepository;
+import com.example.demo.security.RevokedUserRegistry;
+import com.example.demo.security.UserDetailsCache;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InOrder;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.security.crypto.password.PasswordEncoder;
 
 import java.time.LocalDateTime;
+import java.util.List;
 import java.util.Optional;
 
 import static org.assertj.core.api.Assertions.assertThat;
@@ -41,6 +46,21 @@ class UserServiceTest {
     @Mock
     private EmailVerificationService emailVerificationService;
 
+    @Mock
+    private RevokedUserRegistry revokedUserRegistry;
+
+    @Mock
+    private UserDetailsCache userDetailsCache;
+
+    @Mock
+    private RefreshTokenService refreshTokenService;
+
+    @Mock
+    private RestaurantRepository restaurantRepository;
+
+    @Mock
+    private StoredImageService storedImageService;
+
     @InjectMocks
     private UserService userService;
 
@@ -311,6 +331,8 @@ class UserServiceTest {
         assertThat(result.getEmail()).isEqualTo("john.new2@example.com");
         assertThat(result.getPhoneNumber()).isEqualTo("+48222222222");
         verify(userRepository, times(2)).save(any());
+        verify(userDetailsCache).evict("john@example.com", "john.new1@example.com");
+        verify(userDetailsCache).evict("john.new1@example.com", "john.new2@example.com");
     }
 
     // ========== Password Change Edge Cases ==========
@@ -336,6 +358,7 @@ class UserServiceTest {
         verify(userRepository).save(argThat(user ->
                 user.getPassword().equals("encodedLongPassword")
         ));
+        verify(userDetailsCache).evict("john@example.com");
     }
 
     @Test
@@ -429,6 +452,7 @@ class UserServiceTest {
                 .hasMessageContaining("User not found with ID: 999");
 
         verify(userRepository, never()).deleteById(any());
+        verifyNoInteractions(revokedUserRegistry);
     }
 
     @Test
@@ -441,6 +465,9 @@ class UserServiceTest {
 
         // Then
         verify(userRepository).delete(testUser);
+        verify(revokedUserRegistry).revokeUser(testUser.getId());
+        verify(refreshTokenService).revokeAllForUser(testUser.getId());
+        verify(userDetailsCache).evict(testUser.getEmail());
     }
 
     @Test
@@ -453,6 +480,26 @@ class UserServiceTest {
 
         // Then
         verify(userRepository).delete(testUser);
+        verify(storedImageService).updateReferences(List.of());
+        verify(revokedUserRegistry).revokeUser(1L);
+        verify(refreshTokenService).revokeAllForUser(1L);
+        verify(userDetailsCache).evict(testUser.getEmail());
+    }
+
+    @Test
+    void deleteUserById_ShouldRecountImagesOfCascadedRestaurantsAndDishes() {
+        // Given
+        when(userRepository.findById(1L)).thenReturn(Optional.of(testUser));
+        when(restaurantRepository.findImageUrlsByOwnerId(1L)).thenReturn(List.of("/uploads/restaurant.png"));
+        when(restaurantRepository.findDishImageUrlsByOwnerId(1L)).thenReturn(List.of("/uploads/dish.png"));
+
+        // When
+        userService.deleteUserById(1L);
+
+        // Then
+        InOrder order = inOrder(userRepository, storedImageService);
+        order.verify(userRepository).delete(testUser);
+        order.verify(storedImageService).updateReferences(List.of("/uploads/restaurant.png", "/uploads/dish.png"));
     }
 
     // ========== Verify User Edge Cases ==========
@@ -472,6 +519,8 @@ class UserServiceTest {
         assertThat(result.getRole()).isEqualTo(Role.VERIFIED_USER);
         assertThat(result.getVerifiedAt()).isNotNull();
         assertThat(result.getVerifiedAt()).isBetween(beforeVerify, afterVerify);
+        verify(userDetailsCache).evict(testUser.getEmail());
+        verify(revokedUserRegistry).revokeTokensIssuedBefore(1L, result.getVerifiedAt());
     }
 
     @Test
@@ -489,6 +538,7 @@ class UserServiceTest {
         // Then - Should update verifiedAt timestamp
         assertThat(result.getRole()).isEqualTo(Role.VERIFIED_USER);
         verify(userRepository).save(any());
+        verifyNoInteractions(revokedUserRegistry);
     }
 
     // ========== Get User Edge Cases ==========
@@ -1,5 +1,6 @@
 import React, { createContext, useContext, useState, useEffect } from 'react';
 import axios, { AxiosError } from 'axios';
+import { apiService } from '../services/api';
 
 const API_URL = import.meta.env.VITE_API_URL || 'http://localhost:8080/api';
 
@@ -31,6 +32,7 @@ interface RegisterData {
 
 interface AuthResponse {
   token: string;
+  refreshToken?: string;
   user: User;
 }
 
@@ -46,6 +48,29 @@ interface AuthContextType {
 
 const AuthContext = createContext<AuthContextType | undefined>(undefined);
 
+const getCurrentUser = (token: string | null) =>
+  axios.get<User>(`${API_URL}/auth/me`, {
+    headers: { Authorization: `Bearer ${token}` },
+  });
+
+// Access tokens are short-lived: on a 401 renew once with the stored refresh token, then retry
+const fetchCurrentUser = async (): Promise<User> => {
+  try {
+    const response = await getCurrentUser(localStorage.getItem('token'));
+    return response.data;
+  } catch (error) {
+    if (!(error instanceof AxiosError) || error.response?.status !== 401) {
+      throw error;
+    }
+    const token = await apiService.refreshAccessToken();
+    if (!token) {
+      throw error;
+    }
+    const response = await getCurrentUser(token);
+    return response.data;
+  }
+};
+
 // eslint-disable-next-line react-refresh/only-export-components
 export const useAuth = (): AuthContextType => {
   const context = useContext(AuthContext);
@@ -68,13 +93,11 @@ export const AuthProvider: React.FC<AuthProviderProps> = ({ children }) => {
       const token = localStorage.getItem('token');
       if (token) {
         try {
-          const response = await axios.get<User>(`${API_URL}/auth/me`, {
-            headers: { Authorization: `Bearer ${token}` },
-          });
-          setUser(response.data);
+          setUser(await fetchCurrentUser());
         } catch (error) {
           console.error('Token validation failed:', error);
           localStorage.removeItem('token');
+          localStorage.removeItem('refreshToken');
           setUser(null);
         }
       }
@@ -92,9 +115,12 @@ export const AuthProvider: React.FC<AuthProviderProps> = ({ children }) => {
 
       console.log('Login response:', response.data);
 
-      const { token, user: userData } = response.data;
+      const { token, refreshToken, user: userData } = response.data;
 
       localStorage.setItem('token', token);
+      if (refreshToken) {
+        localStorage.setItem('refreshToken', refreshToken);
+      }
       setUser(userData);
 
       console.log('Login successful, user set:', userData);
@@ -125,7 +151,16 @@ export const AuthProvider: React.FC<AuthProviderProps> = ({ children }) => {
   };
 
   const logout = () => {
+    const token = localStorage.getItem('token');
+    const refreshToken = localStorage.getItem('refreshToken');
+    if (token || refreshToken) {
+      // Revoke server-side; the local session ends regardless of the outcome
+      axios.post(`${API_URL}/auth/logout`, refreshToken ? { refreshToken } : undefined, {
+        headers: token ? { Authorization: `Bearer ${token}` } : undefined,
+      }).catch(() => undefined);
+    }
     localStorage.removeItem('token');
+    localStorage.removeItem('refreshToken');
     setUser(null);
   };
 
@@ -136,11 +171,9 @@ export const AuthProvider: React.FC<AuthProviderProps> = ({ children }) => {
     }
 
     try {
-      const response = await axios.get<User>(`${API_URL}/auth/me`, {
-        headers: { Authorization: `Bearer ${token}` },
-      });
-      console.log('User refreshed:', response.data);
-      setUser(response.data);
+      const userData = await fetchCurrentUser();
+      console.log('User refreshed:', userData);
+      setUser(userData);
     } catch (error) {
       console.error('Failed to refresh user:', error);
       throw error;
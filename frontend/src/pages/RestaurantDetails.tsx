@@ -1,6 +1,7 @@
 import React, { useState, useEffect } from 'react';
 import { useParams, useNavigate } from 'react-router-dom';
 import { apiService } from '../services/api';
+import { IMAGE_WIDTHS, imageVariantUrl } from '../services/images';
 import type { Restaurant } from '../types/restaurant.types';
 import type { Dish } from '../types/dish.types';
 import ReviewSection from '../components/restaurants/ReviewSection';
@@ -86,7 +87,7 @@ const RestaurantDetails: React.FC = () => {
       <div className="restaurant-hero">
         {restaurant.imageUrl && (
           <div className="hero-image">
-            <img src={restaurant.imageUrl} alt={restaurant.name} />
+            <img src={imageVariantUrl(restaurant.imageUrl, IMAGE_WIDTHS.full)} alt={restaurant.name} />
             <div className="hero-overlay"></div>
           </div>
         )}
@@ -211,7 +212,7 @@ const RestaurantDetails: React.FC = () => {
                   >
                     {dish.imageUrl && (
                       <div className="dish-image">
-                        <img src={dish.imageUrl} alt={dish.name} />
+                        <img src={imageVariantUrl(dish.imageUrl, IMAGE_WIDTHS.card)} alt={dish.name} loading="lazy" />
                         {hasAllergens && (
                           <div className="allergen-warning-badge">
                             ⚠️ Contains Your Allergens
@@ -1,6 +1,7 @@
 import React, { useEffect, useState } from 'react';
 import { useParams, useNavigate } from 'react-router-dom';
 import { apiService } from '../services/api';
+import { IMAGE_WIDTHS, imageVariantUrl } from '../services/images';
 import type { Restaurant } from '../types/restaurant.types';
 import type { Dish } from '../types/dish.types';
 import DishForm from '../components/forms/DishForm.tsx';
@@ -177,7 +178,7 @@ const RestaurantManagement: React.FC = () => {
               <div key={dish.id} className={`dish-card ${!dish.isAvailable ? 'unavailable' : ''}`}>
                 {dish.imageUrl && (
                   <div className="dish-image">
-                    <img src={dish.imageUrl} alt={dish.name} />
+                    <img src={imageVariantUrl(dish.imageUrl, IMAGE_WIDTHS.card)} alt={dish.name} loading="lazy" />
                     {!dish.isAvailable && (
                       <div className="unavailable-overlay">
                         <span>Unavailable</span>
@@ -1,4 +1,4 @@
-import axios, {type AxiosInstance, AxiosError} from 'axios';
+import axios, {type AxiosInstance, AxiosError, type InternalAxiosRequestConfig} from 'axios';
 import type {AuthResponse, LoginRequest, RegisterRequest, User} from '../types/auth.types';
 import type {Restaurant, CreateRestaurantRequest} from '../types/restaurant.types';
 import type {Dish, CreateDishRequest} from '../types/dish.types';
@@ -29,9 +29,20 @@ class ApiService {
 
         this.api.interceptors.response.use(
             (response) => response,
-            (error: AxiosError) => {
+            async (error: AxiosError) => {
+                const request = error.config as (InternalAxiosRequestConfig & {_retried?: boolean}) | undefined;
+                if (error.response?.status === 401 && request && !request._retried) {
+                    // Access tokens are short-lived: renew once with the refresh token, then replay the request
+                    request._retried = true;
+                    const token = await this.refreshAccessToken();
+                    if (token) {
+                        request.headers.Authorization = `Bearer ${token}`;
+                        return this.api(request);
+                    }
+                }
                 if (error.response?.status === 401) {
                     localStorage.removeItem('token');
+                    localStorage.removeItem('refreshToken');
                     window.location.href = '/login';
                 }
                 return Promise.reject(error);
@@ -39,6 +50,34 @@ class ApiService {
         );
     }
 
+    private refreshing: Promise<string | null> | null = null;
+
+    /**
+     * Exchange the stored refresh token for new tokens; concurrent 401s share one refresh,
+     * since a rotated refresh token cannot be used twice
+     */
+    refreshAccessToken(): Promise<string | null> {
+        const refreshToken = localStorage.getItem('refreshToken');
+        if (!refreshToken) {
+            return Promise.resolve(null);
+        }
+        if (!this.refreshing) {
+            this.refreshing = axios.post<AuthResponse>(`${API_BASE_URL}/auth/refresh`, {refreshToken})
+                .then((response) => {
+                    localStorage.setItem('token', response.data.token);
+                    if (response.data.refreshToken) {
+                        localStorage.setItem('refreshToken', response.data.refreshToken);
+                    }
+                    return response.data.token;
+                })
+                .catch(() => null)
+                .finally(() => {
+                    this.refreshing = null;
+                });
+        }
+        return this.refreshing;
+    }
+
     // --- Auth ---
     async login(data: LoginRequest): Promise<AuthResponse> {
         const response = await this.api.post<AuthResponse>('/auth/login', data);
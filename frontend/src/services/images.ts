@@ -0,0 +1,27 @@
+// src/services/images.ts
+
+// Widths the backend generates resized variants at (see ImageVariant)
+export const IMAGE_WIDTHS = {
+  thumbnail: 160,
+  card: 480,
+  full: 1280,
+} as const;
+
+export type ImageWidth = (typeof IMAGE_WIDTHS)[keyof typeof IMAGE_WIDTHS];
+
+const CLOUDINARY_UPLOAD = '/image/upload/';
+
+/**
+ * URL of an uploaded image resized to at most `width` pixels.
+ * Local uploads take a `?w=` parameter; Cloudinary URLs get a resize transformation.
+ * Any other URL is returned unchanged.
+ */
+export const imageVariantUrl = (url: string, width: ImageWidth): string => {
+  if (url.includes('res.cloudinary.com') && url.includes(CLOUDINARY_UPLOAD)) {
+    return url.replace(CLOUDINARY_UPLOAD, `${CLOUDINARY_UPLOAD}c_limit,w_${width},f_auto,q_auto/`);
+  }
+  if (url.includes('/uploads/') && !url.includes('?')) {
+    return `${url}?w=${width}`;
+  }
+  return url;
+};
@@ -27,6 +27,8 @@ export interface RegisterRequest {
 
 export interface AuthResponse {
   token: string;
+  refreshToken?: string;
+  expiresIn?: number;
   id: number;
   email: string;
   firstName: string;